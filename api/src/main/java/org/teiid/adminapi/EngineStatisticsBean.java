@@ -118,4 +118,28 @@ public interface EngineStatisticsBean {
      */
     int getMaxWaitPlanWaterMark();
 
+    /**
+     * Average time in milliseconds that plans waited in the queue before becoming active
+     * @return
+     */
+    long getAverageWaitPlanTimeMs();
+
+    /**
+     * Maximum time in milliseconds that a plan waited in the queue before becoming active
+     * @return
+     */
+    long getMaxWaitPlanTimeMs();
+
+    /**
+     * Number of plans rejected since the maximum number of queued plans was reached
+     * @return
+     */
+    long getShedPlanCount();
+
+    /**
+     * Expected processing memory reservation of the active plans used for admission
+     * @return
+     */
+    long getActivePlanReservationEstimateKb();
+
 }
@@ -68,4 +68,16 @@ public interface WorkerPoolStatisticsBean {
      */
     public int getHighestQueued();
 
+    /**
+     * @return The number of queued tasks by the time waited in the queue.  The buckets have
+     * inclusive upper bounds of 1, 10, 100, 1000 and 10000 milliseconds with a final unbounded bucket.
+     */
+    long[] getWaitTimeHistogram();
+
+    /**
+     * @return The number of queued tasks by the queue depth when queued.  The buckets have
+     * inclusive upper bounds of 1, 10, 100 and 1000 with a final unbounded bucket.
+     */
+    long[] getQueueDepthHistogram();
+
 }
@@ -33,6 +33,10 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
     private int activePlanCount;
     private int waitPlanCount;
     private int maxWaitPlanCount;
+    private long averageWaitPlanTimeMs;
+    private long maxWaitPlanTimeMs;
+    private long shedPlanCount;
+    private long activePlanReservationEstimateKb;
 
     @Override
     public int getSessionCount() {
@@ -89,6 +93,26 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
         return maxWaitPlanCount;
     }
 
+    @Override
+    public long getAverageWaitPlanTimeMs() {
+        return averageWaitPlanTimeMs;
+    }
+
+    @Override
+    public long getMaxWaitPlanTimeMs() {
+        return maxWaitPlanTimeMs;
+    }
+
+    @Override
+    public long getShedPlanCount() {
+        return shedPlanCount;
+    }
+
+    @Override
+    public long getActivePlanReservationEstimateKb() {
+        return activePlanReservationEstimateKb;
+    }
+
     public void setSessionCount(int sessionCount) {
         this.sessionCount = sessionCount;
     }
@@ -133,6 +157,22 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
         this.maxWaitPlanCount = maxWaitPlanCount;
     }
 
+    public void setAverageWaitPlanTimeMs(long averageWaitPlanTimeMs) {
+        this.averageWaitPlanTimeMs = averageWaitPlanTimeMs;
+    }
+
+    public void setMaxWaitPlanTimeMs(long maxWaitPlanTimeMs) {
+        this.maxWaitPlanTimeMs = maxWaitPlanTimeMs;
+    }
+
+    public void setShedPlanCount(long shedPlanCount) {
+        this.shedPlanCount = shedPlanCount;
+    }
+
+    public void setActivePlanReservationEstimateKb(long activePlanReservationEstimateKb) {
+        this.activePlanReservationEstimateKb = activePlanReservationEstimateKb;
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("EngineStatistics:"); //$NON-NLS-1$
@@ -147,6 +187,10 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
         sb.append("; activePlanCount ").append(activePlanCount); //$NON-NLS-1$
         sb.append("; waitPlanCount ").append(waitPlanCount); //$NON-NLS-1$
         sb.append("; maxWaitPlanCount ").append(maxWaitPlanCount); //$NON-NLS-1$
+        sb.append("; averageWaitPlanTimeMs ").append(averageWaitPlanTimeMs); //$NON-NLS-1$
+        sb.append("; maxWaitPlanTimeMs ").append(maxWaitPlanTimeMs); //$NON-NLS-1$
+        sb.append("; shedPlanCount ").append(shedPlanCount); //$NON-NLS-1$
+        sb.append("; activePlanReservationEstimateKb ").append(activePlanReservationEstimateKb); //$NON-NLS-1$
         return sb.toString();
     }
 
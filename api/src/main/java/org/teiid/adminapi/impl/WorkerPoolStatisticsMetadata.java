@@ -18,6 +18,8 @@
 
 package org.teiid.adminapi.impl;
 
+import java.util.Arrays;
+
 import org.teiid.adminapi.WorkerPoolStatistics;
 
 /**
@@ -27,6 +29,16 @@ public class WorkerPoolStatisticsMetadata extends AdminObjectImpl implements Wor
 
     private static final long serialVersionUID = -4917902925523802295L;
 
+    /**
+     * Inclusive upper bounds in milliseconds of the wait time histogram buckets
+     */
+    public static final long[] WAIT_TIME_BUCKETS = {1, 10, 100, 1000, 10000};
+
+    /**
+     * Inclusive upper bounds of the queue depth histogram buckets
+     */
+    public static final long[] QUEUE_DEPTH_BUCKETS = {1, 10, 100, 1000};
+
     // Current state
     private int queued;
     private int highestQueued;
@@ -35,6 +47,8 @@ public class WorkerPoolStatisticsMetadata extends AdminObjectImpl implements Wor
     private int highestActiveThreads;
     private long totalSubmitted;
     private long totalCompleted;
+    private long[] waitTimeHistogram = new long[WAIT_TIME_BUCKETS.length + 1];
+    private long[] queueDepthHistogram = new long[QUEUE_DEPTH_BUCKETS.length + 1];
 
     @Override
     public int getActiveThreads() {
@@ -76,6 +90,16 @@ public class WorkerPoolStatisticsMetadata extends AdminObjectImpl implements Wor
         return maxThreads;
     }
 
+    @Override
+    public long[] getWaitTimeHistogram() {
+        return waitTimeHistogram;
+    }
+
+    @Override
+    public long[] getQueueDepthHistogram() {
+        return queueDepthHistogram;
+    }
+
     public void setQueued(int queued) {
         this.queued = queued;
     }
@@ -104,6 +128,14 @@ public class WorkerPoolStatisticsMetadata extends AdminObjectImpl implements Wor
         this.totalCompleted = totalCompleted;
     }
 
+    public void setWaitTimeHistogram(long[] waitTimeHistogram) {
+        this.waitTimeHistogram = waitTimeHistogram;
+    }
+
+    public void setQueueDepthHistogram(long[] queueDepthHistogram) {
+        this.queueDepthHistogram = queueDepthHistogram;
+    }
+
     public void setQueueName(String name) {
         setName(name);
     }
@@ -120,6 +152,8 @@ public class WorkerPoolStatisticsMetadata extends AdminObjectImpl implements Wor
         str.append("; highestActiveThreads = " + highestActiveThreads);     //$NON-NLS-1$
         str.append("; totalSubmitted = " + totalSubmitted);     //$NON-NLS-1$
         str.append("; totalCompleted = " + totalCompleted);     //$NON-NLS-1$
+        str.append("; waitTimeHistogram = " + Arrays.toString(waitTimeHistogram));     //$NON-NLS-1$
+        str.append("; queueDepthHistogram = " + Arrays.toString(queueDepthHistogram));     //$NON-NLS-1$
         return str.toString();
     }
 
@@ -33,8 +33,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 import org.teiid.core.TeiidRuntimeException;
@@ -104,6 +106,20 @@ public class BatchSerializer {
         serializers.put(DataTypeManager.DefaultDataTypes.VARBINARY,        new ColumnSerializer[] {new BinaryColumnSerializer(), new BinaryColumnSerializer1()});
     }
 
+    /**
+     * Types whose current serialization does not depend upon the type of {@link ObjectOutput}
+     * beyond the handling of strings, and does not reference lob or other stream state.
+     */
+    private static final Set<String> FORWARDABLE_TYPES = new HashSet<String>(Arrays.asList(
+            DataTypeManager.DefaultDataTypes.BIG_DECIMAL, DataTypeManager.DefaultDataTypes.BIG_INTEGER,
+            DataTypeManager.DefaultDataTypes.BOOLEAN, DataTypeManager.DefaultDataTypes.BYTE,
+            DataTypeManager.DefaultDataTypes.CHAR, DataTypeManager.DefaultDataTypes.DATE,
+            DataTypeManager.DefaultDataTypes.DOUBLE, DataTypeManager.DefaultDataTypes.FLOAT,
+            DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.LONG,
+            DataTypeManager.DefaultDataTypes.SHORT, DataTypeManager.DefaultDataTypes.TIME,
+            DataTypeManager.DefaultDataTypes.TIMESTAMP, DataTypeManager.DefaultDataTypes.STRING,
+            DataTypeManager.DefaultDataTypes.VARBINARY));
+
     private static ColumnSerializer arrayColumnSerializer = new ColumnSerializer() {
 
         @Override
@@ -968,6 +984,26 @@ public class BatchSerializer {
         return batch;
     }
 
+    /**
+     * Determine if a batch written by {@link #writeBatch(ObjectOutput, String[], List)} to any
+     * {@link java.io.ObjectOutputStream} has the same form after the stream header as would be
+     * written for the given client serialization version.
+     * @param types
+     * @param clientSerializationVersion
+     * @return true if the serialized form may be forwarded to the client as is
+     */
+    public static boolean isForwardable(String[] types, byte clientSerializationVersion) {
+        if (clientSerializationVersion != CURRENT_VERSION) {
+            return false;
+        }
+        for (String type : types) {
+            if (!FORWARDABLE_TYPES.contains(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static String getClientSafeType(String type,
             byte clientSerializationVersion) {
         if (clientSerializationVersion == CURRENT_VERSION) {
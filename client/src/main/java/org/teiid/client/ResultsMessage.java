@@ -24,6 +24,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.ObjectStreamConstants;
 import java.io.OptionalDataException;
 import java.util.Arrays;
 import java.util.Collection;
@@ -48,6 +49,12 @@ public class ResultsMessage implements Externalizable {
 
     static final long serialVersionUID = 3546924172976187793L;
 
+    /**
+     * The length of the {@link java.io.ObjectOutputStream} stream header, which is
+     * replaced by the single version byte used by {@link CompactObjectOutputStream}
+     */
+    private static final int OBJECT_STREAM_HEADER_LENGTH = 4;
+
     private List<? extends List<?>> results;
     private String[] columnNames;
     private String[] dataTypes;
@@ -93,6 +100,8 @@ public class ResultsMessage implements Externalizable {
 
     private MultiArrayOutputStream serializationBuffer;
 
+    private byte[] serializedResults;
+
     public ResultsMessage(){
     }
 
@@ -315,7 +324,11 @@ public class ResultsMessage implements Externalizable {
             out.writeObject(exception);
         }
 
-        if (delayDeserialization && results != null) {
+        if (delayDeserialization && serializedResults != null) {
+            out.writeInt(serialize(false));
+            out.writeByte(ObjectStreamConstants.STREAM_VERSION);
+            out.write(serializedResults, OBJECT_STREAM_HEADER_LENGTH, serializedResults.length - OBJECT_STREAM_HEADER_LENGTH);
+        } else if (delayDeserialization && results != null) {
             serialize(true);
             out.writeInt(serializationBuffer.getCount());
             serializationBuffer.writeTo(out);
@@ -349,6 +362,9 @@ public class ResultsMessage implements Externalizable {
      * @throws IOException
      */
     public int serialize(boolean keepSerialization) throws IOException {
+        if (serializedResults != null) {
+            return serializedResults.length - OBJECT_STREAM_HEADER_LENGTH + 1;
+        }
         if (serializationBuffer == null) {
             serializationBuffer = new MultiArrayOutputStream(1 << 13);
             CompactObjectOutputStream oos = new CompactObjectOutputStream(serializationBuffer);
@@ -429,5 +445,15 @@ public class ResultsMessage implements Externalizable {
     public void setDelayDeserialization(boolean delayDeserialization) {
         this.delayDeserialization = delayDeserialization;
     }
+
+    /**
+     * Set the already serialized form of the results, as written by {@link BatchSerializer#writeBatch(ObjectOutput, String[], List)}
+     * to an {@link java.io.ObjectOutputStream}.  With delayed deserialization the bytes will be sent
+     * in place of serializing the results, so they must be {@link BatchSerializer#isForwardable(String[], byte) forwardable}.
+     * @param serializedResults
+     */
+    public void setSerializedResults(byte[] serializedResults) {
+        this.serializedResults = serializedResults;
+    }
 }
 
@@ -40,6 +40,8 @@ import org.teiid.core.types.GeographyType;
 import org.teiid.core.types.GeometryType;
 import org.teiid.core.types.JsonType;
 import org.teiid.core.util.TimestampWithTimezone;
+import org.teiid.netty.handler.codec.serialization.CompactObjectInputStream;
+import org.teiid.netty.handler.codec.serialization.CompactObjectOutputStream;
 import org.teiid.query.unittest.TimestampUtil;
 
 
@@ -190,6 +192,53 @@ public class TestBatchSerializer {
         assertFalse(val instanceof GeographyType);
     }
 
+    private static byte[] writeResults(ResultsMessage message) throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        ObjectOutputStream out = new CompactObjectOutputStream(byteStream);
+        message.writeExternal(out);
+        out.close();
+        return byteStream.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void testForwardSerializedResults() throws Exception {
+        String[] types = sampleBatchTypes.clone();
+        types[14] = DataTypeManager.DefaultDataTypes.TIMESTAMP;
+        assertTrue(BatchSerializer.isForwardable(types, BatchSerializer.VERSION_GEOGRAPHY));
+        assertFalse(BatchSerializer.isForwardable(types, BatchSerializer.VERSION_GEOMETRY));
+        assertFalse(BatchSerializer.isForwardable(sampleBatchTypes, BatchSerializer.VERSION_GEOGRAPHY));
+
+        List<?>[] batch = sampleBatchWithNulls(50);
+        //include a long string
+        batch[20] = new java.util.ArrayList<Object>(batch[20]);
+        ((List<Object>)batch[20]).set(11, sampleString(70000));
+        List<List<?>> batchList = Arrays.asList(batch);
+
+        //the storage form
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(byteStream);
+        BatchSerializer.writeBatch(out, types, batchList);
+        out.close();
+
+        ResultsMessage expected = new ResultsMessage(batchList, new String[types.length], types);
+        expected.setClientSerializationVersion(BatchSerializer.VERSION_GEOGRAPHY);
+        expected.setDelayDeserialization(true);
+
+        ResultsMessage forwarded = new ResultsMessage(batchList, new String[types.length], types);
+        forwarded.setClientSerializationVersion(BatchSerializer.VERSION_GEOGRAPHY);
+        forwarded.setDelayDeserialization(true);
+        forwarded.setSerializedResults(byteStream.toByteArray());
+        assertEquals(expected.serialize(false), forwarded.serialize(false));
+
+        byte[] bytes = writeResults(forwarded);
+        assertArrayEquals(writeResults(expected), bytes);
+
+        ResultsMessage result = new ResultsMessage();
+        result.readExternal(new CompactObjectInputStream(new ByteArrayInputStream(bytes), ResultsMessage.class.getClassLoader()));
+        result.processResults();
+        assertEquals(batchList, result.getResultsList());
+    }
+
     @Test public void testJson() throws IOException, ClassNotFoundException {
         JsonType json = new JsonType(new ClobImpl("5"));
         json.setReferenceStreamId(null);
@@ -30,6 +30,13 @@ public interface BatchManager {
 
     List<List<?>> getBatch(Long batch, boolean retain) throws TeiidComponentException;
 
+    /**
+     * Get the serialized form of the batch if it is only held in storage.
+     * The batch is retained.
+     * @return the bytes or null if the batch is held in memory
+     */
+    byte[] getSerializedBatch(Long batch) throws TeiidComponentException;
+
     void remove(Long batch);
 
     void setPrefersMemory(boolean prefers);
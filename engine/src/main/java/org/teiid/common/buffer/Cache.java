@@ -73,6 +73,15 @@ public interface Cache<T> extends StorageManager {
      */
     CacheEntry get(T lock, Long oid, WeakReference<? extends Serializer<?>> ref) throws TeiidComponentException;
 
+    /**
+     * Get the bytes written by the {@link Serializer} to an {@link java.io.ObjectOutputStream}
+     * without deserializing, must be called using the object obtained in the
+     * lockForLoad method
+     * @return the bytes or null if the entry is not held in serialized form
+     * @throws TeiidComponentException
+     */
+    byte[] getSerialized(T lock, Long oid, Serializer<?> serializer) throws TeiidComponentException;
+
     /**
      * Adds an entry to the cache.
      * @param entry
@@ -0,0 +1,564 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * A {@link TupleBatch} that holds its values by column rather than by row.
+ * <br>
+ * Integer, long, float, double and boolean columns are held in primitive arrays
+ * with a null bitmap, so that batches of those types do not retain a boxed value
+ * per cell.  All other types are held in object arrays.
+ * <br>
+ * {@link #getTuples()} and {@link #getTuple(long)} remain available as a read-only
+ * row adapter for operators that do not consume columns directly.
+ */
+public class ColumnarTupleBatch extends TupleBatch {
+
+    /**
+     * A single column of values with a null bitmap
+     */
+    public static abstract class Column {
+        protected long[] nulls;
+
+        Column(int size) {
+            this.nulls = new long[(size + 63) >>> 6];
+        }
+
+        public boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void setNull(int row) {
+            nulls[row >>> 6] |= (1L << row);
+        }
+
+        /**
+         * Get the boxed value at the given zero-based row.
+         */
+        public Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return getValue(row);
+        }
+
+        void set(int row, Object value) {
+            if (value == null) {
+                setNull(row);
+            } else {
+                setValue(row, value);
+            }
+        }
+
+        Column select(int[] rows, int count) {
+            Column result = newColumn(count);
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (isNull(row)) {
+                    result.setNull(i);
+                } else {
+                    result.copyValue(row, this, i);
+                }
+            }
+            return result;
+        }
+
+        Column resize(int size) {
+            this.nulls = Arrays.copyOf(this.nulls, (size + 63) >>> 6);
+            resizeValues(size);
+            return this;
+        }
+
+        protected abstract Object getValue(int row);
+
+        protected abstract void setValue(int row, Object value);
+
+        protected abstract void copyValue(int fromRow, Column from, int toRow);
+
+        protected abstract Column newColumn(int size);
+
+        protected abstract void resizeValues(int size);
+
+        /**
+         * @return the number of bytes needed for each value, or -1 if the values are object references
+         */
+        public abstract int getValueSize();
+    }
+
+    public static final class IntColumn extends Column {
+        private int[] values;
+
+        IntColumn(int size) {
+            super(size);
+            this.values = new int[size];
+        }
+
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = (Integer)value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((IntColumn)from).values[fromRow];
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new IntColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return 4;
+        }
+    }
+
+    public static final class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(int size) {
+            super(size);
+            this.values = new long[size];
+        }
+
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = (Long)value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((LongColumn)from).values[fromRow];
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new LongColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return 8;
+        }
+    }
+
+    public static final class FloatColumn extends Column {
+        private float[] values;
+
+        FloatColumn(int size) {
+            super(size);
+            this.values = new float[size];
+        }
+
+        public float getFloat(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = (Float)value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((FloatColumn)from).values[fromRow];
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new FloatColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return 4;
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+        private double[] values;
+
+        DoubleColumn(int size) {
+            super(size);
+            this.values = new double[size];
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = (Double)value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((DoubleColumn)from).values[fromRow];
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new DoubleColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return 8;
+        }
+    }
+
+    public static final class BooleanColumn extends Column {
+        private boolean[] values;
+
+        BooleanColumn(int size) {
+            super(size);
+            this.values = new boolean[size];
+        }
+
+        public boolean getBoolean(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = (Boolean)value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((BooleanColumn)from).values[fromRow];
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new BooleanColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return 1;
+        }
+    }
+
+    public static final class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(int size) {
+            super(size);
+            this.values = new Object[size];
+        }
+
+        @Override
+        public Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        protected void copyValue(int fromRow, Column from, int toRow) {
+            values[toRow] = ((ObjectColumn)from).values[fromRow];
+        }
+
+        @Override
+        Column select(int[] rows, int count) {
+            ObjectColumn result = new ObjectColumn(count);
+            for (int i = 0; i < count; i++) {
+                result.values[i] = values[rows[i]];
+            }
+            return result;
+        }
+
+        @Override
+        protected Column newColumn(int size) {
+            return new ObjectColumn(size);
+        }
+
+        @Override
+        protected void resizeValues(int size) {
+            this.values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int getValueSize() {
+            return -1;
+        }
+    }
+
+    /**
+     * Accumulates rows into a new {@link ColumnarTupleBatch}
+     */
+    public static class Builder {
+        private Column[] columns;
+        private int capacity;
+        private int size;
+
+        public Builder(Class<?>[] types, int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.columns = new Column[types.length];
+            for (int i = 0; i < types.length; i++) {
+                this.columns[i] = createColumn(types[i], this.capacity);
+            }
+        }
+
+        public void append(List<?> tuple) {
+            if (size == capacity) {
+                capacity <<= 1;
+                for (Column column : columns) {
+                    column.resize(capacity);
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].set(size, tuple.get(i));
+            }
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public ColumnarTupleBatch build(long beginRow) {
+            ColumnarTupleBatch result = new ColumnarTupleBatch(beginRow, columns, size);
+            this.columns = null;
+            return result;
+        }
+    }
+
+    /**
+     * Read-only view of the batch rows.  Each access creates a new row
+     * so that holding a row does not retain the rest of the batch.
+     */
+    public final class Rows extends AbstractList<List<?>> implements RandomAccess {
+
+        @Override
+        public List<?> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = columns[i].get(index);
+            }
+            return Arrays.asList(row);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+
+        public ColumnarTupleBatch getBatch() {
+            return ColumnarTupleBatch.this;
+        }
+    }
+
+    private final Column[] columns;
+    private final int rowCount;
+
+    public ColumnarTupleBatch(long beginRow, Column[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.tuples = new Rows();
+        setRowOffset(beginRow);
+    }
+
+    /**
+     * Create a column for values of the given runtime type
+     */
+    public static Column createColumn(Class<?> type, int size) {
+        if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+            return new IntColumn(size);
+        }
+        if (type == DataTypeManager.DefaultDataClasses.LONG) {
+            return new LongColumn(size);
+        }
+        if (type == DataTypeManager.DefaultDataClasses.DOUBLE) {
+            return new DoubleColumn(size);
+        }
+        if (type == DataTypeManager.DefaultDataClasses.FLOAT) {
+            return new FloatColumn(size);
+        }
+        if (type == DataTypeManager.DefaultDataClasses.BOOLEAN) {
+            return new BooleanColumn(size);
+        }
+        return new ObjectColumn(size);
+    }
+
+    /**
+     * Return true if at least one of the types would be held in a primitive column
+     */
+    public static boolean hasPrimitiveColumns(Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (!(createColumn(type, 0) instanceof ObjectColumn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a columnar copy of the given rows
+     */
+    public static ColumnarTupleBatch fromTuples(long beginRow, Class<?>[] types, List<? extends List<?>> tuples) {
+        Builder builder = new Builder(types, tuples.size());
+        for (int i = 0; i < tuples.size(); i++) {
+            builder.append(tuples.get(i));
+        }
+        return builder.build(beginRow);
+    }
+
+    /**
+     * Create a {@link TupleBatch} for the given rows, preserving the columnar form if the rows
+     * are a view of a {@link ColumnarTupleBatch}
+     */
+    public static TupleBatch wrap(long beginRow, List<List<?>> tuples) {
+        if (tuples instanceof ColumnarTupleBatch.Rows) {
+            //always create a new instance as the caller may set the termination
+            ColumnarTupleBatch batch = ((ColumnarTupleBatch.Rows)tuples).getBatch();
+            return new ColumnarTupleBatch(beginRow, batch.columns, batch.rowCount);
+        }
+        return new TupleBatch(beginRow, tuples);
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Return a batch with only the given columns.  The column values are shared, not copied.
+     */
+    public ColumnarTupleBatch project(int[] indexes) {
+        Column[] projected = new Column[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            projected[i] = columns[indexes[i]];
+        }
+        ColumnarTupleBatch result = new ColumnarTupleBatch(getBeginRow(), projected, rowCount);
+        result.setTermination(getTermination());
+        return result;
+    }
+
+    /**
+     * Return a batch containing only the given zero-based rows.
+     */
+    public ColumnarTupleBatch select(int[] rows, int count) {
+        Column[] selected = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selected[i] = columns[i].select(rows, count);
+        }
+        ColumnarTupleBatch result = new ColumnarTupleBatch(getBeginRow(), selected, count);
+        result.setTermination(getTermination());
+        return result;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getEndRow() {
+        return getBeginRow() + rowCount - 1;
+    }
+
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.common.buffer.impl.SizeUtility;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * A mutable list of sorted {@link STree} keys held by column.
+ * <br>
+ * Integer and long columns are held in primitive arrays.  String columns hold only
+ * the suffix after the prefix shared by all values in the list, which is typically
+ * long for index pages of codes, urls, etc.  Searches compare directly against the
+ * column values when the comparator allows.
+ * <br>
+ * If a key cannot be held in compact form, such as a null value, the list
+ * will hold rows from then on.
+ */
+public final class CompactKeyList extends AbstractList<List<?>> implements RandomAccess {
+
+    private abstract static class KeyColumn {
+
+        abstract Object get(int row);
+
+        /**
+         * @return false if the value cannot be held by this column
+         */
+        abstract boolean set(int row, Object value, int size);
+
+        abstract void copy(int from, int to, int length);
+
+        abstract void resize(int capacity);
+
+        /**
+         * @return the value to search with or null if a direct comparison is not possible
+         */
+        abstract Object prepare(Object value);
+
+        abstract int compare(int row, Object prepared);
+
+        abstract long getSizeEstimate(int size, int capacity);
+    }
+
+    private static final class IntKeyColumn extends KeyColumn {
+        private int[] values;
+
+        IntKeyColumn(int capacity) {
+            this.values = new int[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean set(int row, Object value, int size) {
+            if (!(value instanceof Integer)) {
+                return false;
+            }
+            values[row] = (Integer)value;
+            return true;
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object prepare(Object value) {
+            return value instanceof Integer?value:null;
+        }
+
+        @Override
+        int compare(int row, Object prepared) {
+            return Integer.compare(values[row], (Integer)prepared);
+        }
+
+        @Override
+        long getSizeEstimate(int size, int capacity) {
+            return 16 + 4l * capacity;
+        }
+    }
+
+    private static final class LongKeyColumn extends KeyColumn {
+        private long[] values;
+
+        LongKeyColumn(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        boolean set(int row, Object value, int size) {
+            if (!(value instanceof Long)) {
+                return false;
+            }
+            values[row] = (Long)value;
+            return true;
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object prepare(Object value) {
+            return value instanceof Long?value:null;
+        }
+
+        @Override
+        int compare(int row, Object prepared) {
+            return Long.compare(values[row], (Long)prepared);
+        }
+
+        @Override
+        long getSizeEstimate(int size, int capacity) {
+            return 16 + 8l * capacity;
+        }
+    }
+
+    /**
+     * Holds the common prefix once and the remaining suffix per row.
+     * Comparing suffixes is equivalent to comparing the full values as
+     * the string comparison is by character, with optional space padding.
+     */
+    private static final class StringKeyColumn extends KeyColumn {
+        private String prefix;
+        private String[] suffixes;
+
+        StringKeyColumn(int capacity, String prefix) {
+            this.suffixes = new String[capacity];
+            this.prefix = prefix;
+        }
+
+        @Override
+        Object get(int row) {
+            String suffix = suffixes[row];
+            if (prefix.isEmpty()) {
+                return suffix;
+            }
+            return prefix.concat(suffix);
+        }
+
+        @Override
+        boolean set(int row, Object value, int size) {
+            if (!(value instanceof String)) {
+                return false;
+            }
+            String s = (String)value;
+            if (prefix == null) {
+                prefix = s;
+            } else if (!s.startsWith(prefix)) {
+                //shorten the prefix
+                int length = commonPrefixLength(prefix, s);
+                String removed = prefix.substring(length);
+                for (int i = 0; i < size; i++) {
+                    if (i != row && suffixes[i] != null) {
+                        suffixes[i] = removed.concat(suffixes[i]);
+                    }
+                }
+                prefix = prefix.substring(0, length);
+            }
+            suffixes[row] = prefix.isEmpty()?s:s.substring(prefix.length());
+            return true;
+        }
+
+        @Override
+        void copy(int from, int to, int length) {
+            System.arraycopy(suffixes, from, suffixes, to, length);
+        }
+
+        @Override
+        void resize(int capacity) {
+            suffixes = Arrays.copyOf(suffixes, capacity);
+        }
+
+        @Override
+        Object prepare(Object value) {
+            if (!(value instanceof String) || prefix == null) {
+                return null;
+            }
+            String s = (String)value;
+            if (!s.startsWith(prefix)) {
+                return null;
+            }
+            return s.substring(prefix.length());
+        }
+
+        @Override
+        int compare(int row, Object prepared) {
+            return Constant.COMPARATOR.compare(suffixes[row], prepared);
+        }
+
+        @Override
+        long getSizeEstimate(int size, int capacity) {
+            long result = 16 + 8l * capacity + SizeUtility.getSize(prefix, false);
+            int rowsSampled = 0;
+            long estimatedSize = 0;
+            for (int row = 0; row < size; row=(row*2)+1) {
+                rowsSampled++;
+                estimatedSize += SizeUtility.getSize(suffixes[row], false);
+            }
+            if (rowsSampled > 0) {
+                result += estimatedSize/rowsSampled * size;
+            }
+            return result;
+        }
+    }
+
+    private KeyColumn[] columns;
+    private int size;
+    private List<List<?>> rows;
+
+    private CompactKeyList(KeyColumn[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * @return true if all of the types can be held in compact form
+     */
+    public static boolean isCompactable(Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type != DataTypeManager.DefaultDataClasses.INTEGER
+                    && type != DataTypeManager.DefaultDataClasses.LONG
+                    && (type != DataTypeManager.DefaultDataClasses.STRING || DataTypeManager.COLLATION_LOCALE != null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if all of the types can be held in primitive arrays
+     */
+    public static boolean isPrimitive(Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type != DataTypeManager.DefaultDataClasses.INTEGER
+                    && type != DataTypeManager.DefaultDataClasses.LONG) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a compact copy of the given keys
+     * @return the new list, or null if the keys cannot be held in compact form
+     */
+    public static CompactKeyList create(Class<?>[] types, List<? extends List<?>> keys) {
+        if (!isCompactable(types)) {
+            return null;
+        }
+        int capacity = Math.max(8, keys.size());
+        KeyColumn[] columns = new KeyColumn[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == DataTypeManager.DefaultDataClasses.INTEGER) {
+                columns[i] = new IntKeyColumn(capacity);
+            } else if (types[i] == DataTypeManager.DefaultDataClasses.LONG) {
+                columns[i] = new LongKeyColumn(capacity);
+            } else {
+                columns[i] = new StringKeyColumn(capacity, commonPrefix(keys, i));
+            }
+        }
+        CompactKeyList result = new CompactKeyList(columns);
+        for (int i = 0; i < keys.size(); i++) {
+            List<?> key = keys.get(i);
+            if (!result.setRow(i, key)) {
+                return null;
+            }
+            result.size++;
+        }
+        return result;
+    }
+
+    private static String commonPrefix(List<? extends List<?>> keys, int column) {
+        String prefix = null;
+        for (int i = 0; i < keys.size(); i++) {
+            List<?> key = keys.get(i);
+            if (key.size() <= column || !(key.get(column) instanceof String)) {
+                return null;
+            }
+            String s = (String)key.get(column);
+            if (prefix == null) {
+                prefix = s;
+            } else if (!s.startsWith(prefix)) {
+                prefix = prefix.substring(0, commonPrefixLength(prefix, s));
+            }
+        }
+        return prefix;
+    }
+
+    static int commonPrefixLength(String s1, String s2) {
+        int length = Math.min(s1.length(), s2.length());
+        for (int i = 0; i < length; i++) {
+            if (s1.charAt(i) != s2.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private boolean setRow(int index, List<?> key) {
+        if (key.size() != columns.length) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!columns[i].set(index, key.get(i), size)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Switch to holding rows
+     */
+    private void inflate() {
+        List<List<?>> result = new ArrayList<List<?>>(Math.max(size + 1, 8));
+        for (int i = 0; i < size; i++) {
+            result.add(get(i));
+        }
+        this.rows = result;
+        this.columns = null;
+        this.size = 0;
+    }
+
+    public boolean isCompact() {
+        return rows == null;
+    }
+
+    @Override
+    public List<?> get(int index) {
+        if (rows != null) {
+            return rows.get(index);
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = columns[i].get(index);
+        }
+        return Arrays.asList(row);
+    }
+
+    @Override
+    public List<?> set(int index, List<?> element) {
+        if (rows != null) {
+            return rows.set(index, element);
+        }
+        List<?> old = get(index);
+        if (!setRow(index, element)) {
+            //restore the row
+            setRow(index, old);
+            inflate();
+            return rows.set(index, element);
+        }
+        return old;
+    }
+
+    @Override
+    public void add(int index, List<?> element) {
+        if (rows == null) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            if (size == capacity()) {
+                int capacity = size + (size >> 1) + 1;
+                for (KeyColumn column : columns) {
+                    column.resize(capacity);
+                }
+            }
+            for (KeyColumn column : columns) {
+                column.copy(index, index + 1, size - index);
+            }
+            size++;
+            if (setRow(index, element)) {
+                modCount++;
+                return;
+            }
+            removeRange(index, index + 1);
+            inflate();
+        }
+        rows.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public List<?> remove(int index) {
+        if (rows != null) {
+            modCount++;
+            return rows.remove(index);
+        }
+        List<?> old = get(index);
+        removeRange(index, index + 1);
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (rows != null) {
+            rows.subList(fromIndex, toIndex).clear();
+        } else {
+            for (KeyColumn column : columns) {
+                column.copy(toIndex, fromIndex, size - toIndex);
+            }
+            size -= toIndex - fromIndex;
+        }
+        modCount++;
+    }
+
+    private int capacity() {
+        if (columns[0] instanceof IntKeyColumn) {
+            return ((IntKeyColumn)columns[0]).values.length;
+        }
+        if (columns[0] instanceof LongKeyColumn) {
+            return ((LongKeyColumn)columns[0]).values.length;
+        }
+        return ((StringKeyColumn)columns[0]).suffixes.length;
+    }
+
+    @Override
+    public int size() {
+        if (rows != null) {
+            return rows.size();
+        }
+        return size;
+    }
+
+    /**
+     * Search with the same result as {@link Collections#binarySearch(List, Object, java.util.Comparator)}.
+     * Compares directly against the column values if possible.
+     */
+    @SuppressWarnings("unchecked")
+    public int binarySearch(List<?> key, ListNestedSortComparator<?> comparator) {
+        Object[] prepared = prepare(key, comparator);
+        if (prepared == null) {
+            return Collections.binarySearch(this, key, (ListNestedSortComparator)comparator);
+        }
+        int compareLength = Math.min(key.size(), prepared.length);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = 0;
+            for (int i = 0; i < compareLength && cmp == 0; i++) {
+                cmp = columns[i].compare(mid, prepared[i]);
+            }
+            if (cmp == 0 && compareLength < prepared.length) {
+                //a partial key is greater than the matching keys
+                cmp = -1;
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Object[] prepare(List<?> key, ListNestedSortComparator<?> comparator) {
+        if (rows != null || size == 0 || !comparator.isSimpleAscending()) {
+            return null;
+        }
+        int[] sortParameters = comparator.getSortParameters();
+        if (sortParameters.length > columns.length) {
+            return null;
+        }
+        Object[] result = new Object[sortParameters.length];
+        for (int i = 0; i < sortParameters.length; i++) {
+            if (sortParameters[i] != i) {
+                return null;
+            }
+            if (i >= key.size()) {
+                continue;
+            }
+            Object value = key.get(i);
+            if (value == null) {
+                return null;
+            }
+            result[i] = columns[i].prepare(value);
+            if (result[i] == null) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the estimated memory size in bytes
+     */
+    public long getSizeEstimate() {
+        if (rows != null) {
+            return -1;
+        }
+        long result = 32;
+        int capacity = capacity();
+        for (KeyColumn column : columns) {
+            result += column.getSizeEstimate(size, capacity);
+        }
+        return result;
+    }
+
+}
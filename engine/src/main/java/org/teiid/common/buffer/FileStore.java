@@ -22,7 +22,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.teiid.common.buffer.AutoCleanupUtil.Removable;
@@ -140,6 +142,7 @@ public abstract class FileStore implements Removable {
     }
 
     private AtomicBoolean removed = new AtomicBoolean();
+    private List<Removable> removables;
 
     public abstract long getLength();
 
@@ -193,7 +196,34 @@ public abstract class FileStore implements Removable {
     public void remove() {
         if (removed.compareAndSet(false, true)) {
             this.removeDirect();
+            List<Removable> toRemove = null;
+            synchronized (this) {
+                toRemove = removables;
+                removables = null;
+            }
+            if (toRemove != null) {
+                for (Removable removable : toRemove) {
+                    removable.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a {@link Removable} to be called when this store is removed.
+     * If the store has already been removed, it is called immediately.
+     */
+    public void addRemovable(Removable removable) {
+        synchronized (this) {
+            if (!removed.get()) {
+                if (removables == null) {
+                    removables = new ArrayList<Removable>(2);
+                }
+                removables.add(removable);
+                return;
+            }
         }
+        removable.remove();
     }
 
     protected abstract void removeDirect();
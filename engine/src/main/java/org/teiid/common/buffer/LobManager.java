@@ -78,6 +78,7 @@ public class LobManager {
     private int[] lobIndexes;
     private FileStore lobStore;
     private boolean saveTemporary;
+    private SharedLobStore sharedLobStore;
 
     public LobManager(int[] lobIndexes, FileStore lobStore) {
         this.lobIndexes = lobIndexes;
@@ -89,6 +90,7 @@ public class LobManager {
         clone.inlineLobs = inlineLobs;
         clone.maxMemoryBytes = maxMemoryBytes;
         clone.saveTemporary = saveTemporary;
+        clone.sharedLobStore = sharedLobStore;
         synchronized (lobReferences) {
             for (Map.Entry<String, LobHolder> entry : lobReferences.entrySet()) {
                 LobHolder lobHolder = new LobHolder(entry.getValue().lob);
@@ -107,6 +109,13 @@ public class LobManager {
         this.maxMemoryBytes = maxMemoryBytes;
     }
 
+    /**
+     * Set the store used to share identical persisted lob values, may be null
+     */
+    public void setSharedLobStore(SharedLobStore sharedLobStore) {
+        this.sharedLobStore = sharedLobStore;
+    }
+
     @SuppressWarnings("unchecked")
     public void updateReferences(List<?> tuple, ReferenceMode mode)
             throws TeiidComponentException {
@@ -211,7 +220,7 @@ public class LobManager {
     public void detachLob(final Streamable<?> lob, final FileStore store, byte[] bytes) throws TeiidComponentException {
         // if this is not attached, just return
         if (InputStreamFactory.getStorageMode(lob) != StorageMode.MEMORY) {
-            persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes);
+            persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes, sharedLobStore);
         } else {
             InputStreamFactory.setTemporary(lob, false);
         }
@@ -219,6 +228,15 @@ public class LobManager {
 
     public static void persistLob(final Streamable<?> lob,
             final FileStore store, byte[] bytes, boolean inlineLobs, int maxMemoryBytes) throws TeiidComponentException {
+        persistLob(lob, store, bytes, inlineLobs, maxMemoryBytes, null);
+    }
+
+    /**
+     * Persist the lob to the store, or if the sharedLobStore is not null, to a shared
+     * copy whose reference is released along with the store.
+     */
+    public static void persistLob(final Streamable<?> lob,
+            final FileStore store, byte[] bytes, boolean inlineLobs, int maxMemoryBytes, SharedLobStore sharedLobStore) throws TeiidComponentException {
         long byteLength = Integer.MAX_VALUE;
 
         try {
@@ -258,40 +276,45 @@ public class LobManager {
                 return;
             }
 
-            InputStream is = null;
+            InputStreamFactory source = null;
             if (lob instanceof BlobType) {
-                is = new BlobInputStreamFactory((Blob)lob).getInputStream();
+                source = new BlobInputStreamFactory((Blob)lob);
             } else if (lob instanceof BaseClobType) {
-                is = new ClobInputStreamFactory((Clob)lob).getInputStream();
+                source = new ClobInputStreamFactory((Clob)lob);
             } else {
-                is = new SQLXMLInputStreamFactory((SQLXML)lob).getInputStream();
+                source = new SQLXMLInputStreamFactory((SQLXML)lob);
             }
 
-            long offset = store.getLength();
-
-            OutputStream fsos = store.createOutputStream();
-            byteLength = ObjectConverterUtil.write(fsos, is, bytes, -1);
-
-            // re-construct the new lobs based on the file store
-            final long lobOffset = offset;
-            final long lobLength = byteLength;
-            /*
-             * Using an inner class here will hold a reference to the LobManager
-             * which prevents the removal of the FileStore until all of the
-             * lobs have been gc'd
-             */
-            InputStreamFactory isf = new InputStreamFactory() {
-                @Override
-                public InputStream getInputStream() throws IOException {
-                    return store.createInputStream(lobOffset, lobLength);
-                }
+            InputStreamFactory isf = null;
+            if (sharedLobStore != null) {
+                isf = sharedLobStore.persist(lob, source, store, bytes);
+            } else {
+                long offset = store.getLength();
+
+                OutputStream fsos = store.createOutputStream();
+                byteLength = ObjectConverterUtil.write(fsos, source.getInputStream(), bytes, -1);
+
+                // re-construct the new lobs based on the file store
+                final long lobOffset = offset;
+                final long lobLength = byteLength;
+                /*
+                 * Using an inner class here will hold a reference to the LobManager
+                 * which prevents the removal of the FileStore until all of the
+                 * lobs have been gc'd
+                 */
+                isf = new InputStreamFactory() {
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        return store.createInputStream(lobOffset, lobLength);
+                    }
 
-                @Override
-                public StorageMode getStorageMode() {
-                    return StorageMode.PERSISTENT;
-                }
-            };
-            isf.setLength(byteLength);
+                    @Override
+                    public StorageMode getStorageMode() {
+                        return StorageMode.PERSISTENT;
+                    }
+                };
+                isf.setLength(byteLength);
+            }
             if (lob instanceof BlobType) {
                 ((BlobType)lob).setReference(new BlobImpl(isf));
             }
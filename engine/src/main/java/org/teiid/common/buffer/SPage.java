@@ -33,6 +33,7 @@ import org.teiid.client.ResizingArrayList;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.query.QueryPlugin;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
 
 /**
  * A linked list Page entry in the tree
@@ -133,7 +134,7 @@ class SPage implements Cloneable {
         List<List<?>> previousValues = null;
         for (;;) {
             List<List<?>> values = page.getValues();
-            int index = Collections.binarySearch(values, k, page.stree.comparator);
+            int index = binarySearch(values, k, page.stree.comparator);
             int flippedIndex = - index - 1;
             if (previousValues != null) {
                 if (flippedIndex == 0) {
@@ -143,7 +144,7 @@ class SPage implements Cloneable {
                 if (parent != null && index != 0) {
                     page.stree.updateLock.lock();
                     try {
-                        index = Collections.binarySearch(values, k, page.stree.comparator);
+                        index = binarySearch(values, k, page.stree.comparator);
                         if (index != 0) {
                             //for non-matches move the previous pointer over to this page
                             SPage childPage = page;
@@ -177,10 +178,23 @@ class SPage implements Cloneable {
         }
     }
 
+    static int binarySearch(List<List<?>> values, List k, ListNestedSortComparator comparator) {
+        if (values instanceof LightWeightCopyOnWriteList<?>) {
+            values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
+        }
+        if (values instanceof CompactKeyList) {
+            return ((CompactKeyList)values).binarySearch(k, comparator);
+        }
+        return Collections.binarySearch(values, k, comparator);
+    }
+
     protected void setValues(List<List<?>> values) throws TeiidComponentException {
         if (values instanceof LightWeightCopyOnWriteList<?>) {
             values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
         }
+        if (children != null) {
+            values = stree.compactKeys(values);
+        }
         if (values.size() < stree.minPageSize || stree.getRowCount() < stree.minStorageSize) {
             setDirectValues(values);
             return;
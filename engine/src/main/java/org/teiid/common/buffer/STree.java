@@ -37,6 +37,7 @@ import org.teiid.common.buffer.SPage.SearchResult;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.util.Assertion;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.processor.relational.ListNestedSortComparator;
@@ -69,6 +70,8 @@ public class STree implements Cloneable {
     protected int keyLength;
     protected boolean batchInsert;
     protected SPage incompleteInsert;
+    protected SPage[] bulkTails;
+    protected Class<?>[] compactKeyTypes;
     protected LobManager lobManager;
 
     protected ReentrantLock updateLock = new ReentrantLock();
@@ -101,6 +104,32 @@ public class STree implements Cloneable {
         this.lobManager = lobManager;
         this.minPageSize = this.pageSize>>5;
         this.minStorageSize = this.pageSize>>2;
+        Class<?>[] keyTypes = getKeyTypes(manager.getTypes());
+        if (CompactKeyList.isCompactable(keyTypes)) {
+            this.compactKeyTypes = keyTypes;
+        }
+    }
+
+    static Class<?>[] getKeyTypes(String[] typeNames) {
+        Class<?>[] types = new Class<?>[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++) {
+            types[i] = DataTypeManager.getDataTypeClass(typeNames[i]);
+        }
+        return types;
+    }
+
+    /**
+     * Get the compact form of the index page keys if possible
+     */
+    List<List<?>> compactKeys(List<List<?>> keys) {
+        if (compactKeyTypes == null || keys instanceof CompactKeyList || keys.isEmpty()) {
+            return keys;
+        }
+        CompactKeyList result = CompactKeyList.create(compactKeyTypes, keys);
+        if (result == null) {
+            return keys;
+        }
+        return result;
     }
 
     public STree clone() {
@@ -111,6 +140,7 @@ public class STree implements Cloneable {
                 clone.lobManager = lobManager.clone();
             }
             clone.updateLock = new ReentrantLock();
+            clone.bulkTails = null;
             clone.rowCount = new AtomicLong(rowCount.get());
             //clone the pages
             clone.pages = new HashMap<Long, SPage>(pages);
@@ -160,12 +190,29 @@ public class STree implements Cloneable {
         }
     }
 
+    /**
+     * Set batch insert mode, which delays storing the last leaf page until full.
+     * <br>
+     * If the tree is empty, ordered inserts are bulk loaded - full pages are packed
+     * sequentially and the index levels are built bottom up from the tail pages,
+     * rather than searching the tree for each insert.
+     */
     public void setBatchInsert(boolean batchInsert) throws TeiidComponentException {
         if (this.batchInsert == batchInsert) {
             return;
         }
         this.batchInsert = batchInsert;
-        if (batchInsert || incompleteInsert == null) {
+        if (batchInsert) {
+            if (rowCount.get() == 0 && header.length == 1 && header[0].values != null) {
+                bulkTails = new SPage[] {header[0]};
+            }
+            return;
+        }
+        if (bulkTails != null) {
+            endBulkLoad();
+            return;
+        }
+        if (incompleteInsert == null) {
             return;
         }
         SPage toFlush = incompleteInsert;
@@ -179,14 +226,14 @@ public class STree implements Cloneable {
     public void readValuesFrom(ObjectInputStream ois) throws IOException, ClassNotFoundException, TeiidComponentException {
         long size = ois.readLong();
         int sizeHint = this.getExpectedHeight(size);
-        batchInsert = true;
+        setBatchInsert(true);
         while (this.getRowCount() < size) {
             List<List<Object>> batch = BatchSerializer.readBatch(ois, leafManager.getTypes());
             for (List list : batch) {
                 this.insert(list, InsertMode.ORDERED, sizeHint);
             }
         }
-        batchInsert = false;
+        setBatchInsert(false);
     }
 
     protected SPage findChildTail(SPage page) {
@@ -277,11 +324,19 @@ public class STree implements Cloneable {
         if (tuple.size() != this.leafManager.getTypes().length) {
             throw new AssertionError("Invalid tuple."); //$NON-NLS-1$
         }
-        LinkedList<SearchResult> places = new LinkedList<SearchResult>();
-        List match = null;
         if (this.lobManager != null) {
             this.lobManager.updateReferences(tuple, ReferenceMode.CREATE);
         }
+        if (bulkTails != null) {
+            if (mode == InsertMode.ORDERED) {
+                bulkInsert(tuple);
+                return null;
+            }
+            //the tail pages may change
+            endBulkLoad();
+        }
+        LinkedList<SearchResult> places = new LinkedList<SearchResult>();
+        List match = null;
         if (mode == InsertMode.ORDERED) {
             SPage last = null;
             while (last == null || last.children != null) {
@@ -316,9 +371,11 @@ public class STree implements Cloneable {
             }
         } else if (!places.isEmpty() && places.getLast().values.size() == getPageSize(true)) {
             long row = rowCount.get();
-            while (row != 0 && row%getPageSize(true) == 0) {
-                row = (row - getPageSize(true) + 1)/getPageSize(true);
+            int size = getPageSize(true);
+            while (row != 0 && row%size == 0) {
+                row = (row - size + 1)/size;
                 level++;
+                size = getPageSize(false);
             }
         }
         assert header.length == places.size();
@@ -345,6 +402,62 @@ public class STree implements Cloneable {
         return null;
     }
 
+    /**
+     * Append the tuple to the tail leaf page.  The tail pages at each level hold
+     * their values directly until full.
+     */
+    private void bulkInsert(List tuple) throws TeiidComponentException {
+        SPage leaf = bulkTails[0];
+        if (leaf.values.size() == leafSize) {
+            leaf = appendBulkPage(0, extractKey(tuple));
+        }
+        leaf.values.add(tuple);
+        rowCount.addAndGet(1);
+    }
+
+    /**
+     * Store the full tail page at the given level and link a new tail page
+     * indexed by the given key at the next level.
+     */
+    private SPage appendBulkPage(int level, List key) throws TeiidComponentException {
+        SPage page = bulkTails[level];
+        boolean leaf = page.children == null;
+        page.setValues(page.values);
+        SPage nextPage = new SPage(this, leaf);
+        page.next = nextPage;
+        nextPage.prev = page;
+        bulkTails[level] = nextPage;
+        if (level + 1 == bulkTails.length) {
+            //add a level indexing the first page of this level
+            SPage head = new SPage(this, false);
+            List<?> first = header[level].getValues().get(0);
+            head.values.add(leaf?extractKey(first):first);
+            head.children.add(header[level]);
+            header = Arrays.copyOf(header, level + 2);
+            header[level + 1] = head;
+            bulkTails = Arrays.copyOf(bulkTails, level + 2);
+            bulkTails[level + 1] = head;
+        }
+        SPage parent = bulkTails[level + 1];
+        if (parent.values.size() == pageSize) {
+            parent = appendBulkPage(level + 1, key);
+        }
+        parent.values.add(key);
+        parent.children.add(nextPage);
+        return nextPage;
+    }
+
+    private void endBulkLoad() throws TeiidComponentException {
+        SPage[] tails = bulkTails;
+        bulkTails = null;
+        incompleteInsert = null;
+        for (SPage page : tails) {
+            if (page.managedBatch == null && page.values != null) {
+                page.setValues(page.values);
+            }
+        }
+    }
+
     public int getExpectedHeight(long sizeHint) {
         if (sizeHint == 0) {
             return 0;
@@ -422,6 +535,9 @@ public class STree implements Cloneable {
     }
 
     public List remove(List key) throws TeiidComponentException {
+        if (bulkTails != null) {
+            endBulkLoad();
+        }
         LinkedList<SearchResult> places = new LinkedList<SearchResult>();
         List tuple = find(key, places);
         if (tuple == null) {
@@ -503,6 +619,7 @@ public class STree implements Cloneable {
 
     public long truncate(boolean force) {
         long oldSize = rowCount.getAndSet(0);
+        bulkTails = null;
         for (int i = 0; i < header.length; i++) {
             SPage page = header[i];
             while (page != null) {
@@ -0,0 +1,107 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.client.BatchSerializer;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.query.QueryPlugin;
+
+/**
+ * A {@link TupleBatch} read from storage that has not yet been deserialized.
+ * <br>
+ * The serialized form is the {@link BatchSerializer} form written to an {@link java.io.ObjectOutputStream},
+ * which may be forwarded directly to a client.  {@link #getTuples()} remains available and
+ * deserializes the rows on first access.
+ */
+public class SerializedTupleBatch extends TupleBatch {
+
+    /**
+     * Row view of the batch that deserializes on first access
+     */
+    final class Rows extends AbstractList<List<?>> implements RandomAccess {
+
+        private List<? extends List<?>> rows;
+
+        @Override
+        public List<?> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            if (rows == null) {
+                try {
+                    rows = BatchSerializer.readBatch(new ObjectInputStream(new ByteArrayInputStream(bytes)), types);
+                } catch (IOException e) {
+                    throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30052, e);
+                } catch (ClassNotFoundException e) {
+                    throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30052, e);
+                }
+            }
+            return rows.get(index);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+
+    private final byte[] bytes;
+    private final String[] types;
+    private final int rowCount;
+
+    public SerializedTupleBatch(long beginRow, byte[] bytes, String[] types, int rowCount) {
+        this.bytes = bytes;
+        this.types = types;
+        this.rowCount = rowCount;
+        this.tuples = new Rows();
+        setRowOffset(beginRow);
+    }
+
+    /**
+     * @return the serialized rows, which should not be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return true if the rows have not been deserialized
+     */
+    public boolean isSerialized() {
+        return ((Rows)tuples).rows == null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getEndRow() {
+        return getBeginRow() + rowCount - 1;
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.AutoCleanupUtil.Removable;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.types.BaseLob;
+import org.teiid.core.types.InputStreamFactory;
+import org.teiid.core.types.InputStreamFactory.StorageMode;
+import org.teiid.core.types.Streamable;
+
+/**
+ * Content addressed storage for persisted lob values.
+ * <br>
+ * Values are keyed by their SHA-256 digest and length, so that identical values persisted
+ * by any buffer of the same {@link BufferManager} share a single reference counted copy.
+ * A reference is released when the owning {@link FileStore} is removed, the lob is freed, or the
+ * lob is no longer reachable.
+ */
+public class SharedLobStore {
+
+    private final class SharedLob {
+        private final String key;
+        private final FileStore store;
+        private final long length;
+        private int references = 1; //guarded by lobs
+
+        private SharedLob(String key, FileStore store, long length) {
+            this.key = key;
+            this.store = store;
+            this.length = length;
+        }
+
+        private void release() {
+            synchronized (lobs) {
+                if (--references > 0) {
+                    return;
+                }
+                lobs.remove(key);
+            }
+            store.remove();
+        }
+    }
+
+    /**
+     * A single reference to a shared value, which may only be released once
+     */
+    private static final class LobReference implements Removable {
+        private final SharedLob lob;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LobReference(SharedLob lob) {
+            this.lob = lob;
+        }
+
+        @Override
+        public void remove() {
+            if (released.compareAndSet(false, true)) {
+                lob.release();
+            }
+        }
+    }
+
+    final class SharedInputStreamFactory extends InputStreamFactory {
+        private final SharedLob lob;
+        private final LobReference reference;
+        private PhantomReference<Object> cleanup;
+
+        private SharedInputStreamFactory(SharedLob lob) {
+            this.lob = lob;
+            this.reference = new LobReference(lob);
+            this.cleanup = AutoCleanupUtil.setCleanupReference(this, reference);
+            setLength(lob.length);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return lob.store.createInputStream(0, lob.length);
+        }
+
+        @Override
+        public StorageMode getStorageMode() {
+            return StorageMode.PERSISTENT;
+        }
+
+        @Override
+        public void free() {
+            reference.remove();
+            AutoCleanupUtil.removeCleanupReference(cleanup);
+            cleanup = null;
+        }
+
+        private SharedLobStore getSharedLobStore() {
+            return SharedLobStore.this;
+        }
+    }
+
+    private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private final BufferManager bufferManager;
+    private final Map<String, SharedLob> lobs = new HashMap<String, SharedLob>();
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    public SharedLobStore(BufferManager bufferManager) {
+        this.bufferManager = bufferManager;
+    }
+
+    /**
+     * Get a persistent {@link InputStreamFactory} for the contents of the lob.
+     * <br>
+     * A lob already backed by this store just gains a reference.  A re-readable lob
+     * is hashed prior to writing so that a duplicate value does not need to be written.
+     * Other values are written once to compute the hash and then shared if possible.
+     *
+     * @param lob
+     * @param source the stream source of the lob contents
+     * @param owner if not null, the store whose removal should release the reference
+     * @param bytes the copy buffer
+     */
+    public InputStreamFactory persist(Streamable<?> lob, InputStreamFactory source, FileStore owner, byte[] bytes) throws IOException {
+        SharedLob sharedLob = null;
+        Object reference = lob.getReference();
+        if (reference instanceof BaseLob) {
+            try {
+                InputStreamFactory existing = ((BaseLob)reference).getStreamFactory();
+                if (existing instanceof SharedInputStreamFactory && ((SharedInputStreamFactory)existing).getSharedLobStore() == this) {
+                    sharedLob = addReference(((SharedInputStreamFactory)existing).lob.key);
+                }
+            } catch (SQLException e) {
+                //not usable, just copy
+            }
+        }
+        if (bytes == null) {
+            bytes = new byte[1 << 14];
+        }
+        MessageDigest digest = null;
+        if (sharedLob == null && InputStreamFactory.getStorageMode(lob) == StorageMode.PERSISTENT) {
+            digest = getDigest();
+            long length = copy(source.getInputStream(), null, digest, bytes);
+            sharedLob = addReference(getKey(digest, length));
+        }
+        if (sharedLob == null) {
+            if (digest == null) {
+                digest = getDigest();
+            } else {
+                digest.reset();
+            }
+            FileStore store = bufferManager.createFileStore("shared_lob"); //$NON-NLS-1$
+            long length = 0;
+            try {
+                OutputStream os = store.createOutputStream();
+                length = copy(source.getInputStream(), os, digest, bytes);
+                os.close();
+            } catch (IOException e) {
+                store.remove();
+                throw e;
+            }
+            sharedLob = add(getKey(digest, length), store, length);
+        }
+        SharedInputStreamFactory isf = new SharedInputStreamFactory(sharedLob);
+        if (owner != null) {
+            owner.addRemovable(isf.reference);
+        }
+        return isf;
+    }
+
+    private SharedLob addReference(String key) {
+        synchronized (lobs) {
+            SharedLob existing = lobs.get(key);
+            if (existing == null) {
+                return null;
+            }
+            existing.references++;
+            sharedCount.incrementAndGet();
+            return existing;
+        }
+    }
+
+    private SharedLob add(String key, FileStore store, long length) {
+        SharedLob existing = null;
+        synchronized (lobs) {
+            existing = addReference(key);
+            if (existing == null) {
+                SharedLob result = new SharedLob(key, store, length);
+                lobs.put(key, result);
+                return result;
+            }
+        }
+        store.remove();
+        return existing;
+    }
+
+    private static long copy(InputStream is, OutputStream os, MessageDigest digest, byte[] bytes) throws IOException {
+        long length = 0;
+        try {
+            int read = 0;
+            while ((read = is.read(bytes)) != -1) {
+                digest.update(bytes, 0, read);
+                if (os != null) {
+                    os.write(bytes, 0, read);
+                }
+                length += read;
+            }
+        } finally {
+            is.close();
+        }
+        return length;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new TeiidRuntimeException(e);
+        }
+    }
+
+    private static String getKey(MessageDigest digest, long length) {
+        byte[] hash = digest.digest();
+        StringBuilder sb = new StringBuilder(hash.length * 2 + 20);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.append(':').append(length).toString();
+    }
+
+    /**
+     * @return the number of distinct values currently stored
+     */
+    public int getLobCount() {
+        synchronized (lobs) {
+            return lobs.size();
+        }
+    }
+
+    /**
+     * @return the number of times an existing value was shared rather than stored again
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+}
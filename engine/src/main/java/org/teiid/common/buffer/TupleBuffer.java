@@ -114,6 +114,22 @@ public class TupleBuffer {
         return types;
     }
 
+    /**
+     * Gets the runtime type classes for each of the input expressions, in order.
+     * @param expressions List of Expressions
+     * @return
+     */
+    public static Class<?>[] getTypeClasses(List<? extends Expression> expressions) {
+        Class<?>[] types = new Class[expressions.size()];
+        for (ListIterator<? extends Expression> i = expressions.listIterator(); i.hasNext();) {
+            Expression expr = i.next();
+            Class<?> type = expr.getType();
+            Assertion.isNotNull(type);
+            types[i.previousIndex()] = type;
+        }
+        return types;
+    }
+
     //construction state
     private BatchManager manager;
     private String tupleSourceID;
@@ -188,7 +204,14 @@ public class TupleBuffer {
     public void addTupleBatch(TupleBatch batch, boolean save) throws TeiidComponentException {
         setRowCount(batch.getBeginRow() - 1);
         List<List<?>> tuples = batch.getTuples();
-        if (save) {
+        if (save && batch instanceof ColumnarTupleBatch && !isLobs()
+                && (batchBuffer == null || batchBuffer.isEmpty())
+                && batch.getRowCount() >= Math.max(1, batchSize / 4)) {
+            //hold the columns directly rather than converting back to rows
+            Long mbatch = manager.createManagedBatch(tuples, null, false);
+            this.batches.put(rowCount + 1, mbatch);
+            this.rowCount += batch.getRowCount();
+        } else if (save) {
             for (int i = 0; i < batch.getRowCount(); i++) {
                 addTuple(tuples.get(i));
             }
@@ -261,7 +284,7 @@ public class TupleBuffer {
      * @return
      * @throws TeiidComponentException
      *
-     * TODO: a method to get the raw batch
+     * @see #getSerializedBatch(long)
      */
     public TupleBatch getBatch(long row) throws TeiidComponentException {
         assert !removed;
@@ -283,7 +306,7 @@ public class TupleBuffer {
             Assertion.isNotNull(entry);
             Long batch = entry.getValue();
             List<List<?>> rows = manager.getBatch(batch, !forwardOnly);
-            result = new TupleBatch(entry.getKey(), rows);
+            result = ColumnarTupleBatch.wrap(entry.getKey(), rows);
             if (isFinal && result.getEndRow() == rowCount) {
                 result.setTerminationFlag(true);
             }
@@ -297,6 +320,44 @@ public class TupleBuffer {
         return result;
     }
 
+    /**
+     * Get the managed batch beginning with the given row in its serialized form.
+     * This is only possible when the batch is held in storage, rather than memory.
+     * @param row
+     * @return the batch or null if not available
+     * @throws TeiidComponentException
+     */
+    public SerializedTupleBatch getSerializedBatch(long row) throws TeiidComponentException {
+        assert !removed;
+        if (row > rowCount || (this.batchBuffer != null && row > rowCount - this.batchBuffer.size())) {
+            return null;
+        }
+        Long batch = batches.get(row);
+        if (batch == null) {
+            return null;
+        }
+        byte[] bytes = manager.getSerializedBatch(batch);
+        if (bytes == null) {
+            return null;
+        }
+        Long next = batches.higherKey(row);
+        long endRow = rowCount;
+        if (next != null) {
+            endRow = next - 1;
+        } else if (this.batchBuffer != null) {
+            endRow -= this.batchBuffer.size();
+        }
+        SerializedTupleBatch result = new SerializedTupleBatch(row, bytes, getTypes(), (int)(endRow - row + 1));
+        if (isFinal && endRow == rowCount) {
+            result.setTerminationFlag(true);
+        }
+        if (forwardOnly) {
+            batches.remove(row);
+            manager.remove(batch);
+        }
+        return result;
+    }
+
     public void remove() {
         if (!removed) {
             if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
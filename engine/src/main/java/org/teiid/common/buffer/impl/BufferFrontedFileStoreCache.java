@@ -18,6 +18,8 @@
 
 package org.teiid.common.buffer.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
@@ -28,6 +30,7 @@ import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -105,6 +108,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
     private static final int DEFAULT_MIN_DEFRAG = 1 << 26;
     private static final int HEADER_BYTES = 16;
     private static final int EVICTION_SCANS = 2;
+    private static final int COMPRESSION_CHUNK_SIZE = 1 << 16;
 
     public static final int DEFAULT_MAX_OBJECT_SIZE = 1 << 23;
 
@@ -357,7 +361,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 
     private int maxMemoryBlocks;
     private AtomicLong readAttempts = new AtomicLong();
-    LrfuEvictionQueue<PhysicalInfo> memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
+    EvictionQueue<PhysicalInfo> memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
     private Semaphore memoryWritePermits; //prevents deadlock waiting for free blocks
     private ReentrantReadWriteLock memoryEvictionLock = new ReentrantReadWriteLock(true);
     private ReentrantLock freedLock = new ReentrantLock();
@@ -379,6 +383,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
     private AtomicInteger freedCounter = new AtomicInteger();
 
     private boolean compactBufferFiles = PropertiesUtils.getHierarchicalProperty("org.teiid.compactBufferFiles", false, Boolean.class); //$NON-NLS-1$
+    private boolean compressBufferFiles = PropertiesUtils.getHierarchicalProperty("org.teiid.compressBufferFiles", false, Boolean.class); //$NON-NLS-1$
 
     private int truncateInterval = 4;
     //defrag to release freespace held by storage files
@@ -552,6 +557,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
     private AtomicLong storageWrites = new AtomicLong();
     private AtomicLong storageReads = new AtomicLong();
 
+    //compression stats
+    private AtomicLong compressionInputBytes = new AtomicLong();
+    private AtomicLong compressionOutputBytes = new AtomicLong();
+    private AtomicLong compressionNanos = new AtomicLong();
+    private AtomicLong compressionBytesSaved = new AtomicLong();
+
     private long minDefrag = DEFAULT_MIN_DEFRAG;
     private BufferManagerImpl bufferManager;
 
@@ -784,14 +795,41 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
         if (serializer == null) {
             return null;
         }
+        Object result = read(info, oid, serializer, false);
+        if (result == null) {
+            return null;
+        }
+        return new CacheEntry(new CacheKey(oid, 1, 1), info.sizeEstimate, result, ref, true);
+    }
+
+    @Override
+    public byte[] getSerialized(PhysicalInfo info, Long oid,
+            Serializer<?> serializer) throws TeiidComponentException {
+        if (info == null) {
+            return null;
+        }
+        return (byte[])read(info, oid, serializer, true);
+    }
+
+    /**
+     * Read either the deserialized object or just its serialized bytes
+     */
+    private Object read(PhysicalInfo info, Long oid, Serializer<?> serializer, boolean serialized)
+            throws TeiidComponentException {
         readAttempts.incrementAndGet();
         InputStream is = null;
         Lock lock = null;
         ExtensibleBufferedInputStream eis = null;
         int memoryBlocks = 0;
+        boolean compressed = false;
+        int size = 0;
         try {
             synchronized (info) {
                 assert !info.pinned && info.loading; //load should be locked
+                size = info.size;
+                if (serialized && size <= HEADER_BYTES) {
+                    return null;
+                }
                 info.await(true, false); //not necessary, but should make things safer
                 if (info.inode != EMPTY_ADDRESS) {
                     info.pinned = true;
@@ -812,7 +850,8 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
                     int segment = info.block/blockStore.blocksInUse.getBitsPerSegment();
                     FileStore fs = blockStore.stores[segment];
                     long blockOffset = (info.block%blockStore.blocksInUse.getBitsPerSegment())*blockStore.blockSize;
-                    eis = fs.createInputStream(blockOffset, info.memoryBlockCount<<LOG_BLOCK_SIZE);
+                    compressed = info.compressed;
+                    eis = fs.createInputStream(blockOffset, compressed?blockStore.blockSize:info.memoryBlockCount<<LOG_BLOCK_SIZE);
                     lock = blockStore.locks[segment].writeLock();
                     memoryBlocks = info.memoryBlockCount;
                 } else {
@@ -820,14 +859,18 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
                 }
             }
             if (lock != null) {
-                is = readIntoMemory(info, eis, lock, memoryBlocks);
+                is = readIntoMemory(info, eis, lock, memoryBlocks, compressed);
             }
             for (int i = 0; i < HEADER_BYTES; i++) {
                 is.read();
             }
+            if (serialized) {
+                byte[] result = new byte[size - HEADER_BYTES];
+                new DataInputStream(is).readFully(result);
+                return result;
+            }
             ObjectInput dis = new ObjectInputStream(is);
-            CacheEntry ce = new CacheEntry(new CacheKey(oid, 1, 1), info.sizeEstimate, serializer.deserialize(dis), ref, true);
-            return ce;
+            return serializer.deserialize(dis);
         } catch(IOException e) {
              throw new TeiidComponentException(QueryPlugin.Event.TEIID30048, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30048, info.gid, oid));
         } catch (ClassNotFoundException e) {
@@ -846,7 +889,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
      * Transfer into memory to release memory/file locks
      */
     private InputStream readIntoMemory(PhysicalInfo info, ExtensibleBufferedInputStream is,
-            Lock fileLock, int memoryBlocks) throws InterruptedException,
+            Lock fileLock, int memoryBlocks, boolean compressed) throws InterruptedException,
             IOException {
         checkForLowMemory();
         this.memoryWritePermits.acquire(memoryBlocks);
@@ -864,12 +907,16 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
             fileLock.lock();
             locked = true;
             ExtensibleBufferedOutputStream os = new BlockOutputStream(manager, -1);
-            //TODO: there is still an extra buffer being created here, we could FileChannels to do better
-            ByteBuffer bb = null;
-            while ((bb = is.getBuffer()) != null) {
-                byte[] array = bb.array();
-                os.write(array, bb.position() + bb.arrayOffset(), bb.remaining());
-                bb.position(bb.position()+bb.remaining());
+            if (compressed) {
+                decompress(is, os, memoryBlocks);
+            } else {
+                //TODO: there is still an extra buffer being created here, we could FileChannels to do better
+                ByteBuffer bb = null;
+                while ((bb = is.getBuffer()) != null) {
+                    byte[] array = bb.array();
+                    os.write(array, bb.position() + bb.arrayOffset(), bb.remaining());
+                    bb.position(bb.position()+bb.remaining());
+                }
             }
             fileLock.unlock();
             os.close();
@@ -895,6 +942,71 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
         return is;
     }
 
+    /**
+     * Compress the memory image of an object for storage.  The header is left
+     * uncompressed so that defrag can identify the block, then the rest of the
+     * image is compressed in chunks that are each prefixed by their compressed length.
+     * @return the compressed image or null if it would not fit in a smaller storage block
+     */
+    private byte[] compress(BlockManager bm, int memoryBlockCount, int sizeIndex) throws IOException {
+        long start = System.nanoTime();
+        int rawLength = memoryBlockCount<<LOG_BLOCK_SIZE;
+        int limit = BLOCK_SIZE<<(sizeIndex - 1);
+        DataInputStream is = new DataInputStream(new BlockInputStream(bm, memoryBlockCount));
+        byte[] result = new byte[limit];
+        is.readFully(result, 0, HEADER_BYTES);
+        int length = HEADER_BYTES;
+        byte[] chunk = new byte[Math.min(COMPRESSION_CHUNK_SIZE, rawLength)];
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength(chunk.length)];
+        try {
+            for (int remaining = rawLength - HEADER_BYTES; remaining > 0;) {
+                int chunkLength = Math.min(chunk.length, remaining);
+                is.readFully(chunk, 0, chunkLength);
+                int compressedLength = LZ4Codec.compress(chunk, 0, chunkLength, compressed, 0);
+                if (length + 4 + compressedLength > limit) {
+                    return null;
+                }
+                result[length++] = (byte)(compressedLength >>> 24);
+                result[length++] = (byte)(compressedLength >>> 16);
+                result[length++] = (byte)(compressedLength >>> 8);
+                result[length++] = (byte)compressedLength;
+                System.arraycopy(compressed, 0, result, length, compressedLength);
+                length += compressedLength;
+                remaining -= chunkLength;
+            }
+        } finally {
+            compressionNanos.addAndGet(System.nanoTime() - start);
+        }
+        compressionInputBytes.addAndGet(rawLength);
+        compressionOutputBytes.addAndGet(length);
+        int blocks = (length>>LOG_BLOCK_SIZE) + ((length&BLOCK_MASK)>0?1:0);
+        compressionBytesSaved.addAndGet(sizeBasedStores[sizeIndex].blockSize - sizeBasedStores[PhysicalInfo.getSizeIndex(blocks)].blockSize);
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Decompress an image written by {@link #compress(BlockManager, int, int)}
+     */
+    private void decompress(InputStream in, OutputStream os, int memoryBlockCount) throws IOException {
+        DataInputStream is = new DataInputStream(in);
+        int rawLength = memoryBlockCount<<LOG_BLOCK_SIZE;
+        byte[] chunk = new byte[Math.min(COMPRESSION_CHUNK_SIZE, rawLength)];
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength(chunk.length)];
+        is.readFully(chunk, 0, HEADER_BYTES);
+        os.write(chunk, 0, HEADER_BYTES);
+        for (int remaining = rawLength - HEADER_BYTES; remaining > 0;) {
+            int chunkLength = Math.min(chunk.length, remaining);
+            int compressedLength = is.readInt();
+            if (compressedLength < 0 || compressedLength > compressed.length) {
+                throw new IOException("Invalid compressed block length " + compressedLength); //$NON-NLS-1$
+            }
+            is.readFully(compressed, 0, compressedLength);
+            LZ4Codec.decompress(compressed, 0, compressedLength, chunk, 0, chunkLength);
+            os.write(chunk, 0, chunkLength);
+            remaining -= chunkLength;
+        }
+    }
+
     /**
      * Determine if an object should be in the memory buffer.
      * @param info
@@ -1014,10 +1126,24 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
             //release the lock to perform the transfer
             //for straight removals this is a little wasteful
         }
+        int storeIndex = sizeIndex;
+        boolean compressed = false;
         try {
             if (demote && block == EMPTY_ADDRESS) {
-                BlockInputStream is = new BlockInputStream(bm, memoryBlockCount);
-                BlockStore blockStore = sizeBasedStores[sizeIndex];
+                InputStream is = null;
+                storeIndex = PhysicalInfo.getSizeIndex(memoryBlockCount);
+                if (compressBufferFiles && storeIndex > 0) {
+                    byte[] image = compress(bm, memoryBlockCount, storeIndex);
+                    if (image != null) {
+                        is = new ByteArrayInputStream(image);
+                        storeIndex = PhysicalInfo.getSizeIndex((image.length>>LOG_BLOCK_SIZE) + ((image.length&BLOCK_MASK)>0?1:0));
+                        compressed = true;
+                    }
+                }
+                if (is == null) {
+                    is = new BlockInputStream(bm, memoryBlockCount);
+                }
+                BlockStore blockStore = sizeBasedStores[storeIndex];
                 outer: for (int i = 0; i < 3; i++) {
                     try {
                         block = blockStore.writeToStorageBlock(info, is);
@@ -1097,7 +1223,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
                 if (block != EMPTY_ADDRESS) {
                     if (demote) {
                         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
-                            LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Assigning storage data block", block, "of size", sizeBasedStores[info.sizeIndex].blockSize); //$NON-NLS-1$ //$NON-NLS-2$
+                            LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Assigning storage data block", block, "of size", sizeBasedStores[storeIndex].blockSize); //$NON-NLS-1$ //$NON-NLS-2$
+                        }
+                        if (info.block == EMPTY_ADDRESS) {
+                            //the storage block index is for the stored, possibly compressed, form
+                            info.sizeIndex = (byte)storeIndex;
+                            info.compressed = compressed;
                         }
                         info.block = block;
                     } else {
@@ -1302,6 +1433,61 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
         this.compactBufferFiles = compactBufferFiles;
     }
 
+    /**
+     * Compress objects as they are written to storage, if that allows
+     * them to use a smaller storage block.
+     */
+    public void setCompressBufferFiles(boolean compressBufferFiles) {
+        this.compressBufferFiles = compressBufferFiles;
+    }
+
+    public boolean isCompressBufferFiles() {
+        return compressBufferFiles;
+    }
+
+    /**
+     * Use a scan resistant eviction queue for the memory buffer.  Should be set prior to use.
+     */
+    public void setScanResistantEviction(boolean scanResistantEviction) {
+        if (scanResistantEviction == isScanResistantEviction()) {
+            return;
+        }
+        if (scanResistantEviction) {
+            this.memoryBufferEntries = new TinyLfuEvictionQueue<PhysicalInfo>(readAttempts);
+        } else {
+            this.memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
+        }
+    }
+
+    public boolean isScanResistantEviction() {
+        return this.memoryBufferEntries instanceof TinyLfuEvictionQueue;
+    }
+
+    /**
+     * @return the ratio of compressed to uncompressed bytes for the objects written compressed
+     */
+    public double getCompressionRatio() {
+        long input = compressionInputBytes.get();
+        if (input == 0) {
+            return 1;
+        }
+        return compressionOutputBytes.get() / (double)input;
+    }
+
+    /**
+     * @return the total time spent compressing, including attempts that did not save space
+     */
+    public long getCompressionTimeNanos() {
+        return compressionNanos.get();
+    }
+
+    /**
+     * @return the storage bytes saved by using smaller storage blocks for compressed objects
+     */
+    public long getCompressionBytesSaved() {
+        return compressionBytesSaved.get();
+    }
+
     @Override
     public long getMaxStorageSpace() {
         return this.storageManager.getMaxStorageSpace();
@@ -37,11 +37,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -60,11 +62,13 @@ import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.Cache;
 import org.teiid.common.buffer.CacheEntry;
 import org.teiid.common.buffer.CacheKey;
+import org.teiid.common.buffer.CompactKeyList;
 import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.LobManager;
 import org.teiid.common.buffer.LobManager.ReferenceMode;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.Serializer;
+import org.teiid.common.buffer.SharedLobStore;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
@@ -73,7 +77,7 @@ import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.DataTypeManager.WeakReferenceHashedValueCache;
 import org.teiid.core.types.Streamable;
-import org.teiid.core.util.Assertion;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.dqp.internal.process.DQPConfiguration;
 import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.dqp.service.SessionService;
@@ -103,6 +107,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 
     private static final int SYSTEM_OVERHEAD_MEGS = 150;
 
+    public static final int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 64;
+
     /**
      * Async cleaner attempts to age out old entries and to reduce the memory size when
      * little is reserved.
@@ -434,6 +440,34 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
             return (List<List<?>>)ce.getObject();
         }
 
+        @Override
+        public byte[] getSerializedBatch(Long batch)
+                throws TeiidComponentException {
+            cleanSoftReferences();
+            if (removed) {
+                throw new TeiidComponentException("Already removed " + id); //$NON-NLS-1$
+            }
+            if (fastGet(batch, prefersMemory.get(), true) != null) {
+                return null;
+            }
+            Object o = cache.lockForLoad(batch, this);
+            try {
+                if (fastGet(batch, prefersMemory.get(), true) != null) {
+                    return null;
+                }
+                byte[] result = cache.getSerialized(o, batch, this);
+                if (result != null) {
+                    long count = readCount.incrementAndGet();
+                    if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
+                        LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, id, "reading serialized batch", batch, "from storage, total reads:", count); //$NON-NLS-1$ //$NON-NLS-2$
+                    }
+                }
+                return result;
+            } finally {
+                cache.unlockForLoad(o);
+            }
+        }
+
         @Override
         public void remove(Long batch) {
             Integer sizeEstimate = BufferManagerImpl.this.remove(id, batch, prefersMemory.get());
@@ -505,7 +539,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     AtomicLong overheadBytes = new AtomicLong();
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
+    private int writeBehindThreads;
+    private int writeBehindQueueSize = DEFAULT_WRITE_BEHIND_QUEUE_SIZE;
+    private ExecutorService writeBehindPool;
+    private Semaphore writeBehindPermits;
+    private AtomicLong writeBehindBytes = new AtomicLong();
+    private AtomicLong writeBehindCount = new AtomicLong();
     private boolean inlineLobs = true;
+    private SharedLobStore sharedLobStore;
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
@@ -517,8 +558,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 
     private AtomicLong readAttempts = new AtomicLong();
     //TODO: consider the size estimate in the weighting function
-    LrfuEvictionQueue<CacheEntry> evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
-    LrfuEvictionQueue<CacheEntry> initialEvictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+    EvictionQueue<CacheEntry> evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+    EvictionQueue<CacheEntry> initialEvictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
     ConcurrentHashMap<Long, CacheEntry> memoryEntries = new ConcurrentHashMap<Long, CacheEntry>(16, .75f, CONCURRENCY_LEVEL);
 
     //limited size reference caches based upon the memory settings
@@ -642,12 +683,13 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
             TupleSourceType tupleSourceType) {
         final Long newID = this.tsId.getAndIncrement();
         int[] lobIndexes = LobManager.getLobIndexes(elements);
-        Class<?>[] types = getTypeClasses(elements);
+        Class<?>[] types = TupleBuffer.getTypeClasses(elements);
         BatchManagerImpl batchManager = createBatchManager(newID, types);
         LobManager lobManager = null;
         if (lobIndexes != null) {
             FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
             lobManager = new LobManager(lobIndexes, lobStore);
+            lobManager.setSharedLobStore(sharedLobStore);
             batchManager.setLobManager(lobManager);
         }
         TupleBuffer tupleBuffer = new TupleBuffer(batchManager, String.valueOf(newID), elements, lobManager, getProcessorBatchSize(elements));
@@ -661,7 +703,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     public STree createSTree(final List<? extends Expression> elements, String groupName, int keyLength) {
         Long newID = this.tsId.getAndIncrement();
         int[] lobIndexes = LobManager.getLobIndexes(elements);
-        Class<?>[] types = getTypeClasses(elements);
+        Class<?>[] types = TupleBuffer.getTypeClasses(elements);
         BatchManagerImpl bm = createBatchManager(newID, types);
         LobManager lobManager = null;
         if (lobIndexes != null) {
@@ -676,18 +718,36 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
             LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Creating STree:", newID, keyLength, elements); //$NON-NLS-1$
         }
-        return new STree(keyManager, bm, new ListNestedSortComparator(compareIndexes).defaultNullOrder(getOptions().getDefaultNullOrder()), getProcessorBatchSize(elements.subList(0, keyLength)), getProcessorBatchSize(elements), keyLength, lobManager);
+        List<? extends Expression> keyElements = elements.subList(0, keyLength);
+        int keyPageSize = getProcessorBatchSize(keyElements);
+        if (CompactKeyList.isCompactable(Arrays.copyOf(types, keyLength))) {
+            keyPageSize = getCompactKeyPageSize(keyElements);
+        }
+        return new STree(keyManager, bm, new ListNestedSortComparator(compareIndexes).defaultNullOrder(getOptions().getDefaultNullOrder()), keyPageSize, getProcessorBatchSize(elements), keyLength, lobManager);
     }
 
-    private static Class<?>[] getTypeClasses(final List<? extends Expression> elements) {
-        Class<?>[] types = new Class[elements.size()];
-        for (ListIterator<? extends Expression> i = elements.listIterator(); i.hasNext();) {
-            Expression expr = i.next();
-            Class<?> type = expr.getType();
-            Assertion.isNotNull(type);
-            types[i.previousIndex()] = type;
+    /**
+     * Get the index page size for keys held in a {@link CompactKeyList}.
+     * Without the per row and per value object overhead more keys fit in the
+     * bytes targeted for a page of rows - up to 8 times as many.
+     */
+    int getCompactKeyPageSize(List<? extends Expression> keyElements) {
+        int[] estimates = getSizeEstimates(keyElements);
+        int compactBytesPerKey = 0;
+        boolean isValueCacheEnabled = DataTypeManager.isValueCacheEnabled();
+        for (Expression ex : keyElements) {
+            Class<?> type = ex.getType();
+            if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+                compactBytesPerKey += 4;
+            } else if (type == DataTypeManager.DefaultDataClasses.LONG) {
+                compactBytesPerKey += 8;
+            } else {
+                //the suffix reference and value
+                compactBytesPerKey += 8 + SizeUtility.getSize(isValueCacheEnabled, type);
+            }
         }
-        return types;
+        long keyCount = estimates[1] / Math.max(1, compactBytesPerKey);
+        return (int)Math.max(estimates[0], Math.min(keyCount, (long)estimates[0] << 3));
     }
 
     BatchManagerImpl createBatchManager(final Long newID, Class<?>[] types) {
@@ -791,6 +851,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         }
         this.maxSoftReferences = 1 << Math.min(30, logSize);
         this.nominalProcessingMemoryMax = (int)Math.max(Math.min(this.maxReserveBytes, 2*this.maxProcessingBytes), Math.min(Integer.MAX_VALUE, 2*this.maxReserveBytes/maxActivePlans));
+        if (this.writeBehindThreads > 0 && this.writeBehindPool == null) {
+            this.writeBehindPermits = new Semaphore(this.writeBehindQueueSize);
+            this.writeBehindPool = ExecutorUtils.newFixedThreadPool(this.writeBehindThreads, "BufferManager Write Behind"); //$NON-NLS-1$
+        }
     }
 
     void setNominalProcessingMemoryMax(int nominalProcessingMemoryMax) {
@@ -985,7 +1049,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         if (max <= 0) {
             return;
         }
-        long activeBatch = activeBatchBytes.get() + overheadBytes.get();
+        //entries pending write behind will be freed shortly
+        long activeBatch = activeBatchBytes.get() + overheadBytes.get() - writeBehindBytes.get();
         long reserveBatch = reserveBatchBytes.get();
         long memoryCount = activeBatch + maxReserveBytes - reserveBatch;
         if (memoryCount <= maxReserveBytes) {
@@ -1004,8 +1069,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         //we delay work here as there should be excess vm space, we are using an overestimate, and we want the cleaner to do the work if possible
         //TODO: track sizes held by each queue independently
         long maxToFree = Math.min(max, memoryCount - maxReserveBytes);
-        LrfuEvictionQueue<CacheEntry> first = initialEvictionQueue;
-        LrfuEvictionQueue<CacheEntry> second = evictionQueue;
+        EvictionQueue<CacheEntry> first = initialEvictionQueue;
+        EvictionQueue<CacheEntry> second = evictionQueue;
         if (evictionQueue.getSize() > 2*initialEvictionQueue.getSize()) {
             //attempt to evict from the non-initial queue first as these should essentially be cost "free" and hopefully the reference cache can mitigate
             //the cost of rereading
@@ -1021,7 +1086,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         }
     }
 
-    long doEvictions(long maxToFree, boolean ageOut, LrfuEvictionQueue<CacheEntry> queue) {
+    long doEvictions(long maxToFree, boolean ageOut, EvictionQueue<CacheEntry> queue) {
         if (queue == evictionQueue) {
             maxToFree = Math.min(maxToFree, this.maxProcessingBytes);
         }
@@ -1052,24 +1117,38 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
                 }
                 queue.remove(ce);
             }
-            boolean evicted = true;
-            try {
-                evicted = evict(ce);
-            } catch (Throwable e) {
-                LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30017, ce.getId() ));
-            } finally {
-                if (evicted) {
-                    synchronized (ce) {
-                        if (memoryEntries.remove(ce.getId()) != null) {
-                            Serializer<?> s = ce.getSerializer();
-                            if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
-                                LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Removing batch from heap cache", s!=null?s.getId():null, ce.getId()); //$NON-NLS-1$
-                            }
-                            freed += ce.getSizeEstimate();
-                            long result = activeBatchBytes.addAndGet(-ce.getSizeEstimate());
-                            assert result >= 0 || !LrfuEvictionQueue.isSuspectSize(activeBatchBytes);
-                            queue.remove(ce); //ensures that an intervening get will still be cleaned
+            if (!ageOut && writeBehindPool != null && writeBehind(ce, queue)) {
+                freed += ce.getSizeEstimate();
+                continue;
+            }
+            freed += evictEntry(ce, queue);
+        }
+        return freed;
+    }
+
+    /**
+     * Evict the entry and remove it from memory.
+     * @return the bytes freed
+     */
+    private long evictEntry(CacheEntry ce, EvictionQueue<CacheEntry> queue) {
+        long freed = 0;
+        boolean evicted = true;
+        try {
+            evicted = evict(ce);
+        } catch (Throwable e) {
+            LogManager.logError(LogConstants.CTX_BUFFER_MGR, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30017, ce.getId() ));
+        } finally {
+            if (evicted) {
+                synchronized (ce) {
+                    if (memoryEntries.remove(ce.getId()) != null) {
+                        Serializer<?> s = ce.getSerializer();
+                        if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.TRACE)) {
+                            LogManager.logTrace(LogConstants.CTX_BUFFER_MGR, "Removing batch from heap cache", s!=null?s.getId():null, ce.getId()); //$NON-NLS-1$
                         }
+                        freed += ce.getSizeEstimate();
+                        long result = activeBatchBytes.addAndGet(-ce.getSizeEstimate());
+                        assert result >= 0 || !LrfuEvictionQueue.isSuspectSize(activeBatchBytes);
+                        queue.remove(ce); //ensures that an intervening get will still be cleaned
                     }
                 }
             }
@@ -1077,6 +1156,43 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         return freed;
     }
 
+    /**
+     * Hand off the eviction to the write behind pool.  The entry stays in memory,
+     * and can still be read, until it has been written.  Blocks if the
+     * queue of pending writes is full.
+     * @return true if the entry will be evicted asynchronously
+     */
+    private boolean writeBehind(final CacheEntry ce, final EvictionQueue<CacheEntry> queue) {
+        try {
+            writeBehindPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        final int size = ce.getSizeEstimate();
+        writeBehindBytes.addAndGet(size);
+        try {
+            writeBehindPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        evictEntry(ce, queue);
+                        writeBehindCount.incrementAndGet();
+                    } finally {
+                        writeBehindBytes.addAndGet(-size);
+                        writeBehindPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //shutting down
+            writeBehindBytes.addAndGet(-size);
+            writeBehindPermits.release();
+            return false;
+        }
+        return true;
+    }
+
     boolean evict(CacheEntry ce) throws Exception {
         Serializer<?> s = ce.getSerializer();
         if (s == null) {
@@ -1295,11 +1411,15 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     }
 
     public void shutdown() {
+        if (this.writeBehindPool != null) {
+            this.writeBehindPool.shutdownNow();
+            this.writeBehindPool = null;
+        }
         this.cache.shutdown();
         this.cache = null;
         this.memoryEntries.clear();
-        this.evictionQueue.getEvictionQueue().clear();
-        this.initialEvictionQueue.getEvictionQueue().clear();
+        this.evictionQueue.clear();
+        this.initialEvictionQueue.clear();
         this.cleaner.cancel();
         if (this.timer != SHARED_TIMER) {
             this.timer.cancel();
@@ -1350,6 +1470,95 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         this.useWeakReferences = useWeakReferences;
     }
 
+    /**
+     * Set the number of threads used to write evicted batches to storage.  If 0, the
+     * default, evictions needed by a processing thread are written by that thread.
+     */
+    public void setWriteBehindThreads(int writeBehindThreads) {
+        this.writeBehindThreads = writeBehindThreads;
+    }
+
+    public int getWriteBehindThreads() {
+        return writeBehindThreads;
+    }
+
+    /**
+     * Use scan resistant eviction queues, so that batches read only once
+     * are evicted ahead of frequently used batches.  Should be set prior to initialization.
+     */
+    public void setScanResistantEviction(boolean scanResistantEviction) {
+        if (scanResistantEviction == isScanResistantEviction()) {
+            return;
+        }
+        if (scanResistantEviction) {
+            //share the frequencies so that batches used prior to being persisted are admitted directly
+            FrequencySketch sketch = new FrequencySketch(TinyLfuEvictionQueue.DEFAULT_SKETCH_SIZE);
+            this.evictionQueue = new TinyLfuEvictionQueue<CacheEntry>(readAttempts, sketch);
+            this.initialEvictionQueue = new TinyLfuEvictionQueue<CacheEntry>(readAttempts, sketch);
+        } else {
+            this.evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+            this.initialEvictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+        }
+    }
+
+    public boolean isScanResistantEviction() {
+        return this.evictionQueue instanceof TinyLfuEvictionQueue;
+    }
+
+    /**
+     * Persist lobs by content, so that identical values share a single copy
+     * across the buffers of this manager.
+     */
+    public void setDeduplicateLobs(boolean deduplicateLobs) {
+        if (deduplicateLobs == isDeduplicateLobs()) {
+            return;
+        }
+        this.sharedLobStore = deduplicateLobs?new SharedLobStore(this):null;
+    }
+
+    public boolean isDeduplicateLobs() {
+        return this.sharedLobStore != null;
+    }
+
+    public SharedLobStore getSharedLobStore() {
+        return sharedLobStore;
+    }
+
+    /**
+     * Set the max number of batches pending write behind before processing threads will block
+     */
+    public void setWriteBehindQueueSize(int writeBehindQueueSize) {
+        this.writeBehindQueueSize = Math.max(1, writeBehindQueueSize);
+    }
+
+    public int getWriteBehindQueueSize() {
+        return writeBehindQueueSize;
+    }
+
+    /**
+     * @return the number of batches evicted by the write behind threads
+     */
+    public long getWriteBehindCount() {
+        return writeBehindCount.get();
+    }
+
+    /**
+     * @return the estimated bytes of the batches pending write behind
+     */
+    long getWriteBehindBytes() {
+        return writeBehindBytes.get();
+    }
+
+    /**
+     * @return the number of batches pending write behind
+     */
+    public int getWriteBehindPending() {
+        if (writeBehindPermits == null) {
+            return 0;
+        }
+        return writeBehindQueueSize - writeBehindPermits.availablePermits();
+    }
+
     @Override
     public void getState(OutputStream ostream) {
     }
@@ -1471,7 +1680,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     @Override
     public void persistLob(Streamable<?> lob, FileStore store,
             byte[] bytes) throws TeiidComponentException {
-        LobManager.persistLob(lob, store, bytes, inlineLobs, DataTypeManager.MAX_LOB_MEMORY_BYTES);
+        LobManager.persistLob(lob, store, bytes, inlineLobs, DataTypeManager.MAX_LOB_MEMORY_BYTES, sharedLobStore);
     }
 
     public void invalidCacheGroup(Long gid) {
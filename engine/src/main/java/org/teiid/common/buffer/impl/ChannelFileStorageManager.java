@@ -0,0 +1,325 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.teiid.common.buffer.FileStore;
+
+/**
+ * A {@link FileStorageManager} that uses positional {@link FileChannel} reads and writes.
+ * <br>
+ * There is no shared file pointer, so reads and writes against the same file do not
+ * serialize on the store - only changes to the file length are synchronized.  Idle handles
+ * are still limited by the max open files.  An interrupt during channel I/O closes the
+ * handle for all current users of the file, so the handle is reopened and the I/O retried.
+ * <br>
+ * Reads may optionally use read only memory mappings of the file, which avoids a copy
+ * through a heap buffer.  The file is mapped in fixed size regions that are reused once
+ * mapped - only the region at the end of a growing file is remapped.  Mapped address space
+ * is not released until the mapping is garbage collected.
+ */
+public class ChannelFileStorageManager extends FileStorageManager {
+
+    public static final int DEFAULT_MAPPED_REGION_SIZE = 1 << 26;
+
+    private static final MappedByteBuffer[] NO_REGIONS = new MappedByteBuffer[0];
+
+    private boolean memoryMapped;
+    private int mappedRegionSize = DEFAULT_MAPPED_REGION_SIZE;
+
+    /**
+     * Reference counted file handle.  The handle is returned to the
+     * file cache once there are no more users.
+     */
+    private class ChannelInfo {
+        private File file;
+        private RandomAccessFile fileData;
+        private int references;
+
+        public ChannelInfo(File file) {
+            this.file = file;
+        }
+
+        public synchronized RandomAccessFile open() throws IOException {
+            if (this.references++ == 0) {
+                this.fileData = getFileCache().remove(this.file);
+            } else if (this.fileData != null && !this.fileData.getChannel().isOpen()) {
+                //closed by an interrupt of another user
+                try {
+                    this.fileData.close();
+                } catch (IOException e) {
+                }
+                this.fileData = null;
+            }
+            if (this.fileData == null) {
+                try {
+                    this.fileData = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+                } catch (IOException e) {
+                    this.references--;
+                    throw e;
+                }
+            }
+            return this.fileData;
+        }
+
+        public synchronized void close() {
+            if (--this.references == 0) {
+                if (this.fileData.getChannel().isOpen()) {
+                    getFileCache().put(this.file, this.fileData);
+                } else {
+                    //closed by an interrupt, reopen on the next use
+                    try {
+                        this.fileData.close();
+                    } catch (IOException e) {
+                    }
+                }
+                this.fileData = null;
+            }
+        }
+
+        public synchronized void delete() {
+            if (fileData == null) {
+                fileData = getFileCache().remove(this.file);
+            }
+            if (fileData != null) {
+                try {
+                    fileData.close();
+                } catch (IOException e) {
+                }
+                fileData = null;
+            }
+            file.delete();
+        }
+
+        public String toString() {
+            return "ChannelInfo<" + file.getName() + ", references = " + references + ">"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+    }
+
+    public class ChannelDiskStore extends FileStore {
+        private String name;
+        private volatile ChannelInfo fileInfo;
+        private volatile MappedByteBuffer[] regions = NO_REGIONS;
+
+        public ChannelDiskStore(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public long getLength() {
+            ChannelInfo info = fileInfo;
+            if (info == null) {
+                return 0;
+            }
+            return info.file.length();
+        }
+
+        private synchronized ChannelInfo getFileInfo() throws IOException {
+            if (fileInfo == null) {
+                fileInfo = new ChannelInfo(createFile(name));
+            }
+            return fileInfo;
+        }
+
+        @Override
+        protected int readWrite(long fileOffset, byte[] b, int offSet,
+                int length, boolean write) throws IOException {
+            if (!write) {
+                ChannelInfo info = fileInfo;
+                if (info == null) {
+                    return -1;
+                }
+                if (memoryMapped && readMapped(info, fileOffset, b, offSet, length)) {
+                    return length;
+                }
+                return transfer(info, ByteBuffer.wrap(b, offSet, length), fileOffset, false);
+            }
+            ChannelInfo info = getFileInfo();
+            RandomAccessFile fileAccess = info.open();
+            try {
+                synchronized (this) {
+                    ChannelFileStorageManager.this.setLength(fileAccess, fileOffset + length, false);
+                }
+            } finally {
+                info.close();
+            }
+            return transfer(info, ByteBuffer.wrap(b, offSet, length), fileOffset, true);
+        }
+
+        /**
+         * Perform the channel I/O.  If the channel is closed by an interrupt, the handle is
+         * reopened and the I/O is retried, with the interrupt status restored afterwards.
+         * @return the bytes read or written
+         */
+        private int transfer(ChannelInfo info, ByteBuffer buffer, long position, boolean write) throws IOException {
+            boolean interrupted = false;
+            boolean retried = false;
+            try {
+                while (true) {
+                    RandomAccessFile fileAccess = info.open();
+                    try {
+                        FileChannel channel = fileAccess.getChannel();
+                        if (!write) {
+                            return channel.read(buffer, position);
+                        }
+                        int length = buffer.remaining();
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        return length;
+                    } catch (ClosedChannelException e) {
+                        if (e instanceof ClosedByInterruptException) {
+                            interrupted |= Thread.interrupted();
+                        } else if (retried) {
+                            throw e;
+                        }
+                        retried = true;
+                    } finally {
+                        info.close();
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Read from the mapped regions, which may span more than one region.
+         * @return false if the range cannot be mapped
+         */
+        private boolean readMapped(ChannelInfo info, long fileOffset, byte[] b, int offSet, int length) throws IOException {
+            while (length > 0) {
+                int index = (int)(fileOffset / mappedRegionSize);
+                int regionOffset = (int)(fileOffset % mappedRegionSize);
+                int count = Math.min(length, mappedRegionSize - regionOffset);
+                ByteBuffer region = getRegion(info, index, regionOffset + count);
+                if (region == null) {
+                    return false;
+                }
+                region.position(regionOffset);
+                region.get(b, offSet, count);
+                fileOffset += count;
+                offSet += count;
+                length -= count;
+            }
+            return true;
+        }
+
+        /**
+         * Get a view of the region that covers the given end position within the region, mapping if needed.
+         * @return the region or null if it cannot be mapped
+         */
+        private ByteBuffer getRegion(ChannelInfo info, int index, int end) throws IOException {
+            MappedByteBuffer[] current = regions;
+            MappedByteBuffer region = index < current.length?current[index]:null;
+            if (region == null || region.capacity() < end) {
+                synchronized (this) {
+                    current = regions;
+                    region = index < current.length?current[index]:null;
+                    if (region == null || region.capacity() < end) {
+                        long start = (long)index * mappedRegionSize;
+                        long size = Math.min(mappedRegionSize, info.file.length() - start);
+                        if (size < end) {
+                            return null;
+                        }
+                        RandomAccessFile fileAccess = info.open();
+                        try {
+                            region = fileAccess.getChannel().map(MapMode.READ_ONLY, start, size);
+                        } catch (ClosedChannelException e) {
+                            //closed by an interrupt, use a channel read instead
+                            return null;
+                        } finally {
+                            info.close();
+                        }
+                        current = Arrays.copyOf(current, Math.max(current.length, index + 1));
+                        current[index] = region;
+                        regions = current;
+                    }
+                }
+            }
+            //the duplicate has an independent position
+            return region.duplicate();
+        }
+
+        @Override
+        public synchronized void setLength(long length) throws IOException {
+            ChannelInfo info = getFileInfo();
+            RandomAccessFile fileAccess = info.open();
+            try {
+                if (length < fileAccess.length() && regions.length > length / mappedRegionSize) {
+                    //reads past the end of a region would fail, keep only the regions that are still complete
+                    regions = Arrays.copyOf(regions, (int)(length / mappedRegionSize));
+                }
+                ChannelFileStorageManager.this.setLength(fileAccess, length, true);
+            } finally {
+                info.close();
+            }
+        }
+
+        @Override
+        public synchronized void removeDirect() {
+            freeSpace(getLength());
+            regions = NO_REGIONS;
+            if (fileInfo != null){
+                fileInfo.delete();
+            }
+        }
+
+    }
+
+    @Override
+    public FileStore createFileStore(String name) {
+        return new ChannelDiskStore(name);
+    }
+
+    /**
+     * Use a read only memory mapping for reads.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Set the size of the regions that are memory mapped for reads.
+     */
+    public void setMappedRegionSize(int mappedRegionSize) {
+        this.mappedRegionSize = mappedRegionSize;
+    }
+
+    public int getMappedRegionSize() {
+        return mappedRegionSize;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.Collection;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+
+/**
+ * An eviction policy for the entries held by the buffer manager or the memory buffer.
+ * Implementations must be thread-safe.  Null values are not allowed.
+ * @param <V>
+ */
+public interface EvictionQueue<V extends BaseCacheEntry> {
+
+    /**
+     * @return true if the value was added, false if it was already present
+     */
+    boolean add(V value);
+
+    /**
+     * @return true if the value was removed, false if it was not present
+     */
+    boolean remove(V value);
+
+    /**
+     * Record an access of the value and add it if not present.
+     * Callers should be synchronized on value
+     */
+    void touch(V value);
+
+    /**
+     * Record an access of a value that is not currently held by the queue.
+     * Callers should be synchronized on value
+     */
+    void recordAccess(V value);
+
+    /**
+     * @param poll true if the entry should be removed
+     * @return the next entry to evict or null if the queue is empty
+     */
+    V firstEntry(boolean poll);
+
+    /**
+     * @return the entries in eviction order.  The collection may be a snapshot.
+     */
+    Collection<V> getEvictionQueue();
+
+    void clear();
+
+    int getSize();
+
+}
@@ -134,7 +134,7 @@ public class FileStorageManager implements StorageManager {
             try {
                 RandomAccessFile fileAccess = fileInfo.open();
                 long newLength = fileOffset + length;
-                setLength(fileAccess, newLength, false);
+                FileStorageManager.this.setLength(fileAccess, newLength, false);
                 fileAccess.seek(fileOffset);
                 fileAccess.write(b, offSet, length);
             } finally {
@@ -143,55 +143,13 @@ public class FileStorageManager implements StorageManager {
             return length;
         }
 
-        private void setLength(RandomAccessFile fileAccess, long newLength, boolean truncate)
-                throws IOException {
-            long currentLength = fileAccess.length();
-            long bytesUsed = newLength - currentLength;
-            if (bytesUsed == 0) {
-                return;
-            }
-            if (bytesUsed < 0) {
-                if (!truncate) {
-                    return;
-                }
-            } else if (bytesUsed > MB) {
-                //this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
-                long used = usedBufferSpace.get() + bytesUsed;
-                if (used > maxBufferSpace) {
-                    System.gc(); //attempt a last ditch effort to cleanup
-                    AutoCleanupUtil.doCleanup(false);
-                    used = usedBufferSpace.get() + bytesUsed;
-                    if (used > maxBufferSpace) {
-                        outOfDiskCount.getAndIncrement();
-                        throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
-                    }
-                }
-            }
-            fileAccess.setLength(newLength);
-            long used = usedBufferSpace.addAndGet(bytesUsed);
-            if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
-                LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
-            }
-            if (bytesUsed > 0 && used > maxBufferSpace) {
-                System.gc(); //attempt a last ditch effort to cleanup
-                AutoCleanupUtil.doCleanup(false);
-                used = usedBufferSpace.get();
-                if (used > maxBufferSpace) {
-                    fileAccess.setLength(currentLength);
-                    usedBufferSpace.addAndGet(-bytesUsed);
-                    outOfDiskCount.getAndIncrement();
-                    throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
-                }
-            }
-        }
-
         @Override
         public synchronized void setLength(long length) throws IOException {
             if (fileInfo == null) {
                 fileInfo = new FileInfo(createFile(name));
             }
             try {
-                setLength(fileInfo.open(), length, true);
+                FileStorageManager.this.setLength(fileInfo.open(), length, true);
             } finally {
                 fileInfo.close();
             }
@@ -199,7 +157,7 @@ public class FileStorageManager implements StorageManager {
 
         @Override
         public synchronized void removeDirect() {
-            usedBufferSpace.addAndGet(-getLength());
+            freeSpace(getLength());
             if (fileInfo != null){
                 fileInfo.delete();
             }
@@ -207,6 +165,55 @@ public class FileStorageManager implements StorageManager {
 
     }
 
+    /**
+     * Set the length of the file, accounting for the used buffer space
+     */
+    void setLength(RandomAccessFile fileAccess, long newLength, boolean truncate)
+            throws IOException {
+        long currentLength = fileAccess.length();
+        long bytesUsed = newLength - currentLength;
+        if (bytesUsed == 0) {
+            return;
+        }
+        if (bytesUsed < 0) {
+            if (!truncate) {
+                return;
+            }
+        } else if (bytesUsed > MB) {
+            //this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
+            long used = usedBufferSpace.get() + bytesUsed;
+            if (used > maxBufferSpace) {
+                System.gc(); //attempt a last ditch effort to cleanup
+                AutoCleanupUtil.doCleanup(false);
+                used = usedBufferSpace.get() + bytesUsed;
+                if (used > maxBufferSpace) {
+                    outOfDiskCount.getAndIncrement();
+                    throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+                }
+            }
+        }
+        fileAccess.setLength(newLength);
+        long used = usedBufferSpace.addAndGet(bytesUsed);
+        if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
+            LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
+        }
+        if (bytesUsed > 0 && used > maxBufferSpace) {
+            System.gc(); //attempt a last ditch effort to cleanup
+            AutoCleanupUtil.doCleanup(false);
+            used = usedBufferSpace.get();
+            if (used > maxBufferSpace) {
+                fileAccess.setLength(currentLength);
+                usedBufferSpace.addAndGet(-bytesUsed);
+                outOfDiskCount.getAndIncrement();
+                throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+            }
+        }
+    }
+
+    void freeSpace(long length) {
+        usedBufferSpace.addAndGet(-length);
+    }
+
     // Initialization
     private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
     private String directory;
@@ -0,0 +1,124 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent count-min sketch of 4-bit counters used to estimate the recent access
+ * frequency of cache keys.
+ * <br>
+ * Each long holds 16 counters, and a key maps to one counter in each of 4 longs.
+ * Updates are lock-free.  Once the number of increments reaches the sample size
+ * all counters are halved, so that the estimates age.  Concurrent updates during
+ * the halving may be lost, which only affects the accuracy of the estimate.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    static final int MAX_FREQUENCY = 15;
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param maxEntries the expected number of distinct keys, which determines the table size
+     */
+    FrequencySketch(int maxEntries) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(maxEntries, 1 << 24)) - 1) << 1;
+        this.table = new AtomicLongArray(length);
+        this.mask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * @return the estimated frequency of the key, up to {@link #MAX_FREQUENCY}
+     */
+    int frequency(long key) {
+        long hash = spread(key);
+        int start = ((int)hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            int count = (int)((table.get(indexOf(hash, i)) >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increment the frequency of the key
+     */
+    void increment(long key) {
+        long hash = spread(key);
+        int start = ((int)hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), (start + i) << 2);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int offset) {
+        long counterMask = 0xfL << offset;
+        while (true) {
+            long value = table.get(index);
+            if ((value & counterMask) == counterMask) {
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halve all counters.  Only one thread will reset at a time, as only the
+     * thread that reaches the sample size calls this method.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long value = table.get(i);
+                if (table.compareAndSet(i, value, (value >>> 1) & RESET_MASK)) {
+                    break;
+                }
+            }
+        }
+        additions.addAndGet(-sampleSize/2);
+    }
+
+    private int indexOf(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return (int)h & mask;
+    }
+
+    private static long spread(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+
+/**
+ * A pure java implementation of the LZ4 block format.
+ * <br>
+ * The compressor uses a single hash probe per position, which favors speed
+ * over ratio.  Each call is independent, there is no framing or checksum.
+ */
+final class LZ4Codec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+    private static final int HASH_LOG = 12;
+    private static final int RUN_MASK = 15;
+
+    private LZ4Codec() {
+    }
+
+    /**
+     * @return the max length of the compressed form of the given number of bytes
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress the source bytes into the destination, which must have room for
+     * {@link #maxCompressedLength(int)} bytes.
+     * @return the compressed length
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int srcEnd = srcOff + srcLen;
+        int matchStartLimit = srcEnd - MF_LIMIT;
+        int matchEndLimit = srcEnd - LAST_LITERALS;
+        int sOff = srcOff;
+        int anchor = srcOff;
+        int dOff = destOff;
+        if (srcLen > MF_LIMIT) {
+            //positions are offset by one so that 0 is empty
+            int[] table = new int[1 << HASH_LOG];
+            while (sOff < matchStartLimit) {
+                int sequence = readInt(src, sOff);
+                int h = hash(sequence);
+                int ref = table[h] - 1;
+                table[h] = sOff + 1;
+                if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    sOff++;
+                    continue;
+                }
+                while (sOff > anchor && ref > srcOff && src[sOff - 1] == src[ref - 1]) {
+                    sOff--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (sOff + matchLength < matchEndLimit && src[sOff + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLength, dest, dOff);
+                sOff += matchLength;
+                anchor = sOff;
+                if (sOff < matchStartLimit) {
+                    table[hash(readInt(src, sOff - 2))] = sOff - 1;
+                }
+            }
+        }
+        int literalLength = srcEnd - anchor;
+        int tokenPos = dOff++;
+        if (literalLength >= RUN_MASK) {
+            dest[tokenPos] = (byte)(RUN_MASK << 4);
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[tokenPos] = (byte)(literalLength << 4);
+        }
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        dOff += literalLength;
+        return dOff - destOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLength, int offset, int matchLength, byte[] dest, int dOff) {
+        int tokenPos = dOff++;
+        int token = 0;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLength);
+        dOff += literalLength;
+        dest[dOff++] = (byte)offset;
+        dest[dOff++] = (byte)(offset >>> 8);
+        int length = matchLength - MIN_MATCH;
+        if (length >= RUN_MASK) {
+            token |= RUN_MASK;
+            dOff = writeLength(length - RUN_MASK, dest, dOff);
+        } else {
+            token |= length;
+        }
+        dest[tokenPos] = (byte)token;
+        return dOff;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while (length >= 255) {
+            dest[dOff++] = (byte)255;
+            length -= 255;
+        }
+        dest[dOff++] = (byte)length;
+        return dOff;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | (b[off + 3] << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * Decompress the source bytes into exactly destLen bytes of the destination.
+     * @throws IOException if the source is not valid
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        int srcEnd = srcOff + srcLen;
+        int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        while (sOff < srcEnd) {
+            int token = src[sOff++] & 0xff;
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b = 0;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupt();
+                    }
+                    b = src[sOff++] & 0xff;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - sOff || literalLength > destEnd - dOff) {
+                throw corrupt();
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLength);
+            sOff += literalLength;
+            dOff += literalLength;
+            if (sOff == srcEnd) {
+                break;
+            }
+            if (sOff + 2 > srcEnd) {
+                throw corrupt();
+            }
+            int offset = (src[sOff] & 0xff) | ((src[sOff + 1] & 0xff) << 8);
+            sOff += 2;
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b = 0;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupt();
+                    }
+                    b = src[sOff++] & 0xff;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            int ref = dOff - offset;
+            if (offset == 0 || ref < destOff || matchLength > destEnd - dOff) {
+                throw corrupt();
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dest, ref, dest, dOff, matchLength);
+            } else {
+                //overlapping copy
+                for (int i = 0; i < matchLength; i++) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLength;
+        }
+        if (dOff != destEnd) {
+            throw corrupt();
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Invalid compressed block"); //$NON-NLS-1$
+    }
+
+}
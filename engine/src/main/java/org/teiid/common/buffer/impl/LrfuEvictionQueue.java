@@ -33,7 +33,7 @@ import org.teiid.core.TeiidRuntimeException;
  * Null values are not allowed.
  * @param <V>
  */
-public class LrfuEvictionQueue<V extends BaseCacheEntry> {
+public class LrfuEvictionQueue<V extends BaseCacheEntry> implements EvictionQueue<V> {
 
     /**
      * For testing, should only be used from asserts.
@@ -101,6 +101,11 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
         return evictionQueue.values();
     }
 
+    public void clear() {
+        evictionQueue.clear();
+        size.set(0);
+    }
+
     public V firstEntry(boolean poll) {
         Map.Entry<CacheKey, V> entry = null;
         if (poll) {
@@ -121,7 +126,7 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
     /**
      * Callers should be synchronized on value
      */
-    void recordAccess(V value) {
+    public void recordAccess(V value) {
         CacheKey key = value.getKey();
         long lastAccess = key.getLastAccess();
         long currentClock = clock.get();
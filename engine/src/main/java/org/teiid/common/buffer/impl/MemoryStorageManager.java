@@ -141,6 +141,11 @@ public class MemoryStorageManager implements Cache<Long> {
         //nothing to do no locking
     }
 
+    @Override
+    public byte[] getSerialized(Long lock, Long oid, Serializer<?> serializer) {
+        return null;
+    }
+
     @Override
     public CacheEntry get(Long lock, Long oid,
             WeakReference<? extends Serializer<?>> ref)
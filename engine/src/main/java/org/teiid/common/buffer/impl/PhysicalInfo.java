@@ -26,7 +26,7 @@ import org.teiid.query.QueryPlugin;
 /**
  * Represents the memory buffer and storage state of an object.
  * It is important to minimize the amount of data held here.
- * Currently should be 60 bytes.
+ * Currently should be 64 bytes.
  */
 final class PhysicalInfo extends BaseCacheEntry {
 
@@ -36,9 +36,11 @@ final class PhysicalInfo extends BaseCacheEntry {
     //the memory inode and block count
     int inode = BufferFrontedFileStoreCache.EMPTY_ADDRESS;
     int memoryBlockCount;
+    int size; //the exact number of bytes written
     //the storage block and BlockStore index
     int block = BufferFrontedFileStoreCache.EMPTY_ADDRESS;
     byte sizeIndex = 0;
+    boolean compressed; //indicates that the storage block is compressed
     //state flags
     boolean pinned; //indicates that the entry is being read
     boolean evicting; //indicates that the entry will be moved out of the memory buffer
@@ -63,10 +65,20 @@ final class PhysicalInfo extends BaseCacheEntry {
             return; //no changes
         }
         this.memoryBlockCount = newMemoryBlockCount;
-        while (newMemoryBlockCount > 1) {
-            this.sizeIndex++;
-            newMemoryBlockCount = (newMemoryBlockCount>>1) + ((newMemoryBlockCount&0x01)==0?0:1);
+        this.size = size;
+        this.sizeIndex = getSizeIndex(newMemoryBlockCount);
+    }
+
+    /**
+     * @return the index of the smallest storage block size that holds the given number of blocks
+     */
+    static byte getSizeIndex(int blockCount) {
+        byte result = 0;
+        while (blockCount > 1) {
+            result++;
+            blockCount = (blockCount>>1) + ((blockCount&0x01)==0?0:1);
         }
+        return result;
     }
 
     void await(boolean donePinning, boolean doneEvicting) {
@@ -34,6 +34,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.teiid.common.buffer.ColumnarTupleBatch;
+import org.teiid.common.buffer.ColumnarTupleBatch.Column;
+import org.teiid.common.buffer.CompactKeyList;
 import org.teiid.core.types.ArrayImpl;
 import org.teiid.core.types.BaseLob;
 import org.teiid.core.types.BinaryType;
@@ -53,6 +56,15 @@ import org.teiid.core.types.Streamable;
 public final class SizeUtility {
     private static final int UNKNOWN_SIZE_BYTES = 1024;
 
+    /**
+     * The number of initial batches for which the variable size columns are always sampled
+     */
+    static final int SAMPLED_BATCHES = 8;
+    /**
+     * After the initial batches, sample every nth batch
+     */
+    static final int SAMPLE_INTERVAL = 16;
+
     private static final class DummyOutputStream extends OutputStream {
         int bytes;
 
@@ -106,6 +118,13 @@ public final class SizeUtility {
 
     private Class<?>[] types;
 
+    /*
+     * Running average value sizes of the variable size columns, which are used between samples
+     * if a probe of the first and last values agrees with them.
+     */
+    private float[] averageSizes;
+    private int batchCount;
+
     private static class ClassStats {
         AtomicInteger samples = new AtomicInteger();
         volatile int averageSize = UNKNOWN_SIZE_BYTES;
@@ -118,6 +137,15 @@ public final class SizeUtility {
     }
 
     public long getBatchSize(boolean accountForValueCache, List<? extends List<?>> data) {
+        if (data instanceof ColumnarTupleBatch.Rows) {
+            return getBatchSize(accountForValueCache, ((ColumnarTupleBatch.Rows)data).getBatch());
+        }
+        if (data instanceof CompactKeyList) {
+            long estimate = ((CompactKeyList)data).getSizeEstimate();
+            if (estimate >= 0) {
+                return estimate;
+            }
+        }
         int colLength = types.length;
         int rowLength = data.size();
 
@@ -125,16 +153,26 @@ public final class SizeUtility {
         long size = 16 + alignMemory(rowLength * REFERENCE_SIZE);
         // array overhead for all the columns ( 8 object overhead + 4 ref + 4 int)
         size += (rowLength * (48 + alignMemory(colLength * REFERENCE_SIZE)));
+        boolean sample = shouldSample();
         for (int col = 0; col < colLength; col++) {
             Class<?> type = types[col];
-            int rowsSampled = 0;
-            int estimatedSize = 0;
             if (isVariableSize(type)) {
+                if (!sample && rowLength > 0) {
+                    float average = probeAverageSize(col, data.get(0).get(col), data.get(rowLength - 1).get(col), accountForValueCache);
+                    if (average >= 0) {
+                        size += average * rowLength;
+                        continue;
+                    }
+                }
+                int rowsSampled = 0;
+                int estimatedSize = 0;
                 for (int row = 0; row < rowLength; row=(row*2)+1) {
                     rowsSampled++;
                     estimatedSize += getSize(data.get(row).get(col), accountForValueCache);
                 }
-                size += estimatedSize/(float)rowsSampled * rowLength;
+                if (rowsSampled > 0) {
+                    size += updateAverageSize(col, estimatedSize/(float)rowsSampled) * rowLength;
+                }
             } else {
                 size += getSize(accountForValueCache, type) * rowLength;
             }
@@ -142,6 +180,97 @@ public final class SizeUtility {
         return size;
     }
 
+    /**
+     * Get the size of a columnar batch.  Only the object columns need to be sampled.
+     */
+    public long getBatchSize(boolean accountForValueCache, ColumnarTupleBatch data) {
+        int rowLength = data.getRowCount();
+        // Array overhead for the column array
+        long size = 16 + alignMemory(types.length * REFERENCE_SIZE);
+        boolean sample = shouldSample();
+        for (int col = 0; col < data.getColumnCount(); col++) {
+            Column column = data.getColumn(col);
+            // column object, null bitmap and value array overhead
+            size += 64 + alignMemory(((rowLength + 63) >>> 6) * 8);
+            int valueSize = column.getValueSize();
+            if (valueSize > 0) {
+                size += alignMemory((long)valueSize * rowLength);
+                continue;
+            }
+            size += alignMemory((long)rowLength * REFERENCE_SIZE);
+            Class<?> type = types[col];
+            if (isVariableSize(type)) {
+                if (!sample && rowLength > 0) {
+                    float average = probeAverageSize(col, column.get(0), column.get(rowLength - 1), accountForValueCache);
+                    if (average >= 0) {
+                        size += average * rowLength;
+                        continue;
+                    }
+                }
+                int rowsSampled = 0;
+                int estimatedSize = 0;
+                for (int row = 0; row < rowLength; row=(row*2)+1) {
+                    rowsSampled++;
+                    estimatedSize += getSize(column.get(row), accountForValueCache);
+                }
+                if (rowsSampled > 0) {
+                    size += updateAverageSize(col, estimatedSize/(float)rowsSampled) * rowLength;
+                }
+            } else {
+                size += getSize(accountForValueCache, type) * (long)rowLength;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Determine if the variable size columns of the next batch should be sampled.
+     * Otherwise the running averages are used.
+     */
+    private synchronized boolean shouldSample() {
+        int count = batchCount++;
+        if (averageSizes == null) {
+            averageSizes = new float[types.length];
+            return true;
+        }
+        return count < SAMPLED_BATCHES || count % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Correct the running average size for the column with a new sample.
+     * A large deviation restarts the initial sampling.
+     * @return the sampled size
+     */
+    private synchronized float updateAverageSize(int col, float sampledSize) {
+        float average = averageSizes[col];
+        if (batchCount > SAMPLED_BATCHES && Math.abs(sampledSize - average) > average/4) {
+            batchCount = 1;
+        }
+        if (batchCount == 1) {
+            averageSizes[col] = sampledSize;
+        } else {
+            averageSizes[col] = (average * 3 + sampledSize)/4;
+        }
+        return sampledSize;
+    }
+
+    /**
+     * Check the first and last values of a column against the running average.
+     * A probe that differs by more than a factor of 2 restarts the initial sampling.
+     * @return the estimated value size, or -1 if the column should be sampled
+     */
+    private float probeAverageSize(int col, Object first, Object last, boolean accountForValueCache) {
+        float probe = (getSize(first, accountForValueCache) + getSize(last, accountForValueCache))/2f;
+        synchronized (this) {
+            float average = averageSizes[col];
+            if (probe > average * 2 || probe < average / 2) {
+                batchCount = 1;
+                return -1;
+            }
+            return Math.max(average, probe);
+        }
+    }
+
     public static boolean isVariableSize(Class<?> type) {
         return VARIABLE_SIZE_TYPES.contains(type) || type.isArray();
     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
+
+/**
+ * A scan resistant segmented LRU eviction queue with TinyLFU admission.
+ * <br>
+ * Entries start on probation.  An entry that has been accessed at least the admission
+ * frequency number of times recently, as estimated by a {@link FrequencySketch}, is moved
+ * to the protected segment.  Probation entries are evicted in LRU order ahead of protected
+ * entries, so a single large scan will not flush the hot set.  When the protected segment
+ * exceeds its share of the queue its least recently used entries are demoted to probation.
+ * <br>
+ * The segments are linked hash maps guarded by the queue, so all operations are constant
+ * time rather than the log time of the skip list used by the {@link LrfuEvictionQueue}.
+ * Only accesses outside of the protected segment are counted in the sketch.
+ * @param <V>
+ */
+public class TinyLfuEvictionQueue<V extends BaseCacheEntry> implements EvictionQueue<V> {
+
+    public static final int DEFAULT_SKETCH_SIZE = 1 << 16;
+    public static final int DEFAULT_ADMISSION_FREQUENCY = 2;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final AtomicLong clock;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<Long, V> probation = new LinkedHashMap<Long, V>();
+    private final LinkedHashMap<Long, V> protectedEntries = new LinkedHashMap<Long, V>();
+    private int admissionFrequency = DEFAULT_ADMISSION_FREQUENCY;
+
+    public TinyLfuEvictionQueue(AtomicLong clock) {
+        this(clock, new FrequencySketch(DEFAULT_SKETCH_SIZE));
+    }
+
+    /**
+     * @param sketch the access frequencies, which should be shared by queues that entries move between
+     */
+    TinyLfuEvictionQueue(AtomicLong clock, FrequencySketch sketch) {
+        this.clock = clock;
+        this.sketch = sketch;
+    }
+
+    public synchronized boolean add(V value) {
+        Long id = value.getId();
+        if (probation.containsKey(id) || protectedEntries.containsKey(id)) {
+            return false;
+        }
+        place(id, value);
+        return true;
+    }
+
+    public synchronized boolean remove(V value) {
+        Long id = value.getId();
+        return probation.remove(id) != null || protectedEntries.remove(id) != null;
+    }
+
+    public void touch(V value) {
+        long tick = clock.get();
+        if (tick - LrfuEvictionQueue.MIN_INTERVAL >= value.getKey().getLastAccess()) {
+            value.setKey(new CacheKey(value.getId(), tick, tick));
+        }
+        Long id = value.getId();
+        synchronized (this) {
+            if (protectedEntries.remove(id) != null) {
+                protectedEntries.put(id, value);
+                return;
+            }
+            probation.remove(id);
+            sketch.increment(id);
+            place(id, value);
+        }
+    }
+
+    public void recordAccess(V value) {
+        long tick = clock.get();
+        value.setKey(new CacheKey(value.getId(), tick, tick));
+        sketch.increment(value.getId());
+    }
+
+    /**
+     * Add the value to the most recently used end of the segment determined by its frequency
+     */
+    private void place(Long id, V value) {
+        if (sketch.frequency(id) < admissionFrequency) {
+            probation.put(id, value);
+            return;
+        }
+        protectedEntries.put(id, value);
+        int maxProtected = (probation.size() + protectedEntries.size()) * PROTECTED_PERCENT / 100;
+        Iterator<V> iter = protectedEntries.values().iterator();
+        while (protectedEntries.size() > maxProtected) {
+            V demoted = iter.next();
+            iter.remove();
+            probation.put(demoted.getId(), demoted);
+        }
+    }
+
+    public synchronized V firstEntry(boolean poll) {
+        LinkedHashMap<Long, V> segment = probation.isEmpty()?protectedEntries:probation;
+        if (segment.isEmpty()) {
+            return null;
+        }
+        Iterator<V> iter = segment.values().iterator();
+        V result = iter.next();
+        if (poll) {
+            iter.remove();
+        }
+        return result;
+    }
+
+    /**
+     * @return a snapshot of the entries in eviction order
+     */
+    public synchronized Collection<V> getEvictionQueue() {
+        List<V> result = new ArrayList<V>(probation.size() + protectedEntries.size());
+        result.addAll(probation.values());
+        result.addAll(protectedEntries.values());
+        return result;
+    }
+
+    public synchronized void clear() {
+        probation.clear();
+        protectedEntries.clear();
+    }
+
+    public synchronized int getSize() {
+        return probation.size() + protectedEntries.size();
+    }
+
+    synchronized int getProtectedSize() {
+        return protectedEntries.size();
+    }
+
+    /**
+     * Set the number of recent accesses needed for an entry to leave probation.
+     * 1 effectively disables the probation.
+     */
+    public void setAdmissionFrequency(int admissionFrequency) {
+        this.admissionFrequency = Math.max(1, Math.min(FrequencySketch.MAX_FREQUENCY, admissionFrequency));
+    }
+
+    public int getAdmissionFrequency() {
+        return admissionFrequency;
+    }
+
+    int getFrequency(long id) {
+        return sketch.frequency(id);
+    }
+
+}
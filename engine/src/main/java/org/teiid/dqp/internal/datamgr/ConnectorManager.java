@@ -24,6 +24,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,6 +34,7 @@ import javax.naming.InitialContext;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.util.Assertion;
+import org.teiid.dqp.internal.process.FutureWork;
 import org.teiid.dqp.message.AtomicRequestID;
 import org.teiid.dqp.message.AtomicRequestMessage;
 import org.teiid.logging.CommandLogMessage;
@@ -83,6 +85,10 @@ public class ConnectorManager  {
 
     private List<FunctionMethod> functions;
 
+    // source work concurrency
+    private int activeWork;
+    private LinkedList<FutureWork<?>> pendingWork = new LinkedList<FutureWork<?>>();
+
     public ConnectorManager(String translatorName, String connectionName) {
         this(translatorName, connectionName, new ExecutionFactory<Object, Object>());
     }
@@ -128,6 +134,44 @@ public class ConnectorManager  {
         }
     }
 
+    /**
+     * Reserve a slot to run source work against this connector.  Once maxConcurrentWork slots
+     * are in use the work is queued until a slot is released by {@link #workCompleted(FutureWork)}.
+     * @return true if the work holds a slot and may be submitted
+     */
+    public synchronized boolean reserveWork(FutureWork<?> work, int maxConcurrentWork) {
+        if (maxConcurrentWork > 0 && activeWork >= maxConcurrentWork) {
+            pendingWork.add(work);
+            return false;
+        }
+        activeWork++;
+        return true;
+    }
+
+    /**
+     * Called when reserved work completes, including by cancellation.
+     * @return the next queued work, which now holds the released slot and should be submitted, or null
+     */
+    public synchronized FutureWork<?> workCompleted(FutureWork<?> work) {
+        if (pendingWork.remove(work)) {
+            //canceled while queued
+            return null;
+        }
+        FutureWork<?> next = pendingWork.pollFirst();
+        if (next == null) {
+            activeWork--;
+        }
+        return next;
+    }
+
+    public synchronized int getActiveWorkCount() {
+        return activeWork;
+    }
+
+    public synchronized int getQueuedWorkCount() {
+        return pendingWork.size();
+    }
+
     public String getStausMessage() {
         String msg = ""; //$NON-NLS-1$
         ExecutionFactory<Object, Object> ef = getExecutionFactory();
@@ -40,6 +40,12 @@ public interface ConnectorWork {
 
     boolean isDataAvailable();
 
+    /**
+     * Set a listener to be notified when the source signals that data is available,
+     * in addition to the owning request.
+     */
+    void setDataAvailableListener(Runnable listener);
+
     CacheDirective getCacheDirective() throws TranslatorException;
 
     boolean isForkable();
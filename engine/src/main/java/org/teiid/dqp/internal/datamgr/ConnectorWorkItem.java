@@ -596,6 +596,11 @@ public class ConnectorWorkItem implements ConnectorWork {
         return this.securityContext.isDataAvailable();
     }
 
+    @Override
+    public void setDataAvailableListener(Runnable listener) {
+        this.securityContext.setDataAvailableListener(listener);
+    }
+
     @Override
     public CacheDirective getCacheDirective() throws TranslatorException {
         CacheDirective cd = connector.getCacheDirective(this.translatedCommand, this.securityContext, this.queryMetadata);
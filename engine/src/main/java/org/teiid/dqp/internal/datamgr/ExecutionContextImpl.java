@@ -67,6 +67,7 @@ public class ExecutionContextImpl implements ExecutionContext {
     private List<Exception> warnings = new LinkedList<Exception>();
     private Session session;
     private boolean dataAvailable;
+    private Runnable dataAvailableListener;
     private Collection<String> generalHint;
     private Collection<String> hint;
     private CommandContext commandContext;
@@ -229,6 +230,13 @@ public class ExecutionContextImpl implements ExecutionContext {
         if (requestWorkItem != null) {
             requestWorkItem.moreWork();
         }
+        if (dataAvailableListener != null) {
+            dataAvailableListener.run();
+        }
+    }
+
+    public synchronized void setDataAvailableListener(Runnable dataAvailableListener) {
+        this.dataAvailableListener = dataAvailableListener;
     }
 
     public synchronized boolean isDataAvailable() {
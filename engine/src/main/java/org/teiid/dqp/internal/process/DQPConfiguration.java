@@ -17,12 +17,18 @@
  */
 package org.teiid.dqp.internal.process;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import org.teiid.PreParser;
 import org.teiid.client.RequestMessage;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.jdbc.tracing.GlobalTracerInjector;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.QueryPlugin;
 import org.teiid.query.util.Options;
 
 import io.opentracing.Tracer;
@@ -36,10 +42,14 @@ public class DQPConfiguration{
     static final int DEFAULT_MAX_RESULTSET_CACHE_ENTRIES = 1024;
     static final int DEFAULT_QUERY_THRESHOLD = 600000;
     static final String PROCESS_PLAN_QUEUE_NAME = "QueryProcessorQueue"; //$NON-NLS-1$
+    static final String SOURCE_QUEUE_NAME = "SourceQueue"; //$NON-NLS-1$
     public static final int DEFAULT_MAX_PROCESS_WORKERS = 64;
     public static final int DEFAULT_MAX_SOURCE_ROWS = -1;
     public static final int DEFAULT_MAX_ACTIVE_PLANS = 20;
+    public static final int DEFAULT_MAX_QUEUED_PLANS = -1;
+    public static final int DEFAULT_MAX_SOURCE_THREADS = 1024;
     public static final int DEFAULT_USER_REQUEST_SOURCE_CONCURRENCY = 0;
+    public static final int DEFAULT_CONNECTOR_SOURCE_CONCURRENCY = 0;
     public static final int DEFAULT_MAX_STALENESS_SECONDS = 0;
 
 
@@ -51,8 +61,13 @@ public class DQPConfiguration{
     private boolean exceptionOnMaxSourceRows = true;
     private int maxSourceRows = -1;
     private int maxActivePlans = DEFAULT_MAX_ACTIVE_PLANS;
+    private int maxQueuedPlans = DEFAULT_MAX_QUEUED_PLANS;
+    private boolean sourceVirtualThreads;
+    private int maxSourceThreads = DEFAULT_MAX_SOURCE_THREADS;
+    private Map<String, Integer> userWorkerWeights = Collections.emptyMap();
 
     private int userRequestSourceConcurrency = DEFAULT_USER_REQUEST_SOURCE_CONCURRENCY;
+    private int connectorSourceConcurrency = DEFAULT_CONNECTOR_SOURCE_CONCURRENCY;
     private boolean detectingChangeEvents = true;
     private long queryTimeout;
 
@@ -73,6 +88,57 @@ public class DQPConfiguration{
         this.maxActivePlans = maxActivePlans;
     }
 
+    /**
+     * The maximum number of plans waiting to become active.  Once exceeded the
+     * most recent plan of the lowest priority is rejected.  -1 indicates no limit.
+     * @return
+     */
+    public int getMaxQueuedPlans() {
+        return maxQueuedPlans;
+    }
+
+    public void setMaxQueuedPlans(int maxQueuedPlans) {
+        this.maxQueuedPlans = maxQueuedPlans;
+    }
+
+    /**
+     * If true and supported by the jre, source work will be executed by virtual threads
+     * rather than the processing threads.
+     * @return
+     */
+    public boolean isSourceVirtualThreads() {
+        return sourceVirtualThreads;
+    }
+
+    public void setSourceVirtualThreads(boolean sourceVirtualThreads) {
+        this.sourceVirtualThreads = sourceVirtualThreads;
+    }
+
+    /**
+     * The maximum number of concurrent source executions when using virtual threads.
+     * @return
+     */
+    public int getMaxSourceThreads() {
+        return maxSourceThreads;
+    }
+
+    public void setMaxSourceThreads(int maxSourceThreads) {
+        this.maxSourceThreads = maxSourceThreads;
+    }
+
+    /**
+     * The weights by user name used to share the processing threads between sessions.
+     * Users without a weight have a weight of 1.
+     * @return
+     */
+    public Map<String, Integer> getUserWorkerWeights() {
+        return userWorkerWeights;
+    }
+
+    public void setUserWorkerWeights(Map<String, Integer> userWorkerWeights) {
+        this.userWorkerWeights = userWorkerWeights;
+    }
+
     public int getUserRequestSourceConcurrency() {
         return userRequestSourceConcurrency;
     }
@@ -81,6 +147,19 @@ public class DQPConfiguration{
         this.userRequestSourceConcurrency = userRequestSourceConcurrency;
     }
 
+    /**
+     * The max concurrent source work against each connector across all requests.
+     * Additional work is queued until a running source task completes.
+     * @return the limit or a value less than 1 for no limit
+     */
+    public int getConnectorSourceConcurrency() {
+        return connectorSourceConcurrency;
+    }
+
+    public void setConnectorSourceConcurrency(int connectorSourceConcurrency) {
+        this.connectorSourceConcurrency = connectorSourceConcurrency;
+    }
+
     public int getMaxThreads() {
         return maxThreads;
     }
@@ -179,7 +258,7 @@ public class DQPConfiguration{
     }
 
     public TeiidExecutor getTeiidExecutor() {
-        return new ThreadReuseExecutor(DQPConfiguration.PROCESS_PLAN_QUEUE_NAME, getMaxThreads()) {
+        ThreadReuseExecutor executor = new ThreadReuseExecutor(DQPConfiguration.PROCESS_PLAN_QUEUE_NAME, getMaxThreads()) {
             Tracer tracer = GlobalTracerInjector.getTracer();
             @Override
             public void execute(Runnable command) {
@@ -187,6 +266,26 @@ public class DQPConfiguration{
                     new TracedRunnable(command, tracer));
             }
         };
+        executor.setUserWeights(userWorkerWeights);
+        return executor;
+    }
+
+    /**
+     * Get the executor for source work
+     * @return the executor or null if source work should use the {@link #getTeiidExecutor()}
+     */
+    public TeiidExecutor getSourceTeiidExecutor() {
+        if (!sourceVirtualThreads) {
+            return null;
+        }
+        ExecutorService executor = ThreadReuseExecutor.newVirtualThreadPerTaskExecutor();
+        if (executor == null) {
+            LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31309));
+            return null;
+        }
+        ThreadReuseExecutor result = new ThreadReuseExecutor(DQPConfiguration.SOURCE_QUEUE_NAME, getMaxSourceThreads(), executor);
+        result.setUserWeights(userWorkerWeights);
+        return result;
     }
 
     public void setPreParser(PreParser preParser) {
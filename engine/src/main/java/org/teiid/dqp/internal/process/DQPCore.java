@@ -24,7 +24,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -39,6 +38,7 @@ import javax.transaction.xa.Xid;
 
 import org.teiid.PreParser;
 import org.teiid.adminapi.AdminException;
+import org.teiid.adminapi.DataPolicy;
 import org.teiid.adminapi.Request.ProcessingState;
 import org.teiid.adminapi.Request.ThreadState;
 import org.teiid.adminapi.VDB.Status;
@@ -66,6 +66,7 @@ import org.teiid.core.types.Streamable;
 import org.teiid.core.util.ApplicationInfo;
 import org.teiid.core.util.ExecutorUtils;
 import org.teiid.core.util.PropertiesUtils;
+import org.teiid.dqp.internal.datamgr.ConnectorManager;
 import org.teiid.dqp.message.AtomicRequestMessage;
 import org.teiid.dqp.message.RequestID;
 import org.teiid.dqp.service.SessionService;
@@ -82,7 +83,16 @@ import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
 import org.teiid.query.QueryPlugin;
+import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.processor.relational.DupRemoveNode;
+import org.teiid.query.processor.relational.GroupingNode;
+import org.teiid.query.processor.relational.JoinNode;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SortNode;
+import org.teiid.query.processor.relational.WindowFunctionProjectNode;
+import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
@@ -99,11 +109,23 @@ import io.opentracing.tag.Tags;
  */
 public class DQPCore implements DQP {
 
+    /**
+     * VDB property for the admission priority of waiting plans, may be suffixed with .&lt;role&gt;
+     * to prioritize the plans of a data role
+     */
+    public static final String ADMISSION_PRIORITY = "admission-priority"; //$NON-NLS-1$
+
+    /**
+     * The maximum reservation charged to a single plan as a multiple of the nominal reservation
+     */
+    static final int MAX_RESERVATION_MULTIPLE = 4;
+
     public interface CompletionListener<T> {
         void onCompletion(FutureWork<T> future);
     }
 
     private TeiidExecutor processWorkerPool;
+    private TeiidExecutor sourceWorkerPool;
 
     // Resources
     private BufferManager bufferManager;
@@ -124,8 +146,10 @@ public class DQPCore implements DQP {
     private volatile int currentlyActivePlans;
     private AtomicLong totalPlansProcessed = new AtomicLong();
     private int userRequestSourceConcurrency;
-    private LinkedList<RequestWorkItem> waitingPlans = new LinkedList<RequestWorkItem>();
+    private int connectorSourceConcurrency;
+    private PlanAdmissionQueue<RequestWorkItem> waitingPlans = new PlanAdmissionQueue<RequestWorkItem>();
     private volatile int maxWaitingPlans = 0;
+    private int maxQueuedPlans = DQPConfiguration.DEFAULT_MAX_QUEUED_PLANS;
     private AuthorizationValidator authorizationValidator;
 
     private EnhancedTimer cancellationTimer;
@@ -154,6 +178,13 @@ public class DQPCore implements DQP {
             processWorkerPool.awaitTermination(10, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
         }
+        if (sourceWorkerPool != processWorkerPool) {
+            sourceWorkerPool.shutdownNow();
+            try {
+                sourceWorkerPool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+            }
+        }
         this.timeoutExecutor.shutdownNow();
         try {
             timeoutExecutor.awaitTermination(10, TimeUnit.SECONDS);
@@ -345,17 +376,26 @@ public class DQPCore implements DQP {
             }, timeout));
         }
         boolean runInThread = requestMsg.isSync();
+        RequestWorkItem shed = null;
         synchronized (waitingPlans) {
-            if (runInThread || currentlyActivePlans < maxActivePlans) {
+            if (runInThread || (currentlyActivePlans < maxActivePlans && waitingPlans.canAdmit(currentlyActivePlans))) {
                 startActivePlan(workItem, !runInThread);
             } else {
                 if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
-                    LogManager.logDetail(LogConstants.CTX_DQP, workItem.requestID, "Queuing plan, since max plans has been reached.");  //$NON-NLS-1$
+                    LogManager.logDetail(LogConstants.CTX_DQP, workItem.requestID, "Queuing plan, since max plans or the expected memory reservation has been reached.");  //$NON-NLS-1$
+                }
+                waitingPlans.add(workItem, workContext.getSessionId(), getAdmissionPriority(workContext));
+                if (maxQueuedPlans >= 0 && waitingPlans.size() > maxQueuedPlans) {
+                    shed = waitingPlans.shed();
                 }
-                waitingPlans.add(workItem);
                 maxWaitingPlans = Math.max(this.maxWaitingPlans, waitingPlans.size());
             }
         }
+        if (shed != null) {
+            LogManager.logDetail(LogConstants.CTX_DQP, shed.requestID, "Shedding plan, since the max queued plans has been reached."); //$NON-NLS-1$
+            shed.shed(QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31308, shed.requestID, maxQueuedPlans));
+            this.addWork(shed);
+        }
         if (runInThread) {
             workItem.useCallingThread = true;
             workItem.run();
@@ -384,6 +424,34 @@ public class DQPCore implements DQP {
         state.addRequest(requestID);
     }
 
+    /**
+     * Get the admission priority of the request from the vdb property admission-priority
+     * or the greatest admission-priority.&lt;role&gt; property of the allowed data roles
+     */
+    private int getAdmissionPriority(DQPWorkContext workContext) {
+        VDBMetaData vdb = workContext.getVDB();
+        int priority = parsePriority(vdb.getPropertyValue(ADMISSION_PRIORITY), 0);
+        Map<String, DataPolicy> policies = workContext.getAllowedDataPolicies();
+        if (policies != null) {
+            for (String role : policies.keySet()) {
+                priority = Math.max(priority, parsePriority(vdb.getPropertyValue(ADMISSION_PRIORITY + '.' + role), priority));
+            }
+        }
+        return priority;
+    }
+
+    private static int parsePriority(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LogManager.logDetail(LogConstants.CTX_DQP, "Invalid admission priority", value); //$NON-NLS-1$
+            return defaultValue;
+        }
+    }
+
     private void startActivePlan(RequestWorkItem workItem, boolean addToQueue) {
         boolean continuous = workItem.requestMsg.getRequestOptions().isContinuous();
         workItem.active = !continuous;
@@ -392,7 +460,76 @@ public class DQPCore implements DQP {
         }
         if (!continuous) {
             this.currentlyActivePlans++;
+            workItem.expectedReservation = waitingPlans.getNominalReservation();
+            waitingPlans.admit(workItem.expectedReservation);
+        }
+    }
+
+    private void startWaitingPlans() {
+        while (!waitingPlans.isEmpty() && currentlyActivePlans < maxActivePlans && waitingPlans.canAdmit(currentlyActivePlans)) {
+            startActivePlan(waitingPlans.poll(), true);
+        }
+    }
+
+    /**
+     * Replace the nominal reservation of the active plan with one based upon
+     * the plan's blocking operations.
+     */
+    void planned(RequestWorkItem workItem, ProcessorPlan plan) {
+        if (!(plan instanceof RelationalPlan)) {
+            return;
+        }
+        long estimate = getExpectedReservation((RelationalPlan)plan);
+        synchronized (waitingPlans) {
+            if (!workItem.active) {
+                return;
+            }
+            waitingPlans.updateReservation(workItem.expectedReservation, estimate);
+            workItem.expectedReservation = estimate;
+            startWaitingPlans();
+        }
+    }
+
+    /**
+     * Estimate the reservation of the plan as the nominal processing reservation plus the
+     * input size of the operations that must buffer their input.  A streaming plan only needs
+     * the nominal reservation regardless of its output size.
+     * <br>
+     * The charge for a single plan is capped at {@link #MAX_RESERVATION_MULTIPLE} times the
+     * nominal reservation so that a poor estimate does not block other plans.
+     */
+    long getExpectedReservation(RelationalPlan plan) {
+        long nominal = waitingPlans.getNominalReservation();
+        double estimate = nominal + getBlockingInputSize(plan.getRootNode());
+        return waitingPlans.boundReservation((long)Math.min(estimate, (double)nominal * MAX_RESERVATION_MULTIPLE));
+    }
+
+    private double getBlockingInputSize(RelationalNode node) {
+        double result = 0;
+        double input = -1;
+        for (RelationalNode child : node.getChildren()) {
+            if (child == null) {
+                break;
+            }
+            result += getBlockingInputSize(child);
+            double size = getOutputSize(child);
+            //a join is expected to buffer the smaller side
+            input = input < 0 ? size : Math.min(input, size);
+        }
+        if (input > 0 && (node instanceof SortNode || node instanceof DupRemoveNode || node instanceof GroupingNode
+                || node instanceof WindowFunctionProjectNode || node instanceof JoinNode)) {
+            result += input;
         }
+        return result;
+    }
+
+    private double getOutputSize(RelationalNode node) {
+        Number cardinality = node.getEstimateNodeCardinality();
+        if (cardinality == null || cardinality.floatValue() < 0) {
+            return 0;
+        }
+        List<? extends Expression> schema = node.getElements();
+        return cardinality.doubleValue() * bufferManager.getSchemaSize(schema) / bufferManager.getProcessorBatchSize(schema);
     }
 
     void finishProcessing(final RequestWorkItem workItem) {
@@ -402,11 +539,9 @@ public class DQPCore implements DQP {
             }
             workItem.active = false;
             currentlyActivePlans--;
+            waitingPlans.release(workItem.expectedReservation);
             totalPlansProcessed.incrementAndGet();
-            if (!waitingPlans.isEmpty()) {
-                RequestWorkItem work = waitingPlans.remove();
-                startActivePlan(work, true);
-            }
+            startWaitingPlans();
         }
         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
             LogManager.logDetail(LogConstants.CTX_DQP, workItem.requestID, "Finished Processing");  //$NON-NLS-1$
@@ -443,6 +578,39 @@ public class DQPCore implements DQP {
         return this.maxWaitingPlans;
     }
 
+    /**
+     * @return the average time in milliseconds that admitted plans waited in the queue
+     */
+    public long getAverageWaitingPlanTime() {
+        synchronized (waitingPlans) {
+            return waitingPlans.getAverageQueueTime();
+        }
+    }
+
+    public long getMaxWaitingPlanTime() {
+        synchronized (waitingPlans) {
+            return waitingPlans.getMaxQueueTime();
+        }
+    }
+
+    /**
+     * @return the number of plans rejected or shed since the max queued plans was reached
+     */
+    public long getShedPlanCount() {
+        synchronized (waitingPlans) {
+            return waitingPlans.getShedCount();
+        }
+    }
+
+    /**
+     * @return the expected buffer reservation in bytes of the active plans
+     */
+    public long getActivePlanReservationEstimate() {
+        synchronized (waitingPlans) {
+            return waitingPlans.getReserved();
+        }
+    }
+
     void removeRequest(final RequestWorkItem workItem) {
         finishProcessing(workItem);
         this.requests.remove(workItem.requestID);
@@ -453,8 +621,45 @@ public class DQPCore implements DQP {
     }
 
     void addWork(Runnable work) {
+        addWork(work, this.processWorkerPool);
+    }
+
+    /**
+     * Add work that may block on a source
+     */
+    void addSourceWork(Runnable work) {
+        addWork(work, this.sourceWorkerPool);
+    }
+
+    /**
+     * Add work against the given connector, which is queued if the connector source concurrency has been reached
+     */
+    <T> void addSourceWork(FutureWork<T> work, final ConnectorManager connectorManager) {
+        if (connectorManager == null || this.connectorSourceConcurrency < 1) {
+            addSourceWork(work);
+            return;
+        }
+        boolean reserved = connectorManager.reserveWork(work, this.connectorSourceConcurrency);
+        //added after the reservation so that work already canceled releases or dequeues immediately
+        work.addCompletionListener(new CompletionListener<T>() {
+            @Override
+            public void onCompletion(FutureWork<T> future) {
+                FutureWork<?> next = connectorManager.workCompleted(future);
+                if (next != null) {
+                    addSourceWork(next);
+                }
+            }
+        });
+        if (reserved) {
+            addSourceWork(work);
+        } else {
+            LogManager.logDetail(LogConstants.CTX_DQP, "Reached max connector source concurrency of", this.connectorSourceConcurrency, "for", connectorManager.getId()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    private void addWork(Runnable work, TeiidExecutor executor) {
         try {
-            this.processWorkerPool.execute(work);
+            executor.execute(work);
         } catch (RejectedExecutionException e) {
             if (!shutdown) {
                 throw e;
@@ -509,10 +714,24 @@ public class DQPCore implements DQP {
         return this.processWorkerPool.getStats();
     }
 
+    /**
+     * @return the statistics of the source worker pool, or null if source work uses the processing pool
+     */
+    public WorkerPoolStatisticsMetadata getSourceWorkerPoolStatistics() {
+        if (this.sourceWorkerPool == this.processWorkerPool) {
+            return null;
+        }
+        return this.sourceWorkerPool.getStats();
+    }
+
     public TeiidExecutor getProcessWorkerPool() {
         return processWorkerPool;
     }
 
+    public TeiidExecutor getSourceWorkerPool() {
+        return sourceWorkerPool;
+    }
+
     public void terminateSession(String sessionId) {
         // sometimes there will not be any atomic requests pending, in that
         // situation we still need to clear the master request from our map
@@ -701,6 +920,10 @@ public class DQPCore implements DQP {
         this.chunkSize = config.getLobChunkSizeInKB() * 1024;
 
         this.processWorkerPool = config.getTeiidExecutor();
+        this.sourceWorkerPool = config.getSourceTeiidExecutor();
+        if (this.sourceWorkerPool == null) {
+            this.sourceWorkerPool = this.processWorkerPool;
+        }
         //we don't want cancellations waiting on normal processing, so they get a small dedicated pool
         //TODO: overflow to the worker pool
         timeoutExecutor = new TracedExecutorService(ExecutorUtils.newFixedThreadPool(3, "Server Side Timeout"), GlobalTracerInjector.getTracer()); //$NON-NLS-1$
@@ -726,8 +949,12 @@ public class DQPCore implements DQP {
         } catch (TeiidComponentException e) {
              throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30496, e);
         }
+        long nominalReservation = this.bufferManager.getMaxProcessingSize();
+        this.waitingPlans.setReservationBudget(nominalReservation, nominalReservation * this.maxActivePlans);
+        this.maxQueuedPlans = config.getMaxQueuedPlans();
 
         this.userRequestSourceConcurrency = config.getUserRequestSourceConcurrency();
+        this.connectorSourceConcurrency = config.getConnectorSourceConcurrency();
         if (this.userRequestSourceConcurrency < 1) {
             this.userRequestSourceConcurrency = Math.min(config.getMaxThreads(), 2*config.getMaxThreads()/this.maxActivePlans);
         }
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -42,6 +43,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.teiid.adminapi.AdminException;
+import org.teiid.adminapi.DataPolicy;
 import org.teiid.adminapi.Request;
 import org.teiid.adminapi.Session;
 import org.teiid.adminapi.Transaction;
@@ -129,6 +131,7 @@ import org.teiid.query.resolver.util.ResolverUtil;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.QueryCommand;
 import org.teiid.query.sql.lang.SPParameter;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.lang.UnaryFromClause;
@@ -1241,6 +1244,10 @@ public class DataTierManagerImpl implements ProcessorDataManager {
     }
 
     public TupleSource registerRequest(CommandContext context, Command command, String modelName, final RegisterRequestParameter parameterObject) throws TeiidComponentException, TeiidProcessingException {
+        return registerRequest(context, command, modelName, parameterObject, true);
+    }
+
+    private TupleSource registerRequest(final CommandContext context, final Command command, final String modelName, final RegisterRequestParameter parameterObject, boolean share) throws TeiidComponentException, TeiidProcessingException {
         RequestWorkItem workItem = context.getWorkItem();
         Assertion.isNotNull(workItem);
         if(CoreConstants.SYSTEM_MODEL.equals(modelName) || CoreConstants.SYSTEM_ADMIN_MODEL.equals(modelName)) {
@@ -1256,13 +1263,19 @@ public class DataTierManagerImpl implements ProcessorDataManager {
             aqr.setFetchSize(Math.min(parameterObject.limit, aqr.getFetchSize()));
         }
         aqr.setCopyStreamingLobs(parameterObject.copyStreamingLobs);
+        InFlightSourceQueries inFlight = null;
+        if (share && command instanceof QueryCommand && !aqr.isTransactional()) {
+            inFlight = getInFlightSourceQueries(workItem.getDqpWorkContext().getVDB());
+        }
         Collection<GroupSymbol> accessedGroups = null;
-        if (context.getDataObjects() != null) {
+        if (context.getDataObjects() != null || inFlight != null) {
             QueryMetadataInterface metadata = context.getMetadata();
             accessedGroups = GroupCollectorVisitor.getGroupsIgnoreInlineViews(command, false);
             boolean usedModel = false;
             for (GroupSymbol gs : accessedGroups) {
-                context.accessedDataObject(gs.getMetadataID());
+                if (context.getDataObjects() != null) {
+                    context.accessedDataObject(gs.getMetadataID());
+                }
 
                 //check the source/tables/procs for determinism level
                 Object mid = gs.getMetadataID();
@@ -1289,6 +1302,14 @@ public class DataTierManagerImpl implements ProcessorDataManager {
                 context.setDeterminismLevel(Determinism.valueOf(specificProp.toUpperCase()));
             }
         }
+        List<Object> sharingKey = null;
+        if (inFlight != null) {
+            sharingKey = getSharingKey(context, command, aqr, parameterObject.limit);
+            if (sharingKey != null) {
+                //the results may be read by other sessions
+                aqr.setCopyStreamingLobs(true);
+            }
+        }
         ConnectorManagerRepository cmr = workItem.getDqpWorkContext().getVDB().getAttachment(ConnectorManagerRepository.class);
         ConnectorManager connectorManager = cmr.getConnectorManager(aqr.getConnectorName());
         if (connectorManager == null) {
@@ -1310,14 +1331,40 @@ public class DataTierManagerImpl implements ProcessorDataManager {
         }
         CacheID cid = null;
         CacheDirective cd = null;
+        boolean checkedCacheDirective = false;
+        InFlightSourceQueries.SourceExecution fallback = null;
+        if (sharingKey != null) {
+            if (work.isThreadBound()) {
+                sharingKey = null;
+            } else {
+                cd = getCacheDirective(work, aqr);
+                checkedCacheDirective = true;
+                if (!addSharingScope(sharingKey, cd, context.getDeterminismLevel(), workItem.getDqpWorkContext())) {
+                    sharingKey = null;
+                } else {
+                    fallback = new InFlightSourceQueries.SourceExecution() {
+                        @Override
+                        public TupleSource execute() throws TeiidComponentException,
+                                TeiidProcessingException {
+                            return registerRequest(context, command, modelName, parameterObject, false);
+                        }
+                    };
+                    TupleSource shared = inFlight.attach(sharingKey, workItem, fallback);
+                    if (shared != null) {
+                        work.close();
+                        return shared;
+                    }
+                }
+            }
+        }
+        SemanticSourceCache semanticCache = null;
+        SemanticSourceCache.SemanticQuery semanticQuery = null;
         if (workItem.getRsCache() != null && command.areResultsCachable()) {
             CachableVisitor cv = new CachableVisitor();
             PreOrPostOrderNavigator.doVisit(command, cv, PreOrPostOrderNavigator.PRE_ORDER, true);
             if (cv.cacheable) {
-                try {
-                    cd = work.getCacheDirective();
-                } catch (TranslatorException e) {
-                    throw new TeiidProcessingException(QueryPlugin.Event.TEIID30504, e, aqr.getConnectorName() + ": " + e.getMessage()); //$NON-NLS-1$
+                if (!checkedCacheDirective) {
+                    cd = getCacheDirective(work, aqr);
                 }
                 if (cd != null) {
                     if (cd.getScope() == Scope.NONE) {
@@ -1327,6 +1374,12 @@ public class DataTierManagerImpl implements ProcessorDataManager {
                         if (cmdString.length() < 100000) { //TODO: this check won't be needed if keys aren't exclusively held in memory
                             cid = new CacheID(workItem.getDqpWorkContext(), ParseInfo.DEFAULT_INSTANCE, cmdString);
                             cid.setParameters(cv.parameters);
+                            if (cv.parameters == null && parameterObject.limit <= 0) {
+                                semanticCache = getSemanticSourceCache(workItem.getDqpWorkContext().getVDB());
+                                if (semanticCache != null) {
+                                    semanticQuery = SemanticSourceCache.getSemanticQuery(aqr.getConnectorName(), command, cmdString);
+                                }
+                            }
                             if (cd.getInvalidation() == null || cd.getInvalidation() == Invalidation.NONE) {
                                 CachedResults cr = workItem.getRsCache().get(cid);
                                 if (cr != null && (cr.getRowLimit() == 0 || (parameterObject.limit > 0 && cr.getRowLimit() >= parameterObject.limit))) {
@@ -1335,6 +1388,14 @@ public class DataTierManagerImpl implements ProcessorDataManager {
                                     work.close();
                                     return cr.getResults().createIndexedTupleSource();
                                 }
+                                if (semanticQuery != null) {
+                                    TupleSource ts = semanticCache.lookup(semanticQuery, workItem.getRsCache(), workItem.getDqpWorkContext(), this, context);
+                                    if (ts != null) {
+                                        parameterObject.doNotCache = true;
+                                        work.close();
+                                        return ts;
+                                    }
+                                }
                             } else if (cd.getInvalidation() == Invalidation.IMMEDIATE) {
                                 workItem.getRsCache().remove(cid, CachingTupleSource.getDeterminismLevel(cd.getScope()));
                             }
@@ -1347,21 +1408,134 @@ public class DataTierManagerImpl implements ProcessorDataManager {
                 LogManager.logTrace(LogConstants.CTX_DQP, aqr.getAtomicRequestID(), "command not cachable"); //$NON-NLS-1$
             }
         }
-        DataTierTupleSource dtts = new DataTierTupleSource(aqr, workItem, work, this, parameterObject.limit);
+        DataTierTupleSource dtts = new DataTierTupleSource(aqr, workItem, work, connectorManager, this, parameterObject.limit);
         TupleSource result = dtts;
         TupleBuffer tb = null;
         if (cid != null) {
             tb = getBufferManager().createTupleBuffer(aqr.getCommand().getProjectedSymbols(), aqr.getCommandContext().getConnectionId(), TupleSourceType.PROCESSOR);
             result = new CachingTupleSource(this, tb, (DataTierTupleSource)result, cid, parameterObject, cd, accessedGroups, workItem);
+            if (semanticQuery != null) {
+                semanticCache.add(semanticQuery);
+            }
         }
         if (work.isThreadBound()) {
-            result = handleThreadBound(workItem, aqr, work, cid, result, dtts, tb);
+            result = handleThreadBound(workItem, aqr, work, connectorManager, cid, result, dtts, tb);
+        } else if (sharingKey != null && cid == null) {
+            aqr.setSerial(true);
+            tb = getBufferManager().createTupleBuffer(aqr.getCommand().getProjectedSymbols(), aqr.getCommandContext().getConnectionId(), TupleSourceType.PROCESSOR);
+            result = inFlight.execute(sharingKey, workItem, dtts, tb, fallback);
         } else if (!aqr.isSerial()) {
             dtts.addWork();
         }
         return result;
     }
 
+    private InFlightSourceQueries getInFlightSourceQueries(VDBMetaData vdb) {
+        if (!Boolean.parseBoolean(vdb.getPropertyValue(InFlightSourceQueries.SOURCE_QUERY_SHARING))) {
+            return null;
+        }
+        synchronized (vdb) {
+            InFlightSourceQueries inFlight = vdb.getAttachment(InFlightSourceQueries.class);
+            if (inFlight == null) {
+                inFlight = new InFlightSourceQueries();
+                vdb.addAttachment(InFlightSourceQueries.class, inFlight);
+            }
+            return inFlight;
+        }
+    }
+
+    private SemanticSourceCache getSemanticSourceCache(VDBMetaData vdb) {
+        if (!Boolean.parseBoolean(vdb.getPropertyValue(SemanticSourceCache.SEMANTIC_SOURCE_CACHE))) {
+            return null;
+        }
+        synchronized (vdb) {
+            SemanticSourceCache semanticCache = vdb.getAttachment(SemanticSourceCache.class);
+            if (semanticCache == null) {
+                semanticCache = new SemanticSourceCache();
+                vdb.addAttachment(SemanticSourceCache.class, semanticCache);
+            }
+            return semanticCache;
+        }
+    }
+
+    private CacheDirective getCacheDirective(ConnectorWork work, AtomicRequestMessage aqr) throws TeiidProcessingException {
+        try {
+            return work.getCacheDirective();
+        } catch (TranslatorException e) {
+            throw new TeiidProcessingException(QueryPlugin.Event.TEIID30504, e, aqr.getConnectorName() + ": " + e.getMessage()); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Create the key for sharing the source query with other sessions.
+     * Less than user deterministic results are not shared.
+     * <br>
+     * The security context is added by {@link #addSharingScope(List, CacheDirective, Determinism, DQPWorkContext)}
+     * once the source has been consulted.
+     *
+     * @return the key or null if the results should not be shared
+     */
+    private List<Object> getSharingKey(CommandContext context, Command command, AtomicRequestMessage aqr, int limit) {
+        Determinism determinism = context.getDeterminismLevel();
+        if (!command.areResultsCachable() || determinism.compareTo(Determinism.USER_DETERMINISTIC) < 0) {
+            return null;
+        }
+        CachableVisitor cv = new CachableVisitor();
+        PreOrPostOrderNavigator.doVisit(command, cv, PreOrPostOrderNavigator.PRE_ORDER, true);
+        if (!cv.cacheable) {
+            return null;
+        }
+        String cmdString = command.toString();
+        if (cmdString.length() >= 100000) {
+            return null;
+        }
+        List<Object> key = new ArrayList<Object>(7);
+        key.add(aqr.getConnectorName());
+        key.add(cmdString);
+        key.add(cv.parameters);
+        key.add(limit);
+        key.add(aqr.supportsPartialResults());
+        return key;
+    }
+
+    /**
+     * Add the security context to the sharing key.
+     * <br>
+     * Row and column security is already reflected in the source command, but the
+     * data roles are still part of the key since they determine the visible results.
+     * Results are only shared between users if the translator declares a vdb cache scope,
+     * otherwise the connection, for example with pass-through authentication, or the results
+     * may be specific to the user.
+     *
+     * @return false if the results should not be shared
+     */
+    private boolean addSharingScope(List<Object> key, CacheDirective cd, Determinism determinism, DQPWorkContext workContext) {
+        boolean user = determinism == Determinism.USER_DETERMINISTIC;
+        if (cd == null || cd.getScope() == null) {
+            user = true;
+        } else {
+            switch (cd.getScope()) {
+            case NONE:
+            case SESSION:
+                return false;
+            case USER:
+                user = true;
+                break;
+            default:
+                break;
+            }
+        }
+        Map<String, DataPolicy> policies = workContext.getAllowedDataPolicies();
+        if (policies != null) {
+            key.add(new TreeSet<String>(policies.keySet()));
+        }
+        if (user) {
+            key.add(workContext.getUserName());
+            key.add(workContext.getSecurityDomain());
+        }
+        return true;
+    }
+
     /**
      * thread bound work is tricky for our execution model
      *
@@ -1375,7 +1549,7 @@ public class DataTierManagerImpl implements ProcessorDataManager {
      * - return a tuplesource off of the buffer for use by the caller
      */
     private TupleSource handleThreadBound(final RequestWorkItem workItem,
-            AtomicRequestMessage aqr, ConnectorWork work, CacheID cid,
+            AtomicRequestMessage aqr, ConnectorWork work, ConnectorManager connectorManager, CacheID cid,
             TupleSource result, DataTierTupleSource dtts, TupleBuffer tb) throws AssertionError,
             TeiidComponentException, TeiidProcessingException {
         if (workItem.useCallingThread) {
@@ -1425,7 +1599,7 @@ public class DataTierManagerImpl implements ProcessorDataManager {
             };
         }
         aqr.setSerial(true);
-        final FutureWork<Void> future = workItem.addWork(callable, callable, 100);
+        final FutureWork<Void> future = workItem.addWork(callable, callable, 100, connectorManager);
         final TupleBuffer buffer = tb;
         //return a thread-safe TupleSource
         return new TupleSource() {
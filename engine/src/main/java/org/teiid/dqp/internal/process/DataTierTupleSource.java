@@ -33,6 +33,7 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.util.Assertion;
+import org.teiid.dqp.internal.datamgr.ConnectorManager;
 import org.teiid.dqp.internal.datamgr.ConnectorWork;
 import org.teiid.dqp.internal.process.DQPCore.CompletionListener;
 import org.teiid.dqp.message.AtomicRequestMessage;
@@ -65,6 +66,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
     private final AtomicRequestMessage aqr;
     private final RequestWorkItem workItem;
     private final ConnectorWork cwi;
+    private final ConnectorManager connectorManager;
     private final DataTierManagerImpl dtm;
 
     private int limit = -1;
@@ -89,11 +91,13 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 
     private long waitUntil;
     private Future<Void> scheduledFuture;
+    private volatile Runnable dataAvailableListener;
 
-    public DataTierTupleSource(AtomicRequestMessage aqr, RequestWorkItem workItem, ConnectorWork cwi, DataTierManagerImpl dtm, int limit) {
+    public DataTierTupleSource(AtomicRequestMessage aqr, RequestWorkItem workItem, ConnectorWork cwi, ConnectorManager connectorManager, DataTierManagerImpl dtm, int limit) {
         this.aqr = aqr;
         this.workItem = workItem;
         this.cwi = cwi;
+        this.connectorManager = connectorManager;
         this.dtm = dtm;
         this.limit = limit;
         Assertion.isNull(workItem.getConnectorRequest(aqr.getAtomicRequestID()));
@@ -112,7 +116,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
                     }
                 }
             }
-        }, this, 100);
+        }, this, 100, connectorManager);
     }
 
     public List<?> nextTuple() throws TeiidComponentException, TeiidProcessingException {
@@ -215,7 +219,12 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
         if (scheduledFuture != null) {
             this.scheduledFuture.cancel(false);
         }
-        scheduledFuture = workItem.scheduleWork(timeDiff);
+        Runnable listener = this.dataAvailableListener;
+        if (listener != null) {
+            scheduledFuture = workItem.getDqpCore().scheduleWork(listener, timeDiff);
+        } else {
+            scheduledFuture = workItem.scheduleWork(timeDiff);
+        }
     }
 
     private void checkForUpdates(AtomicResultsMessage results, Command command,
@@ -353,6 +362,10 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
         return canceled;
     }
 
+    boolean isClosing() {
+        return closing.get();
+    }
+
     public void cancelRequest() {
         this.canceled = true;
         this.cwi.cancel(true);
@@ -434,6 +447,20 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
         if (!cancelAsynch) {
             workItem.moreWork(); //this is not necessary in some situations with DataNotAvailable
         }
+        Runnable listener = this.dataAvailableListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Set a listener to be notified, rather than the owning request, when more results
+     * may be available.  Used when the results are read by something other than the request's
+     * processing, such as a shared execution.
+     */
+    void setDataAvailableListener(Runnable listener) {
+        this.dataAvailableListener = listener;
+        this.cwi.setDataAvailableListener(listener);
     }
 
     public boolean isExplicitClose() {
@@ -0,0 +1,336 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.dqp.internal.process.AbstractWorkItem.ThreadState;
+import org.teiid.dqp.internal.process.DQPCore.CompletionListener;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.QueryPlugin;
+
+/**
+ * A vdb wide registry of running source queries that allows concurrent identical
+ * source queries, possibly from different sessions, to share a single execution.
+ * <br>
+ * The source results are pulled by a separate task into a {@link TupleBuffer} so that
+ * the pace of the execution is not tied to any one of the readers.  Readers that attach
+ * after the first rows have been buffered still read from the first row.
+ * <br>
+ * The execution is not owned by the request that started it.  It is detached from that
+ * request and reference counted by its readers, so closing or canceling any one request
+ * does not affect the others.  The source query is only canceled once all readers have closed.
+ * <br>
+ * The caller is responsible for only sharing executions whose key captures everything that
+ * may affect the results - the source, the command, the data roles and the user as needed.
+ */
+class InFlightSourceQueries {
+
+    static final String SOURCE_QUERY_SHARING = "source-query-sharing"; //$NON-NLS-1$
+
+    /**
+     * Fallback execution for a reader whose shared execution was abandoned
+     */
+    interface SourceExecution {
+        TupleSource execute() throws TeiidComponentException, TeiidProcessingException;
+    }
+
+    /**
+     * The longest the source task will park waiting for a data available signal before checking the source again
+     */
+    static long MAX_PARK_MILLIS = 1000;
+
+    class SharedExecution implements Callable<Void>, CompletionListener<Void>, Runnable {
+        private final Object key;
+        private final DataTierTupleSource dtts;
+        private final TupleBuffer tb;
+        private List<RequestWorkItem> waiting = new ArrayList<RequestWorkItem>(2);
+        private int readers;
+        private boolean done;
+        private boolean finished;
+        private boolean abandoned;
+        private boolean dataAvailable;
+        private Throwable failure;
+
+        SharedExecution(Object key, DataTierTupleSource dtts, TupleBuffer tb) {
+            this.key = key;
+            this.dtts = dtts;
+            this.tb = tb;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                while (true) {
+                    synchronized (this) {
+                        if (readers == 0 || dtts.isClosing()) {
+                            abandoned = true;
+                            return null;
+                        }
+                    }
+                    List<?> row = null;
+                    try {
+                        row = dtts.nextTuple();
+                    } catch (BlockedException e) {
+                        awaitData();
+                        continue;
+                    }
+                    List<RequestWorkItem> toSignal = null;
+                    synchronized (this) {
+                        if (row == null) {
+                            tb.setFinal(true);
+                            done = true;
+                        } else {
+                            tb.addTuple(row);
+                        }
+                        toSignal = swapWaiting();
+                    }
+                    signal(toSignal);
+                    if (row == null) {
+                        return null;
+                    }
+                }
+            } catch (Throwable e) {
+                synchronized (this) {
+                    if (dtts.isClosing() || dtts.isCanceled()) {
+                        abandoned = true;
+                    } else {
+                        failure = e;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Park the source task until the source signals that more data may be available
+         */
+        private synchronized void awaitData() throws InterruptedException {
+            if (!dataAvailable && readers > 0 && !dtts.isClosing()) {
+                wait(MAX_PARK_MILLIS);
+            }
+            dataAvailable = false;
+        }
+
+        /**
+         * Called when the source signals that more data may be available
+         */
+        @Override
+        public synchronized void run() {
+            dataAvailable = true;
+            notifyAll();
+        }
+
+        @Override
+        public void onCompletion(FutureWork<Void> future) {
+            executions.remove(key, this);
+            dtts.fullyCloseSource();
+            List<RequestWorkItem> toSignal = null;
+            synchronized (this) {
+                finished = true;
+                if (!done && failure == null) {
+                    abandoned = true;
+                }
+                if (readers == 0) {
+                    tb.remove();
+                }
+                toSignal = swapWaiting();
+            }
+            signal(toSignal);
+        }
+
+        private List<RequestWorkItem> swapWaiting() {
+            if (waiting.isEmpty()) {
+                return null;
+            }
+            List<RequestWorkItem> result = waiting;
+            waiting = new ArrayList<RequestWorkItem>(2);
+            return result;
+        }
+
+        private synchronized SharedTupleSource attach(RequestWorkItem workItem, SourceExecution fallback) {
+            if (finished || abandoned || failure != null) {
+                return null;
+            }
+            readers++;
+            return new SharedTupleSource(this, workItem, fallback);
+        }
+
+        private void release() {
+            synchronized (this) {
+                if (--readers > 0) {
+                    return;
+                }
+                if (finished) {
+                    tb.remove();
+                    return;
+                }
+                abandoned = true;
+                notifyAll();
+            }
+            //no one is left to read the results
+            dtts.cancelRequest();
+        }
+    }
+
+    static class SharedTupleSource implements TupleSource {
+        private final SharedExecution execution;
+        private final RequestWorkItem workItem;
+        private final SourceExecution fallback;
+        private long rowNumber = 1;
+        private TupleBatch batch;
+        private boolean closed;
+        private TupleSource fallbackSource;
+
+        SharedTupleSource(SharedExecution execution, RequestWorkItem workItem, SourceExecution fallback) {
+            this.execution = execution;
+            this.workItem = workItem;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public List<?> nextTuple() throws TeiidComponentException,
+                TeiidProcessingException {
+            if (fallbackSource != null) {
+                return fallbackSource.nextTuple();
+            }
+            synchronized (execution) {
+                if (rowNumber <= execution.tb.getRowCount()) {
+                    if (batch == null || !batch.containsRow(rowNumber)) {
+                        batch = execution.tb.getBatch(rowNumber);
+                    }
+                    return batch.getTuple(rowNumber++);
+                }
+                if (execution.done) {
+                    return null;
+                }
+                Throwable failure = execution.failure;
+                if (failure != null) {
+                    if (failure instanceof TeiidComponentException) {
+                        throw (TeiidComponentException)failure;
+                    }
+                    if (failure instanceof TeiidProcessingException) {
+                        throw (TeiidProcessingException)failure;
+                    }
+                    throw new TeiidComponentException(failure);
+                }
+                if (!execution.abandoned) {
+                    execution.waiting.add(workItem);
+                    throw BlockedException.block(workItem.getRequestID(), "Blocking on shared source query"); //$NON-NLS-1$
+                }
+            }
+            //the shared execution did not complete, so we must run the query ourselves
+            if (fallback == null || rowNumber > 1) {
+                throw new TeiidProcessingException(QueryPlugin.Event.TEIID31310, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31310, workItem.getRequestID()));
+            }
+            LogManager.logDetail(LogConstants.CTX_DQP, workItem.getRequestID(), "Shared source query was abandoned, executing independently"); //$NON-NLS-1$
+            closeSource();
+            fallbackSource = fallback.execute();
+            return fallbackSource.nextTuple();
+        }
+
+        @Override
+        public void closeSource() {
+            if (fallbackSource != null) {
+                fallbackSource.closeSource();
+            }
+            batch = null;
+            if (!closed) {
+                closed = true;
+                execution.release();
+            }
+        }
+    }
+
+    private ConcurrentHashMap<Object, SharedExecution> executions = new ConcurrentHashMap<Object, SharedExecution>();
+    private AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * Attach to a running execution with the given key.
+     * @return the shared results or null if there is no execution to share
+     */
+    TupleSource attach(Object key, RequestWorkItem workItem, SourceExecution fallback) {
+        SharedExecution execution = executions.get(key);
+        if (execution == null) {
+            return null;
+        }
+        TupleSource result = execution.attach(workItem, fallback);
+        if (result != null) {
+            sharedCount.getAndIncrement();
+            LogManager.logDetail(LogConstants.CTX_DQP, workItem.getRequestID(), "Sharing the in-flight source query", key); //$NON-NLS-1$
+        }
+        return result;
+    }
+
+    /**
+     * Start a shareable execution of the serial source query.  The results are
+     * pulled into the given buffer by a source task that is independent of the workItem.
+     * @return the results for the workItem
+     */
+    TupleSource execute(Object key, RequestWorkItem workItem, DataTierTupleSource dtts, TupleBuffer tb, SourceExecution fallback) {
+        //detach from the starting request so that its close or cancel does not end the execution for other readers
+        workItem.closeAtomicRequest(dtts.getAtomicRequestMessage().getAtomicRequestID());
+        SharedExecution execution = new SharedExecution(key, dtts, tb);
+        dtts.setDataAvailableListener(execution);
+        TupleSource result = execution.attach(workItem, fallback);
+        //if an identical execution was registered concurrently, this one is simply not shared
+        executions.putIfAbsent(key, execution);
+        FutureWork<Void> work = new FutureWork<Void>(execution, 100);
+        work.setRequestId(workItem.getRequestID().toString());
+        work.addCompletionListener(execution);
+        workItem.getDqpCore().addSourceWork(work);
+        return result;
+    }
+
+    private static void signal(List<RequestWorkItem> toSignal) {
+        if (toSignal == null) {
+            return;
+        }
+        for (RequestWorkItem workItem : toSignal) {
+            synchronized (workItem) {
+                if (workItem.getThreadState() != ThreadState.MORE_WORK) {
+                    workItem.moreWork();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of source queries that were answered by attaching to an in-flight execution
+     */
+    long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    int getInFlightCount() {
+        return executions.size();
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.teiid.dqp.internal.process;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the plans waiting to become active.
+ * <br>
+ * Plans are taken by descending priority.  Within a priority the sessions are
+ * served round robin so that a single session cannot monopolize the queue.
+ * <br>
+ * Also tracks the expected buffer reservation of the active plans so that plans
+ * expected to use more than the nominal reservation reduce the effective concurrency.
+ * <br>
+ * Not thread-safe, access should be synchronized on this object.
+ */
+class PlanAdmissionQueue<T> {
+
+    private static class Entry<T> {
+        final T item;
+        final long queued = System.currentTimeMillis();
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private TreeMap<Integer, LinkedHashMap<String, LinkedList<Entry<T>>>> queues = new TreeMap<Integer, LinkedHashMap<String, LinkedList<Entry<T>>>>(Collections.reverseOrder());
+    private int size;
+
+    private long nominalReservation;
+    private long reservationBudget = Long.MAX_VALUE;
+    private long reserved;
+
+    private long admittedCount;
+    private long dequeuedCount;
+    private long totalQueueTime;
+    private long maxQueueTime;
+    private long shedCount;
+
+    /**
+     * Set the reservation assumed for a plan that has not been planned
+     * and the total reservation allowed across the active plans
+     */
+    void setReservationBudget(long nominalReservation, long reservationBudget) {
+        this.nominalReservation = nominalReservation;
+        this.reservationBudget = reservationBudget;
+    }
+
+    long getNominalReservation() {
+        return nominalReservation;
+    }
+
+    /**
+     * Clamp the reservation estimate to the budget, so that a large plan
+     * may still run by itself
+     */
+    long boundReservation(long estimate) {
+        return Math.max(0, Math.min(estimate, this.reservationBudget));
+    }
+
+    void add(T item, String sessionId, int priority) {
+        LinkedHashMap<String, LinkedList<Entry<T>>> sessions = queues.get(priority);
+        if (sessions == null) {
+            sessions = new LinkedHashMap<String, LinkedList<Entry<T>>>();
+            queues.put(priority, sessions);
+        }
+        LinkedList<Entry<T>> items = sessions.get(sessionId);
+        if (items == null) {
+            items = new LinkedList<Entry<T>>();
+            sessions.put(sessionId, items);
+        }
+        items.add(new Entry<T>(item));
+        size++;
+    }
+
+    /**
+     * Remove the next plan from the highest priority, moving its session
+     * to the back of the rotation
+     * @return the plan or null if empty
+     */
+    T poll() {
+        if (size == 0) {
+            return null;
+        }
+        Map.Entry<Integer, LinkedHashMap<String, LinkedList<Entry<T>>>> first = queues.firstEntry();
+        LinkedHashMap<String, LinkedList<Entry<T>>> sessions = first.getValue();
+        Iterator<Map.Entry<String, LinkedList<Entry<T>>>> iter = sessions.entrySet().iterator();
+        Map.Entry<String, LinkedList<Entry<T>>> session = iter.next();
+        LinkedList<Entry<T>> items = session.getValue();
+        Entry<T> entry = items.removeFirst();
+        iter.remove();
+        if (!items.isEmpty()) {
+            sessions.put(session.getKey(), items);
+        } else if (sessions.isEmpty()) {
+            queues.remove(first.getKey());
+        }
+        size--;
+        long queueTime = System.currentTimeMillis() - entry.queued;
+        this.dequeuedCount++;
+        this.totalQueueTime += queueTime;
+        this.maxQueueTime = Math.max(this.maxQueueTime, queueTime);
+        return entry.item;
+    }
+
+    /**
+     * Remove the most recent plan of the session with the most
+     * waiting plans at the lowest priority
+     * @return the plan or null if empty
+     */
+    T shed() {
+        if (size == 0) {
+            return null;
+        }
+        Map.Entry<Integer, LinkedHashMap<String, LinkedList<Entry<T>>>> last = queues.lastEntry();
+        LinkedHashMap<String, LinkedList<Entry<T>>> sessions = last.getValue();
+        Map.Entry<String, LinkedList<Entry<T>>> longest = null;
+        for (Map.Entry<String, LinkedList<Entry<T>>> session : sessions.entrySet()) {
+            if (longest == null || session.getValue().size() > longest.getValue().size()) {
+                longest = session;
+            }
+        }
+        Entry<T> entry = longest.getValue().removeLast();
+        if (longest.getValue().isEmpty()) {
+            sessions.remove(longest.getKey());
+            if (sessions.isEmpty()) {
+                queues.remove(last.getKey());
+            }
+        }
+        size--;
+        this.shedCount++;
+        return entry.item;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param activePlans
+     * @return true if another plan with the nominal reservation fits in the budget.
+     * A plan is always admitted if there are none active.
+     */
+    boolean canAdmit(int activePlans) {
+        return activePlans == 0 || reserved + nominalReservation <= reservationBudget;
+    }
+
+    void admit(long reservation) {
+        this.reserved += reservation;
+        this.admittedCount++;
+    }
+
+    void updateReservation(long oldReservation, long newReservation) {
+        this.reserved += newReservation - oldReservation;
+    }
+
+    void release(long reservation) {
+        this.reserved -= reservation;
+    }
+
+    long getReserved() {
+        return reserved;
+    }
+
+    long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    long getAverageQueueTime() {
+        if (dequeuedCount == 0) {
+            return 0;
+        }
+        return totalQueueTime / dequeuedCount;
+    }
+
+    long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    long getShedCount() {
+        return shedCount;
+    }
+
+}
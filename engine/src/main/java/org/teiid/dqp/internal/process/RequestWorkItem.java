@@ -47,6 +47,7 @@ import org.teiid.client.util.ResultsReceiver;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.SerializedTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
@@ -55,6 +56,7 @@ import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.dqp.internal.datamgr.ConnectorManager;
 import org.teiid.dqp.internal.datamgr.ThreadCpuTimer;
 import org.teiid.dqp.internal.process.AuthorizationValidator.CommandType;
 import org.teiid.dqp.internal.process.DQPCore.CompletionListener;
@@ -129,9 +131,11 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 
         boolean submitted;
         FutureWork<T> work;
+        ConnectorManager connectorManager;
 
-        public WorkWrapper(FutureWork<T> work) {
+        public WorkWrapper(FutureWork<T> work, ConnectorManager connectorManager) {
             this.work = work;
+            this.connectorManager = connectorManager;
         }
 
         @Override
@@ -156,7 +160,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
                 }
             }
             if (nextWork != null) {
-                dqpCore.addWork(nextWork.work);
+                dqpCore.addSourceWork(nextWork.work, nextWork.connectorManager);
             }
         }
     }
@@ -183,6 +187,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     private final TransactionService transactionService;
     private final DQPWorkContext dqpWorkContext;
     boolean active;
+    long expectedReservation;
 
     /*
      * obtained during new
@@ -224,6 +229,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 
     private boolean explicitSourceClose;
     private int schemaSize;
+    private Boolean forwardSerializedBatches;
 
     AtomicLong dataBytes = new AtomicLong();
     private long planningStart;
@@ -389,6 +395,15 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         }
     }
 
+    /**
+     * Fail a request that has not started processing since
+     * it was shed from the waiting plans
+     */
+    void shed(String reason) {
+        this.processingException = new TeiidProcessingException(QueryPlugin.Event.TEIID31308, reason);
+        this.state = ProcessingState.CLOSE;
+    }
+
     private void setCanceledException() {
         this.processingException = new TeiidProcessingException(QueryPlugin.Event.TEIID30160, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30160, this.requestID));
     }
@@ -473,7 +488,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
             synchronized (queue) {
                 while (!queue.isEmpty() && totalThreads < dqpCore.getUserRequestSourceConcurrency()) {
                     WorkWrapper<?> w = queue.removeFirst();
-                    dqpCore.addWork(w.work);
+                    dqpCore.addSourceWork(w.work, w.connectorManager);
                     w.submitted = true;
                     totalThreads++;
                 }
@@ -681,6 +696,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         request.processor.getContext().setWorkItem(this);
         processor = request.processor;
         planningEnd = System.currentTimeMillis();
+        this.dqpCore.planned(this, processor.getProcessorPlan());
         this.dqpCore.logMMCommand(this, Event.PLAN, null, null);
         collector = new BatchCollector(processor, processor.getBufferManager(), this.request.context, isForwardOnly()) {
 
@@ -898,7 +914,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
                     if (savedBatch != null && savedBatch.containsRow(this.begin)) {
                         batch = savedBatch;
                     } else {
-                        batch = resultsBuffer.getBatch(begin);
+                        batch = getSerializedBatch();
+                        if (batch == null) {
+                            batch = resultsBuffer.getBatch(begin);
+                        }
                         //fetch more than 1 batch from the buffer
                         boolean first = true;
                         int rowSize = resultsBuffer.getRowSizeEstimate();
@@ -916,7 +935,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
                         if (returnsUpdateCount) {
                             batches = Integer.MAX_VALUE;
                         }
-                        for (int i = 1; i < batches && batch.getRowCount() + resultsBuffer.getBatchSize() <= count && !batch.getTerminationFlag(); i++) {
+                        //a serialized batch is sent as is
+                        for (int i = 1; i < batches && !(batch instanceof SerializedTupleBatch) && batch.getRowCount() + resultsBuffer.getBatchSize() <= count && !batch.getTerminationFlag(); i++) {
                             TupleBatch next = resultsBuffer.getBatch(batch.getEndRow() + 1);
                             if (next.getRowCount() == 0) {
                                 break;
@@ -959,6 +979,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
                 throw new TeiidProcessingException(QueryPlugin.Event.TEIID31174, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31174));
             }
             response = createResultsMessage(batch.getTuples(), this.originalCommand.getProjectedSymbols());
+            if (batch instanceof SerializedTupleBatch) {
+                response.setSerializedResults(((SerializedTupleBatch)batch).getBytes());
+            }
             response.setFirstRow((int)batch.getBeginRow());
             if (batch.getTermination() == TupleBatch.ITERATION_TERMINATED) {
                 response.setLastRow((int)batch.getEndRow() - 1);
@@ -1036,6 +1059,35 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         return result;
     }
 
+    /**
+     * Get the batch at the begin row from storage in its serialized form, if it can be forwarded to the client without
+     * deserialization.
+     * @return the batch or null if not possible
+     */
+    private TupleBatch getSerializedBatch() throws TeiidComponentException {
+        if (forwardSerializedBatches == null) {
+            boolean forward = !returnsUpdateCount
+                    && !this.dqpWorkContext.getSession().isEmbedded()
+                    && this.requestMsg.isDelaySerialization()
+                    && this.originalCommand.returnsResultSet()
+                    && BatchSerializer.isForwardable(this.resultsBuffer.getTypes(), this.dqpWorkContext.getClientVersion().getClientSerializationVersion());
+            if (forward) {
+                //the buffer must have the same types as the client will be sent
+                List<? extends Expression> projected = this.originalCommand.getProjectedSymbols();
+                String[] types = this.resultsBuffer.getTypes();
+                forward = projected.size() == types.length;
+                for (int i = 0; forward && i < types.length; i++) {
+                    forward = types[i].equals(DataTypeManager.getDataTypeName(projected.get(i).getType()));
+                }
+            }
+            forwardSerializedBatches = forward;
+        }
+        if (!forwardSerializedBatches) {
+            return null;
+        }
+        return resultsBuffer.getSerializedBatch(begin);
+    }
+
     private boolean handleGeneratedKeys(ResultsMessage response) throws QueryMetadataException, TeiidComponentException {
         GeneratedKeysImpl keys = this.processor.getContext().getGeneratedKeys();
         if (keys.getKeys().isEmpty()) {
@@ -1384,15 +1436,19 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         return work;
     }
 
-    <T> FutureWork<T> addWork(Callable<T> callable, CompletionListener<T> listener, int priority) {
+    /**
+     * Add source work, subject to the request and connector source concurrency
+     * @param connectorManager the connector the work executes against, may be null
+     */
+    <T> FutureWork<T> addWork(Callable<T> callable, CompletionListener<T> listener, int priority, ConnectorManager connectorManager) {
         FutureWork<T> work = new FutureWork<T>(callable, priority);
         work.setRequestId(this.requestID.toString());
-        WorkWrapper<T> wl = new WorkWrapper<T>(work);
+        WorkWrapper<T> wl = new WorkWrapper<T>(work, connectorManager);
         work.addCompletionListener(wl);
         work.addCompletionListener(listener);
         synchronized (queue) {
             if (totalThreads < dqpCore.getUserRequestSourceConcurrency()) {
-                dqpCore.addWork(work);
+                dqpCore.addSourceWork(work, connectorManager);
                 totalThreads++;
                 wl.submitted = true;
             } else {
@@ -0,0 +1,523 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.lang.AbstractCompareCriteria;
+import org.teiid.query.sql.lang.BetweenCriteria;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * An index over the cached source results that allows a source query to be answered from
+ * a cached result of the same query shape - the same source, select, from and order by - whose
+ * criteria contains the criteria of the new query.  The cached rows are filtered locally
+ * by the conjuncts of the new query that were not part of the cached query.
+ * <br>
+ * The cached results themselves are held by the result set cache, so their scope,
+ * ttl and invalidation are unchanged.
+ * <br>
+ * Containment is only inferred for comparisons of columns against constants of numeric,
+ * date/time or boolean types.  Character values are not reasoned about since the source
+ * collation may differ from ours; such conjuncts must appear verbatim in the cached query.
+ */
+class SemanticSourceCache {
+
+    static final String SEMANTIC_SOURCE_CACHE = "semantic-source-cache"; //$NON-NLS-1$
+
+    private static final int MAX_SHAPES = 256;
+    private static final int MAX_ENTRIES_PER_SHAPE = 16;
+
+    /**
+     * A source query that is eligible for the semantic cache
+     */
+    static class SemanticQuery {
+        String connectorName;
+        String command;
+        String shape;
+        List<Criteria> conjuncts;
+        Map<ElementSymbol, Integer> elements;
+
+        private SemanticQuery() {
+        }
+    }
+
+    private static class Entry {
+        private final String command;
+        private final List<Criteria> conjuncts;
+
+        private Entry(String command, List<Criteria> conjuncts) {
+            this.command = command;
+            this.conjuncts = conjuncts;
+        }
+    }
+
+    /**
+     * The values allowed by the conjuncts referencing a single column
+     */
+    private static class Bounds {
+        private Object lower;
+        private boolean lowerInclusive;
+        private Object upper;
+        private boolean upperInclusive;
+        private List<Object> values;
+        private boolean notNull;
+
+        private void add(int op, Object value) {
+            notNull = true;
+            switch (op) {
+            case AbstractCompareCriteria.EQ:
+                retainValues(Collections.singletonList(value));
+                break;
+            case AbstractCompareCriteria.GT:
+            case AbstractCompareCriteria.GE:
+            {
+                int compare = lower == null ? 1 : Constant.COMPARATOR.compare(value, lower);
+                if (compare > 0 || (compare == 0 && op == AbstractCompareCriteria.GT)) {
+                    lower = value;
+                    lowerInclusive = op == AbstractCompareCriteria.GE;
+                }
+                break;
+            }
+            case AbstractCompareCriteria.LT:
+            case AbstractCompareCriteria.LE:
+            {
+                int compare = upper == null ? -1 : Constant.COMPARATOR.compare(value, upper);
+                if (compare < 0 || (compare == 0 && op == AbstractCompareCriteria.LT)) {
+                    upper = value;
+                    upperInclusive = op == AbstractCompareCriteria.LE;
+                }
+                break;
+            }
+            }
+        }
+
+        private void retainValues(List<Object> allowed) {
+            if (values == null) {
+                values = new ArrayList<Object>(allowed);
+                return;
+            }
+            for (Iterator<Object> iter = values.iterator(); iter.hasNext();) {
+                if (!contains(allowed, iter.next())) {
+                    iter.remove();
+                }
+            }
+        }
+
+        /**
+         * @return true if every allowed value satisfies value op other
+         */
+        private boolean satisfies(int op, Object other) {
+            if (values != null) {
+                for (Object value : values) {
+                    if (!test(Constant.COMPARATOR.compare(value, other), op)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            switch (op) {
+            case AbstractCompareCriteria.GT:
+                return aboveLower(other, false);
+            case AbstractCompareCriteria.GE:
+                return aboveLower(other, true);
+            case AbstractCompareCriteria.LT:
+                return belowUpper(other, false);
+            case AbstractCompareCriteria.LE:
+                return belowUpper(other, true);
+            case AbstractCompareCriteria.NE:
+                return aboveLower(other, false) || belowUpper(other, false);
+            }
+            return false;
+        }
+
+        private boolean aboveLower(Object other, boolean inclusive) {
+            if (lower == null) {
+                return false;
+            }
+            int compare = Constant.COMPARATOR.compare(lower, other);
+            return compare > 0 || (compare == 0 && (inclusive || !lowerInclusive));
+        }
+
+        private boolean belowUpper(Object other, boolean inclusive) {
+            if (upper == null) {
+                return false;
+            }
+            int compare = Constant.COMPARATOR.compare(upper, other);
+            return compare < 0 || (compare == 0 && (inclusive || !upperInclusive));
+        }
+
+        private static boolean test(int compare, int op) {
+            switch (op) {
+            case AbstractCompareCriteria.EQ:
+                return compare == 0;
+            case AbstractCompareCriteria.NE:
+                return compare != 0;
+            case AbstractCompareCriteria.LT:
+                return compare < 0;
+            case AbstractCompareCriteria.LE:
+                return compare <= 0;
+            case AbstractCompareCriteria.GT:
+                return compare > 0;
+            case AbstractCompareCriteria.GE:
+                return compare >= 0;
+            }
+            return false;
+        }
+
+        private static boolean contains(List<Object> values, Object value) {
+            for (Object other : values) {
+                if (Constant.COMPARATOR.compare(value, other) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private LinkedHashMap<String, LinkedList<Entry>> entries = new LinkedHashMap<String, LinkedList<Entry>>(16, .75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LinkedList<Entry>> eldest) {
+            return size() > MAX_SHAPES;
+        }
+    };
+    private ConcurrentHashMap<String, AtomicLong[]> sourceStats = new ConcurrentHashMap<String, AtomicLong[]>();
+
+    /**
+     * Determine if the source command can use or populate the semantic cache.
+     * Only single queries without grouping, limits, or computed projections are eligible.
+     * @return the {@link SemanticQuery} or null if not eligible
+     */
+    static SemanticQuery getSemanticQuery(String connectorName, Command command, String commandString) {
+        if (!(command instanceof Query)) {
+            return null;
+        }
+        Query query = (Query)command;
+        if (query.getFrom() == null || query.getInto() != null || query.getLimit() != null
+                || query.getWith() != null || query.hasAggregates()) {
+            return null;
+        }
+        Map<ElementSymbol, Integer> elements = new HashMap<ElementSymbol, Integer>();
+        List<Expression> projected = query.getSelect().getProjectedSymbols();
+        for (int i = 0; i < projected.size(); i++) {
+            Expression ex = SymbolMap.getExpression(projected.get(i));
+            if (ex instanceof ElementSymbol) {
+                elements.put((ElementSymbol)ex, i);
+            } else if (!(ex instanceof Constant)) {
+                return null;
+            }
+        }
+        Query shape = (Query)query.clone();
+        shape.setCriteria(null);
+        SemanticQuery result = new SemanticQuery();
+        result.connectorName = connectorName;
+        result.command = commandString;
+        result.shape = connectorName + ':' + shape.toString();
+        result.conjuncts = Criteria.separateCriteriaByAnd(query.getCriteria());
+        result.elements = elements;
+        return result;
+    }
+
+    /**
+     * Record that the results of the source command are being cached
+     */
+    void add(SemanticQuery query) {
+        String command = query.command;
+        List<Criteria> conjuncts = new ArrayList<Criteria>(query.conjuncts.size());
+        for (Criteria crit : query.conjuncts) {
+            conjuncts.add((Criteria)crit.clone());
+        }
+        Entry entry = new Entry(command, conjuncts);
+        synchronized (entries) {
+            LinkedList<Entry> shapeEntries = entries.get(query.shape);
+            if (shapeEntries == null) {
+                shapeEntries = new LinkedList<Entry>();
+                entries.put(query.shape, shapeEntries);
+            }
+            for (Iterator<Entry> iter = shapeEntries.iterator(); iter.hasNext();) {
+                if (iter.next().command.equals(command)) {
+                    iter.remove();
+                }
+            }
+            shapeEntries.addFirst(entry);
+            if (shapeEntries.size() > MAX_ENTRIES_PER_SHAPE) {
+                shapeEntries.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Answer the query from a cached result containing its results.
+     * @return the filtered cached results or null if there is no such entry
+     */
+    TupleSource lookup(SemanticQuery query, SessionAwareCache<CachedResults> cache, DQPWorkContext workContext,
+            ProcessorDataManager dataMgr, CommandContext context) {
+        List<Entry> candidates = null;
+        synchronized (entries) {
+            LinkedList<Entry> shapeEntries = entries.get(query.shape);
+            if (shapeEntries == null) {
+                candidates = Collections.emptyList();
+            } else {
+                candidates = new ArrayList<Entry>(shapeEntries);
+            }
+        }
+        AtomicLong[] stats = getStats(query.connectorName);
+        stats[0].getAndIncrement();
+        for (Entry entry : candidates) {
+            List<Criteria> residual = getResidualCriteria(entry.conjuncts, query);
+            if (residual == null) {
+                continue;
+            }
+            CacheID cid = new CacheID(workContext, ParseInfo.DEFAULT_INSTANCE, entry.command);
+            CachedResults cr = cache.get(cid);
+            if (cr == null || cr.getRowLimit() != 0) {
+                continue;
+            }
+            stats[1].getAndIncrement();
+            if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+                LogManager.logDetail(LogConstants.CTX_DQP, "Using containing cache entry for", query.connectorName, cid, "semantic cache hit ratio", getHitRatio(query.connectorName)); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            final TupleSource ts = cr.getResults().createIndexedTupleSource();
+            if (residual.isEmpty()) {
+                return ts;
+            }
+            final Criteria filter = Criteria.combineCriteria(residual);
+            final Evaluator eval = new Evaluator(query.elements, dataMgr, context);
+            return new TupleSource() {
+
+                @Override
+                public List<?> nextTuple() throws TeiidComponentException,
+                        TeiidProcessingException {
+                    while (true) {
+                        List<?> tuple = ts.nextTuple();
+                        if (tuple == null || eval.evaluate(filter, tuple)) {
+                            return tuple;
+                        }
+                    }
+                }
+
+                @Override
+                public void closeSource() {
+                    ts.closeSource();
+                }
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Determine if the query criteria is contained by the cached criteria
+     * @return the conjuncts to evaluate against the cached rows or null if not contained
+     */
+    static List<Criteria> getResidualCriteria(List<Criteria> cached, SemanticQuery query) {
+        Map<Expression, Bounds> bounds = new HashMap<Expression, Bounds>();
+        for (Criteria crit : query.conjuncts) {
+            addBounds(bounds, crit);
+        }
+        for (Criteria crit : cached) {
+            if (!query.conjuncts.contains(crit) && !implies(bounds, crit)) {
+                return null;
+            }
+        }
+        List<Criteria> residual = new ArrayList<Criteria>(query.conjuncts.size());
+        for (Criteria crit : query.conjuncts) {
+            if (cached.contains(crit)) {
+                continue;
+            }
+            ElementSymbol es = getBoundElement(crit);
+            if (es == null || !query.elements.containsKey(es)) {
+                return null;
+            }
+            residual.add(crit);
+        }
+        return residual;
+    }
+
+    /**
+     * @return the element constrained by the conjunct if it is a supported comparison against constants
+     */
+    static ElementSymbol getBoundElement(Criteria crit) {
+        Expression ex = null;
+        List<Expression> values = new ArrayList<Expression>(2);
+        if (crit instanceof CompareCriteria) {
+            CompareCriteria cc = (CompareCriteria)crit;
+            ex = cc.getLeftExpression();
+            values.add(cc.getRightExpression());
+        } else if (crit instanceof BetweenCriteria) {
+            BetweenCriteria bc = (BetweenCriteria)crit;
+            if (bc.isNegated()) {
+                return null;
+            }
+            ex = bc.getExpression();
+            values.add(bc.getLowerExpression());
+            values.add(bc.getUpperExpression());
+        } else if (crit instanceof SetCriteria) {
+            SetCriteria sc = (SetCriteria)crit;
+            if (sc.isNegated()) {
+                return null;
+            }
+            ex = sc.getExpression();
+            values.addAll(sc.getValues());
+        } else if (crit instanceof IsNullCriteria) {
+            ex = ((IsNullCriteria)crit).getExpression();
+        }
+        if (!(ex instanceof ElementSymbol)) {
+            return null;
+        }
+        Class<?> type = ex.getType();
+        if (!Number.class.isAssignableFrom(type) && !java.util.Date.class.isAssignableFrom(type) && type != Boolean.class) {
+            return null;
+        }
+        for (Expression value : values) {
+            if (!(value instanceof Constant) || ((Constant)value).isNull() || value.getType() != type) {
+                return null;
+            }
+        }
+        return (ElementSymbol)ex;
+    }
+
+    private static void addBounds(Map<Expression, Bounds> bounds, Criteria crit) {
+        ElementSymbol es = getBoundElement(crit);
+        if (es == null) {
+            return;
+        }
+        Bounds b = bounds.get(es);
+        if (b == null) {
+            b = new Bounds();
+            bounds.put(es, b);
+        }
+        if (crit instanceof CompareCriteria) {
+            CompareCriteria cc = (CompareCriteria)crit;
+            b.add(cc.getOperator(), ((Constant)cc.getRightExpression()).getValue());
+        } else if (crit instanceof BetweenCriteria) {
+            BetweenCriteria bc = (BetweenCriteria)crit;
+            b.add(AbstractCompareCriteria.GE, ((Constant)bc.getLowerExpression()).getValue());
+            b.add(AbstractCompareCriteria.LE, ((Constant)bc.getUpperExpression()).getValue());
+        } else if (crit instanceof SetCriteria) {
+            b.notNull = true;
+            b.retainValues(getValues((SetCriteria)crit));
+        } else if (((IsNullCriteria)crit).isNegated()) {
+            b.notNull = true;
+        }
+    }
+
+    private static boolean implies(Map<Expression, Bounds> bounds, Criteria crit) {
+        ElementSymbol es = getBoundElement(crit);
+        if (es == null) {
+            return false;
+        }
+        Bounds b = bounds.get(es);
+        if (b == null) {
+            return false;
+        }
+        if (crit instanceof CompareCriteria) {
+            CompareCriteria cc = (CompareCriteria)crit;
+            return b.satisfies(cc.getOperator(), ((Constant)cc.getRightExpression()).getValue());
+        }
+        if (crit instanceof BetweenCriteria) {
+            BetweenCriteria bc = (BetweenCriteria)crit;
+            return b.satisfies(AbstractCompareCriteria.GE, ((Constant)bc.getLowerExpression()).getValue())
+                    && b.satisfies(AbstractCompareCriteria.LE, ((Constant)bc.getUpperExpression()).getValue());
+        }
+        if (crit instanceof SetCriteria) {
+            if (b.values == null) {
+                return false;
+            }
+            List<Object> allowed = getValues((SetCriteria)crit);
+            for (Object value : b.values) {
+                if (!Bounds.contains(allowed, value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return ((IsNullCriteria)crit).isNegated() && b.notNull;
+    }
+
+    private static List<Object> getValues(SetCriteria crit) {
+        List<Object> values = new ArrayList<Object>(crit.getNumberOfValues());
+        for (Object value : crit.getValues()) {
+            values.add(((Constant)value).getValue());
+        }
+        return values;
+    }
+
+    private AtomicLong[] getStats(String connectorName) {
+        AtomicLong[] stats = sourceStats.get(connectorName);
+        if (stats == null) {
+            stats = new AtomicLong[] {new AtomicLong(), new AtomicLong()};
+            AtomicLong[] existing = sourceStats.putIfAbsent(connectorName, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return the ratio of semantic cache hits to lookups for the source
+     */
+    double getHitRatio(String connectorName) {
+        AtomicLong[] stats = sourceStats.get(connectorName);
+        if (stats == null || stats[0].get() == 0) {
+            return 0;
+        }
+        return stats[1].get() / (double)stats[0].get();
+    }
+
+    long getHitCount(String connectorName) {
+        AtomicLong[] stats = sourceStats.get(connectorName);
+        if (stats == null) {
+            return 0;
+        }
+        return stats[1].get();
+    }
+
+}
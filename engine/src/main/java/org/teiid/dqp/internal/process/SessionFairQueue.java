@@ -0,0 +1,155 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.teiid.dqp.internal.process.ThreadReuseExecutor.PrioritizedRunnable;
+import org.teiid.dqp.internal.process.ThreadReuseExecutor.RunnableWrapper;
+
+/**
+ * A queue of work that shares the workers between sessions by weight.
+ * <br>
+ * Each session has its own priority queue.  Sessions are chosen by stride scheduling:
+ * taking work advances the session's pass by a stride inversely proportional to the
+ * weight of its user, and the session with the lowest pass is served next.
+ * Sessions that become active again start at the current pass so that idle time is not banked.
+ * <br>
+ * No wait work is taken before all other work, and unprioritized work only once the
+ * session work is drained.
+ * <br>
+ * Not thread-safe.
+ */
+class SessionFairQueue {
+
+    static final long STRIDE = 1 << 16;
+
+    private static class SessionWork implements Comparable<SessionWork> {
+        final String sessionId;
+        final long stride;
+        final PriorityQueue<RunnableWrapper> work = new PriorityQueue<RunnableWrapper>(11);
+        long pass;
+        long order;
+
+        SessionWork(String sessionId, int weight) {
+            this.sessionId = sessionId;
+            this.stride = STRIDE / Math.max(1, weight);
+        }
+
+        @Override
+        public int compareTo(SessionWork o) {
+            int comp = Long.compare(this.pass, o.pass);
+            if (comp != 0) {
+                return comp;
+            }
+            return Long.compare(this.order, o.order);
+        }
+    }
+
+    private PriorityQueue<RunnableWrapper> noWait = new PriorityQueue<RunnableWrapper>(11);
+    private PriorityQueue<RunnableWrapper> unprioritized = new PriorityQueue<RunnableWrapper>(11);
+    private Map<String, SessionWork> sessions = new HashMap<String, SessionWork>();
+    private PriorityQueue<SessionWork> schedule = new PriorityQueue<SessionWork>(11);
+    private Map<String, Integer> userWeights = Collections.emptyMap();
+    private long pass;
+    private long order;
+    private int size;
+
+    /**
+     * Set the weights of users, which default to 1
+     */
+    void setUserWeights(Map<String, Integer> userWeights) {
+        this.userWeights = userWeights;
+    }
+
+    void add(RunnableWrapper work) {
+        size++;
+        if (work.getPriority() <= PrioritizedRunnable.NO_WAIT_PRIORITY) {
+            noWait.add(work);
+            return;
+        }
+        if (work.getPriority() == Integer.MAX_VALUE) {
+            unprioritized.add(work);
+            return;
+        }
+        DQPWorkContext workContext = work.getDqpWorkContext();
+        String sessionId = workContext.getSessionId();
+        SessionWork sessionWork = sessions.get(sessionId);
+        if (sessionWork == null) {
+            Integer weight = userWeights.get(workContext.getUserName());
+            sessionWork = new SessionWork(sessionId, weight == null ? 1 : weight);
+            sessions.put(sessionId, sessionWork);
+        }
+        if (sessionWork.work.isEmpty()) {
+            sessionWork.pass = Math.max(sessionWork.pass, pass);
+            sessionWork.order = order++;
+            schedule.add(sessionWork);
+        }
+        sessionWork.work.add(work);
+    }
+
+    RunnableWrapper poll() {
+        if (size == 0) {
+            return null;
+        }
+        size--;
+        RunnableWrapper result = noWait.poll();
+        if (result != null) {
+            return result;
+        }
+        SessionWork sessionWork = schedule.poll();
+        if (sessionWork == null) {
+            return unprioritized.poll();
+        }
+        result = sessionWork.work.poll();
+        pass = sessionWork.pass;
+        sessionWork.pass += sessionWork.stride;
+        if (sessionWork.work.isEmpty()) {
+            sessions.remove(sessionWork.sessionId);
+        } else {
+            sessionWork.order = order++;
+            schedule.add(sessionWork);
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<Runnable> clear() {
+        List<Runnable> result = new ArrayList<Runnable>(size);
+        result.addAll(noWait);
+        for (SessionWork sessionWork : schedule) {
+            result.addAll(sessionWork.work);
+        }
+        result.addAll(unprioritized);
+        noWait.clear();
+        unprioritized.clear();
+        schedule.clear();
+        sessions.clear();
+        size = 0;
+        return result;
+    }
+
+}
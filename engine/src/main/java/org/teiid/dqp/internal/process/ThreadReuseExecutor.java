@@ -18,14 +18,14 @@
 
 package org.teiid.dqp.internal.process;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -63,6 +63,12 @@ import org.teiid.query.QueryPlugin;
  * defaults would be a good idea.
  *
  * TODO: a {@link ForkJoinPool} is a simple replacement, but we'd loose the prioritization queue.
+ * <br>
+ * Queued work is held in a {@link SessionFairQueue} guarded by the pool lock, so that a single
+ * session cannot monopolize the workers.
+ * <br>
+ * The threads may instead be provided by another {@link ExecutorService}, such as a virtual thread per task executor,
+ * in which case the maximum pool size bounds the concurrency rather than the number of platform threads.
  */
 public class ThreadReuseExecutor implements TeiidExecutor {
 
@@ -89,6 +95,7 @@ public class ThreadReuseExecutor implements TeiidExecutor {
         long creationTime;
         int priority;
         long id = ID_GEN.getAndIncrement();
+        long queuedTime;
 
         public RunnableWrapper(Runnable r) {
             if (r instanceof PrioritizedRunnable) {
@@ -140,7 +147,7 @@ public class ThreadReuseExecutor implements TeiidExecutor {
 
     }
 
-    private final ThreadPoolExecutor tpe;
+    private final ExecutorService tpe;
 
     private volatile int activeCount;
     private volatile int highestActiveCount;
@@ -154,15 +161,14 @@ public class ThreadReuseExecutor implements TeiidExecutor {
 
     private String poolName;
     private int maximumPoolSize;
-    private Queue<RunnableWrapper> queue = new PriorityBlockingQueue<RunnableWrapper>(11);
+    private SessionFairQueue queue = new SessionFairQueue();
+    private long[] waitTimeHistogram = new long[WorkerPoolStatisticsMetadata.WAIT_TIME_BUCKETS.length + 1];
+    private long[] queueDepthHistogram = new long[WorkerPoolStatisticsMetadata.QUEUE_DEPTH_BUCKETS.length + 1];
 
     private long warnWaitTime = 500;
 
     public ThreadReuseExecutor(String name, int maximumPoolSize) {
-        this.maximumPoolSize = maximumPoolSize;
-        this.poolName = name;
-
-        tpe = new ThreadPoolExecutor(0,
+        this(name, maximumPoolSize, new ThreadPoolExecutor(0,
                 Integer.MAX_VALUE, 2, TimeUnit.MINUTES,
                 new SynchronousQueue<Runnable>(), new NamedThreadFactory("Worker")) { //$NON-NLS-1$
             @Override
@@ -172,7 +178,31 @@ public class ThreadReuseExecutor implements TeiidExecutor {
                 }
             }
 
-        };
+        });
+    }
+
+    /**
+     * @param executor must not queue and should create threads as needed
+     */
+    public ThreadReuseExecutor(String name, int maximumPoolSize, ExecutorService executor) {
+        this.maximumPoolSize = maximumPoolSize;
+        this.poolName = name;
+        this.tpe = executor;
+    }
+
+    /**
+     * Create a virtual thread per task executor if supported by the jre
+     * @return the executor or null if virtual threads are not supported
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            LogManager.logDetail(LogConstants.CTX_RUNTIME, e, "Could not create a virtual thread executor"); //$NON-NLS-1$
+            return null;
+        }
     }
 
     public void execute(final Runnable command) {
@@ -185,11 +215,13 @@ public class ThreadReuseExecutor implements TeiidExecutor {
             submittedCount++;
             boolean atMaxThreads = activeCount == maximumPoolSize;
             if (atMaxThreads) {
+                command.queuedTime = System.currentTimeMillis();
                 queue.add(command);
                 int queueSize = queue.size();
                 if (queueSize > highestQueueSize) {
                     highestQueueSize = queueSize;
                 }
+                queueDepthHistogram[bucket(WorkerPoolStatisticsMetadata.QUEUE_DEPTH_BUCKETS, queueSize)]++;
                 return;
             }
             activeCount++;
@@ -205,7 +237,7 @@ public class ThreadReuseExecutor implements TeiidExecutor {
                 if (LogManager.isMessageToBeRecorded(LogConstants.CTX_RUNTIME, MessageLevel.TRACE)) {
                     LogManager.logTrace(LogConstants.CTX_RUNTIME, "Beginning work with virtual worker", t.getName()); //$NON-NLS-1$
                 }
-                PrioritizedRunnable r = command;
+                RunnableWrapper r = command;
                 while (r != null) {
                     boolean success = false;
                     try {
@@ -217,6 +249,9 @@ public class ThreadReuseExecutor implements TeiidExecutor {
                                 completedCount++;
                                 //we only poll if successful, to let the exception handling happen immediately otherwise
                                 r = queue.poll();
+                                if (r != null) {
+                                    waitTimeHistogram[bucket(WorkerPoolStatisticsMetadata.WAIT_TIME_BUCKETS, System.currentTimeMillis() - r.queuedTime)]++;
+                                }
                             }
                             if (!success || r == null) {
                                 threads.remove(t);
@@ -241,6 +276,24 @@ public class ThreadReuseExecutor implements TeiidExecutor {
         });
     }
 
+    static int bucket(long[] bounds, long value) {
+        int i = 0;
+        while (i < bounds.length && value > bounds[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Set the weights used to share the workers between the sessions of users.
+     * Users without a weight have a weight of 1.
+     */
+    public void setUserWeights(Map<String, Integer> userWeights) {
+        synchronized (poolLock) {
+            this.queue.setUserWeights(userWeights);
+        }
+    }
+
     protected void logWaitMessage(long warnTime, int maximumPoolSize, String poolName, int highestQueueSize) {
         LogManager.logWarning(LogConstants.CTX_RUNTIME, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30009, maximumPoolSize, poolName, highestQueueSize, warnTime));
     }
@@ -276,13 +329,19 @@ public class ThreadReuseExecutor implements TeiidExecutor {
     }
 
     public int getQueued() {
-        return queue.size();
+        synchronized (poolLock) {
+            return queue.size();
+        }
     }
 
     public WorkerPoolStatisticsMetadata getStats() {
         WorkerPoolStatisticsMetadata stats = new WorkerPoolStatisticsMetadata();
         stats.setName(poolName);
-        stats.setQueued(queue.size());
+        synchronized (poolLock) {
+            stats.setQueued(queue.size());
+            stats.setWaitTimeHistogram(waitTimeHistogram.clone());
+            stats.setQueueDepthHistogram(queueDepthHistogram.clone());
+        }
         stats.setHighestQueued(highestQueueSize);
         stats.setActiveThreads(getActiveCount());
         stats.setMaxThreads(this.maximumPoolSize);
@@ -298,8 +357,7 @@ public class ThreadReuseExecutor implements TeiidExecutor {
             for (Thread t : threads) {
                 t.interrupt();
             }
-            List<Runnable> result = new ArrayList<Runnable>(queue);
-            queue.clear();
+            List<Runnable> result = queue.clear();
             result.addAll(this.tpe.shutdownNow());
             return result;
         }
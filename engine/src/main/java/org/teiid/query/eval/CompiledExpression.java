@@ -0,0 +1,39 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.List;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * An expression or criteria that has been compiled by the {@link ExpressionCompiler}
+ * for evaluation against tuples.
+ * <br>
+ * Compiled expressions hold no execution state and may be shared by
+ * all executions of a plan.  Criteria evaluate to a three valued {@link Boolean}.
+ */
+public interface CompiledExpression {
+
+    Object evaluate(List<?> tuple, CommandContext context) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+
+}
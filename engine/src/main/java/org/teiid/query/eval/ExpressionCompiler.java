@@ -0,0 +1,363 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.core.types.ArrayImpl;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.CaseExpression;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.DerivedExpression;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
+
+/**
+ * Compiles resolved expressions and criteria into a chain of {@link CompiledExpression}s
+ * so that the type dispatch, element lookup and function resolution performed by the
+ * {@link Evaluator} happen once rather than for every row.
+ * <br>
+ * Only constructs with the same semantics as the {@link Evaluator} and that need no
+ * evaluation state are compiled - element references, constants, deterministic functions,
+ * case expressions and the basic predicates.  Subqueries, references, lookups,
+ * pushdown only and non-deterministic functions etc. are not compiled and
+ * {@link #compile(Expression)} will return null.
+ * <br>
+ * The compiled form produces the same values as the {@link Evaluator}, but errors
+ * are not wrapped with the same context.  Callers should re-evaluate with the
+ * {@link Evaluator} to report an error.
+ */
+public class ExpressionCompiler {
+
+    private Map<? extends Expression, Integer> elements;
+
+    public ExpressionCompiler(Map<? extends Expression, Integer> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Compile the expression, which may also be a {@link Criteria}
+     * @return the compiled expression or null if it cannot be compiled
+     */
+    public CompiledExpression compile(Expression expression) {
+        if (expression instanceof DerivedExpression) {
+            if (elements != null) {
+                Integer index = elements.get(expression);
+                if (index != null) {
+                    final int i = index;
+                    return (tuple, context) -> tuple.get(i);
+                }
+            }
+            if (expression instanceof ExpressionSymbol) {
+                return compile(((ExpressionSymbol)expression).getExpression());
+            }
+            return null;
+        }
+        if (expression instanceof Constant) {
+            Constant c = (Constant)expression;
+            if (c.isMultiValued()) {
+                return null;
+            }
+            final Object value = c.getValue();
+            return (tuple, context) -> value;
+        }
+        if (expression instanceof Function) {
+            return compile((Function)expression);
+        }
+        if (expression instanceof CaseExpression) {
+            return compile((CaseExpression)expression);
+        }
+        if (expression instanceof SearchedCaseExpression) {
+            return compile((SearchedCaseExpression)expression);
+        }
+        if (expression instanceof Criteria) {
+            final CompiledExpression crit = compileCriteria((Criteria)expression);
+            if (crit == null) {
+                return null;
+            }
+            //as an expression the criteria is two valued
+            return (tuple, context) -> Boolean.TRUE.equals(crit.evaluate(tuple, context));
+        }
+        return null;
+    }
+
+    /**
+     * Compile the criteria to a three valued result
+     * @return the compiled criteria or null if it cannot be compiled
+     */
+    public CompiledExpression compileCriteria(Criteria criteria) {
+        if (criteria instanceof CompoundCriteria) {
+            return compile((CompoundCriteria)criteria);
+        }
+        if (criteria instanceof NotCriteria) {
+            final CompiledExpression crit = compileCriteria(((NotCriteria)criteria).getCriteria());
+            if (crit == null) {
+                return null;
+            }
+            return (tuple, context) -> {
+                Boolean result = (Boolean)crit.evaluate(tuple, context);
+                if (result == null) {
+                    return null;
+                }
+                return !result;
+            };
+        }
+        if (criteria instanceof CompareCriteria) {
+            return compile((CompareCriteria)criteria);
+        }
+        if (criteria instanceof IsNullCriteria) {
+            final CompiledExpression expr = compile(((IsNullCriteria)criteria).getExpression());
+            if (expr == null) {
+                return null;
+            }
+            final boolean negated = ((IsNullCriteria)criteria).isNegated();
+            return (tuple, context) -> expr.evaluate(tuple, context) == null ^ negated;
+        }
+        if (criteria instanceof SetCriteria) {
+            return compile((SetCriteria)criteria);
+        }
+        return null;
+    }
+
+    private CompiledExpression compile(CompoundCriteria criteria) {
+        List<Criteria> subCrits = criteria.getCriteria();
+        final CompiledExpression[] crits = new CompiledExpression[subCrits.size()];
+        for (int i = 0; i < crits.length; i++) {
+            crits[i] = compileCriteria(subCrits.get(i));
+            if (crits[i] == null) {
+                return null;
+            }
+        }
+        final boolean and = criteria.getOperator() == CompoundCriteria.AND;
+        return (tuple, context) -> {
+            Boolean result = and?Boolean.TRUE:Boolean.FALSE;
+            for (int i = 0; i < crits.length; i++) {
+                Boolean value = (Boolean)crits[i].evaluate(tuple, context);
+                if (value == null) {
+                    result = null;
+                } else if (!value.booleanValue()) {
+                    if (and) {
+                        return Boolean.FALSE;
+                    }
+                } else if (!and) {
+                    return Boolean.TRUE;
+                }
+            }
+            return result;
+        };
+    }
+
+    private CompiledExpression compile(CompareCriteria criteria) {
+        final CompiledExpression left = compile(criteria.getLeftExpression());
+        final CompiledExpression right = compile(criteria.getRightExpression());
+        if (left == null || right == null) {
+            return null;
+        }
+        final int operator = criteria.getOperator();
+        if (criteria.getRightExpression() instanceof Constant) {
+            final Object rightValue = ((Constant)criteria.getRightExpression()).getValue();
+            if (rightValue == null) {
+                return (tuple, context) -> {
+                    left.evaluate(tuple, context);
+                    return null;
+                };
+            }
+            if (!(rightValue instanceof ArrayImpl)) {
+                return (tuple, context) -> {
+                    Object leftValue = left.evaluate(tuple, context);
+                    if (leftValue == null) {
+                        return null;
+                    }
+                    return compare(operator, Constant.COMPARATOR.compare(leftValue, rightValue));
+                };
+            }
+        }
+        return (tuple, context) -> {
+            Object leftValue = left.evaluate(tuple, context);
+            if (leftValue == null) {
+                return null;
+            }
+            Object rightValue = right.evaluate(tuple, context);
+            if (rightValue == null) {
+                return null;
+            }
+            return Evaluator.compare(operator, leftValue, rightValue);
+        };
+    }
+
+    private static Boolean compare(int operator, int compare) {
+        switch(operator) {
+        case CompareCriteria.EQ:
+            return compare == 0;
+        case CompareCriteria.NE:
+            return compare != 0;
+        case CompareCriteria.LT:
+            return compare < 0;
+        case CompareCriteria.LE:
+            return compare <= 0;
+        case CompareCriteria.GT:
+            return compare > 0;
+        case CompareCriteria.GE:
+            return compare >= 0;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    private CompiledExpression compile(SetCriteria criteria) {
+        if (!criteria.isAllConstants()) {
+            return null;
+        }
+        final CompiledExpression expr = compile(criteria.getExpression());
+        if (expr == null) {
+            return null;
+        }
+        final Collection<?> values = criteria.getValues();
+        final Class<?> type = criteria.getExpression().getType();
+        final boolean negated = criteria.isNegated();
+        final boolean hasNull = values.contains(Constant.NULL_CONSTANT);
+        return (tuple, context) -> {
+            Object leftValue = expr.evaluate(tuple, context);
+            if (leftValue == null) {
+                if (!values.isEmpty()) {
+                    return null;
+                }
+                return negated;
+            }
+            if (!values.contains(new Constant(leftValue, type))) {
+                if (hasNull) {
+                    return null;
+                }
+                return negated;
+            }
+            return !negated;
+        };
+    }
+
+    private CompiledExpression compile(Function function) {
+        final FunctionDescriptor fd = function.getFunctionDescriptor();
+        if (fd == null
+                || fd.getPushdown() == PushDown.MUST_PUSHDOWN
+                || fd.getProcedure() != null
+                || fd.getDeterministic() != Determinism.DETERMINISTIC
+                || function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+            return null;
+        }
+        Expression[] args = function.getArgs();
+        final CompiledExpression[] compiledArgs = new CompiledExpression[args.length];
+        for (int i = 0; i < args.length; i++) {
+            compiledArgs[i] = compile(args[i]);
+            if (compiledArgs[i] == null) {
+                return null;
+            }
+        }
+        final int start = fd.requiresContext()?1:0;
+        final boolean varArgArray = function.isCalledWithVarArgArrayParam();
+        return (tuple, context) -> {
+            Object[] values = new Object[compiledArgs.length + start];
+            if (start == 1) {
+                values[0] = context;
+            }
+            for (int i = 0; i < compiledArgs.length; i++) {
+                values[i+start] = compiledArgs[i].evaluate(tuple, context);
+            }
+            return fd.invokeFunction(values, context, null, varArgArray);
+        };
+    }
+
+    private CompiledExpression compile(CaseExpression expr) {
+        final CompiledExpression value = compile(expr.getExpression());
+        final CompiledExpression[] whens = new CompiledExpression[expr.getWhenCount()];
+        final CompiledExpression[] thens = new CompiledExpression[expr.getWhenCount()];
+        if (value == null || !compile(expr.getWhen(), whens) || !compile(expr.getThen(), thens)) {
+            return null;
+        }
+        final CompiledExpression elseExpr = compileElse(expr.getElseExpression());
+        if (elseExpr == null) {
+            return null;
+        }
+        return (tuple, context) -> {
+            Object exprVal = value.evaluate(tuple, context);
+            for (int i = 0; i < whens.length; i++) {
+                if (EquivalenceUtil.areEqual(exprVal, whens[i].evaluate(tuple, context))) {
+                    return thens[i].evaluate(tuple, context);
+                }
+            }
+            return elseExpr.evaluate(tuple, context);
+        };
+    }
+
+    private CompiledExpression compile(SearchedCaseExpression expr) {
+        final CompiledExpression[] whens = new CompiledExpression[expr.getWhenCount()];
+        final CompiledExpression[] thens = new CompiledExpression[expr.getWhenCount()];
+        for (int i = 0; i < whens.length; i++) {
+            whens[i] = compileCriteria(expr.getWhenCriteria(i));
+            if (whens[i] == null) {
+                return null;
+            }
+        }
+        if (!compile(expr.getThen(), thens)) {
+            return null;
+        }
+        final CompiledExpression elseExpr = compileElse(expr.getElseExpression());
+        if (elseExpr == null) {
+            return null;
+        }
+        return (tuple, context) -> {
+            for (int i = 0; i < whens.length; i++) {
+                if (Boolean.TRUE.equals(whens[i].evaluate(tuple, context))) {
+                    return thens[i].evaluate(tuple, context);
+                }
+            }
+            return elseExpr.evaluate(tuple, context);
+        };
+    }
+
+    private CompiledExpression compileElse(Expression elseExpression) {
+        if (elseExpression == null) {
+            return (tuple, context) -> null;
+        }
+        return compile(elseExpression);
+    }
+
+    private boolean compile(List<? extends Expression> exprs, CompiledExpression[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = compile(exprs.get(i));
+            if (result[i] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -74,6 +74,47 @@ public abstract class AggregateFunction {
         addInputDirect(tuple, commandContext);
     }
 
+    /**
+     * Remove the tuple from the aggregate.  Tuples must be removed in the same order
+     * that they were added, as happens with a sliding window frame.
+     * Should only be called after {@link #enableRemoval()}.
+     */
+    public void removeInput(List<?> tuple, CommandContext commandContext) throws TeiidComponentException, TeiidProcessingException {
+        if (conditionIndex != -1 && !Boolean.TRUE.equals(tuple.get(conditionIndex))) {
+            return;
+        }
+        if (filter(tuple)) {
+            return;
+        }
+        removeInputDirect(tuple, commandContext);
+    }
+
+    /**
+     * @return true if values can be removed with {@link #removeInput(List, CommandContext)}
+     * without recomputing the result
+     */
+    public boolean supportsRemoval() {
+        return false;
+    }
+
+    /**
+     * Prepare the function to support {@link #removeInput(List, CommandContext)}.
+     * Should only be called if {@link #supportsRemoval()} returns true.
+     */
+    public void enableRemoval() {
+
+    }
+
+    /**
+     * Called for the element value of a row that is removed from a group.
+     * @param tuple
+     * @param commandContext
+     * @throws TeiidProcessingException
+     */
+    public void removeInputDirect(List<?> tuple, CommandContext commandContext) throws TeiidComponentException, TeiidProcessingException {
+        throw new UnsupportedOperationException();
+    }
+
     public boolean filter(List<?> tuple) {
         if (!respectsNull()) {
             for (int i = 0; i < argIndexes.length; i++) {
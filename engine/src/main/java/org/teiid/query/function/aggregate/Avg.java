@@ -49,6 +49,7 @@ public class Avg extends Sum {
         } else {
             this.accumulatorType = DOUBLE;
         }
+        this.integralInput = isIntegral(inputType);
     }
 
     public void reset() {
@@ -64,6 +65,15 @@ public class Avg extends Sum {
         count++;
     }
 
+    @Override
+    public void removeInputDirect(Object input, List<?> tuple,
+            CommandContext commandContext) throws FunctionExecutionException,
+            ExpressionEvaluationException, TeiidComponentException {
+        //decrement first as the super call will reset once the last input is removed
+        count--;
+        super.removeInputDirect(input, tuple, commandContext);
+    }
+
     /**
      * @see org.teiid.query.function.aggregate.AggregateFunction#getResult(CommandContext)
      */
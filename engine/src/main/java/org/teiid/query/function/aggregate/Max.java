@@ -34,9 +34,32 @@ public class Max extends SingleArgumentAggregateFunction {
 
     private Object maxValue;
     private Class<?> outputType;
+    private MonotonicQueue queue;
 
     public void reset() {
         maxValue = null;
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public boolean supportsRemoval() {
+        return true;
+    }
+
+    @Override
+    public void enableRemoval() {
+        if (queue == null) {
+            queue = new MonotonicQueue(false);
+        }
+    }
+
+    @Override
+    public void removeInputDirect(Object input, List<?> tuple,
+            CommandContext commandContext) {
+        queue.remove();
+        maxValue = queue.getValue();
     }
 
     @Override
@@ -48,6 +71,11 @@ public class Max extends SingleArgumentAggregateFunction {
     public void addInputDirect(Object value, List<?> tuple, CommandContext commandContext)
         throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException {
 
+        if (queue != null) {
+            queue.add(value);
+            maxValue = queue.getValue();
+            return;
+        }
         if(maxValue == null) {
             maxValue = value;
         } else {
@@ -34,9 +34,32 @@ public class Min extends SingleArgumentAggregateFunction {
 
     private Object minValue;
     private Class<?> outputType;
+    private MonotonicQueue queue;
 
     public void reset() {
         minValue = null;
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public boolean supportsRemoval() {
+        return true;
+    }
+
+    @Override
+    public void enableRemoval() {
+        if (queue == null) {
+            queue = new MonotonicQueue(true);
+        }
+    }
+
+    @Override
+    public void removeInputDirect(Object input, List<?> tuple,
+            CommandContext commandContext) {
+        queue.remove();
+        minValue = queue.getValue();
     }
 
     @Override
@@ -48,6 +71,11 @@ public class Min extends SingleArgumentAggregateFunction {
     public void addInputDirect(Object value, List<?> tuple, CommandContext commandContext)
         throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException {
 
+        if (queue != null) {
+            queue.add(value);
+            minValue = queue.getValue();
+            return;
+        }
         if(minValue == null) {
             minValue = value;
         } else {
@@ -0,0 +1,84 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.function.aggregate;
+
+import java.util.ArrayDeque;
+
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * Tracks the minimum or maximum of values that are removed in the order they
+ * were added, such as with a sliding window frame.  Only the values that can still
+ * become the result are retained, so each value is added and removed at most once.
+ */
+class MonotonicQueue {
+
+    private static class Entry {
+        Object value;
+        long index;
+    }
+
+    private ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+    private long added;
+    private long removed;
+    private int direction;
+
+    /**
+     * @param min true to track the minimum, false for the maximum
+     */
+    MonotonicQueue(boolean min) {
+        this.direction = min?1:-1;
+    }
+
+    void add(Object value) {
+        //remove the values that can no longer be the result
+        while (!entries.isEmpty() && direction * Constant.COMPARATOR.compare(entries.peekLast().value, value) > 0) {
+            entries.pollLast();
+        }
+        Entry entry = new Entry();
+        entry.value = value;
+        entry.index = added++;
+        entries.addLast(entry);
+    }
+
+    /**
+     * Remove the oldest value
+     */
+    void remove() {
+        if (!entries.isEmpty() && entries.peekFirst().index == removed) {
+            entries.pollFirst();
+        }
+        removed++;
+    }
+
+    Object getValue() {
+        Entry entry = entries.peekFirst();
+        if (entry == null) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    void clear() {
+        entries.clear();
+        added = 0;
+        removed = 0;
+    }
+
+}
@@ -32,6 +32,20 @@ public abstract class SingleArgumentAggregateFunction extends AggregateFunction
         addInputDirect(tuple.get(argIndexes[0]), tuple, commandContext);
     }
 
+    @Override
+    public void removeInputDirect(List<?> tuple, CommandContext commandContext)
+            throws TeiidComponentException, TeiidProcessingException {
+        removeInputDirect(tuple.get(argIndexes[0]), tuple, commandContext);
+    }
+
+    /**
+     * @see AggregateFunction#removeInputDirect(List, CommandContext)
+     */
+    public void removeInputDirect(Object input, List<?> tuple, CommandContext commandContext)
+            throws TeiidProcessingException, TeiidComponentException {
+        throw new UnsupportedOperationException();
+    }
+
     public void initialize(java.lang.Class<?> dataType, java.lang.Class<?>[] inputTypes) {
         initialize(dataType, inputTypes[0]);
     }
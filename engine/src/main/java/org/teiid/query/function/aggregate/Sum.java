@@ -46,11 +46,16 @@ public class Sum extends SingleArgumentAggregateFunction {
     protected static final int BIG_DECIMAL = 3;
 
     protected int accumulatorType = LONG;
+    /**
+     * true if a double accumulator will only hold integral values, which will be exact
+     */
+    protected boolean integralInput;
 
     private long sumLong;
     private double sumDouble;
     private BigDecimal sumBigDecimal;
     private boolean isNull = true;
+    private long inputCount;
 
     /**
      * Allows subclasses to determine type of accumulator for the SUM.
@@ -75,6 +80,13 @@ public class Sum extends SingleArgumentAggregateFunction {
         } else {
             this.accumulatorType = BIG_DECIMAL;
         }
+        this.integralInput = isIntegral(inputType);
+    }
+
+    protected static boolean isIntegral(Class<?> inputType) {
+        return inputType == DataTypeManager.DefaultDataClasses.INTEGER
+                || inputType == DataTypeManager.DefaultDataClasses.SHORT
+                || inputType == DataTypeManager.DefaultDataClasses.BYTE;
     }
 
     public void reset() {
@@ -82,6 +94,44 @@ public class Sum extends SingleArgumentAggregateFunction {
         sumDouble = 0;
         sumBigDecimal = null;
         isNull = true;
+        inputCount = 0;
+    }
+
+    /**
+     * Removal is only supported when the sum is exact.  With floating point or decimal
+     * values the result could differ in precision or scale from summing the remaining values.
+     */
+    @Override
+    public boolean supportsRemoval() {
+        return this.accumulatorType == LONG || this.accumulatorType == BIG_INTEGER || this.integralInput;
+    }
+
+    @Override
+    public void removeInputDirect(Object input, List<?> tuple,
+            CommandContext commandContext) throws FunctionExecutionException,
+            ExpressionEvaluationException, TeiidComponentException {
+        if (--inputCount == 0) {
+            reset();
+            return;
+        }
+        switch(this.accumulatorType) {
+            case LONG:
+                this.sumLong = FunctionMethods.minus(this.sumLong, ((Number)input).longValue());
+                break;
+            case DOUBLE:
+                this.sumDouble -= ((Number)input).doubleValue();
+                break;
+            case BIG_INTEGER:
+            case BIG_DECIMAL:
+                if (input instanceof BigInteger) {
+                    this.sumBigDecimal = this.sumBigDecimal.subtract(new BigDecimal((BigInteger)input));
+                } else if (input instanceof BigDecimal){
+                    this.sumBigDecimal = this.sumBigDecimal.subtract((BigDecimal)input);
+                } else {
+                    this.sumBigDecimal = this.sumBigDecimal.subtract(new BigDecimal(((Number)input).longValue()));
+                }
+                break;
+        }
     }
 
     @Override
@@ -89,6 +139,7 @@ public class Sum extends SingleArgumentAggregateFunction {
         throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException {
 
         isNull = false;
+        inputCount++;
 
         switch(this.accumulatorType) {
             case LONG:
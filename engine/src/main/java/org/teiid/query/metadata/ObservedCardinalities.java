@@ -0,0 +1,52 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.metadata;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table cardinalities observed during processing.
+ * <br>
+ * These are kept separate from the vdb metadata so that recording them does not
+ * modify the shared metadata records or invalidate entries cached for other users.
+ * <br>
+ * Only the row counts of complete, unfiltered scans of physical tables are recorded.
+ * They are used when costing later plans and by the dependent join full scan fallback.
+ * A running plan is not re-planned or reordered based upon them.
+ */
+public class ObservedCardinalities {
+
+    private ConcurrentHashMap<Object, Long> cardinalities = new ConcurrentHashMap<Object, Long>();
+
+    public void setCardinality(Object groupID, long cardinality) {
+        this.cardinalities.put(groupID, cardinality);
+    }
+
+    /**
+     * @return the observed cardinality or {@link QueryMetadataInterface#UNKNOWN_CARDINALITY}
+     */
+    public float getCardinality(Object groupID) {
+        Long result = this.cardinalities.get(groupID);
+        if (result == null) {
+            return QueryMetadataInterface.UNKNOWN_CARDINALITY;
+        }
+        return result;
+    }
+
+}
@@ -69,7 +69,9 @@ import org.teiid.query.processor.relational.DependentProcedureAccessNode;
 import org.teiid.query.processor.relational.DependentProcedureExecutionNode;
 import org.teiid.query.processor.relational.DupRemoveNode;
 import org.teiid.query.processor.relational.EnhancedSortMergeJoinStrategy;
+import org.teiid.query.processor.relational.ExchangeNode;
 import org.teiid.query.processor.relational.GroupingNode;
+import org.teiid.query.processor.relational.HashJoinStrategy;
 import org.teiid.query.processor.relational.InsertPlanExecutionNode;
 import org.teiid.query.processor.relational.JoinNode;
 import org.teiid.query.processor.relational.JoinNode.JoinStrategyType;
@@ -88,6 +90,7 @@ import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.processor.relational.SelectNode;
 import org.teiid.query.processor.relational.SortNode;
 import org.teiid.query.processor.relational.SortUtility.Mode;
+import org.teiid.query.processor.relational.SubqueryAwareRelationalNode;
 import org.teiid.query.processor.relational.TextTableNode;
 import org.teiid.query.processor.relational.UnionAllNode;
 import org.teiid.query.processor.relational.WindowFunctionProjectNode;
@@ -134,6 +137,7 @@ import org.teiid.query.sql.visitor.EvaluatableVisitor;
 import org.teiid.query.sql.visitor.EvaluatableVisitor.EvaluationLevel;
 import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 import org.teiid.translator.ExecutionFactory.TransactionSupport;
 
@@ -181,6 +185,9 @@ public class PlanToProcessConverter {
                 }
                 throw new QueryPlannerException(e);
             }
+            if (context != null && context.getOptions().isExchange()) {
+                insertExchanges(processNode);
+            }
             if(debug) {
                 analysisRecord.println("\nPROCESS PLAN = \n" + processNode); //$NON-NLS-1$
                 analysisRecord.println("============================================================================"); //$NON-NLS-1$
@@ -231,6 +238,82 @@ public class PlanToProcessConverter {
         return convertedNode;
     }
 
+    /**
+     * Insert {@link ExchangeNode}s above the independent branches of unions and joins
+     * so that each branch may be processed by its own worker.
+     */
+    private void insertExchanges(RelationalNode node) {
+        RelationalNode[] children = node.getChildren();
+        boolean parallel = node instanceof UnionAllNode
+                || (node instanceof JoinNode && !((JoinNode)node).isDependent()
+                        && !(((JoinNode)node).getJoinStrategy() instanceof NestedTableJoinStrategy));
+        for (int i = 0; i < children.length && children[i] != null; i++) {
+            RelationalNode child = children[i];
+            insertExchanges(child);
+            if (!parallel || child instanceof AccessNode || !canExchange(child)) {
+                continue;
+            }
+            ExchangeNode exchange = new ExchangeNode(getID());
+            exchange.setElements(child.getElements());
+            exchange.setEstimateNodeCardinality(child.getEstimateNodeCardinality());
+            exchange.addChild(child);
+            children[i] = exchange;
+            exchange.setParent(node);
+        }
+    }
+
+    /**
+     * @return true if the subtree reads from a source and is safe to process
+     * on a separate thread - it has no dependent, procedural or subquery processing
+     * that shares state with the rest of the plan.
+     */
+    private static boolean canExchange(RelationalNode node) {
+        boolean access = false;
+        if (node instanceof AccessNode) {
+            if (node instanceof DependentAccessNode || ((AccessNode)node).isShouldEvaluate()) {
+                return false;
+            }
+            access = true;
+        } else if (node instanceof JoinNode) {
+            if (((JoinNode)node).isDependent() || ((JoinNode)node).getJoinStrategy() instanceof NestedTableJoinStrategy) {
+                return false;
+            }
+        } else if (!(node instanceof ProjectNode || node instanceof SelectNode || node instanceof UnionAllNode
+                || node instanceof SortNode || node instanceof GroupingNode || node instanceof LimitNode
+                || node instanceof ExchangeNode)) {
+            return false;
+        }
+        if (!access && node instanceof SubqueryAwareRelationalNode
+                && !ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(((SubqueryAwareRelationalNode)node).getObjects()).isEmpty()) {
+            return false;
+        }
+        for (RelationalNode child : node.getChildren()) {
+            if (child == null) {
+                break;
+            }
+            if (!canExchange(child)) {
+                return false;
+            }
+            access |= hasAccess(child);
+        }
+        return access;
+    }
+
+    private static boolean hasAccess(RelationalNode node) {
+        if (node instanceof AccessNode) {
+            return true;
+        }
+        for (RelationalNode child : node.getChildren()) {
+            if (child == null) {
+                break;
+            }
+            if (hasAccess(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected int getID() {
         return idGenerator.nextInt();
     }
@@ -333,9 +416,11 @@ public class PlanToProcessConverter {
                 List joinCrits = (List) node.getProperty(NodeConstants.Info.JOIN_CRITERIA);
                 String depValueSource = (String) node.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE);
                 SortOption leftSort = (SortOption)node.getProperty(NodeConstants.Info.SORT_LEFT);
-                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT) {
+                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT || stype == JoinStrategyType.HASH) {
                     MergeJoinStrategy mjStrategy = null;
-                    if (stype.equals(JoinStrategyType.ENHANCED_SORT)) {
+                    if (stype == JoinStrategyType.HASH) {
+                        mjStrategy = new HashJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
+                    } else if (stype.equals(JoinStrategyType.ENHANCED_SORT)) {
                         EnhancedSortMergeJoinStrategy esmjStrategy = new EnhancedSortMergeJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
                         esmjStrategy.setSemiDep(node.hasBooleanProperty(Info.IS_SEMI_DEP));
                         mjStrategy = esmjStrategy;
@@ -604,6 +689,7 @@ public class PlanToProcessConverter {
             case NodeConstants.Types.GROUP:
                 GroupingNode gnode = new GroupingNode(getID());
                 gnode.setRollup(node.hasBooleanProperty(Info.ROLLUP));
+                gnode.setHashAggregation(node.hasBooleanProperty(Info.HASH_AGGREGATION));
                 SymbolMap groupingMap = (SymbolMap)node.getProperty(NodeConstants.Info.SYMBOL_MAP);
                 gnode.setOutputMapping(groupingMap);
                 gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
@@ -669,6 +669,13 @@ public class NewCalculateCostUtil {
         }else {
             GroupSymbol group = node.getGroups().iterator().next();
             float cardinality = metadata.getCardinality(group.getMetadataID());
+            CommandContext context = CommandContext.getThreadLocalContext();
+            if (context != null && context.getOptions().isCardinalityFeedback()) {
+                float observed = context.getObservedCardinalities().getCardinality(group.getMetadataID());
+                if (observed != QueryMetadataInterface.UNKNOWN_CARDINALITY) {
+                    cardinality = observed;
+                }
+            }
             if (cardinality <= QueryMetadataInterface.UNKNOWN_CARDINALITY){
                 if (group.isTempTable() && metadata.getModelID(group.getMetadataID()) == TempMetadataAdapter.TEMP_MODEL) {
                     //this should be with-in the scope of a procedure or an undefined size common table
@@ -41,6 +41,7 @@ import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
 import org.teiid.query.optimizer.relational.plantree.NodeEditor;
 import org.teiid.query.optimizer.relational.plantree.NodeFactory;
 import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.processor.relational.HashJoinStrategy;
 import org.teiid.query.processor.relational.JoinNode.JoinStrategyType;
 import org.teiid.query.processor.relational.MergeJoinStrategy.SortOption;
 import org.teiid.query.processor.relational.RelationalNode;
@@ -210,7 +211,13 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
             }
 
             boolean pushedRight = insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight, context);
-            if ((!pushedRight || !pushedLeft) && (joinType == JoinType.JOIN_INNER || (joinType == JoinType.JOIN_LEFT_OUTER && !pushedLeft))) {
+            if (!pushedRight && !pushedLeft && (joinType == JoinType.JOIN_INNER || joinType == JoinType.JOIN_LEFT_OUTER)
+                    && context != null && context.getOptions().isHashJoins()
+                    && joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) == null
+                    && HashJoinStrategy.isHashable(leftExpressions, rightExpressions)) {
+                //neither side is ordered, so hash rather than sort both sides
+                joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+            } else if ((!pushedRight || !pushedLeft) && (joinType == JoinType.JOIN_INNER || (joinType == JoinType.JOIN_LEFT_OUTER && !pushedLeft))) {
                 joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
             }
         }
@@ -25,6 +25,7 @@ import java.util.List;
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
@@ -56,6 +57,11 @@ import org.teiid.query.util.CommandContext;
  */
 public class RulePlanSorts implements OptimizerRule {
 
+    /**
+     * The minimum ratio of input rows to estimated groups for hash aggregation
+     */
+    static final int HASH_AGGREGATION_RATIO = 4;
+
     @Override
     public PlanNode execute(PlanNode plan, QueryMetadataInterface metadata,
             CapabilitiesFinder capabilitiesFinder, RuleStack rules,
@@ -166,6 +172,14 @@ public class RulePlanSorts implements OptimizerRule {
                     }
                 }
             }
+            if (context != null && context.getOptions().isHashAggregation()
+                    && !node.hasBooleanProperty(Info.ROLLUP)
+                    && !node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL)
+                    && !node.hasProperty(Info.SORT_ORDER)
+                    && useHashAggregation(node, metadata)) {
+                //the output order is not needed, so hash rather than sort
+                node.setProperty(Info.HASH_AGGREGATION, true);
+            }
             //TODO: check the join interesting order
             parentBlocking = true;
             break;
@@ -213,6 +227,25 @@ public class RulePlanSorts implements OptimizerRule {
         return root;
     }
 
+    /**
+     * Determine if the estimated number of groups is small enough relative to the input
+     * that a hash table of the groups is preferable to sorting the input.
+     */
+    static boolean useHashAggregation(PlanNode node, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
+        List<Expression> groupCols = (List<Expression>)node.getProperty(Info.GROUP_COLS);
+        for (Expression ex : groupCols) {
+            if (!DataTypeManager.isHashable(ex.getType())) {
+                return false;
+            }
+        }
+        float childCardinality = node.getFirstChild().getCardinality();
+        if (childCardinality == NewCalculateCostUtil.UNKNOWN_VALUE) {
+            return false;
+        }
+        float ndv = NewCalculateCostUtil.getNDVEstimate(node, metadata, childCardinality, groupCols, true);
+        return ndv != NewCalculateCostUtil.UNKNOWN_VALUE && ndv * HASH_AGGREGATION_RATIO <= childCardinality;
+    }
+
     static PlanNode checkForProjectOptimization(PlanNode node, PlanNode root,
             QueryMetadataInterface metadata, CapabilitiesFinder capFinder, AnalysisRecord record, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
         PlanNode projectNode = node.getFirstChild();
@@ -24,6 +24,7 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
@@ -92,8 +93,7 @@ public class BatchCollector {
 
                 if(sourceBatch.getRowCount() > 0 && sourceRow <= sourceBatch.getEndRow()) {
                     // Evaluate expressions needed for grouping
-                    List tuple = sourceBatch.getTuple(sourceRow);
-                    tuple = updateTuple(tuple);
+                    List tuple = updateTuple(sourceBatch, sourceRow);
                     sourceRow++;
                     return tuple;
                 }
@@ -107,6 +107,14 @@ public class BatchCollector {
             }
         }
 
+        /**
+         * Get the tuple for the given row of the batch.  Subclasses may read
+         * the columns of a {@link ColumnarTupleBatch} directly.
+         */
+        protected List<?> updateTuple(TupleBatch batch, long row) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+            return updateTuple(batch.getTuple(row));
+        }
+
         @SuppressWarnings("unused")
         protected List<?> updateTuple(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
             return tuple;
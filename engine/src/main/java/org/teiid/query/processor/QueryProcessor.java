@@ -150,9 +150,12 @@ public class QueryProcessor implements BatchProducer {
                     result.setRowOffset(rowOffset);
 
                     if (result.getTerminationFlag()) {
-                        result.setTermination(TupleBatch.ITERATION_TERMINATED);
                         List<Object> terminationTuple = Arrays.asList(new Object[this.getOutputElements().size()]);
-                        result.getTuples().add(terminationTuple);
+                        //the batch tuples may be read only, such as with a columnar batch
+                        TupleBatch terminated = new TupleBatch(result.getBeginRow(), result.getTuples());
+                        terminated.getTuples().add(terminationTuple);
+                        terminated.setTermination(TupleBatch.ITERATION_TERMINATED);
+                        result = terminated;
                         this.context.getTupleSourceCache().close();
                         this.processPlan.close();
                         this.processPlan.reset();
@@ -39,8 +39,13 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.util.Assertion;
 import org.teiid.dqp.internal.process.multisource.MultiSourceElementReplacementVisitor;
 import org.teiid.language.SQLConstants.NonReserved;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.metadata.Table;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.metadata.ObservedCardinalities;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.relational.RowBasedSecurityHelper;
 import org.teiid.query.processor.ProcessorDataManager;
@@ -59,6 +64,7 @@ import org.teiid.query.sql.lang.Select;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.lang.SubqueryContainer;
 import org.teiid.query.sql.lang.SubqueryContainer.Evaluatable;
+import org.teiid.query.sql.lang.UnaryFromClause;
 import org.teiid.query.sql.lang.WithQueryCommand;
 import org.teiid.query.sql.symbol.AggregateSymbol;
 import org.teiid.query.sql.symbol.Constant;
@@ -74,6 +80,10 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 
     private static final Object[] NO_PROJECTION = new Object[0];
     private static final int MAX_CONCURRENT = 10; //TODO: this could be settable via a property
+    /**
+     * The factor by which the observed row count must differ from the table cardinality to be recorded
+     */
+    static final int CARDINALITY_FEEDBACK_RATIO = 2;
     // Initialization state
     private Command command;
     private String modelName;
@@ -95,6 +105,9 @@ public class AccessNode extends SubqueryAwareRelationalNode {
     private Command processingCommand;
     private boolean shouldExecute = true;
     private boolean open;
+    private long sourceRows;
+    private boolean limited;
+    private long warningCount;
 
     private Object[] projection;
     private List<Expression> originalSelect;
@@ -133,6 +146,8 @@ public class AccessNode extends SubqueryAwareRelationalNode {
         shouldExecute = true;
         this.evaluatedPlans = null;
         open = false;
+        sourceRows = 0;
+        limited = false;
     }
 
     public void setCommand(Command command) {
@@ -170,6 +185,9 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 
     @Override
     public void open() throws TeiidComponentException, TeiidProcessingException {
+        if (getContext() != null) {
+            warningCount = getContext().getWarningCount();
+        }
         try {
             openInternal();
             open = true;
@@ -400,6 +418,7 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 
                     while ((tuple = tupleSource.nextTuple()) != null) {
                         returnedRows = true;
+                        sourceRows++;
                         if (this.projection != null && this.projection.length > 0) {
                             List<Object> newTuple = new ArrayList<Object>(this.projection.length);
                             for (Object object : this.projection) {
@@ -411,6 +430,9 @@ public class AccessNode extends SubqueryAwareRelationalNode {
                             }
                             tuple = newTuple;
                         }
+                        if (!acceptRow(tuple)) {
+                            continue;
+                        }
                         addBatchRow(tuple);
 
                         if (isBatchFull()) {
@@ -461,10 +483,55 @@ public class AccessNode extends SubqueryAwareRelationalNode {
             // Add tuple to current batch
             addBatchRow(tuple);
         }
+        recordCardinality();
         terminateBatches();
         return pullBatch();
     }
 
+    /**
+     * Record the observed row count of an unfiltered scan of a physical table
+     * if it differs significantly from the table cardinality, so that
+     * later plans are costed with the actual value.
+     * <br>
+     * The count is kept in the {@link ObservedCardinalities} rather than on the shared metadata.
+     * Nothing is recorded if there were warnings, such as from partial results, since the
+     * row count may then not be complete.
+     */
+    private void recordCardinality() {
+        CommandContext context = getContext();
+        if (context == null || !context.getOptions().isCardinalityFeedback()
+                || !shouldExecute || isUpdate || multiSource || limited || !(this.command instanceof Query)
+                || context.getWarningCount() != warningCount) {
+            return;
+        }
+        Query query = (Query)this.command;
+        if (query.getCriteria() != null || query.getGroupBy() != null || query.getHaving() != null
+                || query.getLimit() != null || query.getWith() != null || query.getSelect().isDistinct()
+                || query.getFrom() == null || query.getFrom().getClauses().size() != 1
+                || !(query.getFrom().getClauses().get(0) instanceof UnaryFromClause)) {
+            return;
+        }
+        Object metadataID = ((UnaryFromClause)query.getFrom().getClauses().get(0)).getGroup().getMetadataID();
+        if (!(metadataID instanceof Table) || ((Table)metadataID).isVirtual()) {
+            return;
+        }
+        Table table = (Table)metadataID;
+        ObservedCardinalities observed = context.getObservedCardinalities();
+        float cardinality = observed.getCardinality(table);
+        if (cardinality == Table.UNKNOWN_CARDINALITY) {
+            cardinality = table.getCardinalityAsFloat();
+        }
+        if (cardinality != Table.UNKNOWN_CARDINALITY
+                && sourceRows <= cardinality * CARDINALITY_FEEDBACK_RATIO
+                && sourceRows * CARDINALITY_FEEDBACK_RATIO >= cardinality) {
+            return;
+        }
+        if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+            LogManager.logDetail(LogConstants.CTX_DQP, "Recording observed cardinality", sourceRows, "for", table.getFullName(), "previously", cardinality); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        observed.setCardinality(table, sourceRows);
+    }
+
     @Override
     protected void addBatchRow(List<?> row) {
         if (this.getOutputElements().isEmpty()) {
@@ -498,6 +565,7 @@ public class AccessNode extends SubqueryAwareRelationalNode {
             LimitNode parent = (LimitNode)getParent();
             if (parent.getLimit() > 0) {
                 limit = parent.getLimit() + parent.getOffset();
+                limited = true;
             }
         }
         RegisterRequestParameter param = new RegisterRequestParameter(connectorBindingId, getID(), limit);
@@ -510,6 +578,13 @@ public class AccessNode extends SubqueryAwareRelationalNode {
         }
     }
 
+    /**
+     * @return false if the source row should be discarded
+     */
+    protected boolean acceptRow(List<?> tuple) {
+        return true;
+    }
+
     protected boolean processCommandsIndividually() {
         return false;
     }
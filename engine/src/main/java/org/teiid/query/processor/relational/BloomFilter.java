@@ -0,0 +1,86 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+/**
+ * A simple bloom filter over values with consistent {@link Object#hashCode()}s.
+ * <br>
+ * {@link #mightContain(Object)} may return false positives, but never false negatives,
+ * so it may only be used to discard values that are known not to match.
+ */
+public class BloomFilter {
+
+    /**
+     * Bits per expected value - gives roughly a 1% false positive rate
+     */
+    static final int BITS_PER_VALUE = 10;
+    static final int HASH_COUNT = 7;
+    static final int MAX_BITS = 1 << 26;
+
+    private final long[] words;
+    private final int bits;
+
+    public BloomFilter(long expectedValues) {
+        long size = Math.max(64, Math.min(MAX_BITS, expectedValues * BITS_PER_VALUE));
+        this.words = new long[(int)((size + 63) >>> 6)];
+        this.bits = this.words.length << 6;
+    }
+
+    public void add(Object value) {
+        long hash = hash(value);
+        int h1 = (int)hash;
+        int h2 = (int)(hash >>> 32);
+        for (int i = 1; i <= HASH_COUNT; i++) {
+            int index = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            words[index >>> 6] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(Object value) {
+        long hash = hash(value);
+        int h1 = (int)hash;
+        int h2 = (int)(hash >>> 32);
+        for (int i = 1; i <= HASH_COUNT; i++) {
+            int index = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((words[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the approximate size of the filter in bytes
+     */
+    public int getByteSize() {
+        return words.length << 3;
+    }
+
+    private static long hash(Object value) {
+        //spread the hashCode over 64 bits
+        long h = value.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
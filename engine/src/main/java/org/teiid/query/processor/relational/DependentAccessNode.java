@@ -19,6 +19,7 @@
 package org.teiid.query.processor.relational;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
@@ -202,6 +203,11 @@ public class DependentAccessNode extends AccessNode {
         sort = false;
     }
 
+    @Override
+    protected boolean acceptRow(List<?> tuple) {
+        return criteriaProcessor == null || !criteriaProcessor.hasFilters() || criteriaProcessor.mightMatch(tuple);
+    }
+
     /**
      * @see org.teiid.query.processor.relational.AccessNode#hasNextCommand()
      */
@@ -22,11 +22,14 @@ import java.util.*;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.metadata.Table;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.optimizer.relational.rules.NewCalculateCostUtil;
 import org.teiid.query.processor.relational.SortUtility.Mode;
@@ -38,11 +41,14 @@ import org.teiid.query.sql.lang.CompoundCriteria;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.DependentSetCriteria;
 import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.lang.UnaryFromClause;
 import org.teiid.query.sql.symbol.Array;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.util.ValueIterator;
+import org.teiid.query.util.CommandContext;
 
 
 public class DependentCriteriaProcessor {
@@ -71,6 +77,14 @@ public class DependentCriteriaProcessor {
 
         SetCriteria existingSet;
 
+        Expression expression;
+
+        BloomFilter filter;
+
+        int filterIndex;
+
+        int reserved;
+
     }
 
     class TupleState {
@@ -125,18 +139,68 @@ public class DependentCriteriaProcessor {
                 for (SetState setState : dependentSetStates) {
                     setState.valueIterator = dvs.getValueIterator(setState.valueExpression);
                     long distinctCount = dvs.getTupleBuffer().getRowCount();
+                    if (setState.maxNdv <= 0 && isCardinalityFeedback()) {
+                        //the planner could not determine the max, re-cost with the current cardinality
+                        setState.maxNdv = getDependentCardinality();
+                    }
                     if (setState.maxNdv <= 0 || setState.maxNdv >= distinctCount) {
                         continue;
                     }
                     if (!setState.overMax && distinctCount > setState.maxNdv) {
                         LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30011, valueSource, setState.valueExpression, setState.maxNdv));
                         setState.overMax = true;
+                        buildFilter(setState);
                     }
                 }
             }
         }
 
+        /**
+         * Build a bloom filter of the independent values so that the rows of the full
+         * dependent scan that cannot match are removed before the join.
+         */
+        private void buildFilter(SetState setState) throws TeiidComponentException {
+            CommandContext context = dependentNode.getContext();
+            if (context == null || !context.getOptions().isDependentJoinBloomFilter()
+                    || setState.valueCount != 1 || setState.expression == null
+                    || setState.expression.getType() != setState.valueExpression.getType()
+                    || !DataTypeManager.isHashable(setState.expression.getType())) {
+                return;
+            }
+            Integer index = RelationalNode.createLookupMap(dependentNode.getElements()).get(setState.expression);
+            if (index == null) {
+                return;
+            }
+            BloomFilter filter = new BloomFilter(dvs.getTupleBuffer().getRowCount());
+            //the filter is held for the life of the dependent scan
+            setState.reserved = dependentNode.getBufferManager().reserveBuffers(filter.getByteSize(), BufferReserveMode.FORCE);
+            TupleSourceValueIterator iter = dvs.getValueIterator(setState.valueExpression);
+            try {
+                while (iter.hasNext()) {
+                    Object value = iter.next();
+                    if (value != null) {
+                        filter.add(value);
+                    }
+                }
+            } finally {
+                iter.close();
+            }
+            setState.filter = filter;
+            setState.filterIndex = index;
+            filteredStates.add(setState);
+            if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+                LogManager.logDetail(LogConstants.CTX_DQP, "Using a bloom filter of", filter.getByteSize(), "bytes for", setState.expression, "from", valueSource); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+        }
+
         public void close() {
+            for (SetState setState : dependentSetStates) {
+                if (setState.reserved > 0) {
+                    dependentNode.getBufferManager().releaseBuffers(setState.reserved);
+                    setState.reserved = 0;
+                }
+                setState.filter = null;
+            }
             if (this.sortUtility != null) {
                 this.sortUtility.remove();
                 sortUtility = null;
@@ -171,6 +235,7 @@ public class DependentCriteriaProcessor {
     private Map<Integer, SetState> setStates = new HashMap<Integer, SetState>();
     private LinkedHashMap<String, TupleState> dependentState = new LinkedHashMap<String, TupleState>();
     private List<List<SetState>> sources = new ArrayList<List<SetState>>();
+    private List<SetState> filteredStates = new ArrayList<SetState>(2);
 
     // processing state
     private int phase = SORT;
@@ -238,6 +303,7 @@ public class DependentCriteriaProcessor {
                     setStates.remove(index);
                 }
                 state.valueExpression = dsc.getValueExpression();
+                state.expression = dsc.getExpression();
                 if (dsc.hasMultipleAttributes()) {
                     state.valueCount = ((Array)dsc.getExpression()).getExpressions().size();
                 }
@@ -253,12 +319,46 @@ public class DependentCriteriaProcessor {
         }
     }
 
+    /**
+     * When cardinality feedback is enabled, the dependent join may be abandoned for
+     * a full scan once there are more independent values than rows in the dependent table.
+     */
+    private boolean isCardinalityFeedback() {
+        CommandContext context = dependentNode.getContext();
+        return context != null && context.getOptions().isCardinalityFeedback();
+    }
+
+    /**
+     * Uses the current table cardinality, which may have been observed after planning.
+     * @return the cardinality of the dependent table or {@link NewCalculateCostUtil#UNKNOWN_VALUE}
+     */
+    private float getDependentCardinality() {
+        if (!(dependentNode instanceof AccessNode) || !(((AccessNode)dependentNode).getCommand() instanceof Query)) {
+            return NewCalculateCostUtil.UNKNOWN_VALUE;
+        }
+        Query query = (Query)((AccessNode)dependentNode).getCommand();
+        if (query.getFrom() == null || query.getFrom().getClauses().size() != 1
+                || !(query.getFrom().getClauses().get(0) instanceof UnaryFromClause)) {
+            return NewCalculateCostUtil.UNKNOWN_VALUE;
+        }
+        Object metadataID = ((UnaryFromClause)query.getFrom().getClauses().get(0)).getGroup().getMetadataID();
+        if (!(metadataID instanceof Table)) {
+            return NewCalculateCostUtil.UNKNOWN_VALUE;
+        }
+        float cardinality = dependentNode.getContext().getObservedCardinalities().getCardinality(metadataID);
+        if (cardinality == Table.UNKNOWN_CARDINALITY) {
+            cardinality = ((Table)metadataID).getCardinalityAsFloat();
+        }
+        return cardinality;
+    }
+
     public void close() {
         if (dependentState != null) {
             for (TupleState state : dependentState.values()) {
                 state.close();
             }
         }
+        filteredStates.clear();
         if (this.eval != null) {
             this.eval.close();
         }
@@ -486,6 +586,27 @@ public class DependentCriteriaProcessor {
         return hasNextCommand;
     }
 
+    /**
+     * @return true if there are bloom filters to apply to the dependent rows
+     */
+    public boolean hasFilters() {
+        return !filteredStates.isEmpty();
+    }
+
+    /**
+     * @return false if the dependent row cannot match any of the independent values
+     */
+    public boolean mightMatch(List<?> tuple) {
+        for (int i = 0; i < filteredStates.size(); i++) {
+            SetState state = filteredStates.get(i);
+            Object value = tuple.get(state.filterIndex);
+            if (value == null || !state.filter.mightContain(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Criteria replaceDependentCriteria(AbstractSetCriteria crit, SetState state) throws TeiidComponentException {
         if (state.overMax) {
             DependentValueSource originalVs = (DependentValueSource)dependentNode.getContext().getVariableContext().getGlobalValue(((DependentSetCriteria)crit).getContextSymbol());
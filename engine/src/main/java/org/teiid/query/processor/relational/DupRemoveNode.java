@@ -18,18 +18,37 @@
 
 package org.teiid.query.processor.relational;
 
+import java.util.HashSet;
 import java.util.List;
 
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.Expression;
 
+/**
+ * Streaming duplicate removal - rows are output in the order they are first seen.
+ * <br>
+ * If all of the columns are hashable the seen rows are first held in a hash set bounded
+ * by the reserved processing memory.  The reservation starts at a batch worth of rows and
+ * grows as the set fills, up to the max processing size.  Once more memory cannot be reserved
+ * the contents of the set are moved into an {@link STree}, which is used for the remainder
+ * of the input and may spill to storage.
+ */
 public class DupRemoveNode extends RelationalNode {
 
     private STree stree = null;
+    private HashSet<List<?>> seen;
+    private int hashCapacity;
+    private int maxHashCapacity;
+    private int hashRowSize;
+    private int reserved;
     private TupleBatch batch;
     private int counter;
 
@@ -40,6 +59,7 @@ public class DupRemoveNode extends RelationalNode {
     public void reset() {
         super.reset();
         stree = null;
+        seen = null;
         counter = 0;
         batch = null;
     }
@@ -48,7 +68,58 @@ public class DupRemoveNode extends RelationalNode {
     public void open() throws TeiidComponentException, TeiidProcessingException {
         super.open();
 
-        stree = getBufferManager().createSTree(this.getElements(), this.getConnectionID(), this.getElements().size());
+        if (isHashable(this.getElements())) {
+            BufferManager bm = this.getBufferManager();
+            //account for the set entries in addition to the rows
+            this.hashRowSize = Math.max(1, 2 * bm.getSchemaSize(this.getElements()) / bm.getProcessorBatchSize());
+            if (this.reserved == 0) {
+                //start with a batch worth of rows, more is reserved as the set grows
+                this.reserved = bm.reserveBuffers(this.hashRowSize * bm.getProcessorBatchSize(), BufferReserveMode.FORCE);
+            }
+            this.hashCapacity = this.reserved / this.hashRowSize;
+            if (this.maxHashCapacity > 0) {
+                this.hashCapacity = Math.min(this.maxHashCapacity, this.hashCapacity);
+            }
+            seen = new HashSet<List<?>>();
+        } else {
+            stree = createSTree();
+        }
+    }
+
+    private STree createSTree() {
+        return getBufferManager().createSTree(this.getElements(), this.getConnectionID(), this.getElements().size());
+    }
+
+    private static boolean isHashable(List<? extends Expression> elements) {
+        for (Expression ex : elements) {
+            if (!DataTypeManager.isHashable(ex.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the tuple has not been seen before
+     */
+    private boolean addSeen(List<?> tuple) throws TeiidComponentException {
+        if (seen != null) {
+            if (seen.contains(tuple)) {
+                return false;
+            }
+            if (seen.size() < hashCapacity || growHashCapacity()) {
+                seen.add(tuple);
+                return true;
+            }
+            //at capacity, move to the tree
+            stree = createSTree();
+            for (List<?> existing : seen) {
+                stree.insert(existing, InsertMode.NEW, -1);
+            }
+            seen = null;
+            releaseReserved();
+        }
+        return stree.insert(tuple, InsertMode.NEW, -1) == null;
     }
 
     public TupleBatch nextBatchDirect()
@@ -61,8 +132,7 @@ public class DupRemoveNode extends RelationalNode {
             List<List<?>> tuples = batch.getTuples();
             for (;counter < tuples.size(); counter++) {
                 List<?> tuple = tuples.get(counter);
-                List<?> existing = stree.insert(tuple, InsertMode.NEW, -1);
-                if (existing != null) {
+                if (!addSeen(tuple)) {
                     continue;
                 }
                 this.addBatchRow(tuple);
@@ -82,7 +152,54 @@ public class DupRemoveNode extends RelationalNode {
     public void closeDirect() {
         if (stree != null) {
             stree.remove();
+            stree = null;
+        }
+        seen = null;
+        releaseReserved();
+    }
+
+    /**
+     * Attempt to double the reservation for the hash set up to the max processing size.
+     * @return true if the capacity was increased
+     */
+    private boolean growHashCapacity() {
+        if (this.maxHashCapacity > 0 && this.hashCapacity >= this.maxHashCapacity) {
+            return false;
+        }
+        BufferManager bm = getBufferManager();
+        int toReserve = Math.min(this.reserved, bm.getMaxProcessingSize() - this.reserved);
+        if (toReserve <= 0) {
+            return false;
+        }
+        this.reserved += bm.reserveBuffers(toReserve, BufferReserveMode.NO_WAIT);
+        int capacity = this.reserved / this.hashRowSize;
+        if (this.maxHashCapacity > 0) {
+            capacity = Math.min(this.maxHashCapacity, capacity);
+        }
+        if (capacity <= this.hashCapacity) {
+            return false;
         }
+        this.hashCapacity = capacity;
+        return true;
+    }
+
+    private void releaseReserved() {
+        if (this.reserved > 0) {
+            getBufferManager().releaseBuffers(this.reserved);
+            this.reserved = 0;
+        }
+    }
+
+    /**
+     * Set the maximum number of rows held in the hash set before using an {@link STree}.
+     * Defaults to a value based upon the max processing size.
+     */
+    void setHashCapacity(int hashCapacity) {
+        this.maxHashCapacity = hashCapacity;
+    }
+
+    int getHashCapacity() {
+        return hashCapacity;
     }
 
     public Object clone(){
@@ -0,0 +1,357 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.teiid.query.analysis.AnalysisRecord.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.teiid.client.plan.PlanNode;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.service.TransactionContext;
+import org.teiid.dqp.service.TransactionContext.Scope;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Runs the child subtree on a separate worker, passing batches back through a bounded queue.
+ * <br>
+ * Only one thread processes the subtree at a time.  The worker is started on open and keeps
+ * producing until the queue is full.  If the subtree blocks on the worker, the next
+ * request for a batch processes the subtree on the calling thread so that the normal
+ * {@link BlockedException} handling applies until results are available again.
+ * <br>
+ * The subtree is initialized with its own {@link CommandContext#cloneForConcurrentUse() context}
+ * so that it does not share the non-thread-safe plan state with the rest of the plan.
+ * The determinism level and accessed data objects of the subtree are merged back into the
+ * plan context on the consuming thread.  The planner only places an exchange above subtrees
+ * that have no dependent, procedural or subquery processing, so the remaining shared state is
+ * the request level state - the buffer manager, connector requests and warnings - which is
+ * safe for concurrent use.
+ * <br>
+ * When a transaction is active or the request is serial the subtree is processed inline,
+ * since work on another thread would be outside of the transaction association.
+ */
+public class ExchangeNode extends RelationalNode {
+
+    public static final int DEFAULT_MAX_BATCHES = 4;
+
+    /**
+     * The maximum time to wait on close for a running worker to finish its current batch
+     */
+    static long CLOSE_WAIT_MILLIS = 10000;
+
+    private int maxBatches = DEFAULT_MAX_BATCHES;
+
+    private ArrayDeque<TupleBatch> queue = new ArrayDeque<TupleBatch>();
+    private boolean inline;
+    private Future<Void> producer;
+    private int producerGeneration;
+    private boolean running;
+    private boolean producerBlocked;
+    private boolean done;
+    private boolean closing;
+    private Throwable failure;
+    private int reserved;
+
+    private CommandContext childContext;
+    private Determinism childDeterminism;
+    private Set<Object> childDataObjects;
+
+    public ExchangeNode(int nodeID) {
+        super(nodeID);
+    }
+
+    public void setMaxBatches(int maxBatches) {
+        this.maxBatches = Math.max(1, maxBatches);
+    }
+
+    @Override
+    public void initialize(CommandContext context, BufferManager bufferManager,
+            ProcessorDataManager dataMgr) {
+        super.initialize(context, bufferManager, dataMgr);
+        this.childContext = context.cloneForConcurrentUse();
+    }
+
+    /**
+     * @return the context the subtree should be initialized with
+     */
+    CommandContext getChildContext() {
+        return childContext;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        synchronized (this) {
+            this.queue.clear();
+            this.producer = null;
+            this.running = false;
+            this.producerBlocked = false;
+            this.done = false;
+            this.closing = false;
+            this.failure = null;
+            this.childDeterminism = null;
+            this.childDataObjects = null;
+        }
+    }
+
+    @Override
+    public void open() throws TeiidComponentException,
+            TeiidProcessingException {
+        super.open();
+        this.inline = isSerial(getContext());
+        if (this.inline) {
+            return;
+        }
+        if (this.reserved == 0) {
+            this.reserved = getBufferManager().reserveBuffers(this.maxBatches * getBufferManager().getSchemaSize(getElements()), BufferReserveMode.FORCE);
+        }
+        startProducer();
+    }
+
+    @Override
+    protected TupleBatch nextBatchDirect() throws BlockedException,
+            TeiidComponentException, TeiidProcessingException {
+        synchronized (this) {
+            mergeChildState();
+            checkFailure();
+            TupleBatch batch = this.queue.poll();
+            if (batch != null) {
+                startProducer();
+                return batch;
+            }
+            if (this.producer != null) {
+                //the completion of the worker will trigger more work
+                throw BlockedException.block("Waiting on exchange", getID()); //$NON-NLS-1$
+            }
+        }
+        //the worker is not submitted, so it's safe to process directly
+        TupleBatch batch = getChildren()[0].nextBatch();
+        synchronized (this) {
+            collectChildState();
+            mergeChildState();
+            this.producerBlocked = false;
+            if (batch.getTerminationFlag()) {
+                this.done = true;
+            } else {
+                startProducer();
+            }
+        }
+        return batch;
+    }
+
+    static boolean isSerial(CommandContext context) {
+        TransactionContext tc = context.getTransactionContext();
+        if (tc != null && tc.getTransactionType() != Scope.NONE) {
+            return true;
+        }
+        return context.isNonBlocking() || context.getUserRequestSourceConcurrency() == 1;
+    }
+
+    private synchronized void startProducer() {
+        if (this.inline || this.producer != null || this.done || this.producerBlocked || this.closing || this.queue.size() >= this.maxBatches) {
+            return;
+        }
+        final int generation = ++this.producerGeneration;
+        this.producer = getContext().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                synchronized (ExchangeNode.this) {
+                    //the worker may have been canceled after it was dequeued
+                    if (closing || generation != producerGeneration) {
+                        return null;
+                    }
+                    running = true;
+                }
+                CommandContext.pushThreadLocalContext(childContext);
+                try {
+                    produce();
+                } finally {
+                    CommandContext.popThreadLocalContext();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Fill the queue from the child.  Called on the worker thread.
+     */
+    void produce() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (this.closing || this.queue.size() >= this.maxBatches) {
+                        return;
+                    }
+                }
+                TupleBatch batch = getChildren()[0].nextBatch();
+                synchronized (this) {
+                    collectChildState();
+                    this.queue.add(batch);
+                    if (batch.getTerminationFlag()) {
+                        this.done = true;
+                        return;
+                    }
+                }
+            }
+        } catch (BlockedException e) {
+            synchronized (this) {
+                this.producerBlocked = true;
+            }
+        } catch (Throwable e) {
+            if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+                LogManager.logDetail(LogConstants.CTX_DQP, e, "Exchange worker failed", getID()); //$NON-NLS-1$
+            }
+            synchronized (this) {
+                this.failure = e;
+            }
+        } finally {
+            synchronized (this) {
+                collectChildState();
+                this.running = false;
+                this.producer = null;
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Capture the state of the child context.  Must be called holding the lock
+     * by the thread that last processed the subtree.
+     */
+    private void collectChildState() {
+        Determinism level = this.childContext.getDeterminismLevel();
+        if (this.childDeterminism == null || level.compareTo(this.childDeterminism) < 0) {
+            this.childDeterminism = level;
+        }
+        Set<Object> dataObjects = this.childContext.getDataObjects();
+        if (dataObjects != null && !dataObjects.isEmpty()) {
+            if (this.childDataObjects == null) {
+                this.childDataObjects = new HashSet<Object>();
+            }
+            this.childDataObjects.addAll(dataObjects);
+            dataObjects.clear();
+        }
+    }
+
+    /**
+     * Merge the captured child state into the plan context.  Must be called holding the lock
+     * by the consuming thread.
+     */
+    private void mergeChildState() {
+        if (this.childDeterminism != null) {
+            getContext().setDeterminismLevel(this.childDeterminism);
+        }
+        if (this.childDataObjects != null) {
+            Set<Object> dataObjects = getContext().getDataObjects();
+            if (dataObjects != null) {
+                dataObjects.addAll(this.childDataObjects);
+            }
+            this.childDataObjects = null;
+        }
+    }
+
+    private void checkFailure() throws TeiidComponentException,
+            TeiidProcessingException {
+        if (this.failure == null) {
+            return;
+        }
+        Throwable t = this.failure;
+        if (t instanceof TeiidComponentException) {
+            throw (TeiidComponentException)t;
+        }
+        if (t instanceof TeiidProcessingException) {
+            throw (TeiidProcessingException)t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error) {
+            throw (Error)t;
+        }
+        throw new TeiidRuntimeException(t);
+    }
+
+    @Override
+    public void closeDirect() {
+        synchronized (this) {
+            this.closing = true;
+            //a worker that has not started yet will not run
+            if (this.producer != null && !this.running) {
+                this.producerGeneration++;
+                this.producer.cancel(false);
+                this.producer = null;
+            }
+            //the child cannot be closed while the worker is using it, but the worker
+            //checks for closing after each batch
+            long end = System.currentTimeMillis() + CLOSE_WAIT_MILLIS;
+            while (this.running) {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    LogManager.logWarning(LogConstants.CTX_DQP, "Exchange worker did not finish before close " + getID()); //$NON-NLS-1$
+                    break;
+                }
+                try {
+                    this.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            this.queue.clear();
+            mergeChildState();
+        }
+        if (this.reserved > 0) {
+            getBufferManager().releaseBuffers(this.reserved);
+            this.reserved = 0;
+        }
+    }
+
+    @Override
+    public Object clone() {
+        ExchangeNode clonedNode = new ExchangeNode(super.getID());
+        super.copyTo(clonedNode);
+        clonedNode.maxBatches = this.maxBatches;
+        return clonedNode;
+    }
+
+    @Override
+    public PlanNode getDescriptionProperties() {
+        PlanNode props = super.getDescriptionProperties();
+        props.addProperty(PROP_EXCHANGE_BATCHES, String.valueOf(this.maxBatches));
+        return props;
+    }
+
+}
@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -34,6 +36,9 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
@@ -70,6 +75,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         private Evaluator eval;
         private List<Expression> collectedExpressions;
         private int[] projectionIndexes;
+        private boolean columnProjection = true;
 
         ProjectingTupleSource(BatchProducer sourceNode, Evaluator eval, List<Expression> expressions, Map<Expression, Integer> elementMap) {
             super(sourceNode);
@@ -81,10 +87,29 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
                 Integer index = elementMap.get(expressions.get(i));
                 if(index != null) {
                     projectionIndexes[i] = index;
+                } else {
+                    columnProjection = false;
                 }
             }
         }
 
+        @Override
+        protected List<?> updateTuple(TupleBatch batch, long row)
+                throws ExpressionEvaluationException, BlockedException,
+                TeiidComponentException {
+            if (!columnProjection || !(batch instanceof ColumnarTupleBatch)) {
+                return super.updateTuple(batch, row);
+            }
+            //read only the needed columns without materializing the source row
+            ColumnarTupleBatch columnar = (ColumnarTupleBatch)batch;
+            int index = (int)(row - batch.getBeginRow());
+            List<Object> exprTuple = new ArrayList<Object>(projectionIndexes.length);
+            for (int col = 0; col < projectionIndexes.length; col++) {
+                exprTuple.add(columnar.getColumn(projectionIndexes[col]).get(index));
+            }
+            return exprTuple;
+        }
+
         @Override
         protected List<Object> updateTuple(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
             int columns = collectedExpressions.size();
@@ -134,11 +159,26 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private TupleSource groupSortTupleSource;
     private int[] projection;
 
+    // Hash aggregation
+    private boolean hashAggregation;
+    private HashMap<List<?>, List<?>> hashTable;
+    private int hashCapacity;
+    private int hashRowSize;
+    private int reserved;
+    private TupleBuffer[] spillPartitions;
+    private LinkedList<TupleBuffer> pendingPartitions;
+    private TupleBuffer currentPartition;
+    private int level;
+    private Iterator<List<?>> hashOutput;
+
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
     private static final int GROUP_SORT = 4;
     private static final int GROUP_SORT_OUTPUT = 5;
+    private static final int HASH = 6;
+    private static final int HASH_OUTPUT = 7;
+    static final int MAX_PARTITIONS = 16;
     private int[] indexes;
     private boolean rollup;
     private HashMap<Integer, Integer> indexMap;
@@ -159,6 +199,10 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         currentGroupTuple = null;
         doneReading = false;
 
+        hashTable = null;
+        hashOutput = null;
+        level = 0;
+
         if (this.functions != null) {
             for (AggregateFunction[] functions : this.functions) {
                 for (AggregateFunction function : functions) {
@@ -408,6 +452,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
             return groupSortOutputPhase();
         }
 
+        while (this.phase == HASH || this.phase == HASH_OUTPUT) {
+            if (this.phase == HASH) {
+                hashPhase();
+            }
+            TupleBatch batch = hashOutputPhase();
+            if (batch != null) {
+                return batch;
+            }
+        }
+
         this.terminateBatches();
         return pullBatch();
     }
@@ -501,6 +555,19 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
                         schema.add(es);
                     }
 
+                    if (this.hashAggregation && isHashable(schema.subList(0, orderBy.size()))) {
+                        BufferManager bm = this.getBufferManager();
+                        //account for the key objects and table entries
+                        this.hashRowSize = Math.max(1, 2 * bm.getSchemaSize(schema) / bm.getProcessorBatchSize());
+                        //start with a batch worth of groups, more is reserved as the table grows
+                        this.reserved += bm.reserveBuffers(this.hashRowSize * bm.getProcessorBatchSize(), BufferReserveMode.FORCE);
+                        this.hashCapacity = this.reserved / this.hashRowSize;
+                        this.hashTable = new HashMap<List<?>, List<?>>();
+                        this.groupSortTupleSource = this.getGroupSortTupleSource();
+                        this.phase = HASH;
+                        return;
+                    }
+
                     tree = this.getBufferManager().createSTree(schema, this.getConnectionID(), orderBy.size());
                     //non-default order needs to update the comparator
                     tree.getComparator().setNullOrdering(nullOrdering);
@@ -589,6 +656,143 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         return pullBatch();
     }
 
+    private static boolean isHashable(List<Expression> keys) {
+        for (Expression ex : keys) {
+            if (!DataTypeManager.isHashable(ex.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Process the input and store the partial accumulator values by group key.
+     * Input for new groups once the hash table is at capacity is spilled to
+     * partitions that are processed in subsequent passes.
+     * @throws TeiidComponentException
+     * @throws TeiidProcessingException
+     */
+    private void hashPhase() throws TeiidComponentException, TeiidProcessingException {
+        List<?> tuple = null;
+        int keySize = orderBy.size();
+        while ((tuple = groupSortTupleSource.nextTuple()) != null) {
+            List<Object> key = new ArrayList<Object>(tuple.subList(0, keySize));
+            List<?> current = hashTable.get(key);
+            if (current == null && hashTable.size() >= hashCapacity && !growHashCapacity()) {
+                spill(key, tuple);
+                continue;
+            }
+            List<Object> accumulated = new ArrayList<Object>(key);
+            int index = keySize;
+            for (int i = 0; i < this.groupSortfunctions.length; i++) {
+                AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+                if (current != null) {
+                    aggregateFunction.setState(current, index);
+                } else {
+                    aggregateFunction.reset();
+                }
+                index+=this.accumulatorStateCount[i];
+                aggregateFunction.addInput(tuple, getContext());
+                aggregateFunction.getState(accumulated);
+            }
+            hashTable.put(key, accumulated);
+        }
+        this.groupSortTupleSource.closeSource();
+        this.groupSortTupleSource = null;
+        if (this.currentPartition != null) {
+            this.currentPartition.remove();
+            this.currentPartition = null;
+        }
+        if (this.spillPartitions != null) {
+            if (this.pendingPartitions == null) {
+                this.pendingPartitions = new LinkedList<TupleBuffer>();
+            }
+            for (TupleBuffer tb : this.spillPartitions) {
+                if (tb.getRowCount() == 0) {
+                    tb.remove();
+                } else {
+                    tb.close();
+                    this.pendingPartitions.add(tb);
+                }
+            }
+            this.spillPartitions = null;
+        }
+        this.hashOutput = hashTable.values().iterator();
+        this.phase = HASH_OUTPUT;
+    }
+
+    /**
+     * Attempt to double the reservation for the hash table up to the max processing size.
+     * @return true if the capacity was increased
+     */
+    private boolean growHashCapacity() {
+        BufferManager bm = getBufferManager();
+        int toReserve = Math.min(this.reserved, bm.getMaxProcessingSize() - this.reserved);
+        if (toReserve <= 0) {
+            return false;
+        }
+        int additional = bm.reserveBuffers(toReserve, BufferReserveMode.NO_WAIT);
+        this.reserved += additional;
+        int capacity = this.reserved / this.hashRowSize;
+        if (capacity <= this.hashCapacity) {
+            return false;
+        }
+        this.hashCapacity = capacity;
+        return true;
+    }
+
+    private void spill(List<?> key, List<?> tuple) throws TeiidComponentException {
+        if (this.spillPartitions == null) {
+            this.spillPartitions = new TupleBuffer[MAX_PARTITIONS];
+            List<Expression> schema = new ArrayList<Expression>(collectedExpressions.keySet());
+            for (int i = 0; i < this.spillPartitions.length; i++) {
+                this.spillPartitions[i] = getBufferManager().createTupleBuffer(schema, getConnectionID(), TupleSourceType.PROCESSOR);
+                this.spillPartitions[i].setForwardOnly(true);
+            }
+        }
+        //vary the hash by pass so that a partition is split again if it overflows
+        int hash = Integer.rotateLeft(key.hashCode() * 0x9E3779B9, level * 4);
+        this.spillPartitions[(hash >>> 1) % MAX_PARTITIONS].addTuple(tuple);
+    }
+
+    /**
+     * Output the hash table groups.
+     * @return the batch, or null if there is a spilled partition to process
+     */
+    private TupleBatch hashOutputPhase() throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException, TeiidProcessingException {
+        int size = orderBy.size();
+        List<Object> vals = Arrays.asList(new Object[size + groupSortfunctions.length]);
+        while (hashOutput.hasNext()) {
+            List<?> tuple = hashOutput.next();
+            for (int i = 0; i < size; i++) {
+                vals.set(i, tuple.get(i));
+            }
+            int index = size;
+            for (int i = 0; i < this.groupSortfunctions.length; i++) {
+                AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+                aggregateFunction.setState(tuple, index);
+                index+=this.accumulatorStateCount[i];
+                vals.set(size + i, aggregateFunction.getResult(getContext()));
+            }
+            hashOutput.remove();
+            List<?> result = RelationalNode.projectTuple(projection, vals);
+            addBatchRow(result);
+            if (isBatchFull()) {
+                return pullBatch();
+            }
+        }
+        if (this.pendingPartitions != null && !this.pendingPartitions.isEmpty()) {
+            this.currentPartition = this.pendingPartitions.removeFirst();
+            this.groupSortTupleSource = this.currentPartition.createIndexedTupleSource(true);
+            this.hashTable = new HashMap<List<?>, List<?>>();
+            this.level++;
+            this.phase = HASH;
+            return null;
+        }
+        terminateBatches();
+        return pullBatch();
+    }
+
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
         this.sortBuffer = this.sortUtility.sort();
         this.sortBuffer.setForwardOnly(true);
@@ -713,6 +917,31 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
             this.tree.remove();
             this.tree = null;
         }
+        if (this.currentPartition != null) {
+            this.currentPartition.remove();
+            this.currentPartition = null;
+        }
+        removePartitions(this.spillPartitions);
+        this.spillPartitions = null;
+        if (this.pendingPartitions != null) {
+            removePartitions(this.pendingPartitions.toArray(new TupleBuffer[this.pendingPartitions.size()]));
+            this.pendingPartitions = null;
+        }
+        this.hashTable = null;
+        this.hashOutput = null;
+        if (this.reserved > 0) {
+            getBufferManager().releaseBuffers(this.reserved);
+            this.reserved = 0;
+        }
+    }
+
+    private static void removePartitions(TupleBuffer[] partitions) {
+        if (partitions == null) {
+            return;
+        }
+        for (TupleBuffer tb : partitions) {
+            tb.remove();
+        }
     }
 
     protected void getNodeString(StringBuffer str) {
@@ -730,6 +959,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         clonedNode.outputMapping = outputMapping;
         clonedNode.orderBy = orderBy;
         clonedNode.rollup = rollup;
+        clonedNode.hashAggregation = hashAggregation;
         return clonedNode;
     }
 
@@ -756,11 +986,27 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         if (rollup) {
             props.addProperty(PROP_ROLLUP, Boolean.TRUE.toString());
         }
+        if (hashAggregation) {
+            props.addProperty(PROP_HASH_AGGREGATION, Boolean.TRUE.toString());
+        }
         return props;
     }
 
+    @Override
+    protected boolean supportsColumnarBatches() {
+        return true;
+    }
+
     public void setRollup(boolean rollup) {
         this.rollup = rollup;
     }
 
+    /**
+     * Use a hash table rather than a sort to determine the groups.  The output
+     * will not be ordered by the grouping columns.
+     */
+    public void setHashAggregation(boolean hashAggregation) {
+        this.hashAggregation = hashAggregation;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,440 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A hybrid hash join for inner and left outer equi-joins where neither side is sorted.
+ * <br>
+ * The smaller side of an inner join, or the right side of a left outer join, is fully buffered
+ * and loaded into an in-memory hash table that is probed by streaming the other side.
+ * If the build side does not fit into the buffer reservation, both sides are
+ * partitioned by the hash of the join keys into {@link TupleBuffer}s and each pair of partitions
+ * is joined in turn with its own reservation.
+ * <br>
+ * Degrades to a normal merge join if the join type or the key types cannot be hashed, or
+ * if a build partition would exceed its reservation, such as with highly duplicated keys.
+ */
+public class HashJoinStrategy extends MergeJoinStrategy {
+
+    static final int MAX_PARTITIONS = 64;
+
+    private boolean hash;
+
+    private SourceState buildSource;
+    private SourceState probeSource;
+    private int partitionCount;
+    private int partitionReservation;
+    private int partitionReserved;
+    private int buildSchemaSize;
+    private TupleBuffer[] buildPartitions;
+    private TupleBuffer[] probePartitions;
+    private TupleSource partitionSource;
+    private int partition = -1;
+
+    private Map<List<?>, List<List<?>>> table;
+    private TupleSource probeTs;
+    private List<?> probeTuple;
+    private List<List<?>> matches;
+    private int matchIndex;
+    private boolean matched;
+
+    public HashJoinStrategy(SortOption sortLeft, SortOption sortRight) {
+        super(sortLeft, sortRight, false);
+    }
+
+    /**
+     * Return true if the join expressions may be compared by hash rather than by sorting
+     */
+    public static boolean isHashable(List<? extends Expression> leftExpressions, List<? extends Expression> rightExpressions) {
+        if (leftExpressions == null || leftExpressions.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < leftExpressions.size(); i++) {
+            Class<?> type = leftExpressions.get(i).getType();
+            if (type != rightExpressions.get(i).getType() || !DataTypeManager.isHashable(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void initialize(JoinNode joinNode) {
+        super.initialize(joinNode);
+        JoinType joinType = joinNode.getJoinType();
+        this.hash = (joinType == JoinType.JOIN_INNER || joinType == JoinType.JOIN_LEFT_OUTER)
+                && !joinNode.isDependent()
+                && sortLeft != SortOption.SORT_DISTINCT && sortRight != SortOption.SORT_DISTINCT
+                && isHashable(joinNode.getLeftExpressions(), joinNode.getRightExpressions());
+    }
+
+    @Override
+    public void close() {
+        if (joinNode == null) {
+            return;
+        }
+        super.close();
+        closePartition();
+        removePartitions(this.buildPartitions);
+        removePartitions(this.probePartitions);
+        this.buildPartitions = null;
+        this.probePartitions = null;
+    }
+
+    private static void removePartitions(TupleBuffer[] partitions) {
+        if (partitions == null) {
+            return;
+        }
+        for (TupleBuffer tb : partitions) {
+            if (tb != null) {
+                tb.remove();
+            }
+        }
+    }
+
+    @Override
+    protected void loadLeft() throws TeiidComponentException,
+            TeiidProcessingException {
+        if (!hash) {
+            super.loadLeft();
+        }
+    }
+
+    @Override
+    protected void loadRight() throws TeiidComponentException,
+            TeiidProcessingException {
+        if (!hash) {
+            if (this.buildSource != null) {
+                //falling back from a hash join, the left has not yet been sorted
+                super.loadLeft();
+            }
+            super.loadRight();
+            return;
+        }
+        if (this.buildSource == null) {
+            this.buildSource = getBuildSource();
+            this.probeSource = this.buildSource == this.leftSource?this.rightSource:this.leftSource;
+            this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+        }
+        if (this.partitionCount > 0) {
+            return;
+        }
+        TupleBuffer buildBuffer = this.buildSource.getTupleBuffer();
+        BufferManager bm = this.joinNode.getBufferManager();
+        this.buildSchemaSize = bm.getSchemaSize(this.buildSource.getSource().getOutputElements());
+        long needed = getReservation(buildBuffer.getRowCount());
+        if (needed <= bm.getMaxProcessingSize()) {
+            this.reserved += bm.reserveBuffers((int)needed, BufferReserveMode.FORCE);
+            this.partitionCount = 1;
+            return;
+        }
+        int available = bm.reserveBuffers((int)Math.min(needed, Integer.MAX_VALUE), BufferReserveMode.NO_WAIT);
+        if (available >= needed) {
+            this.reserved += available;
+            this.partitionCount = 1;
+            return;
+        }
+        bm.releaseBuffers(available);
+        //each partition is reserved as it is joined
+        this.partitionReservation = (int)Math.min(Integer.MAX_VALUE, Math.max(Math.max(1, bm.getMaxProcessingSize()), getReservation(this.buildSource.getSource().getBatchSize())));
+        this.partitionCount = (int)Math.min(MAX_PARTITIONS, needed / this.partitionReservation + 1);
+        int[] indexes = this.buildSource.getExpressionIndexes();
+        long[] partitionRows = new long[this.partitionCount];
+        TupleSource ts = buildBuffer.createIndexedTupleSource(false);
+        List<?> tuple = null;
+        while ((tuple = ts.nextTuple()) != null) {
+            List<?> key = getKey(tuple, indexes);
+            if (key != null) {
+                partitionRows[getPartition(key)]++;
+            }
+        }
+        ts.closeSource();
+        for (long rows : partitionRows) {
+            if (getReservation(rows) > this.partitionReservation) {
+                sortMerge();
+                return;
+            }
+        }
+        if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+            LogManager.logDetail(LogConstants.CTX_DQP, "hash join using", this.partitionCount, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        this.buildPartitions = createPartitions(this.buildSource);
+        this.probePartitions = createPartitions(this.probeSource);
+        ts = buildBuffer.createIndexedTupleSource(true);
+        while ((tuple = ts.nextTuple()) != null) {
+            List<?> key = getKey(tuple, indexes);
+            if (key != null) {
+                this.buildPartitions[getPartition(key)].addTuple(tuple);
+            }
+        }
+        ts.closeSource();
+        for (TupleBuffer tb : this.buildPartitions) {
+            tb.close();
+        }
+    }
+
+    /**
+     * Choose the smaller side of an inner join to build the hash table from.  The sizes are
+     * determined in an incremental fashion as to avoid a full buffer of the larger side.
+     */
+    private SourceState getBuildSource() throws TeiidComponentException, TeiidProcessingException {
+        if (this.joinNode.getJoinType() != JoinType.JOIN_INNER) {
+            return this.rightSource;
+        }
+        long size = this.joinNode.getBatchSize();
+        while (size < Integer.MAX_VALUE) {
+            boolean leftFits = this.leftSource.rowCountLE(size);
+            if (this.rightSource.rowCountLE(size)) {
+                if (leftFits && this.leftSource.getRowCount() < this.rightSource.getRowCount()) {
+                    return this.leftSource;
+                }
+                return this.rightSource;
+            }
+            if (leftFits) {
+                return this.leftSource;
+            }
+            size *= 2;
+        }
+        return this.rightSource;
+    }
+
+    /**
+     * @return the bytes to reserve for a hash table of the given number of build rows
+     */
+    private long getReservation(long rows) {
+        int batchSize = this.buildSource.getSource().getBatchSize();
+        //account for the keys and table entries
+        return 2l * ((rows + batchSize - 1) / batchSize) * this.buildSchemaSize;
+    }
+
+    /**
+     * Fall back to a sort merge join, which does not require the build side to be memory resident
+     */
+    private void sortMerge() throws TeiidComponentException, TeiidProcessingException {
+        if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+            LogManager.logDetail(LogConstants.CTX_DQP, "hash join partition exceeds the reservation, using a merge join", this.joinNode.getID()); //$NON-NLS-1$
+        }
+        this.hash = false;
+        this.partitionCount = 0;
+        super.loadLeft();
+        super.loadRight();
+    }
+
+    private TupleBuffer[] createPartitions(SourceState state) throws TeiidComponentException {
+        TupleBuffer[] result = new TupleBuffer[this.partitionCount];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = state.createSourceTupleBuffer();
+            result[i].setForwardOnly(true);
+        }
+        return result;
+    }
+
+    private int getPartition(List<?> key) {
+        return ((key.hashCode() * 0x9E3779B9) >>> 1) % this.partitionCount;
+    }
+
+    /**
+     * @return the key values or null if any are null, since they cannot match
+     */
+    static List<?> getKey(List<?> tuple, int[] indexes) {
+        List<Object> key = new ArrayList<Object>(indexes.length);
+        for (int index : indexes) {
+            Object value = tuple.get(index);
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    @Override
+    protected void process() throws TeiidComponentException,
+            TeiidProcessingException {
+        if (!hash) {
+            super.process();
+            return;
+        }
+        if (this.probePartitions != null && this.partition == -1) {
+            partitionProbe();
+        }
+        while (true) {
+            if (this.probeTs == null && !nextPartition()) {
+                return;
+            }
+            if (this.probeTuple == null) {
+                this.probeTuple = this.probeTs.nextTuple();
+                if (this.probeTuple == null) {
+                    closePartition();
+                    continue;
+                }
+                this.matched = false;
+                this.matchIndex = 0;
+                List<?> key = getKey(this.probeTuple, this.probeSource.getExpressionIndexes());
+                this.matches = key == null?null:this.table.get(key);
+            }
+            if (this.matches != null && this.matchIndex < this.matches.size()) {
+                List<?> buildTuple = this.matches.get(this.matchIndex);
+                List outputTuple = this.buildSource == this.leftSource?outputTuple(buildTuple, this.probeTuple):outputTuple(this.probeTuple, buildTuple);
+                boolean match = this.joinNode.matchesCriteria(outputTuple);
+                this.matchIndex++;
+                if (match) {
+                    if (singleMatch && this.matched) {
+                        throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID31293, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31293));
+                    }
+                    this.matched = true;
+                    this.joinNode.addBatchRow(outputTuple);
+                }
+                continue;
+            }
+            List<?> tuple = this.probeTuple;
+            this.probeTuple = null;
+            if (!this.matched && this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+                this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+            }
+        }
+    }
+
+    /**
+     * Read the probe side into its partitions.  May be resumed after a blocked exception.
+     */
+    private void partitionProbe() throws TeiidComponentException, TeiidProcessingException {
+        if (this.partitionSource == null) {
+            this.partitionSource = this.probeSource.getIterator();
+        }
+        int[] indexes = this.probeSource.getExpressionIndexes();
+        boolean outer = this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER;
+        List<?> tuple = null;
+        while ((tuple = this.partitionSource.nextTuple()) != null) {
+            List<?> key = getKey(tuple, indexes);
+            if (key != null) {
+                this.probePartitions[getPartition(key)].addTuple(tuple);
+            } else if (outer) {
+                //will not match, but must still be output
+                this.probePartitions[0].addTuple(tuple);
+            }
+        }
+        for (TupleBuffer tb : this.probePartitions) {
+            tb.close();
+        }
+        this.partition = 0;
+        this.partitionSource = null;
+    }
+
+    private boolean nextPartition() throws TeiidComponentException, TeiidProcessingException {
+        TupleBuffer build = null;
+        if (this.buildPartitions == null) {
+            if (this.partition != -1) {
+                return false;
+            }
+            this.partition = 0;
+            build = this.buildSource.getTupleBuffer();
+        } else {
+            if (this.partition >= this.partitionCount) {
+                return false;
+            }
+            build = this.buildPartitions[this.partition];
+            this.partitionReserved = this.joinNode.getBufferManager().reserveBuffers((int)getReservation(build.getRowCount()), BufferReserveMode.FORCE);
+        }
+        int[] indexes = this.buildSource.getExpressionIndexes();
+        this.table = new HashMap<List<?>, List<List<?>>>();
+        TupleSource ts = build.createIndexedTupleSource(this.buildPartitions != null);
+        List<?> tuple = null;
+        while ((tuple = ts.nextTuple()) != null) {
+            List<?> key = getKey(tuple, indexes);
+            if (key == null) {
+                continue;
+            }
+            List<List<?>> values = this.table.get(key);
+            if (values == null) {
+                values = new ArrayList<List<?>>(2);
+                this.table.put(key, values);
+            }
+            values.add(tuple);
+        }
+        ts.closeSource();
+        if (this.buildPartitions == null) {
+            this.probeTs = this.probeSource.getIterator();
+        } else {
+            this.probeTs = this.probePartitions[this.partition].createIndexedTupleSource(true);
+        }
+        return true;
+    }
+
+    private void closePartition() {
+        if (this.probeTs != null && this.buildPartitions != null) {
+            this.probeTs.closeSource();
+            this.buildPartitions[this.partition].remove();
+            this.probePartitions[this.partition].remove();
+            this.partition++;
+        }
+        if (this.partitionReserved > 0) {
+            this.joinNode.getBufferManager().releaseBuffers(this.partitionReserved);
+            this.partitionReserved = 0;
+        }
+        this.probeTs = null;
+        this.table = null;
+        this.matches = null;
+    }
+
+    @Override
+    public HashJoinStrategy clone() {
+        HashJoinStrategy clone = new HashJoinStrategy(this.sortLeft, this.sortRight);
+        clone.singleMatch = this.singleMatch;
+        return clone;
+    }
+
+    /**
+     * @return the number of partitions used by the last hash join, or 0 if a merge join was used
+     */
+    int getPartitionCount() {
+        return partitionCount;
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder result = new StringBuilder("HASH JOIN"); //$NON-NLS-1$
+        if (this.joinNode != null && !this.hash) {
+            result.append(" RAN AS SORT MERGE"); //$NON-NLS-1$
+        }
+        return result.toString();
+    }
+
+}
@@ -54,7 +54,8 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         MERGE,
         ENHANCED_SORT,
         NESTED_LOOP,
-        NESTED_TABLE
+        NESTED_TABLE,
+        HASH
     }
 
     private enum State { LOAD_LEFT, LOAD_RIGHT, EXECUTE }
@@ -74,6 +74,7 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 
     private boolean isDistinct = true;
     private int distinctIndex;
+    private boolean trackDistinct;
 
     private List<NullOrdering> nullOrdering;
 
@@ -122,6 +123,21 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 
     public void setDistinctIndex(int distinctIndex) {
         this.distinctIndex = distinctIndex;
+        this.trackDistinct = true;
+    }
+
+    /**
+     * @return true if all comparisons are ascending and {@link #isDistinct()} is not
+     * being tracked, so that non-null values may be compared directly
+     */
+    public boolean isSimpleAscending() {
+        if (trackDistinct) {
+            return false;
+        }
+        if (orderTypes == null) {
+            return ascendingOrder;
+        }
+        return !orderTypes.contains(Boolean.FALSE);
     }
 
     public void setNullOrdering(List<NullOrdering> nullOrdering) {
@@ -146,22 +162,7 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 
     public int compare(java.util.List<T> list1, java.util.List<T> list2) {
         if (!init) {
-            if (nullOrdering == null) {
-                nullOrdering = Collections.nCopies(sortParameters.length, null);
-            }
-            for (int i = 0; i < sortParameters.length; i++) {
-                if (nullOrdering.get(i) == null) {
-                    if (defaultNullOrder == NullOrder.FIRST) {
-                        nullOrdering.set(i, NullOrdering.FIRST);
-                    } else if (defaultNullOrder == NullOrder.LAST) {
-                        nullOrdering.set(i, NullOrdering.LAST);
-                    }
-                }
-            }
-            if (defaultNullOrder == NullOrder.HIGH) {
-                nullValue = 1;
-            }
-            init = true;
+            initialize();
         }
         int compare = 0;
         for (int k = 0; k < sortParameters.length; k++) {
@@ -212,6 +213,28 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
         return 0;
     }
 
+    /**
+     * Complete the lazy initialization prior to concurrent use.
+     */
+    void initialize() {
+        if (nullOrdering == null) {
+            nullOrdering = Collections.nCopies(sortParameters.length, null);
+        }
+        for (int i = 0; i < sortParameters.length; i++) {
+            if (nullOrdering.get(i) == null) {
+                if (defaultNullOrder == NullOrder.FIRST) {
+                    nullOrdering.set(i, NullOrdering.FIRST);
+                } else if (defaultNullOrder == NullOrder.LAST) {
+                    nullOrdering.set(i, NullOrdering.LAST);
+                }
+            }
+        }
+        if (defaultNullOrder == NullOrder.HIGH) {
+            nullValue = 1;
+        }
+        init = true;
+    }
+
     private NullOrdering getNullOrdering(int index) {
         return nullOrdering.get(index);
     }
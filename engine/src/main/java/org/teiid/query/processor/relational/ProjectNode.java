@@ -30,15 +30,20 @@ import java.util.Map;
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
+import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.util.CommandContext;
 
 
 public class ProjectNode extends SubqueryAwareRelationalNode {
@@ -52,6 +57,8 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private boolean needsProject = true;
     private List<Expression> expressions;
     private int[] projectionIndexes;
+    private boolean columnProjection;
+    private CompiledExpression[] compiledExpressions;
 
     // Saved state when blocked on evaluating a row - must be reset
     private TupleBatch currentBatch;
@@ -130,6 +137,25 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
                 projectionIndexes[i] = index;
             }
         }
+        columnProjection = true;
+        for (int index : projectionIndexes) {
+            if (index == -1) {
+                columnProjection = false;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void initialize(CommandContext context, BufferManager bufferManager,
+            ProcessorDataManager dataMgr) {
+        super.initialize(context, bufferManager, dataMgr);
+        this.compiledExpressions = new CompiledExpression[this.expressions.size()];
+        for (int i = 0; i < this.expressions.size(); i++) {
+            if (this.projectionIndexes[i] == -1) {
+                this.compiledExpressions[i] = getCompiledExpression(this.expressions.get(i), this.elementMap);
+            }
+        }
     }
 
     public TupleBatch nextBatchDirect()
@@ -152,6 +178,17 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
                 currentBatch = null;
                 return result;
             }
+
+            //project columnar input without evaluating row by row
+            if (columnProjection && currentBatch instanceof ColumnarTupleBatch && currentRow == currentBatch.getBeginRow() && !hasPendingRows()) {
+                ColumnarTupleBatch result = ((ColumnarTupleBatch)currentBatch).project(projectionIndexes);
+                currentRow += currentBatch.getRowCount();
+                if (currentBatch.getTerminationFlag()) {
+                    terminateBatches();
+                }
+                currentBatch = null;
+                return pullBatch(result);
+            }
         }
 
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
@@ -187,7 +224,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         if(index != -1) {
             tuple.add(values.get(index));
         } else {
-            tuple.add(getEvaluator(this.elementMap).evaluate(symbol, values));
+            tuple.add(evaluate(symbol, this.compiledExpressions[projectionIndex], this.elementMap, values));
         }
     }
 
@@ -209,6 +246,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         target.elementMap = elementMap;
         target.expressions = expressions;
         target.projectionIndexes = projectionIndexes;
+        target.columnProjection = columnProjection;
     }
 
     public PlanNode getDescriptionProperties() {
@@ -222,6 +260,11 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         return this.selectSymbols;
     }
 
+    @Override
+    protected boolean supportsColumnarBatches() {
+        return true;
+    }
+
     @Override
     public boolean hasBuffer() {
         return !needsProject && this.getChildren()[0].hasBuffer();
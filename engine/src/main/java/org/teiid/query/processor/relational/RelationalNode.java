@@ -29,6 +29,7 @@ import java.util.Map;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
@@ -67,6 +68,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         List batchRows;
         boolean lastBatch;
         boolean closed;
+        Class<?>[] columnarTypes;
 
         void reset() {
             this.beginBatch = 1;
@@ -120,6 +122,22 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         } else {
             this.getProcessingState().batchSize = bufferManager.getProcessorBatchSize();
         }
+
+        this.getProcessingState().columnarTypes = null;
+        if (supportsColumnarBatches() && getOutputElements() != null && context.getOptions().isColumnarBatches()) {
+            Class<?>[] types = TupleBuffer.getTypeClasses(getOutputElements());
+            if (ColumnarTupleBatch.hasPrimitiveColumns(types)) {
+                this.getProcessingState().columnarTypes = types;
+            }
+        }
+    }
+
+    /**
+     * Return true if this node should produce {@link ColumnarTupleBatch}es
+     * when they are enabled.
+     */
+    protected boolean supportsColumnarBatches() {
+        return false;
     }
 
     public CommandContext getContext() {
@@ -226,7 +244,11 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
     protected TupleBatch pullBatch() {
         TupleBatch batch = null;
         if(this.getProcessingState().batchRows != null) {
-            batch = new TupleBatch(this.getProcessingState().beginBatch, this.getProcessingState().batchRows);
+            if (this.getProcessingState().columnarTypes != null) {
+                batch = ColumnarTupleBatch.fromTuples(this.getProcessingState().beginBatch, this.getProcessingState().columnarTypes, this.getProcessingState().batchRows);
+            } else {
+                batch = new TupleBatch(this.getProcessingState().beginBatch, this.getProcessingState().batchRows);
+            }
             getProcessingState().beginBatch += this.getProcessingState().batchRows.size();
         } else {
             batch = new TupleBatch(this.getProcessingState().beginBatch, Collections.EMPTY_LIST);
@@ -242,6 +264,19 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         return batch;
     }
 
+    /**
+     * Return the given batch, which must contain all of the output rows produced since the
+     * last pull, with its row offset and termination set for this node.
+     */
+    protected TupleBatch pullBatch(ColumnarTupleBatch batch) {
+        assert this.getProcessingState().batchRows == null;
+        batch.setRowOffset(this.getProcessingState().beginBatch);
+        getProcessingState().beginBatch += batch.getRowCount();
+        batch.setTerminationFlag(this.getProcessingState().lastBatch);
+        this.getProcessingState().lastBatch = false;
+        return batch;
+    }
+
     public void open()
         throws TeiidComponentException, TeiidProcessingException {
 
@@ -89,6 +89,10 @@ public class RelationalPlan extends ProcessorPlan {
 
         node.initialize(context, bufferMgr, dataMgr);
 
+        if (node instanceof ExchangeNode) {
+            context = ((ExchangeNode)node).getChildContext();
+        }
+
         RelationalNode[] children = node.getChildren();
         int childCount = node.getChildCount();
         for(int i=0; i<childCount; i++) {
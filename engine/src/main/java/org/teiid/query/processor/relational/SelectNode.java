@@ -28,10 +28,12 @@ import java.util.Map;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.LanguageObject;
@@ -44,18 +46,22 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 
     private Criteria criteria;
     private Criteria preEvalCriteria;
+    private CompiledExpression compiledCriteria;
     private List<Expression> projectedExpressions;
     private boolean shouldEvaluate = false;
 
     // Derived element lookup map
     private Map<Expression, Integer> elementMap;
     private int[] projectionIndexes;
+    private boolean identityProjection;
 
     private boolean noRows;
 
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    private int[] selectedRows;
+    private int selectedCount;
 
     protected SelectNode() {
         super();
@@ -70,6 +76,8 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 
         currentBatch = null;
         currentRow = 1;
+        selectedRows = null;
+        selectedCount = 0;
         noRows = false;
         preEvalCriteria = null;
     }
@@ -94,7 +102,12 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         if(this.elementMap == null) {
             this.elementMap = createLookupMap(this.getChildren()[0].getElements());
             this.projectionIndexes = getProjectionIndexes(this.elementMap, projectedExpressions!=null?projectedExpressions:getElements());
+            this.identityProjection = this.projectionIndexes.length == this.getChildren()[0].getElements().size();
+            for (int i = 0; identityProjection && i < this.projectionIndexes.length; i++) {
+                identityProjection = this.projectionIndexes[i] == i;
+            }
         }
+        this.compiledCriteria = getCompiledExpression(criteria, elementMap);
     }
 
     /**
@@ -112,10 +125,14 @@ public class SelectNode extends SubqueryAwareRelationalNode {
             currentBatch = this.getChildren()[0].nextBatch();
         }
 
+        if (currentBatch instanceof ColumnarTupleBatch && !hasPendingRows()) {
+            return selectColumnar((ColumnarTupleBatch)currentBatch);
+        }
+
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
             List<?> tuple = currentBatch.getTuple(currentRow);
 
-            if(getEvaluator(this.elementMap).evaluate(this.preEvalCriteria!=null?preEvalCriteria:criteria, tuple)) {
+            if(evaluateCriteria(tuple)) {
                 addBatchRow(projectTuple(this.projectionIndexes, tuple));
             }
             currentRow++;
@@ -131,6 +148,41 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         return pullBatch();
     }
 
+    /**
+     * Evaluate the criteria against each row, but copy only the selected values
+     * by column to the output.
+     */
+    private TupleBatch selectColumnar(ColumnarTupleBatch batch) throws BlockedException, TeiidComponentException, TeiidProcessingException {
+        if (selectedRows == null) {
+            selectedRows = new int[batch.getRowCount()];
+            selectedCount = 0;
+        }
+        while (currentRow <= batch.getEndRow()) {
+            List<?> tuple = batch.getTuple(currentRow);
+            if(evaluateCriteria(tuple)) {
+                selectedRows[selectedCount++] = (int)(currentRow - batch.getBeginRow());
+            }
+            currentRow++;
+        }
+        ColumnarTupleBatch result = batch.select(selectedRows, selectedCount);
+        if (!identityProjection) {
+            result = result.project(projectionIndexes);
+        }
+        selectedRows = null;
+        if(batch.getTerminationFlag()) {
+            terminateBatches();
+        }
+        currentBatch = null;
+        return pullBatch(result);
+    }
+
+    private boolean evaluateCriteria(List<?> tuple) throws BlockedException, TeiidComponentException, TeiidProcessingException {
+        if (this.preEvalCriteria != null) {
+            return getEvaluator(this.elementMap).evaluate(preEvalCriteria, tuple);
+        }
+        return evaluate(criteria, compiledCriteria, this.elementMap, tuple);
+    }
+
     protected void getNodeString(StringBuffer str) {
         super.getNodeString(str);
         str.append(criteria);
@@ -147,6 +199,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         target.criteria = criteria;
         target.elementMap = elementMap;
         target.projectionIndexes = projectionIndexes;
+        target.identityProjection = identityProjection;
         target.projectedExpressions = projectedExpressions;
         target.shouldEvaluate = shouldEvaluate;
     }
@@ -162,6 +215,11 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         return Arrays.asList(this.criteria);
     }
 
+    @Override
+    protected boolean supportsColumnarBatches() {
+        return true;
+    }
+
     public void setShouldEvaluateExpressions(boolean shouldEvaluate) {
         this.shouldEvaluate = shouldEvaluate;
     }
@@ -28,7 +28,9 @@ import java.util.ListIterator;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -152,7 +154,12 @@ public class SortUtility {
 
     private static boolean STABLE_SORT = PropertiesUtils.getHierarchicalProperty("org.teiid.requireStableSort", false, Boolean.class); //$NON-NLS-1$
 
+    private static int PARALLELISM = PropertiesUtils.getHierarchicalProperty("org.teiid.sortParallelism", ForkJoinPool.getCommonPoolParallelism(), Integer.class); //$NON-NLS-1$
+    private static int PARALLEL_THRESHOLD = PropertiesUtils.getHierarchicalProperty("org.teiid.parallelSortThreshold", 1<<16, Integer.class); //$NON-NLS-1$
+
     private boolean stableSort = STABLE_SORT;
+    private int parallelism = PARALLELISM;
+    private int parallelThreshold = PARALLEL_THRESHOLD;
     private Future<Void> future;
 
     public SortUtility(TupleSource sourceID, List<OrderByItem> items, Mode mode, BufferManager bufferMgr,
@@ -449,6 +456,18 @@ public class SortUtility {
             ts.setReverse(!stableSort && workingBuffer.getRowCount() > this.batchSize);
             maxRows = Math.max(1, (totalReservedBuffers/schemaSize))*batchSize;
             boolean checkLimit = rowLimit > -1 && rowCount <= maxRows;
+            if (!checkLimit && this.parallelism > 1 && rowCount > maxRows && rowCount >= this.parallelThreshold) {
+                //hold additional runs in memory to sort them concurrently
+                int runSpace = Math.max(1, (totalReservedBuffers/schemaSize))*schemaSize;
+                int runs = (int)Math.min(this.parallelism, rowCount/maxRows + 1);
+                int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, (runs - 1) * (long)runSpace), BufferReserveMode.NO_WAIT);
+                totalReservedBuffers += additional;
+                runs = 1 + additional/runSpace;
+                if (runs > 1) {
+                    generateRuns(ts, maxRows, runs);
+                    done = true;
+                }
+            }
             if (mode == Mode.SORT) {
                 workingTuples = new AccessibleArrayList<>();
             } else {
@@ -510,6 +529,173 @@ public class SortUtility {
         this.phase = MERGE;
     }
 
+    /**
+     * Read runs of up to maxRows and sort them concurrently, at most runs at a time.
+     * The sublists are added in read order so that the result is the same as a serial sort.
+     */
+    private void generateRuns(TupleSource ts, int maxRows, int runs) throws TeiidComponentException, TeiidProcessingException {
+        this.comparator.initialize();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(runs);
+        boolean done = false;
+        while (!done) {
+            final List<List<?>> run = new ArrayList<List<?>>(maxRows);
+            while (run.size() < maxRows) {
+                List<?> tuple = ts.nextTuple();
+                if (tuple == null) {
+                    done = true;
+                    break;
+                }
+                run.add(tuple);
+            }
+            if (!run.isEmpty()) {
+                final TupleBuffer sublist = createTupleBuffer();
+                activeTupleBuffers.add(sublist);
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        writeRun(run, sublist);
+                        return null;
+                    }
+                });
+            }
+            if (tasks.size() == runs || (done && !tasks.isEmpty())) {
+                invokeAll(tasks);
+                tasks.clear();
+            }
+        }
+    }
+
+    private void writeRun(List<List<?>> run, TupleBuffer sublist) throws TeiidComponentException {
+        Collection<List<?>> tuples = run;
+        if (this.mode == Mode.SORT) {
+            Collections.sort(run, comparator);
+        } else {
+            tuples = new TreeSet<List<?>>(comparator);
+            tuples.addAll(run);
+        }
+        for (List<?> list : tuples) {
+            sublist.addTuple(list);
+        }
+        sublist.saveBatch();
+    }
+
+    /**
+     * A sort task that is run by either an engine worker or the sorting thread,
+     * whichever claims it first.
+     */
+    private static class SortTask implements Callable<Void> {
+        private final Callable<Void> task;
+        private final CommandContext context;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private boolean done;
+        private Throwable failure;
+
+        SortTask(Callable<Void> task, CommandContext context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        @Override
+        public Void call() {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            if (context != null) {
+                CommandContext.pushThreadLocalContext(context);
+            }
+            Throwable t = null;
+            try {
+                task.call();
+            } catch (Throwable e) {
+                t = e;
+            } finally {
+                if (context != null) {
+                    CommandContext.popThreadLocalContext();
+                }
+                synchronized (this) {
+                    this.failure = t;
+                    this.done = true;
+                    this.notifyAll();
+                }
+            }
+            return null;
+        }
+
+        synchronized Throwable await() throws InterruptedException {
+            while (!done) {
+                this.wait();
+            }
+            return failure;
+        }
+    }
+
+    /**
+     * Run the tasks using engine workers and the current thread.  Waits for all
+     * tasks to complete before throwing the first exception.
+     * <br>
+     * The tasks are submitted as request work, so they are subject to the engine thread limits.
+     * Any task that has not been started by a worker is run by the current thread rather than
+     * waiting for it.  Without a request the tasks are run serially.
+     * <br>
+     * The pooled tasks only use the buffer manager, so they run with a separate {@link CommandContext}
+     * that just shares the session of the current context for buffer accounting.
+     */
+    private static void invokeAll(List<Callable<Void>> tasks) throws TeiidComponentException, TeiidProcessingException {
+        CommandContext current = CommandContext.getThreadLocalContext();
+        CommandContext taskContext = null;
+        if (current != null) {
+            taskContext = new CommandContext();
+            taskContext.setSession(current.getSession());
+        }
+        List<SortTask> sortTasks = new ArrayList<SortTask>(tasks.size());
+        for (int i = 1; i < tasks.size(); i++) {
+            SortTask task = new SortTask(tasks.get(i), taskContext);
+            sortTasks.add(task);
+            if (current != null && current.getWorkItem() != null) {
+                current.submit(task);
+            }
+        }
+        Throwable failure = null;
+        try {
+            tasks.get(0).call();
+        } catch (Exception e) {
+            failure = e;
+        }
+        //run what the workers have not claimed
+        for (SortTask task : sortTasks) {
+            task.call();
+        }
+        for (SortTask task : sortTasks) {
+            try {
+                Throwable t = task.await();
+                if (failure == null) {
+                    failure = t;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof TeiidComponentException) {
+            throw (TeiidComponentException) failure;
+        }
+        if (failure instanceof TeiidProcessingException) {
+            throw (TeiidProcessingException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new TeiidRuntimeException(failure);
+    }
+
     public void setWorkingBuffer(TupleBuffer workingBuffer) {
         this.workingBuffer = workingBuffer;
     }
@@ -570,10 +756,6 @@ public class SortUtility {
 
         try {
             while(this.activeTupleBuffers.size() > 1) {
-                ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
-
-                TupleBuffer merged = createTupleBuffer();
-
                 desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
                 if (desiredSpace < reserved) {
                     bufferManager.releaseBuffers(reserved - (int)desiredSpace);
@@ -584,30 +766,27 @@ public class SortUtility {
                 if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
                     LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
                 }
-                // initialize the sublists with the min value
-                for(int i = 0; i<maxSortIndex; i++) {
-                     TupleBuffer activeID = activeTupleBuffers.get(i);
-                     SortedSublist sortedSublist = new SortedSublist();
-                    sortedSublist.its = activeID.createIndexedTupleSource();
-                    sortedSublist.its.setNoBlocking(true);
-                    sortedSublist.index = i;
-                    incrementWorkingTuple(sublists, sortedSublist);
-                }
-
-                boolean checkLimit = maxSortIndex == activeTupleBuffers.size() && rowLimit > -1;
-
-                // iteratively process the lowest tuple
-                while (sublists.size() > 0) {
-                    SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-                    merged.addTuple(sortedSublist.tuple);
-                    incrementWorkingTuple(sublists, sortedSublist);
 
-                    if (checkLimit && merged.getRowCount() == rowLimit) {
-                        //early exit for row limit
-                        break;
+                if (this.parallelism > 1 && activeTupleBuffers.size() >= 2 * maxSortIndex) {
+                    //an intermediate pass - merge several groups of sublists concurrently if there is space
+                    int groupSpace = maxSortIndex * schemaSize;
+                    int groups = Math.min(this.parallelism, activeTupleBuffers.size() / maxSortIndex);
+                    int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, (groups - 1) * (long)groupSpace), BufferReserveMode.NO_WAIT);
+                    groups = 1 + additional / groupSpace;
+                    try {
+                        if (groups > 1) {
+                            mergeGroups(maxSortIndex, groups);
+                            continue;
+                        }
+                    } finally {
+                        bufferManager.releaseBuffers(additional);
                     }
                 }
 
+                TupleBuffer merged = createTupleBuffer();
+                boolean checkLimit = maxSortIndex == activeTupleBuffers.size() && rowLimit > -1;
+                mergeSublists(activeTupleBuffers.subList(0, maxSortIndex), merged, checkLimit?rowLimit:-1);
+
                 // Remove merged sublists
                 for(int i=0; i<maxSortIndex; i++) {
                     TupleBuffer id = activeTupleBuffers.remove(0);
@@ -621,6 +800,70 @@ public class SortUtility {
         }
     }
 
+    /**
+     * Merge the leading groups of sublists concurrently.  The merged results are added in
+     * group order, which is the same order that the serial merge would produce.
+     */
+    private void mergeGroups(int maxSortIndex, int groups) throws TeiidComponentException, TeiidProcessingException {
+        this.comparator.initialize();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(groups);
+        List<TupleBuffer> results = new ArrayList<TupleBuffer>(groups);
+        boolean success = false;
+        try {
+            for (int i = 0; i < groups; i++) {
+                final List<TupleBuffer> toMerge = new ArrayList<TupleBuffer>(activeTupleBuffers.subList(i * maxSortIndex, (i + 1) * maxSortIndex));
+                final TupleBuffer merged = createTupleBuffer();
+                results.add(merged);
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        mergeSublists(toMerge, merged, -1);
+                        merged.saveBatch();
+                        return null;
+                    }
+                });
+            }
+            invokeAll(tasks);
+            success = true;
+        } finally {
+            if (!success) {
+                for (TupleBuffer tb : results) {
+                    tb.remove();
+                }
+            }
+        }
+        for (int i = 0; i < groups * maxSortIndex; i++) {
+            TupleBuffer id = activeTupleBuffers.remove(0);
+            id.remove();
+        }
+        this.activeTupleBuffers.addAll(results);
+    }
+
+    private void mergeSublists(List<TupleBuffer> toMerge, TupleBuffer merged, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+        ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(toMerge.size());
+        // initialize the sublists with the min value
+        for(int i = 0; i<toMerge.size(); i++) {
+            TupleBuffer activeID = toMerge.get(i);
+            SortedSublist sortedSublist = new SortedSublist();
+            sortedSublist.its = activeID.createIndexedTupleSource();
+            sortedSublist.its.setNoBlocking(true);
+            sortedSublist.index = i;
+            incrementWorkingTuple(sublists, sortedSublist);
+        }
+
+        // iteratively process the lowest tuple
+        while (sublists.size() > 0) {
+            SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
+            merged.addTuple(sortedSublist.tuple);
+            incrementWorkingTuple(sublists, sortedSublist);
+
+            if (rowLimit > -1 && merged.getRowCount() == rowLimit) {
+                //early exit for row limit
+                break;
+            }
+        }
+    }
+
     private void incrementWorkingTuple(ArrayList<SortedSublist> subLists, SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
         while (true) {
             sortedSublist.tuple = null;
@@ -675,6 +918,11 @@ public class SortUtility {
         this.batchSize = batchSize;
     }
 
+    void setParallelism(int parallelism, int parallelThreshold) {
+        this.parallelism = parallelism;
+        this.parallelThreshold = parallelThreshold;
+    }
+
     public boolean isDoneReading() {
         return doneReading;
     }
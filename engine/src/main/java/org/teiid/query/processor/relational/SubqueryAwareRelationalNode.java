@@ -22,13 +22,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.query.eval.CompiledExpression;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.eval.ExpressionCompiler;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.SubqueryContainer;
 import org.teiid.query.sql.lang.TableFunctionReference;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -37,7 +41,13 @@ import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 
 public abstract class SubqueryAwareRelationalNode extends RelationalNode {
 
+    private static final CompiledExpression NOT_COMPILABLE = (tuple, context) -> {
+        throw new AssertionError();
+    };
+
     private SubqueryAwareEvaluator evaluator;
+    //shared by all clones of the plan
+    private Map<Expression, CompiledExpression> compiledExpressions = new ConcurrentHashMap<Expression, CompiledExpression>();
 
     protected SubqueryAwareRelationalNode() {
         super();
@@ -56,6 +66,67 @@ public abstract class SubqueryAwareRelationalNode extends RelationalNode {
         return this.evaluator;
     }
 
+    /**
+     * Get the compiled form of the expression or criteria against the given element map,
+     * which must be the same for every call on this node.
+     * @return the compiled expression or null if the {@link Evaluator} should be used
+     */
+    protected CompiledExpression getCompiledExpression(Expression expr, Map<? extends Expression, Integer> elementMap) {
+        if (expr == null || !getContext().getOptions().isCompiledExpressions()) {
+            return null;
+        }
+        CompiledExpression result = compiledExpressions.get(expr);
+        if (result == null) {
+            ExpressionCompiler compiler = new ExpressionCompiler(elementMap);
+            if (expr instanceof Criteria) {
+                result = compiler.compileCriteria((Criteria)expr);
+            } else {
+                result = compiler.compile(expr);
+            }
+            if (result == null) {
+                result = NOT_COMPILABLE;
+            }
+            compiledExpressions.put(expr, result);
+        }
+        if (result == NOT_COMPILABLE) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluate the criteria using the compiled form if possible.
+     */
+    protected boolean evaluate(Criteria criteria, CompiledExpression compiled, Map elementMap, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+        if (compiled != null) {
+            try {
+                return Boolean.TRUE.equals(compiled.evaluate(tuple, getContext()));
+            } catch (ExpressionEvaluationException e) {
+                //use the evaluator to report the error
+            }
+        }
+        return getEvaluator(elementMap).evaluate(criteria, tuple);
+    }
+
+    /**
+     * Evaluate the expression using the compiled form if possible.
+     */
+    protected Object evaluate(Expression expr, CompiledExpression compiled, Map elementMap, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+        if (compiled != null) {
+            try {
+                return compiled.evaluate(tuple, getContext());
+            } catch (ExpressionEvaluationException e) {
+                //use the evaluator to report the error
+            }
+        }
+        return getEvaluator(elementMap).evaluate(expr, tuple);
+    }
+
+    protected void copyTo(SubqueryAwareRelationalNode target) {
+        super.copyTo(target);
+        target.compiledExpressions = this.compiledExpressions;
+    }
+
     @Override
     public void reset() {
         super.reset();
@@ -549,6 +549,12 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
         Integer frameStartOffset = info.getWindowStartOffset();
         Integer frameEndOffset = info.getWindowEndOffset();
 
+        //an unbounded start never removes rows, so min/max would hold every candidate of the partition
+        if (info.windowFrame.getMode() == FrameMode.ROWS && frameStartOffset != null && frameEndOffset != null && enableRemoval(aggs)) {
+            processSlidingFrames(specIndex, info, specificationTs, partitionIndexes, sorted, aggs, frameStartOffset, frameEndOffset);
+            return;
+        }
+
         int groupId = 0;
         List<?> lastRow = null;
         Long startPartition = null;
@@ -584,28 +590,7 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 
             if (startPartition == null) {
                 startPartition = currentIndex;
-                //binary search for the end
-                if (!info.groupIndexes.isEmpty()) {
-                    long l = startPartition;
-                    long r = sorted.getRowCount() + 1;
-                    while (l < r) {
-                        long m = (l + r)/2;
-                        if (m == startPartition) {
-                            l = m + 1;
-                            break;
-                        }
-                        List<?> possibleEnd = sorted.getBatch(m).getTuple(m);
-                        if (GroupingNode.sameGroup(partitionIndexes, tuple, possibleEnd) == -1) {
-                            l = m + 1;
-                        } else {
-                            r = m;
-                        }
-                    }
-                    endPartition = l - 1;
-                } else {
-                    //single partition
-                    endPartition = sorted.getRowCount();
-                }
+                endPartition = getPartitionEnd(info, partitionIndexes, sorted, tuple, startPartition);
             }
 
             //determine the indexes of the frame bounds
@@ -652,6 +637,120 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
         }
     }
 
+    /**
+     * Process a bounded rows frame by adding the rows that enter and removing
+     * the rows that leave the frame as it slides forward, rather than recomputing
+     * the aggregates over each frame.  The sorted rows are read sequentially.
+     */
+    private void processSlidingFrames(int specIndex, WindowSpecificationInfo info,
+            IndexedTupleSource specificationTs, int[] partitionIndexes,
+            TupleBuffer sorted, List<AggregateFunction> aggs, int frameStartOffset,
+            int frameEndOffset) throws TeiidComponentException, TeiidProcessingException {
+        IndexedTupleSource addTs = sorted.createIndexedTupleSource();
+        IndexedTupleSource removeTs = sorted.createIndexedTupleSource();
+        try {
+            int groupId = 0;
+            long startPartition = 0;
+            long endPartition = -1;
+            //the last rows added to and removed from the aggregates
+            long added = 0;
+            long removed = 0;
+
+            while (specificationTs.hasNext()) {
+                long currentIndex = specificationTs.getCurrentIndex();
+                List<?> tuple = specificationTs.nextTuple();
+
+                if (currentIndex > endPartition) {
+                    startPartition = currentIndex;
+                    endPartition = getPartitionEnd(info, partitionIndexes, sorted, tuple, startPartition);
+                    for (AggregateFunction function : aggs) {
+                        function.reset();
+                    }
+                    added = startPartition - 1;
+                    removed = startPartition - 1;
+                }
+
+                List<Object> partitionTuple = Arrays.asList(tuple.get(tuple.size() - 1), groupId);
+                partitionMapping[specIndex].insert(partitionTuple, InsertMode.NEW, -1);
+
+                long start = Math.max(currentIndex + frameStartOffset, startPartition);
+                long end = Math.min(currentIndex + frameEndOffset, endPartition);
+
+                long removeThrough = Math.min(start - 1, added);
+                if (removed < removeThrough) {
+                    removeTs.setPosition(removed + 1);
+                    while (removed < removeThrough) {
+                        List<?> frameTuple = removeTs.nextTuple();
+                        removed++;
+                        for (AggregateFunction function : aggs) {
+                            function.removeInput(frameTuple, getContext());
+                        }
+                    }
+                }
+                if (added < start - 1) {
+                    //the frame is past all of the added rows
+                    added = start - 1;
+                    removed = added;
+                }
+                if (added < end) {
+                    addTs.setPosition(added + 1);
+                    while (added < end) {
+                        List<?> frameTuple = addTs.nextTuple();
+                        added++;
+                        for (AggregateFunction function : aggs) {
+                            function.addInput(frameTuple, getContext());
+                        }
+                    }
+                }
+
+                saveValues(specIndex, aggs, groupId++, true);
+            }
+        } finally {
+            addTs.closeSource();
+            removeTs.closeSource();
+        }
+    }
+
+    private boolean enableRemoval(List<AggregateFunction> aggs) {
+        for (AggregateFunction function : aggs) {
+            if (!function.supportsRemoval()) {
+                return false;
+            }
+        }
+        for (AggregateFunction function : aggs) {
+            function.enableRemoval();
+        }
+        return true;
+    }
+
+    /**
+     * Binary search for the end of the partition starting at the given row
+     */
+    private long getPartitionEnd(WindowSpecificationInfo info,
+            int[] partitionIndexes, TupleBuffer sorted, List<?> tuple,
+            long startPartition) throws TeiidComponentException {
+        if (info.groupIndexes.isEmpty()) {
+            //single partition
+            return sorted.getRowCount();
+        }
+        long l = startPartition;
+        long r = sorted.getRowCount() + 1;
+        while (l < r) {
+            long m = (l + r)/2;
+            if (m == startPartition) {
+                l = m + 1;
+                break;
+            }
+            List<?> possibleEnd = sorted.getBatch(m).getTuple(m);
+            if (GroupingNode.sameGroup(partitionIndexes, tuple, possibleEnd) == -1) {
+                l = m + 1;
+            } else {
+                r = m;
+            }
+        }
+        return l - 1;
+    }
+
     private void saveValues(int specIndex,
             List<AggregateFunction> aggs, Object id,
             boolean samePartition) throws FunctionExecutionException,
@@ -18,21 +18,35 @@
 
 package org.teiid.query.tempdata;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.lang.ref.WeakReference;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.teiid.adminapi.impl.VDBMetaData;
@@ -44,6 +58,7 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.FileUtils;
 import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.dqp.message.RequestID;
 import org.teiid.language.SQLConstants;
@@ -82,6 +97,8 @@ import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<String> {
 
     private static final String TEIID_FBI = "teiid:fbi"; //$NON-NLS-1$
+    private static final int CHECKPOINT_VERSION = 2;
+    private static final String CHECKPOINT_SUFFIX = ".mat"; //$NON-NLS-1$
 
     public enum MatState {
         NEEDS_LOADING,
@@ -97,6 +114,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
         private long ttl = -1;
         private boolean valid;
         private boolean asynch; //sub state of loading
+        private boolean restoreAttempted;
         private Map<RequestID, WeakReference<RequestWorkItem>> waiters = new HashMap<RequestID, WeakReference<RequestWorkItem>>(2);
 
         protected MatTableInfo() {}
@@ -207,6 +225,8 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
     private QueryMetadataInterface metadata;
     private volatile Serializable localAddress;
     private VDBMetaData vdbMetaData;
+    private File checkpointDirectory;
+    private Set<String> checkpointed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     public GlobalTableStoreImpl(BufferManager bufferManager, VDBMetaData vdbMetaData, QueryMetadataInterface metadata) {
         this.bufferManager = bufferManager;
@@ -236,6 +256,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
     @Override
     public boolean needsLoading(String matTableName, Serializable loadingAddress, boolean firstPass, boolean refresh, boolean invalidate) {
         MatTableInfo info = getMatTableInfo(matTableName);
+        if (firstPass && checkpointDirectory != null && restoreCheckpoint(matTableName, info)) {
+            return false;
+        }
         return info.shouldLoad(loadingAddress, firstPass, refresh, invalidate);
     }
 
@@ -425,6 +448,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
     public void loaded(String matTableName, TempTable table) {
         swapTempTable(matTableName, table);
         this.getMatTableInfo(matTableName).setState(MatState.LOADED, true);
+        if (checkpointDirectory != null) {
+            checkpoint(matTableName);
+        }
     }
 
     private void swapTempTable(String tempTableName, TempTable tempTable) {
@@ -446,6 +472,10 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
                 if (clone) {
                     swapTempTable(matTableName, tempTable);
                 }
+                if (checkpointed.remove(matTableName)) {
+                    //row level updates are not checkpointed, so the next restore would be stale
+                    getCheckpointFile(matTableName).delete();
+                }
                 return result;
             }
         }
@@ -514,6 +544,172 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
         return pkColumns;
     }
 
+    //begin checkpoint methods
+
+    /**
+     * Set the directory used to checkpoint loaded tables so that they may be restored
+     * after a restart rather than reloaded from the sources.
+     * <br>
+     * Checkpoints are kept in a sub-directory for the vdb name and version.  A checkpoint
+     * is only restored for the first load check of a table, and only if the column
+     * types still match and the ttl has not expired.
+     */
+    public void setCheckpointDirectory(File checkpointDirectory) {
+        if (checkpointDirectory != null && vdbMetaData != null) {
+            checkpointDirectory = getCheckpointDirectory(checkpointDirectory, vdbMetaData);
+        }
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    private static File getCheckpointDirectory(File checkpointDirectory, VDBMetaData vdb) {
+        return new File(checkpointDirectory, encode(vdb.getFullName()));
+    }
+
+    /**
+     * Remove the checkpoints of the vdb, which should be called when the vdb is undeployed
+     * @param checkpointDirectory the directory passed to {@link #setCheckpointDirectory(File)}
+     */
+    public static void removeCheckpoints(File checkpointDirectory, VDBMetaData vdb) {
+        if (checkpointDirectory == null) {
+            return;
+        }
+        File dir = getCheckpointDirectory(checkpointDirectory, vdb);
+        if (dir.exists()) {
+            FileUtils.removeDirectoryAndChildren(dir);
+        }
+    }
+
+    public File getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    private static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8"); //$NON-NLS-1$
+        } catch (UnsupportedEncodingException e) {
+            throw new TeiidRuntimeException(e);
+        }
+    }
+
+    File getCheckpointFile(String matTableName) {
+        return new File(checkpointDirectory, encode(matTableName) + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Get the signature of the columns and a hash of the view definition, so that
+     * a checkpoint is not restored after the view has been redefined
+     */
+    private String getCheckpointSignature(String matTableName, TempMetadataID id) throws TeiidComponentException, TeiidProcessingException {
+        StringBuilder sb = new StringBuilder();
+        for (TempMetadataID element : id.getElements()) {
+            sb.append(element.getName()).append(' ').append(DataTypeManager.getDataTypeName(element.getType())).append(',');
+        }
+        Object viewId = this.metadata.getGroupID(getViewName(matTableName));
+        if (this.metadata.isVirtualGroup(viewId)) {
+            QueryNode qnode = this.metadata.getVirtualPlan(viewId);
+            if (qnode != null && qnode.getQuery() != null) {
+                sb.append(hash(qnode.getQuery()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String hash(String value) {
+        MessageDigest digest = null;
+        try {
+            digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            throw new TeiidRuntimeException(e);
+        }
+        byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private void checkpoint(String matTableName) {
+        TempMetadataID id = getGlobalTempTableMetadataId(matTableName);
+        MatTableInfo info = getMatTableInfo(matTableName);
+        if (id == null || !info.isValid()) {
+            return;
+        }
+        File file = getCheckpointFile(matTableName);
+        File temp = new File(checkpointDirectory, file.getName() + ".tmp"); //$NON-NLS-1$
+        try {
+            checkpointDirectory.mkdirs();
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                oos.writeInt(CHECKPOINT_VERSION);
+                oos.writeObject(getCheckpointSignature(matTableName, id));
+                oos.writeLong(info.getTtl());
+                oos.writeLong(info.getUpdateTime());
+                synchronized (id) {
+                    sendTable(matTableName, oos, false);
+                }
+            } finally {
+                oos.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointed.add(matTableName);
+            LogManager.logDetail(LogConstants.CTX_MATVIEWS, "checkpointed", matTableName, "to", file); //$NON-NLS-1$ //$NON-NLS-2$
+        } catch (Exception e) {
+            temp.delete();
+            LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31306, matTableName));
+        }
+    }
+
+    /**
+     * Attempt to restore the table from its checkpoint
+     * @return true if the table was restored and is up to date
+     */
+    private boolean restoreCheckpoint(String matTableName, MatTableInfo info) {
+        synchronized (info) {
+            if (info.restoreAttempted || info.state != MatState.NEEDS_LOADING) {
+                return false;
+            }
+            info.restoreAttempted = true;
+            File file = getCheckpointFile(matTableName);
+            if (!file.exists()) {
+                return false;
+            }
+            try {
+                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if (ois.readInt() != CHECKPOINT_VERSION) {
+                        throw new IOException("Unknown checkpoint version"); //$NON-NLS-1$
+                    }
+                    String signature = (String)ois.readObject();
+                    GroupSymbol group = getMatTableGroup(matTableName);
+                    if (!signature.equals(getCheckpointSignature(matTableName, (TempMetadataID)group.getMetadataID()))) {
+                        throw new IOException("Checkpoint columns or definition do not match"); //$NON-NLS-1$
+                    }
+                    long ttl = ois.readLong();
+                    long updateTime = ois.readLong();
+                    if (ttl >= 0 && System.currentTimeMillis() - updateTime - ttl > 0) {
+                        LogManager.logDetail(LogConstants.CTX_MATVIEWS, "checkpoint for", matTableName, "has expired"); //$NON-NLS-1$ //$NON-NLS-2$
+                        file.delete();
+                        return false;
+                    }
+                    loadTable(matTableName, ois);
+                } finally {
+                    ois.close();
+                }
+            } catch (Exception e) {
+                LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31307, matTableName, file));
+                file.delete();
+                return false;
+            }
+            if (info.state != MatState.LOADED) {
+                info.setState(MatState.LOADED, true);
+            }
+            checkpointed.add(matTableName);
+            LogManager.logDetail(LogConstants.CTX_MATVIEWS, "restored", matTableName, "from", file); //$NON-NLS-1$ //$NON-NLS-2$
+            return info.isUpToDate();
+        }
+    }
+
     //begin replication methods
 
     @Override
@@ -614,6 +810,20 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
         long updateTime = ois.readLong();
         Serializable loadingAddress = (Serializable) ois.readObject();
         MatState state = (MatState)ois.readObject();
+        GroupSymbol group = getMatTableGroup(stateId);
+        TempTable tempTable = this.createMatTable(stateId, group);
+        tempTable.readFrom(ois);
+        MatTableInfo info = this.getMatTableInfo(stateId);
+        synchronized (info) {
+            swapTempTable(stateId, tempTable);
+            info.setState(state, true);
+            info.updateTime = updateTime;
+            info.loadingAddress = loadingAddress;
+        }
+    }
+
+    private GroupSymbol getMatTableGroup(String stateId)
+            throws TeiidComponentException, TeiidProcessingException {
         GroupSymbol group = new GroupSymbol(stateId);
         if (stateId.startsWith(RelationalPlanner.MAT_PREFIX)) {
             String viewName = stateId.substring(RelationalPlanner.MAT_PREFIX.length());
@@ -629,15 +839,19 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
             viewName = viewName.substring(0, index);
             group.setMetadataID(getCodeTableMetadataId(viewName, returnElementName, keyElementName, stateId));
         }
-        TempTable tempTable = this.createMatTable(stateId, group);
-        tempTable.readFrom(ois);
-        MatTableInfo info = this.getMatTableInfo(stateId);
-        synchronized (info) {
-            swapTempTable(stateId, tempTable);
-            info.setState(state, true);
-            info.updateTime = updateTime;
-            info.loadingAddress = loadingAddress;
+        return group;
+    }
+
+    /**
+     * @return the name of the view or table backing the mat or code table
+     */
+    private static String getViewName(String stateId) {
+        if (stateId.startsWith(RelationalPlanner.MAT_PREFIX)) {
+            return stateId.substring(RelationalPlanner.MAT_PREFIX.length());
         }
+        String viewName = stateId.substring(TempTableDataManager.CODE_PREFIX.length());
+        viewName = viewName.substring(0, viewName.lastIndexOf('.'));
+        return viewName.substring(0, viewName.lastIndexOf('.'));
     }
 
     @Override
@@ -78,6 +78,7 @@ import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.net.ServerConnection;
 import org.teiid.query.QueryPlugin;
+import org.teiid.query.metadata.ObservedCardinalities;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
@@ -181,12 +182,11 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
         private Executor executor = ExecutorUtils.getDirectExecutor();
         Map<Object, List<ReusableExecution<?>>> reusableExecutions;
         Set<CommandListener> commandListeners = null;
-        private LRUCache<String, DecimalFormat> decimalFormatCache;
-        private LRUCache<String, SimpleDateFormat> dateFormatCache;
-        private LRUCache<Entry<String,Integer>, Pattern> patternCache;
         private AtomicLong reuseCount = null;
 
         private List<Exception> warnings = null;
+        private long warningCount;
+        private ObservedCardinalities observedCardinalities;
 
         private Options options = null;
         private List<ElementSymbol> returnAutoGeneratedKeys;
@@ -230,6 +230,10 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 
     private Collection<TempMetadataID> accessed;
 
+    private LRUCache<String, DecimalFormat> decimalFormatCache;
+    private LRUCache<String, SimpleDateFormat> dateFormatCache;
+    private LRUCache<Entry<String,Integer>, Pattern> patternCache;
+
     /**
      * Construct a new context.
      */
@@ -321,6 +325,30 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
             clone.parentCancelled = this.cancelled;
         }
         clone.currentTimestamp = this.currentTimestamp;
+        clone.decimalFormatCache = this.decimalFormatCache;
+        clone.dateFormatCache = this.dateFormatCache;
+        clone.patternCache = this.patternCache;
+        return clone;
+    }
+
+    /**
+     * Create a clone for processing on another thread concurrently with this context.
+     * <br>
+     * The determinism level, accessed data objects and format caches are not shared,
+     * and there is no {@link TupleSourceCache}, since none of those are safe for concurrent use.
+     * The caller is responsible for merging the determinism level and data objects back
+     * into this context on its own thread.
+     */
+    public CommandContext cloneForConcurrentUse() {
+        CommandContext clone = clone();
+        clone.resetDeterminismLevel(true);
+        if (this.dataObjects != null) {
+            clone.dataObjects = new HashSet<Object>();
+        }
+        clone.tupleSourceCache = null;
+        clone.decimalFormatCache = null;
+        clone.dateFormatCache = null;
+        clone.patternCache = null;
         return clone;
     }
 
@@ -850,17 +878,17 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     public static DecimalFormat getDecimalFormat(CommandContext context, String format) {
         DecimalFormat result = null;
         if (context != null) {
-            if (context.globalState.decimalFormatCache == null) {
-                context.globalState.decimalFormatCache = new LRUCache<String, DecimalFormat>(32);
+            if (context.decimalFormatCache == null) {
+                context.decimalFormatCache = new LRUCache<String, DecimalFormat>(32);
             } else {
-                result = context.globalState.decimalFormatCache.get(format);
+                result = context.decimalFormatCache.get(format);
             }
         }
         if (result == null) {
             result = new DecimalFormat(format); //TODO: could be locale sensitive
             result.setParseBigDecimal(true);
             if (context != null) {
-                context.globalState.decimalFormatCache.put(format, result);
+                context.decimalFormatCache.put(format, result);
             }
         }
         return result;
@@ -869,16 +897,16 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     public static SimpleDateFormat getDateFormat(CommandContext context, String format) {
         SimpleDateFormat result = null;
         if (context != null) {
-            if (context.globalState.dateFormatCache == null) {
-                context.globalState.dateFormatCache = new LRUCache<String, SimpleDateFormat>(32);
+            if (context.dateFormatCache == null) {
+                context.dateFormatCache = new LRUCache<String, SimpleDateFormat>(32);
             } else {
-                result = context.globalState.dateFormatCache.get(format);
+                result = context.dateFormatCache.get(format);
             }
         }
         if (result == null) {
             result = new SimpleDateFormat(format); //TODO: could be locale sensitive
             if (context != null) {
-                context.globalState.dateFormatCache.put(format, result);
+                context.dateFormatCache.put(format, result);
             }
         }
         return result;
@@ -896,16 +924,16 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     public static Pattern getPattern(CommandContext context, String regex, int flags) {
         Pattern result = null;
         if (context != null) {
-            if (context.globalState.patternCache == null) {
-                context.globalState.patternCache = new LRUCache<Entry<String,Integer>,Pattern>(32);
+            if (context.patternCache == null) {
+                context.patternCache = new LRUCache<Entry<String,Integer>,Pattern>(32);
             } else {
-                result = context.globalState.patternCache.get(new SimpleEntry(result, flags));
+                result = context.patternCache.get(new SimpleEntry(result, flags));
             }
         }
         if (result == null) {
             result = Pattern.compile(regex, flags);
             if (context != null) {
-                context.globalState.patternCache.put(new SimpleEntry(result, flags), result);
+                context.patternCache.put(new SimpleEntry(result, flags), result);
             }
         }
         return result;
@@ -959,6 +987,39 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
         }
     }
 
+    /**
+     * @return the number of warnings added over the lifetime of the plan, including those already cleared
+     */
+    public long getWarningCount() {
+        synchronized (this.globalState) {
+            return globalState.warningCount;
+        }
+    }
+
+    /**
+     * Get the store of observed table cardinalities.  The store is shared by the vdb,
+     * or scoped to this plan if there is no vdb.
+     */
+    public ObservedCardinalities getObservedCardinalities() {
+        VDBMetaData vdb = getVdb();
+        if (vdb == null) {
+            synchronized (this.globalState) {
+                if (globalState.observedCardinalities == null) {
+                    globalState.observedCardinalities = new ObservedCardinalities();
+                }
+                return globalState.observedCardinalities;
+            }
+        }
+        synchronized (vdb) {
+            ObservedCardinalities result = vdb.getAttachment(ObservedCardinalities.class);
+            if (result == null) {
+                result = new ObservedCardinalities();
+                vdb.addAttachment(ObservedCardinalities.class, result);
+            }
+            return result;
+        }
+    }
+
     public void addWarning(Exception warning) {
         if (warning == null) {
             return;
@@ -968,6 +1029,7 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
                 globalState.warnings = new ArrayList<Exception>(1);
             }
             globalState.warnings.add(warning);
+            globalState.warningCount++;
             if (globalState.warnings.size() > MAX_WARNINGS) {
                 globalState.warnings.remove(0);
             }
@@ -1059,17 +1121,21 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     }
 
     public TupleSource getCodeLookup(String matTableName, Object keyValue) {
-        if (this.globalState.lookups != null) {
-            return this.globalState.lookups.remove(new LookupKey(matTableName, keyValue));
+        synchronized (this.globalState) {
+            if (this.globalState.lookups != null) {
+                return this.globalState.lookups.remove(new LookupKey(matTableName, keyValue));
+            }
+            return null;
         }
-        return null;
     }
 
     public void putCodeLookup(String matTableName, Object keyValue, TupleSource ts) {
-        if (this.globalState.lookups == null) {
-            this.globalState.lookups = new TreeMap<LookupKey, TupleSource>();
+        synchronized (this.globalState) {
+            if (this.globalState.lookups == null) {
+                this.globalState.lookups = new TreeMap<LookupKey, TupleSource>();
+            }
+            this.globalState.lookups.put(new LookupKey(matTableName, keyValue), ts);
         }
-        this.globalState.lookups.put(new LookupKey(matTableName, keyValue), ts);
     }
 
 
@@ -1173,17 +1239,21 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     }
 
     public Boolean isAccessible(AbstractMetadataRecord record) {
-        if (this.globalState.accessible == null) {
-            return null;
+        synchronized (this.globalState) {
+            if (this.globalState.accessible == null) {
+                return null;
+            }
+            return this.globalState.accessible.get(record);
         }
-        return this.globalState.accessible.get(record);
     }
 
     public void setAccessible(AbstractMetadataRecord record, Boolean result) {
-        if (this.globalState.accessible == null) {
-            this.globalState.accessible = new LRUCache<>(1000);
+        synchronized (this.globalState) {
+            if (this.globalState.accessible == null) {
+                this.globalState.accessible = new LRUCache<>(1000);
+            }
+            this.globalState.accessible.put(record, result);
         }
-        this.globalState.accessible.put(record, result);
     }
 
     public Throwable getBatchUpdateException() {
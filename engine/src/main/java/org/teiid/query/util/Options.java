@@ -39,6 +39,13 @@ public class Options {
     public static final String MAX_SESSION_BUFFER_SIZE_ESTIMATE = "org.teiid.maxSessionBufferSizeEstimate"; //$NON-NLS-1$
     public static final String TRACING_WITH_ACTIVE_SPAN_ONLY = "org.teiid.tracingWithActiveSpanOnly"; //$NON-NLS-1$
     public static final String ENFORCE_SINGLE_MAX_BUFFER_SIZE_ESTIMATE = "org.teiid.enforceSingleMaxBufferSizeEstimate"; //$NON-NLS-1$
+    public static final String COLUMNAR_BATCHES = "org.teiid.columnarBatches"; //$NON-NLS-1$
+    public static final String COMPILED_EXPRESSIONS = "org.teiid.compiledExpressions"; //$NON-NLS-1$
+    public static final String HASH_JOINS = "org.teiid.hashJoins"; //$NON-NLS-1$
+    public static final String HASH_AGGREGATION = "org.teiid.hashAggregation"; //$NON-NLS-1$
+    public static final String EXCHANGE = "org.teiid.exchange"; //$NON-NLS-1$
+    public static final String DEPENDENT_JOIN_BLOOM_FILTER = "org.teiid.dependentJoinBloomFilter"; //$NON-NLS-1$
+    public static final String CARDINALITY_FEEDBACK = "org.teiid.cardinalityFeedback"; //$NON-NLS-1$
 
     private Properties properties;
     private boolean subqueryUnnestDefault = false;
@@ -54,6 +61,13 @@ public class Options {
     private boolean tracingWithActiveSpanOnly = true;
     private boolean enforceSingleMaxBufferSizeEstimate = false;
     private boolean relativeXPath = true;
+    private boolean columnarBatches = false;
+    private boolean compiledExpressions = false;
+    private boolean hashJoins = false;
+    private boolean hashAggregation = false;
+    private boolean exchange = false;
+    private boolean dependentJoinBloomFilter = false;
+    private boolean cardinalityFeedback = false;
 
     public Properties getProperties() {
         return properties;
@@ -238,4 +252,95 @@ public class Options {
         return this;
     }
 
+    public boolean isColumnarBatches() {
+        return columnarBatches;
+    }
+
+    public void setColumnarBatches(boolean columnarBatches) {
+        this.columnarBatches = columnarBatches;
+    }
+
+    public Options columnarBatches(boolean b) {
+        this.columnarBatches = b;
+        return this;
+    }
+
+    public boolean isCompiledExpressions() {
+        return compiledExpressions;
+    }
+
+    public void setCompiledExpressions(boolean compiledExpressions) {
+        this.compiledExpressions = compiledExpressions;
+    }
+
+    public Options compiledExpressions(boolean b) {
+        this.compiledExpressions = b;
+        return this;
+    }
+
+    public boolean isHashJoins() {
+        return hashJoins;
+    }
+
+    public void setHashJoins(boolean hashJoins) {
+        this.hashJoins = hashJoins;
+    }
+
+    public Options hashJoins(boolean b) {
+        this.hashJoins = b;
+        return this;
+    }
+
+    public boolean isHashAggregation() {
+        return hashAggregation;
+    }
+
+    public void setHashAggregation(boolean hashAggregation) {
+        this.hashAggregation = hashAggregation;
+    }
+
+    public Options hashAggregation(boolean b) {
+        this.hashAggregation = b;
+        return this;
+    }
+
+    public boolean isExchange() {
+        return exchange;
+    }
+
+    public void setExchange(boolean exchange) {
+        this.exchange = exchange;
+    }
+
+    public Options exchange(boolean b) {
+        this.exchange = b;
+        return this;
+    }
+
+    public boolean isDependentJoinBloomFilter() {
+        return dependentJoinBloomFilter;
+    }
+
+    public void setDependentJoinBloomFilter(boolean dependentJoinBloomFilter) {
+        this.dependentJoinBloomFilter = dependentJoinBloomFilter;
+    }
+
+    public Options dependentJoinBloomFilter(boolean b) {
+        this.dependentJoinBloomFilter = b;
+        return this;
+    }
+
+    public boolean isCardinalityFeedback() {
+        return cardinalityFeedback;
+    }
+
+    public void setCardinalityFeedback(boolean cardinalityFeedback) {
+        this.cardinalityFeedback = cardinalityFeedback;
+    }
+
+    public Options cardinalityFeedback(boolean b) {
+        this.cardinalityFeedback = b;
+        return this;
+    }
+
 }
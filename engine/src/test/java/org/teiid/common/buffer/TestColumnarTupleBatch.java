@@ -0,0 +1,106 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnarTupleBatch.IntColumn;
+import org.teiid.common.buffer.ColumnarTupleBatch.ObjectColumn;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.HardcodedDataManager;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
+
+@SuppressWarnings("nls")
+public class TestColumnarTupleBatch {
+
+    private static final Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.DOUBLE};
+
+    private ColumnarTupleBatch exampleBatch() {
+        ColumnarTupleBatch.Builder builder = new ColumnarTupleBatch.Builder(TYPES, 1);
+        builder.append(Arrays.asList(1, "a", 1.5));
+        builder.append(Arrays.asList(null, "b", null));
+        builder.append(Arrays.asList(3, null, 3.5));
+        return builder.build(5);
+    }
+
+    @Test public void testBuilder() {
+        ColumnarTupleBatch batch = exampleBatch();
+        assertEquals(3, batch.getRowCount());
+        assertEquals(5, batch.getBeginRow());
+        assertEquals(7, batch.getEndRow());
+        assertTrue(batch.getColumn(0) instanceof IntColumn);
+        assertTrue(batch.getColumn(1) instanceof ObjectColumn);
+        assertTrue(batch.getColumn(0).isNull(1));
+        assertEquals(3, ((IntColumn)batch.getColumn(0)).getInt(2));
+        assertEquals(Arrays.asList(null, "b", null), batch.getTuple(6));
+        assertEquals(Arrays.asList(Arrays.asList(1, "a", 1.5), Arrays.asList(null, "b", null), Arrays.asList(3, null, 3.5)), batch.getTuples());
+    }
+
+    @Test public void testSelectAndProject() {
+        ColumnarTupleBatch batch = exampleBatch();
+        batch.setTerminationFlag(true);
+        ColumnarTupleBatch selected = batch.select(new int[] {1, 2}, 2).project(new int[] {2, 0});
+        assertEquals(2, selected.getRowCount());
+        assertTrue(selected.getTerminationFlag());
+        assertEquals(Arrays.asList(Arrays.asList(null, null), Arrays.asList(3.5, 3)), selected.getTuples());
+    }
+
+    @Test public void testTupleBufferRetainsColumns() throws Exception {
+        List<ElementSymbol> schema = Arrays.asList(new ElementSymbol("x"), new ElementSymbol("y"), new ElementSymbol("z"));
+        for (int i = 0; i < schema.size(); i++) {
+            schema.get(i).setType(TYPES[i]);
+        }
+        TupleBuffer tb = BufferManagerFactory.getStandaloneBufferManager().createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR);
+        tb.setBatchSize(4);
+        ColumnarTupleBatch batch = exampleBatch();
+        batch.setRowOffset(1);
+        batch.setTerminationFlag(true);
+        tb.addTupleBatch(batch, true);
+        tb.close();
+        assertEquals(3, tb.getRowCount());
+        TupleBatch result = tb.getBatch(1);
+        assertTrue(result instanceof ColumnarTupleBatch);
+        assertTrue(result.getTerminationFlag());
+        assertEquals(batch.getTuples(), result.getTuples());
+        assertFalse(batch.getTuples() == result.getTuples());
+    }
+
+    @Test public void testProcessing() throws Exception {
+        String sql = "select y, sum(x), count(*) from (select x, y from (select 1 as x, 'a' as y union all select 2, 'b' union all select null, 'a' union all select 4, 'a') v where x > 1 or x is null) v group by y order by y";
+
+        ProcessorPlan plan = TestProcessor.helpGetPlan(sql, RealMetadataFactory.example1Cached());
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.setOptions(new Options().columnarBatches(true));
+        TestProcessor.helpProcess(plan, cc, new HardcodedDataManager(), new List<?>[] {
+            Arrays.asList("a", 4L, 2),
+            Arrays.asList("b", 2L, 1),
+        });
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.STree.InsertMode;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings({"nls", "unchecked", "rawtypes"})
+public class TestCompactKeyList {
+
+    private static final Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.LONG};
+
+    private List<List<?>> exampleKeys() {
+        List<List<?>> keys = new ArrayList<List<?>>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(Arrays.asList("http://example.com/" + (1000 + i*2), (long)i%3));
+        }
+        return keys;
+    }
+
+    @Test public void testCreate() {
+        List<List<?>> keys = exampleKeys();
+        CompactKeyList list = CompactKeyList.create(TYPES, keys);
+        assertTrue(list.isCompact());
+        assertEquals(keys, list);
+        assertTrue(list.getSizeEstimate() > 0);
+        assertNull(CompactKeyList.create(TYPES, Arrays.asList(Arrays.asList("a", null))));
+        assertFalse(CompactKeyList.isCompactable(new Class<?>[] {DataTypeManager.DefaultDataClasses.BIG_DECIMAL}));
+        assertEquals(3, CompactKeyList.commonPrefixLength("abcd", "abce"));
+    }
+
+    @Test public void testBinarySearch() {
+        List<List<?>> keys = exampleKeys();
+        CompactKeyList list = CompactKeyList.create(TYPES, keys);
+        ListNestedSortComparator comparator = new ListNestedSortComparator(new int[] {0, 1});
+        for (int i = 0; i < 210; i++) {
+            List key = Arrays.asList("http://example.com/" + (1000 + i - 4), (long)(i/2)%3);
+            assertEquals(Collections.binarySearch(keys, key, comparator), list.binarySearch(key, comparator));
+            //partial keys
+            key = key.subList(0, 1);
+            assertEquals(Collections.binarySearch(keys, key, comparator), list.binarySearch(key, comparator));
+        }
+        assertEquals(-1, list.binarySearch(Arrays.asList("a", 1l), comparator));
+        assertEquals(-101, list.binarySearch(Arrays.asList("z", 1l), comparator));
+
+        comparator = new ListNestedSortComparator(new int[] {0, 1}, false);
+        Collections.reverse(keys);
+        list = CompactKeyList.create(TYPES, keys);
+        List key = keys.get(10);
+        assertEquals(10, list.binarySearch(key, comparator));
+    }
+
+    @Test public void testModification() {
+        List<List<?>> keys = exampleKeys();
+        CompactKeyList list = CompactKeyList.create(TYPES, keys);
+        //shortens the prefix
+        list.add(0, Arrays.asList("http://a", 1l));
+        keys.add(0, Arrays.asList("http://a", 1l));
+        list.remove(5);
+        keys.remove(5);
+        list.set(7, Arrays.asList("http://example.com/x", 2l));
+        keys.set(7, Arrays.asList("http://example.com/x", 2l));
+        list.subList(50, 60).clear();
+        keys.subList(50, 60).clear();
+        assertTrue(list.isCompact());
+        assertEquals(keys, list);
+
+        //unsupported values revert to a row list
+        list.add(1, Arrays.asList(null, 1l));
+        keys.add(1, Arrays.asList(null, 1l));
+        assertFalse(list.isCompact());
+        assertEquals(-1, list.getSizeEstimate());
+        assertEquals(keys, list);
+    }
+
+    @Test public void testSTreeKeyPages() throws TeiidComponentException {
+        BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+        bm.setProcessorBatchSize(16);
+
+        ElementSymbol e1 = new ElementSymbol("x");
+        e1.setType(String.class);
+        ElementSymbol e2 = new ElementSymbol("y");
+        e2.setType(Integer.class);
+        List<ElementSymbol> elements = Arrays.asList(e1, e2);
+        STree map = bm.createSTree(elements, "1", 1);
+        assertNotNull(map.compactKeyTypes);
+
+        int size = 1<<14;
+        for (int i = 0; i < size; i++) {
+            assertNull(map.insert(Arrays.asList("http://example.com/path/" + (i*7919)%size, i), InsertMode.NEW, -1));
+        }
+        assertEquals(size, map.getRowCount());
+        for (int i = 0; i < size; i++) {
+            assertNotNull(map.find(Arrays.asList("http://example.com/path/" + i)));
+            assertNull(map.find(Arrays.asList("http://example.com/path/" + i + "x")));
+        }
+        for (int i = 0; i < size; i+=2) {
+            assertNotNull(map.remove(Arrays.asList("http://example.com/path/" + i)));
+        }
+        assertEquals(size/2, map.getRowCount());
+    }
+
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import org.junit.Test;
 import org.teiid.common.buffer.FileStore.FileStoreOutputStream;
 import org.teiid.common.buffer.LobManager.ReferenceMode;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.BlobImpl;
 import org.teiid.core.types.BlobType;
 import org.teiid.core.types.ClobImpl;
@@ -132,4 +133,47 @@ public class TestLobManager {
         assertEquals(StorageMode.MEMORY, InputStreamFactory.getStorageMode(clob));
     }
 
+    private BlobType createBlob(final byte[] bytes) {
+        return new BlobType(new BlobImpl(new InputStreamFactory() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return new ByteArrayInputStream(bytes);
+            }
+        }));
+    }
+
+    @Test public void testSharedLobs() throws Exception {
+        BufferManagerImpl buffMgr = BufferManagerFactory.createBufferManager();
+        buffMgr.setDeduplicateLobs(true);
+        SharedLobStore sharedLobStore = buffMgr.getSharedLobStore();
+        FileStore fs = buffMgr.createFileStore("temp");
+        FileStore fs1 = buffMgr.createFileStore("temp1");
+
+        byte[] bytes = new byte[DataTypeManager.MAX_LOB_MEMORY_BYTES + 1];
+        Arrays.fill(bytes, (byte)1);
+        BlobType blob = createBlob(bytes);
+        BlobType blob1 = createBlob(bytes);
+
+        buffMgr.persistLob(blob, fs, null);
+        buffMgr.persistLob(blob1, fs, null);
+        assertEquals(1, sharedLobStore.getLobCount());
+        assertEquals(1, sharedLobStore.getSharedCount());
+        assertEquals(StorageMode.PERSISTENT, InputStreamFactory.getStorageMode(blob1));
+        assertTrue(Arrays.equals(bytes, ObjectConverterUtil.convertToByteArray(blob1.getBinaryStream())));
+
+        //moving to another store just adds a reference
+        buffMgr.persistLob(blob1, fs1, null);
+        assertEquals(2, sharedLobStore.getSharedCount());
+
+        //different content
+        buffMgr.persistLob(createBlob(new byte[bytes.length]), fs1, null);
+        assertEquals(2, sharedLobStore.getLobCount());
+
+        fs.remove();
+        assertEquals(2, sharedLobStore.getLobCount());
+        assertTrue(Arrays.equals(bytes, ObjectConverterUtil.convertToByteArray(blob1.getBinaryStream())));
+        fs1.remove();
+        assertEquals(0, sharedLobStore.getLobCount());
+    }
+
 }
@@ -93,7 +93,9 @@ public class TestSTree {
             assertEquals(i + 1, map.getRowCount());
         }
 
-        assertEquals(4, map.getHeight());
+        //the compact int keys allow for larger index pages
+        assertEquals(8*map.getPageSize(true), map.getPageSize(false));
+        assertEquals(3, map.getHeight());
 
         for (int i = 0; i < size; i++) {
             assertNotNull(map.remove(Arrays.asList(i)));
@@ -101,6 +103,42 @@ public class TestSTree {
 
     }
 
+    @Test public void testBulkLoad() throws TeiidComponentException, TeiidProcessingException {
+        BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+        bm.setProcessorBatchSize(4);
+
+        ElementSymbol e1 = new ElementSymbol("x");
+        e1.setType(Integer.class);
+        List<ElementSymbol> elements = Arrays.asList(e1);
+        STree map = bm.createSTree(elements, "1", 1);
+
+        int size = (1<<16)+(1<<4)+1;
+
+        map.setBatchInsert(true);
+        for (int i = 0; i < size; i++) {
+            assertNull(map.insert(Arrays.asList(i*2), InsertMode.ORDERED, -1));
+        }
+        map.setBatchInsert(false);
+        assertEquals(size, map.getRowCount());
+
+        for (int i = 0; i < size; i++) {
+            assertNotNull(map.find(Arrays.asList(i*2)));
+            assertNull(map.find(Arrays.asList(i*2+1)));
+        }
+        TupleSource ts = map.getTupleSource(false);
+        for (int i = 0; i < size; i++) {
+            assertEquals(Arrays.asList(i*2), ts.nextTuple());
+        }
+        assertNull(ts.nextTuple());
+
+        //should still allow for regular updates
+        assertNull(map.insert(Arrays.asList(3), InsertMode.NEW, -1));
+        for (int i = 0; i < size; i++) {
+            assertNotNull(map.remove(Arrays.asList(i*2)));
+        }
+        assertEquals(1, map.getRowCount());
+    }
+
     @Test public void testStorageWrites() throws TeiidComponentException {
         BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
         bm.setProcessorBatchSize(32);
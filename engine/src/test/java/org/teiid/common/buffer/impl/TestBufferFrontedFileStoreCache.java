@@ -20,9 +20,13 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInput;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.lang.ref.WeakReference;
 
 import org.junit.After;
@@ -183,6 +187,34 @@ public class TestBufferFrontedFileStoreCache {
         return ce;
     }
 
+    @Test public void testGetSerialized() throws Exception {
+        cache = createLayeredCache(1 << 15, 1 << 15, true);
+
+        Serializer<Integer> s = new SimpleSerializer();
+        cache.createCacheGroup(s.getId());
+        Integer cacheObject = Integer.valueOf(5000);
+        CacheEntry ce = new CacheEntry(2L);
+        ce.setObject(cacheObject);
+        cache.addToCacheGroup(s.getId(), ce.getId());
+        cache.add(ce, s);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        s.serialize(cacheObject, oos);
+        oos.close();
+
+        PhysicalInfo o = cache.lockForLoad(2L, s);
+        byte[] bytes = cache.getSerialized(o, 2L, s);
+        cache.unlockForLoad(o);
+        assertArrayEquals(baos.toByteArray(), bytes);
+        assertEquals(cacheObject, s.deserialize(new ObjectInputStream(new ByteArrayInputStream(bytes))));
+
+        //still readable
+        assertEquals(cacheObject, get(cache, 2L, s).getObject());
+
+        assertNull(cache.getSerialized(cache.lockForLoad(3L, s), 3L, s));
+    }
+
     @Test public void testEviction() throws Exception {
         cache = createLayeredCache(1<<15, 1<<15, true);
         assertEquals(3, cache.getMaxMemoryBlocks());
@@ -214,6 +246,45 @@ public class TestBufferFrontedFileStoreCache {
         assertEquals(Integer.valueOf(5001), ce.getObject());
     }
 
+    @Test public void testEvictionCompressed() throws Exception {
+        cache = createLayeredCache(1<<15, 1<<15, true, true);
+
+        Serializer<Integer> s = new SimpleSerializer() {
+            @Override
+            public Integer deserialize(ObjectInput ois)
+                    throws IOException, ClassNotFoundException {
+                Integer result = ois.readInt();
+                for (int i = 0; i < result; i++) {
+                    assertEquals(1, ois.readInt());
+                }
+                return result;
+            }
+
+            @Override
+            public void serialize(Integer obj, ObjectOutput oos)
+                    throws IOException {
+                oos.writeInt(obj);
+                for (int i = 0; i < obj; i++) {
+                    oos.writeInt(1);
+                }
+            }
+        };
+        WeakReference<? extends Serializer<?>> ref = new WeakReference<Serializer<?>>(s);
+        cache.createCacheGroup(s.getId());
+
+        for (int i = 0; i < 3; i++) {
+            add(cache, s, ref, i);
+        }
+
+        assertTrue(cache.getCompressionBytesSaved() > 0);
+        assertTrue(cache.getCompressionRatio() < .1);
+
+        for (int i = 0; i < 3; i++) {
+            CacheEntry ce = get(cache, Long.valueOf(i), s);
+            assertEquals(Integer.valueOf(5000 + i), ce.getObject());
+        }
+    }
+
     @Test public void testEvictionFails() throws Exception {
         cache = createLayeredCache(1<<15, 1<<15, false);
         BufferManagerImpl bmi = Mockito.mock(BufferManagerImpl.class);
@@ -239,7 +310,12 @@ public class TestBufferFrontedFileStoreCache {
     }
 
     private static BufferFrontedFileStoreCache createLayeredCache(int bufferSpace, int objectSize, boolean memStorage) throws TeiidComponentException {
+        return createLayeredCache(bufferSpace, objectSize, memStorage, false);
+    }
+
+    private static BufferFrontedFileStoreCache createLayeredCache(int bufferSpace, int objectSize, boolean memStorage, boolean compress) throws TeiidComponentException {
         BufferFrontedFileStoreCache fsc = new BufferFrontedFileStoreCache();
+        fsc.setCompressBufferFiles(compress);
         fsc.cleanerRunning.set(true); //prevent async affects
         fsc.setMemoryBufferSpace(bufferSpace);
         fsc.setMaxStorageObjectSize(objectSize);
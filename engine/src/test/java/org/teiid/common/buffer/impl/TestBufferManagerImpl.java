@@ -19,6 +19,7 @@
 package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -204,4 +205,33 @@ public class TestBufferManagerImpl {
         }
     }
 
+    @Test public void testWriteBehind() throws Exception {
+        BufferManagerImpl bufferManager = new BufferManagerImpl();
+        bufferManager.setCache(new MemoryStorageManager());
+        bufferManager.setMaxReserveKB(10);
+        bufferManager.setWriteBehindThreads(2);
+        bufferManager.setWriteBehindQueueSize(2);
+        bufferManager.initialize();
+        try {
+            TupleBuffer tb = bufferManager.createTupleBuffer(Arrays.asList(new ElementSymbol("x", null, Integer.class)), "x", TupleSourceType.PROCESSOR);
+            for (int i = 0; i < 20000; i++) {
+                tb.addTuple(Arrays.asList(i));
+            }
+            tb.close();
+            //the evictions were handed off to the write behind threads
+            assertTrue(bufferManager.getWriteBehindCount() > 0);
+            for (int i = 0; i < 20000; i++) {
+                assertEquals(Arrays.asList(i), tb.getBatch(i + 1).getTuple(i + 1));
+            }
+            for (int i = 0; i < 500 && bufferManager.getWriteBehindPending() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, bufferManager.getWriteBehindPending());
+            assertEquals(0, bufferManager.getWriteBehindBytes());
+            tb.remove();
+        } finally {
+            bufferManager.shutdown();
+        }
+    }
+
 }
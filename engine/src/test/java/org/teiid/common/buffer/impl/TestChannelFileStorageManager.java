@@ -0,0 +1,156 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.teiid.common.buffer.FileStore;
+import org.teiid.core.util.UnitTestUtil;
+
+public class TestChannelFileStorageManager {
+
+    private ChannelFileStorageManager getStorageManager(boolean memoryMapped) throws Exception {
+        ChannelFileStorageManager sm = new ChannelFileStorageManager();
+        sm.setStorageDirectory(UnitTestUtil.getTestScratchPath());
+        sm.setMaxOpenFiles(2);
+        sm.setMemoryMapped(memoryMapped);
+        sm.initialize();
+        return sm;
+    }
+
+    @Test public void testInitialRead() throws Exception {
+        ChannelFileStorageManager sm = getStorageManager(false);
+        FileStore store = sm.createFileStore("0"); //$NON-NLS-1$
+        assertEquals(-1, store.read(0, new byte[1], 0, 1));
+    }
+
+    @Test public void testPositionalWrite() throws Exception {
+        helpTestPositionalWrite(false);
+    }
+
+    @Test public void testPositionalWriteMemoryMapped() throws Exception {
+        helpTestPositionalWrite(true);
+    }
+
+    private void helpTestPositionalWrite(boolean memoryMapped) throws Exception {
+        ChannelFileStorageManager sm = getStorageManager(memoryMapped);
+        FileStore store = sm.createFileStore("0"); //$NON-NLS-1$
+        byte[] expectedBytes = TestFileStorageManager.writeBytes(store, 2048);
+        assertEquals(4096, sm.getUsedBufferSpace());
+
+        TestFileStorageManager.writeBytes(store, 4096);
+        assertEquals(6144, sm.getUsedBufferSpace());
+
+        byte[] bytesRead = new byte[2048];
+        store.readFully(2048, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes, bytesRead);
+
+        store.setLength(1000);
+        assertEquals(1000, sm.getUsedBufferSpace());
+        TestFileStorageManager.writeBytes(store);
+
+        store.remove();
+        assertEquals(0, sm.getUsedBufferSpace());
+    }
+
+    @Test public void testMappedRegions() throws Exception {
+        ChannelFileStorageManager sm = getStorageManager(true);
+        sm.setMappedRegionSize(1000);
+        FileStore store = sm.createFileStore("0"); //$NON-NLS-1$
+        byte[] first = TestFileStorageManager.writeBytes(store, 0);
+        //the last region is remapped as the file grows
+        byte[] second = TestFileStorageManager.writeBytes(store, 2048);
+
+        byte[] bytesRead = new byte[2000];
+        store.readFully(1500, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(Arrays.copyOfRange(first, 1500, 2048), Arrays.copyOfRange(bytesRead, 0, 548));
+        assertArrayEquals(Arrays.copyOfRange(second, 0, 1452), Arrays.copyOfRange(bytesRead, 548, 2000));
+
+        store.setLength(1500);
+        TestFileStorageManager.writeBytes(store, 500);
+        store.remove();
+        assertEquals(0, sm.getUsedBufferSpace());
+    }
+
+    @Test public void testInterruptedRead() throws Exception {
+        ChannelFileStorageManager sm = getStorageManager(false);
+        FileStore store = sm.createFileStore("0"); //$NON-NLS-1$
+        byte[] expectedBytes = TestFileStorageManager.writeBytes(store, 0);
+
+        byte[] bytesRead = new byte[2048];
+        Thread.currentThread().interrupt();
+        try {
+            store.readFully(0, bytesRead, 0, bytesRead.length);
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        assertArrayEquals(expectedBytes, bytesRead);
+
+        //the handle was reopened
+        TestFileStorageManager.writeBytes(store, 0);
+        store.remove();
+    }
+
+    @Test public void testConcurrentAccess() throws Exception {
+        final ChannelFileStorageManager sm = getStorageManager(true);
+        List<FileStore> stores = new ArrayList<FileStore>();
+        for (int i = 0; i < 4; i++) {
+            stores.add(sm.createFileStore(String.valueOf(i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 16; i++) {
+                final FileStore store = stores.get(i % stores.size());
+                final long start = (i / stores.size()) * 2048;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        for (int j = 0; j < 10; j++) {
+                            TestFileStorageManager.writeBytes(store, start);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(4 * 4 * 2048, sm.getUsedBufferSpace());
+        assertTrue(sm.getOpenFiles() <= 2);
+        for (FileStore store : stores) {
+            store.remove();
+        }
+        assertEquals(0, sm.getUsedBufferSpace());
+    }
+
+}
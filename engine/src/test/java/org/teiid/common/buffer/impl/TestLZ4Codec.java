@@ -0,0 +1,76 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestLZ4Codec {
+
+    private int helpTestRoundTrip(byte[] bytes) throws IOException {
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength(bytes.length) + 2];
+        int length = LZ4Codec.compress(bytes, 0, bytes.length, compressed, 1);
+        assertTrue(length <= LZ4Codec.maxCompressedLength(bytes.length));
+        byte[] result = new byte[bytes.length + 2];
+        LZ4Codec.decompress(compressed, 1, length, result, 1, bytes.length);
+        assertArrayEquals(bytes, Arrays.copyOfRange(result, 1, bytes.length + 1));
+        return length;
+    }
+
+    @Test public void testEmpty() throws Exception {
+        assertEquals(1, helpTestRoundTrip(new byte[0]));
+    }
+
+    @Test public void testSmall() throws Exception {
+        helpTestRoundTrip("abcdabcdabc".getBytes("UTF-8"));
+    }
+
+    @Test public void testRepetitive() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("some repeated string value ").append(i % 10);
+        }
+        byte[] bytes = sb.toString().getBytes("UTF-8");
+        assertTrue(helpTestRoundTrip(bytes) < bytes.length / 10);
+
+        //long runs require extended lengths
+        assertTrue(helpTestRoundTrip(new byte[1 << 16]) < 400);
+    }
+
+    @Test public void testRandom() throws Exception {
+        Random r = new Random(1);
+        byte[] bytes = new byte[100000];
+        r.nextBytes(bytes);
+        helpTestRoundTrip(bytes);
+    }
+
+    @Test(expected=IOException.class) public void testInvalid() throws Exception {
+        byte[] bytes = new byte[1 << 10];
+        byte[] compressed = new byte[LZ4Codec.maxCompressedLength(bytes.length)];
+        int length = LZ4Codec.compress(bytes, 0, bytes.length, compressed, 0);
+        LZ4Codec.decompress(compressed, 0, length, new byte[10], 0, 10);
+    }
+
+}
@@ -20,6 +20,12 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
@@ -60,4 +66,108 @@ public class TestLrfuEvictionQueue {
         assertNotNull(q.firstEntry(true));
     }
 
+    @Test public void testFrequencySketch() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        assertEquals(0, sketch.frequency(1));
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(1);
+        }
+        sketch.increment(2);
+        assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(1));
+        assertTrue(sketch.frequency(2) >= 1);
+        //age out by incrementing past the sample size
+        for (int i = 0; i < 10*16; i++) {
+            sketch.increment(100 + i);
+        }
+        assertTrue(sketch.frequency(1) < FrequencySketch.MAX_FREQUENCY);
+    }
+
+    @Test public void testScanResistance() {
+        AtomicLong clock = new AtomicLong();
+        double lrfu = replayTrace(new LrfuEvictionQueue<BaseCacheEntry>(clock), clock);
+        clock = new AtomicLong();
+        double tinyLfu = replayTrace(new TinyLfuEvictionQueue<BaseCacheEntry>(clock), clock);
+        assertTrue(lrfu + " " + tinyLfu, tinyLfu > 2*lrfu); //$NON-NLS-1$
+    }
+
+    @Test public void testTinyLfuSegments() {
+        AtomicLong clock = new AtomicLong();
+        FrequencySketch sketch = new FrequencySketch(16);
+        TinyLfuEvictionQueue<BaseCacheEntry> q = new TinyLfuEvictionQueue<BaseCacheEntry>(clock, sketch);
+        BaseCacheEntry hot = new BaseCacheEntry(new CacheKey(1L, 0L, 0L));
+        BaseCacheEntry cold = new BaseCacheEntry(new CacheKey(2L, 0L, 0L));
+        BaseCacheEntry other = new BaseCacheEntry(new CacheKey(3L, 0L, 0L));
+        q.add(hot);
+        q.add(cold);
+        q.add(other);
+        assertFalse(q.add(hot));
+        assertEquals(0, q.getProtectedSize());
+        //two accesses admit the entry to the protected segment
+        q.touch(hot);
+        q.touch(hot);
+        assertEquals(1, q.getProtectedSize());
+        assertEquals(3, q.getSize());
+        //probation is evicted first in lru order
+        assertSame(cold, q.firstEntry(false));
+        assertEquals(Arrays.asList(cold, other, hot), new ArrayList<BaseCacheEntry>(q.getEvictionQueue()));
+        //an entry moving to a queue with the same sketch is admitted directly
+        TinyLfuEvictionQueue<BaseCacheEntry> q1 = new TinyLfuEvictionQueue<BaseCacheEntry>(clock, sketch);
+        assertTrue(q.remove(hot));
+        q1.add(cold);
+        q1.add(hot);
+        assertEquals(1, q1.getProtectedSize());
+        assertSame(cold, q1.firstEntry(true));
+        assertSame(hot, q1.firstEntry(true));
+        assertNull(q1.firstEntry(true));
+    }
+
+    @Test public void testTinyLfuProtectedLimit() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        TinyLfuEvictionQueue<BaseCacheEntry> q = new TinyLfuEvictionQueue<BaseCacheEntry>(new AtomicLong(), sketch);
+        List<BaseCacheEntry> entries = new ArrayList<BaseCacheEntry>();
+        for (long i = 0; i < 5; i++) {
+            sketch.increment(i);
+            sketch.increment(i);
+            BaseCacheEntry entry = new BaseCacheEntry(new CacheKey(i, 0L, 0L));
+            entries.add(entry);
+            q.add(entry);
+        }
+        //the least recently used frequent entry is demoted to probation
+        assertEquals(4, q.getProtectedSize());
+        assertEquals(entries, new ArrayList<BaseCacheEntry>(q.getEvictionQueue()));
+        assertSame(entries.get(0), q.firstEntry(false));
+    }
+
+    /**
+     * Replay a trace of a small hot set interleaved with a scan
+     * @return the hit ratio
+     */
+    private double replayTrace(EvictionQueue<BaseCacheEntry> q, AtomicLong clock) {
+        int capacity = 200;
+        Map<Long, BaseCacheEntry> entries = new HashMap<Long, BaseCacheEntry>();
+        Random r = new Random(1);
+        long scanId = 1000;
+        int hits = 0;
+        int accesses = 100000;
+        for (int i = 0; i < accesses; i++) {
+            long id = r.nextInt(10) < 3 ? r.nextInt(150) : scanId++;
+            clock.incrementAndGet();
+            BaseCacheEntry entry = entries.get(id);
+            if (entry != null) {
+                hits++;
+                q.touch(entry);
+                continue;
+            }
+            entry = new BaseCacheEntry(new CacheKey(id, clock.get(), 0));
+            q.recordAccess(entry);
+            q.add(entry);
+            entries.put(id, entry);
+            if (entries.size() > capacity) {
+                BaseCacheEntry evicted = q.firstEntry(true);
+                entries.remove(evicted.getId());
+            }
+        }
+        return hits / (double)accesses;
+    }
+
 }
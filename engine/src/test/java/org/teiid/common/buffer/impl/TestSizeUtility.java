@@ -183,4 +183,37 @@ public class TestSizeUtility {
         assertEquals("Got unexpected size: ", 2667, actualSize); //$NON-NLS-1$
     }
 
+    private static List<List<?>> stringBatch(int rows, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        List<List<?>> result = new ArrayList<List<?>>();
+        for (int i = 0; i < rows; i++) {
+            result.add(Arrays.asList(new String(chars)));
+        }
+        return result;
+    }
+
+    @Test public void testSampledBatchSize() {
+        Class<?>[] types = {DataTypeManager.DefaultDataClasses.STRING};
+        SizeUtility sizeUtility = new SizeUtility(types);
+        List<List<?>> small = stringBatch(100, 10);
+        List<List<?>> large = stringBatch(100, 1000);
+        long smallSize = sizeUtility.getBatchSize(false, small);
+        long largeSize = new SizeUtility(types).getBatchSize(false, large);
+        assertTrue(largeSize > smallSize);
+        for (int i = 1; i < SizeUtility.SAMPLED_BATCHES; i++) {
+            assertEquals(smallSize, sizeUtility.getBatchSize(false, small));
+        }
+        //not sampled, so the running average is used
+        assertEquals(smallSize, sizeUtility.getBatchSize(false, small));
+        //the probe of the first and last values deviates, so the batch is sampled
+        assertEquals(largeSize, sizeUtility.getBatchSize(false, large));
+        //and sampling restarts
+        for (int i = 1; i < SizeUtility.SAMPLED_BATCHES; i++) {
+            assertEquals(largeSize, sizeUtility.getBatchSize(false, large));
+        }
+        //a smaller probe also triggers a sample
+        assertEquals(smallSize, sizeUtility.getBatchSize(false, small));
+    }
+
 }
\ No newline at end of file
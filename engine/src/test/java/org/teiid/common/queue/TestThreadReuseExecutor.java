@@ -22,6 +22,8 @@ import static org.junit.Assert.*;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +65,24 @@ public class TestThreadReuseExecutor {
         assertEquals("Expected threads to be maxed out", MAX_THREADS, stats.getHighestActiveThreads()); //$NON-NLS-1$
     }
 
+    @Test public void testProvidedExecutor() throws Exception {
+        ExecutorService executor = ThreadReuseExecutor.newVirtualThreadPerTaskExecutor();
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool();
+        }
+        pool = new ThreadReuseExecutor("test", 5, executor); //$NON-NLS-1$
+
+        for(int i=0; i<10; i++) {
+            pool.execute(new FakeWorkItem(50));
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(1000, TimeUnit.MILLISECONDS);
+        WorkerPoolStatisticsMetadata stats = pool.getStats();
+        assertEquals(10, stats.getTotalCompleted());
+        assertEquals(5, stats.getHighestActiveThreads());
+    }
+
     @Test public void testThreadReuse() throws Exception {
         final long SINGLE_WAIT = 50;
         final long NUM_THREADS = 5;
@@ -24,8 +24,11 @@ package org.teiid.dqp.internal.datamgr;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.Callable;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.teiid.dqp.internal.process.FutureWork;
 import org.teiid.dqp.message.AtomicRequestID;
 import org.teiid.dqp.message.AtomicRequestMessage;
 import org.teiid.dqp.message.RequestID;
@@ -142,4 +145,29 @@ public final class TestConnectorManager {
         cm.getCapabilities();
     }
 
+    @Test public void testWorkConcurrency() throws Exception {
+        Callable<Void> callable = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                return null;
+            }
+        };
+        FutureWork<Void> first = new FutureWork<Void>(callable, 0);
+        FutureWork<Void> second = new FutureWork<Void>(callable, 0);
+        FutureWork<Void> third = new FutureWork<Void>(callable, 0);
+        assertTrue(csm.reserveWork(first, 1));
+        assertFalse(csm.reserveWork(second, 1));
+        assertFalse(csm.reserveWork(third, 1));
+        assertEquals(2, csm.getQueuedWorkCount());
+
+        //canceled while queued
+        assertNull(csm.workCompleted(third));
+        //the slot is passed to the next queued work
+        assertSame(second, csm.workCompleted(first));
+        assertEquals(1, csm.getActiveWorkCount());
+        assertNull(csm.workCompleted(second));
+        assertEquals(0, csm.getActiveWorkCount());
+        assertEquals(0, csm.getQueuedWorkCount());
+    }
+
 }
\ No newline at end of file
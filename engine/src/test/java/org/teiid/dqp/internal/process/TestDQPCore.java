@@ -58,9 +58,12 @@ import org.teiid.dqp.internal.datamgr.FakeTransactionService;
 import org.teiid.dqp.internal.process.AbstractWorkItem.ThreadState;
 import org.teiid.dqp.service.AutoGenDataService;
 import org.teiid.dqp.service.FakeBufferService;
+import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.translator.SourceSystemFunctions;
 
@@ -195,6 +198,23 @@ public class TestDQPCore {
         assertEquals(1, this.core.getMaxWaitingPlanWatermark());
     }
 
+    @Test public void testExpectedReservation() throws Exception {
+        core.stop();
+        config.setMaxActivePlans(10);
+        core.start(config);
+        long nominal = core.getBufferManager().getMaxProcessingSize();
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        RealMetadataFactory.setCardinality("pm1.g1", 100000000, metadata);
+
+        //a large streaming plan only needs the nominal reservation
+        RelationalPlan plan = (RelationalPlan)TestProcessor.helpGetPlan("select e1, e2 from pm1.g1", metadata);
+        assertEquals(nominal, core.getExpectedReservation(plan));
+
+        //a large blocking plan is capped so that it does not block the other plans
+        plan = (RelationalPlan)TestProcessor.helpGetPlan("select e1, e2 from pm1.g1 order by e1", metadata);
+        assertEquals(nominal * DQPCore.MAX_RESERVATION_MULTIPLE, core.getExpectedReservation(plan));
+    }
+
     @Test public void testHasRole() throws Exception {
         String sql = "SELECT hasRole('foo')"; //$NON-NLS-1$
         String userName = "logon"; //$NON-NLS-1$
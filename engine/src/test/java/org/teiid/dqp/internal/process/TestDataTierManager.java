@@ -21,11 +21,15 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.teiid.adminapi.DataPolicy;
+import org.teiid.adminapi.impl.DataPolicyMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.cache.CacheConfiguration;
 import org.teiid.cache.DefaultCacheFactory;
@@ -87,7 +91,7 @@ public class TestDataTierManager {
         helpSetupDataTierManager();
         AtomicRequestMessage request = helpSetupRequest(sql, nodeId, RealMetadataFactory.exampleBQTCached());
         request.setSerial(serial);
-        return new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), dtm, limit);
+        return new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), connectorManager, dtm, limit);
     }
 
     private int id;
@@ -353,6 +357,114 @@ public class TestDataTierManager {
         assertEquals(0, this.rm.getRsCache().getCachePutCount());
     }
 
+    private TupleSource helpRegisterSharedRequest(QueryMetadataInterface metadata, String userName, String role) throws Exception {
+        Command command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+        context.setMetadata(metadata);
+        if (userName != null) {
+            workItem.getDqpWorkContext().getSession().setUserName(userName);
+        }
+        HashMap<String, DataPolicy> policies = new HashMap<String, DataPolicy>();
+        if (role != null) {
+            DataPolicyMetadata policy = new DataPolicyMetadata();
+            policy.setName(role);
+            policies.put(role, policy);
+        }
+        workItem.getDqpWorkContext().setPolicies(policies);
+        RegisterRequestParameter rrp = new RegisterRequestParameter();
+        rrp.connectorBindingId = "x";
+        return dtm.registerRequest(context, command, "foo", rrp);
+    }
+
+    private QueryMetadataInterface helpSetupSharing() {
+        vdb.addProperty(InFlightSourceQueries.SOURCE_QUERY_SHARING, "true");
+        //hold the source executions until the second request has registered
+        this.connectorManager.latch = new CountDownLatch(2);
+        helpSetupDataTierManager();
+        return RealMetadataFactory.exampleBQTCached();
+    }
+
+    @Test public void testInFlightSharing() throws Exception {
+        QueryMetadataInterface metadata = helpSetupSharing();
+        TupleSource ts = helpRegisterSharedRequest(metadata, null, null);
+
+        //different session, same security context
+        this.context.getSession().setSessionId("different");
+        TupleSource shared = helpRegisterSharedRequest(metadata, null, null);
+        connectorManager.latch.countDown();
+
+        assertEquals(10, pullTuples(shared, -1));
+        assertEquals(10, pullTuples(ts, -1));
+        assertEquals(1, connectorManager.getExecuteCount().get());
+        assertEquals(1, vdb.getAttachment(InFlightSourceQueries.class).getSharedCount());
+        shared.closeSource();
+        ts.closeSource();
+    }
+
+    @Test public void testInFlightSharingOwnerCancel() throws Exception {
+        QueryMetadataInterface metadata = helpSetupSharing();
+        TupleSource ts = helpRegisterSharedRequest(metadata, null, null);
+        RequestWorkItem owner = workItem;
+        TupleSource shared = helpRegisterSharedRequest(metadata, null, null);
+
+        //the starting request going away should not affect the other reader
+        ts.closeSource();
+        owner.requestCancel("");
+        connectorManager.latch.countDown();
+
+        assertEquals(10, pullTuples(shared, -1));
+        assertEquals(1, connectorManager.getExecuteCount().get());
+        assertEquals(1, vdb.getAttachment(InFlightSourceQueries.class).getSharedCount());
+        shared.closeSource();
+    }
+
+    @Test public void testInFlightSharingDataNotAvailable() throws Exception {
+        QueryMetadataInterface metadata = helpSetupSharing();
+        this.connectorManager.latch = null;
+        this.connectorManager.dataNotAvailable = -1;
+        this.connectorManager.strict = true;
+        TupleSource ts = helpRegisterSharedRequest(metadata, null, null);
+
+        try {
+            ts.nextTuple();
+            fail();
+        } catch (BlockedException e) {
+        }
+        Thread.sleep(200);
+        //the source task should be parked rather than polling the source
+        assertTrue(connectorManager.dataAvailableChecks.get() < 5);
+
+        connectorManager.dataAvailable = true;
+        connectorManager.dataAvailableListener.run();
+        assertEquals(10, pullTuples(ts, -1));
+        ts.closeSource();
+    }
+
+    @Test public void testInFlightSharingDifferentUsers() throws Exception {
+        QueryMetadataInterface metadata = helpSetupSharing();
+        TupleSource ts = helpRegisterSharedRequest(metadata, "foo", null);
+        TupleSource other = helpRegisterSharedRequest(metadata, "bar", null);
+
+        assertEquals(10, pullTuples(other, -1));
+        assertEquals(10, pullTuples(ts, -1));
+        assertEquals(2, connectorManager.getExecuteCount().get());
+        assertEquals(0, vdb.getAttachment(InFlightSourceQueries.class).getSharedCount());
+        other.closeSource();
+        ts.closeSource();
+    }
+
+    @Test public void testInFlightSharingDifferentRoles() throws Exception {
+        QueryMetadataInterface metadata = helpSetupSharing();
+        TupleSource ts = helpRegisterSharedRequest(metadata, null, "x");
+        TupleSource other = helpRegisterSharedRequest(metadata, null, "y");
+
+        assertEquals(10, pullTuples(other, -1));
+        assertEquals(10, pullTuples(ts, -1));
+        assertEquals(2, connectorManager.getExecuteCount().get());
+        assertEquals(0, vdb.getAttachment(InFlightSourceQueries.class).getSharedCount());
+        other.closeSource();
+        ts.closeSource();
+    }
+
     @Test public void testCheckForUpdatesWithBatched() throws Exception {
         helpSetupDataTierManager();
         QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
@@ -360,7 +472,7 @@ public class TestDataTierManager {
         Command command = helpGetCommand("insert into bqt1.smalla (stringkey) values ('1')", metadata);
         BatchedUpdateCommand bac = new BatchedUpdateCommand(Arrays.asList(request.getCommand(), command));
         request.setCommand(bac);
-        DataTierTupleSource dtts = new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), dtm, limit);
+        DataTierTupleSource dtts = new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), connectorManager, dtm, limit);
         pullTuples(dtts, 2);
     }
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestPlanAdmissionQueue {
+
+    @Test public void testPriorityAndSessionFairness() {
+        PlanAdmissionQueue<String> queue = new PlanAdmissionQueue<String>();
+        queue.add("a1", "a", 0);
+        queue.add("a2", "a", 0);
+        queue.add("a3", "a", 0);
+        queue.add("b1", "b", 0);
+        queue.add("c1", "c", 1);
+        assertEquals(5, queue.size());
+        assertEquals("c1", queue.poll());
+        assertEquals("a1", queue.poll());
+        assertEquals("b1", queue.poll());
+        assertEquals("a2", queue.poll());
+        assertEquals("a3", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test public void testShed() {
+        PlanAdmissionQueue<String> queue = new PlanAdmissionQueue<String>();
+        queue.add("a1", "a", 1);
+        queue.add("b1", "b", 0);
+        queue.add("c1", "c", 0);
+        queue.add("c2", "c", 0);
+        assertEquals("c2", queue.shed());
+        assertEquals("b1", queue.shed());
+        assertEquals("c1", queue.shed());
+        assertEquals("a1", queue.shed());
+        assertNull(queue.shed());
+        assertEquals(4, queue.getShedCount());
+    }
+
+    @Test public void testReservation() {
+        PlanAdmissionQueue<String> queue = new PlanAdmissionQueue<String>();
+        queue.setReservationBudget(100, 300);
+        assertTrue(queue.canAdmit(0));
+        queue.admit(100);
+        queue.admit(100);
+        assertTrue(queue.canAdmit(2));
+        queue.updateReservation(100, queue.boundReservation(1000));
+        assertEquals(400, queue.getReserved());
+        assertFalse(queue.canAdmit(2));
+        queue.release(300);
+        assertTrue(queue.canAdmit(1));
+        assertEquals(2, queue.getAdmittedCount());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.dqp.internal.process.SemanticSourceCache.SemanticQuery;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.unittest.RealMetadataFactory;
+
+@SuppressWarnings("nls")
+public class TestSemanticSourceCache {
+
+    private static SemanticQuery helpGetQuery(String sql) throws Exception {
+        Command command = QueryParser.getQueryParser().parseCommand(sql);
+        QueryResolver.resolveCommand(command, RealMetadataFactory.example1Cached());
+        return SemanticSourceCache.getSemanticQuery("x", command, command.toString());
+    }
+
+    private static List<Criteria> helpGetResidual(String sql, String cachedSql) throws Exception {
+        SemanticQuery query = helpGetQuery(sql);
+        SemanticQuery cached = helpGetQuery(cachedSql);
+        assertEquals(cached.shape, query.shape);
+        return SemanticSourceCache.getResidualCriteria(cached.conjuncts, query);
+    }
+
+    @Test public void testRangeContainment() throws Exception {
+        List<Criteria> residual = helpGetResidual("select e1, e2 from pm1.g1 where e2 between 1 and 10", "select e1, e2 from pm1.g1 where e2 >= 0 and e2 <= 100");
+        assertEquals(1, residual.size());
+    }
+
+    @Test public void testRangeNotContained() throws Exception {
+        assertNull(helpGetResidual("select e1, e2 from pm1.g1 where e2 > 0", "select e1, e2 from pm1.g1 where e2 >= 1"));
+        assertNull(helpGetResidual("select e1, e2 from pm1.g1 where e2 < 10", "select e1, e2 from pm1.g1 where e2 >= 1"));
+    }
+
+    @Test public void testSetContainment() throws Exception {
+        assertEquals(1, helpGetResidual("select e1, e2 from pm1.g1 where e2 = 5", "select e1, e2 from pm1.g1 where e2 in (1, 5)").size());
+        assertNull(helpGetResidual("select e1, e2 from pm1.g1 where e2 in (1, 6)", "select e1, e2 from pm1.g1 where e2 in (1, 5)"));
+    }
+
+    @Test public void testStringConjunctsMustMatch() throws Exception {
+        assertEquals(1, helpGetResidual("select e1, e2 from pm1.g1 where e2 > 5 and e1 = 'a'", "select e1, e2 from pm1.g1 where e2 > 0 and e1 = 'a'").size());
+        assertNull(helpGetResidual("select e1, e2 from pm1.g1 where e1 = 'a'", "select e1, e2 from pm1.g1 where e1 in ('a', 'b')"));
+    }
+
+    @Test public void testNoCachedCriteria() throws Exception {
+        assertEquals(1, helpGetResidual("select e1, e2 from pm1.g1 where e2 < 3", "select e1, e2 from pm1.g1").size());
+        assertEquals(0, helpGetResidual("select e1, e2 from pm1.g1", "select e1, e2 from pm1.g1").size());
+    }
+
+    @Test public void testFilterColumnNotProjected() throws Exception {
+        assertNull(helpGetResidual("select e1 from pm1.g1 where e2 < 3", "select e1 from pm1.g1"));
+    }
+
+    @Test public void testShape() throws Exception {
+        assertFalse(helpGetQuery("select e1 from pm1.g1 order by e1").shape.equals(helpGetQuery("select e1 from pm1.g1").shape));
+        assertNull(helpGetQuery("select count(*) from pm1.g1"));
+        assertNull(helpGetQuery("select e2 + 1 from pm1.g1"));
+        assertNull(helpGetQuery("select e2 from pm1.g1 limit 1"));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.teiid.adminapi.impl.SessionMetadata;
+import org.teiid.dqp.internal.process.ThreadReuseExecutor.PrioritizedRunnable;
+import org.teiid.dqp.internal.process.ThreadReuseExecutor.RunnableWrapper;
+
+@SuppressWarnings("nls")
+public class TestSessionFairQueue {
+
+    static class Work implements PrioritizedRunnable {
+        String name;
+        int priority;
+        DQPWorkContext workContext;
+
+        Work(String name, int priority, DQPWorkContext workContext) {
+            this.name = name;
+            this.priority = priority;
+            this.workContext = workContext;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return 0;
+        }
+
+        @Override
+        public DQPWorkContext getDqpWorkContext() {
+            return workContext;
+        }
+    }
+
+    private static DQPWorkContext context(String sessionId, String user) {
+        DQPWorkContext workContext = new DQPWorkContext();
+        SessionMetadata session = new SessionMetadata();
+        session.setSessionId(sessionId);
+        session.setUserName(user);
+        workContext.setSession(session);
+        return workContext;
+    }
+
+    private static String poll(SessionFairQueue queue) {
+        return ((Work)queue.poll().r).name;
+    }
+
+    @Test public void testFairness() {
+        SessionFairQueue queue = new SessionFairQueue();
+        DQPWorkContext a = context("a", "x");
+        DQPWorkContext b = context("b", "y");
+        for (int i = 0; i < 3; i++) {
+            queue.add(new RunnableWrapper(new Work("a" + i, 100, a)));
+        }
+        queue.add(new RunnableWrapper(new Work("b0", 100, b)));
+        queue.add(new RunnableWrapper(new Work("b1", 1000, b)));
+        queue.add(new RunnableWrapper(new Work("cancel", PrioritizedRunnable.NO_WAIT_PRIORITY, b)));
+        queue.add(new RunnableWrapper(new Work("optional", Integer.MAX_VALUE, a)));
+        assertEquals(7, queue.size());
+        assertEquals("cancel", poll(queue));
+        assertEquals("a0", poll(queue));
+        assertEquals("b0", poll(queue));
+        assertEquals("a1", poll(queue));
+        assertEquals("b1", poll(queue));
+        assertEquals("a2", poll(queue));
+        assertEquals("optional", poll(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test public void testWeights() {
+        SessionFairQueue queue = new SessionFairQueue();
+        queue.setUserWeights(Collections.singletonMap("x", 2));
+        DQPWorkContext a = context("a", "x");
+        DQPWorkContext b = context("b", "y");
+        for (int i = 0; i < 4; i++) {
+            queue.add(new RunnableWrapper(new Work("a" + i, 100, a)));
+            queue.add(new RunnableWrapper(new Work("b" + i, 100, b)));
+        }
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            order.append(poll(queue).charAt(0));
+        }
+        assertEquals("ababaa", order.toString());
+        assertEquals(2, queue.clear().size());
+        assertEquals(0, queue.size());
+    }
+
+}
@@ -71,6 +71,8 @@ public class AutoGenDataService extends ConnectorManager{
     public boolean addWarning;
     public CacheDirective cacheDirective;
     public boolean dataAvailable;
+    public volatile Runnable dataAvailableListener;
+    public final AtomicInteger dataAvailableChecks = new AtomicInteger();
     public boolean threadBound;
     public CountDownLatch latch;
 
@@ -116,9 +118,15 @@ public class AutoGenDataService extends ConnectorManager{
 
             @Override
             public boolean isDataAvailable() {
+                dataAvailableChecks.incrementAndGet();
                 return dataAvailable;
             }
 
+            @Override
+            public void setDataAvailableListener(Runnable listener) {
+                dataAvailableListener = listener;
+            }
+
             @Override
             public AtomicResultsMessage more() throws TranslatorException {
                 if (dataNotAvailable != null) {
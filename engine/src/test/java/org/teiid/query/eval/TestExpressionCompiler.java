@@ -0,0 +1,108 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.resolver.util.ResolverVisitor;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestExpressionCompiler {
+
+    private static final List<?>[] TUPLES = new List<?>[] {
+        Arrays.asList("a", 1, true, 1.5),
+        Arrays.asList("b", null, false, 2.0),
+        Arrays.asList(null, 3, null, null),
+        Arrays.asList("c", 4, true, -1.0),
+    };
+
+    private List<ElementSymbol> elements() throws Exception {
+        List<ElementSymbol> elements = new ArrayList<ElementSymbol>();
+        for (String name : new String[] {"pm1.g1.e1", "pm1.g1.e2", "pm1.g1.e3", "pm1.g1.e4"}) {
+            ElementSymbol es = new ElementSymbol(name);
+            ResolverVisitor.resolveLanguageObject(es, RealMetadataFactory.example1Cached());
+            elements.add(es);
+        }
+        return elements;
+    }
+
+    private void helpTestCriteria(String sql) throws Exception {
+        Criteria crit = QueryParser.getQueryParser().parseCriteria(sql);
+        ResolverVisitor.resolveLanguageObject(crit, RealMetadataFactory.example1Cached());
+        Map<Expression, Integer> elementMap = RelationalNode.createLookupMap(elements());
+        CompiledExpression compiled = new ExpressionCompiler(elementMap).compileCriteria(crit);
+        assertNotNull(compiled);
+        CommandContext cc = new CommandContext();
+        Evaluator eval = new Evaluator(elementMap, null, cc);
+        for (List<?> tuple : TUPLES) {
+            assertEquals(tuple.toString(), eval.evaluateTVL(crit, tuple), compiled.evaluate(tuple, cc));
+        }
+    }
+
+    private void helpTestExpression(String sql) throws Exception {
+        Expression expr = QueryParser.getQueryParser().parseExpression(sql);
+        ResolverVisitor.resolveLanguageObject(expr, RealMetadataFactory.example1Cached());
+        Map<Expression, Integer> elementMap = RelationalNode.createLookupMap(elements());
+        CompiledExpression compiled = new ExpressionCompiler(elementMap).compile(expr);
+        assertNotNull(compiled);
+        CommandContext cc = new CommandContext();
+        Evaluator eval = new Evaluator(elementMap, null, cc);
+        for (List<?> tuple : TUPLES) {
+            assertEquals(tuple.toString(), eval.evaluate(expr, tuple), compiled.evaluate(tuple, cc));
+        }
+    }
+
+    @Test public void testCompareCriteria() throws Exception {
+        helpTestCriteria("pm1.g1.e2 > 1 and pm1.g1.e4 <= 2");
+        helpTestCriteria("pm1.g1.e1 = 'b' or not (pm1.g1.e3 = true)");
+        helpTestCriteria("pm1.g1.e2 + 1 = pm1.g1.e2 * 2");
+    }
+
+    @Test public void testSetAndIsNullCriteria() throws Exception {
+        helpTestCriteria("pm1.g1.e1 in ('a', 'c')");
+        helpTestCriteria("pm1.g1.e2 not in (1, null)");
+        helpTestCriteria("pm1.g1.e4 is not null and pm1.g1.e1 is null");
+    }
+
+    @Test public void testExpressions() throws Exception {
+        helpTestExpression("concat(pm1.g1.e1, 'x')");
+        helpTestExpression("case pm1.g1.e2 when 1 then 'one' when 3 then 'three' end");
+        helpTestExpression("case when pm1.g1.e4 > 0 then pm1.g1.e4 else 0 - pm1.g1.e4 end");
+    }
+
+    @Test public void testNotCompiled() throws Exception {
+        Expression expr = QueryParser.getQueryParser().parseExpression("rand() + pm1.g1.e2");
+        ResolverVisitor.resolveLanguageObject(expr, RealMetadataFactory.example1Cached());
+        assertNull(new ExpressionCompiler(RelationalNode.createLookupMap(elements())).compile(expr));
+    }
+
+}
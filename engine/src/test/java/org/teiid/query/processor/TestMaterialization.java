@@ -22,6 +22,7 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -31,6 +32,8 @@ import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.FileUtils;
+import org.teiid.core.util.UnitTestUtil;
 import org.teiid.dqp.internal.process.CachedResults;
 import org.teiid.dqp.internal.process.QueryProcessorFactoryImpl;
 import org.teiid.dqp.internal.process.SessionAwareCache;
@@ -41,6 +44,7 @@ import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
+import org.teiid.query.tempdata.GlobalTableStoreImpl.MatState;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
@@ -55,13 +59,14 @@ public class TestMaterialization {
     private TempTableDataManager dataManager;
     private TempTableStore tempStore;
     private GlobalTableStoreImpl globalStore;
+    private TransformationMetadata actualMetadata;
     private ProcessorPlan previousPlan;
     private HardcodedDataManager hdm;
 
     @Before public void setUp() {
         tempStore = new TempTableStore("1", TransactionMode.ISOLATE_WRITES); //$NON-NLS-1$
         BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
-        TransformationMetadata actualMetadata = RealMetadataFactory.exampleMaterializedView();
+        actualMetadata = RealMetadataFactory.exampleMaterializedView();
         globalStore = new GlobalTableStoreImpl(bm, actualMetadata.getVdbMetaData(), actualMetadata);
         metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
         hdm = new HardcodedDataManager();
@@ -111,6 +116,31 @@ public class TestMaterialization {
         this.globalStore.setState(codeTableName, new ByteArrayInputStream(baos.toByteArray()));
     }
 
+    @Test public void testCheckpoint() throws Exception {
+        File dir = new File(UnitTestUtil.getTestScratchPath(), "matviews");
+        FileUtils.removeDirectoryAndChildren(dir);
+        this.globalStore.setCheckpointDirectory(dir);
+        execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+        assertEquals(1, hdm.getCommandHistory().size());
+        assertEquals(1, this.globalStore.getCheckpointDirectory().list().length);
+
+        //simulate a restart
+        this.globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+        this.globalStore.setCheckpointDirectory(dir);
+        execute("SELECT * from vgroup3 where x is null", Arrays.asList(null, null));
+        assertEquals(1, hdm.getCommandHistory().size());
+        String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+        assertEquals(MatState.LOADED, this.globalStore.getMatTableInfo(matTableName).getState());
+
+        //row updates invalidate the checkpoint
+        this.globalStore.updateMatViewRow(matTableName, Arrays.asList("one", "zne"), true);
+        assertEquals(0, this.globalStore.getCheckpointDirectory().list().length);
+
+        //undeploy removes the checkpoints
+        GlobalTableStoreImpl.removeCheckpoints(dir, actualMetadata.getVdbMetaData());
+        assertFalse(this.globalStore.getCheckpointDirectory().exists());
+    }
+
     @Test(expected=TeiidProcessingException.class) public void testCodeTableResponseException() throws Exception {
         //duplicate key
         execute("select lookup('mattable.info', 'e2', 'e1', 'a')");
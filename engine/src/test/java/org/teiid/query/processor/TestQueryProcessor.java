@@ -29,14 +29,17 @@ import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.process.TupleSourceCache;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 /**
  */
@@ -128,6 +131,31 @@ public class TestQueryProcessor {
         helpTestProcessor(plan, expectedResults);
     }
 
+    @Test public void testContinuousColumnarTermination() throws Exception {
+        List elements = new ArrayList();
+        elements.add(new ElementSymbol("x", null, DataTypeManager.DefaultDataClasses.INTEGER)); //$NON-NLS-1$
+
+        ColumnarTupleBatch.Builder builder = new ColumnarTupleBatch.Builder(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}, 2);
+        builder.append(Arrays.asList(1));
+        builder.append(Arrays.asList(2));
+        TupleBatch batch = builder.build(1);
+        batch.setTerminationFlag(true);
+
+        FakeProcessorPlan plan = new FakeProcessorPlan(elements, Arrays.asList(batch));
+        CommandContext context = new CommandContext("pid", "group", null, null, 1); //$NON-NLS-1$ //$NON-NLS-2$
+        context.setOptions(new Options().columnarBatches(true));
+        context.setTupleSourceCache(new TupleSourceCache());
+        QueryProcessor processor = new QueryProcessor(plan, context, BufferManagerFactory.getStandaloneBufferManager(), new FakeDataManager());
+        processor.setContinuous(null, "select x"); //$NON-NLS-1$
+
+        TupleBatch result = processor.nextBatch();
+        assertEquals(TupleBatch.ITERATION_TERMINATED, result.getTermination());
+        assertEquals(3, result.getRowCount());
+        assertEquals(Arrays.asList(2), result.getTuple(2));
+        assertEquals(Arrays.asList((Object)null), result.getTuple(3));
+        processor.closeProcessing();
+    }
+
     @Test public void testCloseBeforeInitialization() throws TeiidComponentException {
         BufferManager bufferMgr = BufferManagerFactory.getStandaloneBufferManager();
         FakeDataManager dataManager = new FakeDataManager();
@@ -1228,6 +1228,83 @@ public class TestWindowFunctions {
         helpProcess(plan, dataManager, expected);
     }
 
+    @Test public void testPartitionedSlidingRows() throws Exception {
+        String sql = "select e1, e2, sum(e2) over (partition by e1 order by e2 ROWS BETWEEN 1 PRECEDING AND CURRENT ROW), max(e2) over (partition by e1 order by e2 ROWS BETWEEN 1 PRECEDING AND CURRENT ROW), avg(e2) over (partition by e1 order by e2 ROWS BETWEEN 1 PRECEDING AND CURRENT ROW) from pm1.g1";
+
+        List<?>[] expected = new List[] {
+                Arrays.asList("a", 0, 0L, 0, 0.0),
+                Arrays.asList(null, 1, 1L, 1, 1.0),
+                Arrays.asList("a", 3, 3L, 3, 1.5),
+                Arrays.asList("c", 1, 1L, 1, 1.0),
+                Arrays.asList("b", 2, 2L, 2, 2.0),
+                Arrays.asList("a", 0, 0L, 0, 0.0),
+        };
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached(), TestOptimizer.getGenericFinder());
+
+        helpProcess(plan, dataManager, expected);
+    }
+
+    @Test public void testSlidingPrecedingAndEmptyFrames() throws Exception {
+        String sql = "select e1, e2, min(e4) over (order by e2, e1 ROWS BETWEEN 2 PRECEDING AND 1 PRECEDING), "
+                + "count(e4) over (order by e2, e1 ROWS BETWEEN 2 PRECEDING AND 1 PRECEDING), "
+                + "min(e4) over (order by e2, e1 ROWS BETWEEN 1 PRECEDING AND CURRENT ROW), "
+                + "max(e1) over (order by e2, e1 ROWS BETWEEN 3 FOLLOWING AND 4 FOLLOWING) from pm1.g1 where e2 > 0";
+
+        //ordered as (null, 1, 1.0), (c, 1, null), (b, 2, 0.0), (a, 3, 7.0)
+        List<?>[] expected = new List[] {
+                Arrays.asList(null, 1, null, 0, 1.0, "a"),
+                Arrays.asList("a", 3, 0.0, 1, 0.0, null),
+                Arrays.asList("c", 1, 1.0, 1, 1.0, null),
+                Arrays.asList("b", 2, 1.0, 1, 0.0, null),
+        };
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached(), TestOptimizer.getGenericFinder());
+
+        helpProcess(plan, dataManager, expected);
+    }
+
+    @Test public void testUnboundedPrecedingBoundedFollowing() throws Exception {
+        String sql = "select e1, e2, max(e2) over (order by e2, e1 ROWS BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOWING), "
+                + "min(e2) over (order by e2, e1 ROWS BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOWING) from pm1.g1 where e2 > 0";
+
+        List<?>[] expected = new List[] {
+                Arrays.asList(null, 1, 1, 1),
+                Arrays.asList("a", 3, 3, 1),
+                Arrays.asList("c", 1, 2, 1),
+                Arrays.asList("b", 2, 3, 1),
+        };
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached(), TestOptimizer.getGenericFinder());
+
+        helpProcess(plan, dataManager, expected);
+    }
+
+    @Test public void testPartitionedSlidingCurrentRow() throws Exception {
+        String sql = "select e1, e2, sum(e2) over (partition by e1 order by e2 ROWS BETWEEN CURRENT ROW AND CURRENT ROW), avg(e2) over (partition by e1 order by e2 ROWS BETWEEN CURRENT ROW AND CURRENT ROW) from pm1.g1";
+
+        List<?>[] expected = new List[] {
+                Arrays.asList("a", 0, 0L, 0.0),
+                Arrays.asList(null, 1, 1L, 1.0),
+                Arrays.asList("a", 3, 3L, 3.0),
+                Arrays.asList("c", 1, 1L, 1.0),
+                Arrays.asList("b", 2, 2L, 2.0),
+                Arrays.asList("a", 0, 0L, 0.0),
+        };
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached(), TestOptimizer.getGenericFinder());
+
+        helpProcess(plan, dataManager, expected);
+    }
+
     @Test public void testPartitionedRows() throws Exception {
         String sql = "select e1, e2, count(e2) over (partition by e1 order by e2 ROWS BETWEEN CURRENT ROW AND UNBOUNDED FOLLOWING) c from pm1.g1";
 
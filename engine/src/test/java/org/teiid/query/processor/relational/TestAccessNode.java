@@ -25,8 +25,15 @@ import java.util.Arrays;
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.metadata.Table;
+import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.processor.RegisterRequestParameter;
 import org.teiid.query.processor.TestProcessor;
 import org.teiid.query.resolver.TestResolver;
 import org.teiid.query.sql.lang.Command;
@@ -40,6 +47,7 @@ import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 
 
@@ -100,6 +108,57 @@ public class TestAccessNode {
         assertEquals(Arrays.asList("SELECT e1, e2 FROM pm1.g1 WHERE e2 = 5"), dataManager.getQueries()); //$NON-NLS-1$
     }
 
+    private int helpCardinalityFeedback(TransformationMetadata metadata, CommandContext context, FakeDataManager dataManager) throws Exception {
+        AccessNode node = new AccessNode(1);
+        Query query = (Query)TestResolver.helpResolve("SELECT e1, e2 FROM pm1.g1", metadata); //$NON-NLS-1$
+        node.setCommand(query);
+        context.setOptions(new Options().cardinalityFeedback(true));
+        BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+        node.setElements(query.getProjectedSymbols());
+        node.initialize(context, bm, dataManager);
+        node.open();
+        TupleBatch batch = null;
+        int rows = 0;
+        do {
+            batch = node.nextBatch();
+            rows += batch.getRowCount();
+        } while (!batch.getTerminationFlag());
+        return rows;
+    }
+
+    @Test public void testCardinalityFeedback() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        CommandContext context = new CommandContext();
+        FakeDataManager dataManager = new FakeDataManager();
+        TestProcessor.sampleData1(dataManager);
+        Table table = (Table)metadata.getGroupID("pm1.g1"); //$NON-NLS-1$
+        table.setLastModified(1);
+        int rows = helpCardinalityFeedback(metadata, context, dataManager);
+        assertTrue(rows > 0);
+        assertEquals(rows, context.getObservedCardinalities().getCardinality(table), 0);
+        //the shared metadata is not modified
+        assertEquals(Table.UNKNOWN_CARDINALITY, table.getCardinality());
+        assertEquals(1, table.getLastModified());
+    }
+
+    @Test public void testCardinalityFeedbackWithWarnings() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        final CommandContext context = new CommandContext();
+        FakeDataManager dataManager = new FakeDataManager() {
+            @Override
+            public TupleSource registerRequest(CommandContext ctx, Command command,
+                    String modelName, RegisterRequestParameter parameterObject)
+                    throws TeiidComponentException {
+                //simulate a partial results failure
+                context.addWarning(new TeiidProcessingException("partial")); //$NON-NLS-1$
+                return super.registerRequest(ctx, command, modelName, parameterObject);
+            }
+        };
+        TestProcessor.sampleData1(dataManager);
+        assertTrue(helpCardinalityFeedback(metadata, context, dataManager) > 0);
+        assertEquals(Table.UNKNOWN_CARDINALITY, context.getObservedCardinalities().getCardinality(metadata.getGroupID("pm1.g1")), 0); //$NON-NLS-1$
+    }
+
     @Test public void testShouldExecuteUpdate() throws Exception {
         Update update = new Update();
 
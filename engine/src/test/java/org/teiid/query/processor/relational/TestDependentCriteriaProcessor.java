@@ -24,13 +24,26 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.resolver.TestResolver;
+import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.lang.CompareCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.DependentSetCriteria;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 
 public class TestDependentCriteriaProcessor {
@@ -72,4 +85,91 @@ public class TestDependentCriteriaProcessor {
         assertFalse(dcp.hasNextCommand());
     }
 
+    @Test public void testBloomFilterOverMaxNdv() throws Exception {
+        ElementSymbol e1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        e1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+        x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getStandaloneBufferManager();
+        TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 100; i++) {
+            tb.addTuple(Arrays.asList(i * 2));
+        }
+        tb.close();
+        DependentValueSource dvs = new DependentValueSource(tb);
+        dvs.setDistinct(true);
+
+        DependentAccessNode dan = new DependentAccessNode(0);
+        dan.setElements(Arrays.asList(e1));
+        CommandContext cc = new CommandContext();
+        cc.setOptions(new Options().dependentJoinBloomFilter(true));
+        cc.getVariableContext().setGlobalValue("ds", dvs); //$NON-NLS-1$
+        dan.initialize(cc, bm, null);
+
+        DependentSetCriteria dsc = new DependentSetCriteria(e1, "ds"); //$NON-NLS-1$
+        dsc.setValueExpression(x);
+        dsc.setMaxNdv(10);
+        DependentCriteriaProcessor dcp = new DependentCriteriaProcessor(1, -1, dan, dsc);
+        dcp.prepareCriteria();
+        assertFalse(dcp.hasNextCommand());
+        assertTrue(dcp.hasFilters());
+
+        int matches = 0;
+        for (int i = 0; i < 200; i++) {
+            boolean match = dcp.mightMatch(Arrays.asList(i));
+            if (i % 2 == 0) {
+                assertTrue(match);
+            } else if (match) {
+                matches++;
+            }
+        }
+        //false positives are possible, but should be rare
+        assertTrue(matches < 10);
+        assertFalse(dcp.mightMatch(Arrays.asList((Object)null)));
+
+        long reserved = bm.getReserveBatchBytes();
+        dcp.close();
+        assertFalse(dcp.hasFilters());
+        assertTrue(bm.getReserveBatchBytes() > reserved);
+    }
+
+    private Criteria helpCardinalityFeedback(boolean feedback) throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        Query query = (Query)TestResolver.helpResolve("SELECT e1, e2 FROM pm1.g1", metadata); //$NON-NLS-1$
+        ElementSymbol e2 = (ElementSymbol)query.getProjectedSymbols().get(1);
+        ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+        x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+        TupleBuffer tb = bm.createTupleBuffer(Arrays.asList(x), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 100; i++) {
+            tb.addTuple(Arrays.asList(i));
+        }
+        tb.close();
+        DependentValueSource dvs = new DependentValueSource(tb);
+        dvs.setDistinct(true);
+
+        DependentAccessNode dan = new DependentAccessNode(0);
+        dan.setCommand(query);
+        dan.setElements(query.getProjectedSymbols());
+        CommandContext cc = new CommandContext();
+        cc.setOptions(new Options().cardinalityFeedback(feedback));
+        cc.getVariableContext().setGlobalValue("ds", dvs); //$NON-NLS-1$
+        //fewer rows in the dependent table than independent values
+        cc.getObservedCardinalities().setCardinality(metadata.getGroupID("pm1.g1"), 10); //$NON-NLS-1$
+        dan.setContext(cc);
+
+        DependentSetCriteria dsc = new DependentSetCriteria(e2, "ds"); //$NON-NLS-1$
+        dsc.setValueExpression(x);
+        DependentCriteriaProcessor dcp = new DependentCriteriaProcessor(-1, -1, dan, dsc);
+        return dcp.prepareCriteria();
+    }
+
+    @Test public void testCardinalityFeedback() throws Exception {
+        assertEquals(QueryRewriter.TRUE_CRITERIA, helpCardinalityFeedback(true));
+    }
+
+    @Test public void testCardinalityFeedbackDisabled() throws Exception {
+        assertFalse(QueryRewriter.TRUE_CRITERIA.equals(helpCardinalityFeedback(false)));
+    }
+
 }
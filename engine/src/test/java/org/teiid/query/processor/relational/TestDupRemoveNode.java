@@ -0,0 +1,132 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestDupRemoveNode {
+
+    private List<List<?>> helpProcess(Class<?> type, List<?>[] data, int hashCapacity) throws Exception {
+        return helpProcess(type, data, hashCapacity, BufferManagerFactory.getStandaloneBufferManager());
+    }
+
+    private List<List<?>> helpProcess(Class<?> type, List<?>[] data, int hashCapacity, BufferManagerImpl mgr) throws Exception {
+        DupRemoveNode node = getNode(type, data, hashCapacity, mgr);
+        node.open();
+        List<List<?>> result = new ArrayList<List<?>>();
+        while (true) {
+            TupleBatch batch = node.nextBatch();
+            result.addAll(batch.getTuples());
+            if (batch.getTerminationFlag()) {
+                break;
+            }
+        }
+        node.close();
+        return result;
+    }
+
+    private DupRemoveNode getNode(Class<?> type, List<?>[] data, int hashCapacity, BufferManager mgr) {
+        ElementSymbol es1 = new ElementSymbol("e1");
+        es1.setType(type);
+        ElementSymbol es2 = new ElementSymbol("e2");
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        List<ElementSymbol> elements = Arrays.asList(es1, es2);
+
+        FakeRelationalNode child = new FakeRelationalNode(2, data);
+        child.setElements(elements);
+        DupRemoveNode node = new DupRemoveNode(1);
+        node.setElements(elements);
+        node.setHashCapacity(hashCapacity);
+        node.addChild(child);
+
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);
+        FakeDataManager fdm = new FakeDataManager();
+        child.initialize(context, mgr, fdm);
+        node.initialize(context, mgr, fdm);
+        return node;
+    }
+
+    private List<?>[] getData() {
+        List<?>[] data = new List<?>[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = Arrays.asList(String.valueOf(i % 7), (i * 3) % 50);
+        }
+        return data;
+    }
+
+    private List<List<?>> getExpected(List<?>[] data) {
+        List<List<?>> expected = new ArrayList<List<?>>();
+        for (List<?> row : data) {
+            if (!expected.contains(row)) {
+                expected.add(row);
+            }
+        }
+        return expected;
+    }
+
+    @Test public void testHashDistinct() throws Exception {
+        List<?>[] data = getData();
+        assertEquals(getExpected(data), helpProcess(DataTypeManager.DefaultDataClasses.STRING, data, 0));
+    }
+
+    @Test public void testHashDistinctOverCapacity() throws Exception {
+        List<?>[] data = getData();
+        assertEquals(getExpected(data), helpProcess(DataTypeManager.DefaultDataClasses.STRING, data, 10));
+    }
+
+    @Test public void testIncrementalReservation() throws Exception {
+        List<?>[] data = new List<?>[5000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = Arrays.asList(String.valueOf(i), i % 3);
+        }
+        BufferManagerImpl mgr = BufferManagerFactory.getStandaloneBufferManager();
+        long reserve = mgr.getReserveBatchBytes();
+        DupRemoveNode node = getNode(DataTypeManager.DefaultDataClasses.STRING, data, 0, mgr);
+        node.open();
+        //only a batch worth of rows is reserved up front
+        assertEquals(mgr.getProcessorBatchSize(), node.getHashCapacity());
+        assertTrue(reserve - mgr.getReserveBatchBytes() < mgr.getMaxProcessingSize());
+        node.close();
+        assertEquals(reserve, mgr.getReserveBatchBytes());
+
+        assertEquals(Arrays.asList(data), helpProcess(DataTypeManager.DefaultDataClasses.STRING, data, 0, mgr));
+        assertEquals(reserve, mgr.getReserveBatchBytes());
+    }
+
+    @Test public void testNotHashable() throws Exception {
+        List<?>[] data = getData();
+        assertEquals(getExpected(data), helpProcess(DataTypeManager.DefaultDataClasses.OBJECT, data, 0));
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.service.TransactionContext;
+import org.teiid.dqp.service.TransactionContext.Scope;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestExchangeNode {
+
+    private List<?>[] getRows(int count) {
+        List<?>[] rows = new List<?>[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = Arrays.asList(i);
+        }
+        return rows;
+    }
+
+    private ExchangeNode getExchangeNode(RelationalNode child) {
+        ElementSymbol es = new ElementSymbol("e1");
+        es.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        List<ElementSymbol> elements = Arrays.asList(es);
+        child.setElements(elements);
+        ExchangeNode node = new ExchangeNode(1);
+        node.setElements(elements);
+        node.setMaxBatches(2);
+        node.addChild(child);
+        BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);
+        FakeDataManager fdm = new FakeDataManager();
+        RelationalPlan.connectExternal(node, context, fdm, mgr);
+        return node;
+    }
+
+    private int helpProcess(ExchangeNode node, List<?>[] expected) throws TeiidComponentException, TeiidProcessingException {
+        node.open();
+        int currentRow = 1;
+        try {
+            while (true) {
+                try {
+                    TupleBatch batch = node.nextBatch();
+                    for (int row = currentRow; row <= batch.getEndRow(); row++) {
+                        assertEquals("Rows don't match at " + row, expected[row-1], batch.getTuple(row));
+                    }
+                    currentRow += batch.getRowCount();
+                    if (batch.getTerminationFlag()) {
+                        break;
+                    }
+                } catch (BlockedException e) {
+                    Thread.yield();
+                }
+            }
+        } finally {
+            node.close();
+        }
+        return currentRow - 1;
+    }
+
+    @Test public void testExchange() throws Exception {
+        List<?>[] rows = getRows(100);
+        ExchangeNode node = getExchangeNode(new FakeRelationalNode(2, rows, 7));
+        assertEquals(100, helpProcess(node, rows));
+    }
+
+    @Test public void testExchangeBlockingChild() throws Exception {
+        List<?>[] rows = getRows(100);
+        BlockingFakeRelationalNode child = new BlockingFakeRelationalNode(2, rows, 7);
+        child.setReturnPeriod(3);
+        ExchangeNode node = getExchangeNode(child);
+        assertEquals(100, helpProcess(node, rows));
+    }
+
+    @Test public void testExchangeNoRows() throws Exception {
+        ExchangeNode node = getExchangeNode(new FakeRelationalNode(2, new List[0], 7));
+        assertEquals(0, helpProcess(node, new List[0]));
+    }
+
+    @Test public void testExchangeInTransaction() throws Exception {
+        List<?>[] rows = getRows(100);
+        final Thread current = Thread.currentThread();
+        FakeRelationalNode child = new FakeRelationalNode(2, rows, 7) {
+            @Override
+            public TupleBatch nextBatchDirect() throws BlockedException,
+                    TeiidComponentException, TeiidProcessingException {
+                assertSame(current, Thread.currentThread());
+                return super.nextBatchDirect();
+            }
+        };
+        ExchangeNode node = getExchangeNode(child);
+        TransactionContext tc = new TransactionContext();
+        tc.setTransactionType(Scope.LOCAL);
+        node.getContext().setTransactionContext(tc);
+        assertEquals(100, helpProcess(node, rows));
+    }
+
+    @Test public void testExchangeChildContext() throws Exception {
+        List<?>[] rows = getRows(100);
+        FakeRelationalNode child = new FakeRelationalNode(2, rows, 7) {
+            @Override
+            public TupleBatch nextBatchDirect() throws BlockedException,
+                    TeiidComponentException, TeiidProcessingException {
+                getContext().setDeterminismLevel(Determinism.NONDETERMINISTIC);
+                getContext().accessedDataObject("x");
+                return super.nextBatchDirect();
+            }
+        };
+        ExchangeNode node = getExchangeNode(child);
+        CommandContext context = node.getContext();
+        context.setDataObjects(new HashSet<Object>());
+        RelationalPlan.connectExternal(node, context, new FakeDataManager(), BufferManagerFactory.getStandaloneBufferManager());
+        assertNotSame(context, child.getContext());
+        assertEquals(100, helpProcess(node, rows));
+        assertEquals(Determinism.NONDETERMINISTIC, context.getDeterminismLevel());
+        assertEquals(Collections.singleton("x"), context.getDataObjects());
+    }
+
+    @Test(expected=TeiidProcessingException.class) public void testExchangeFailure() throws Exception {
+        List<?>[] rows = getRows(100);
+        FakeRelationalNode child = new FakeRelationalNode(2, rows, 7) {
+            int count;
+            @Override
+            public TupleBatch nextBatchDirect() throws BlockedException,
+                    TeiidComponentException, TeiidProcessingException {
+                if (count++ == 2) {
+                    throw new TeiidProcessingException("failed");
+                }
+                return super.nextBatchDirect();
+            }
+        };
+        ExchangeNode node = getExchangeNode(child);
+        helpProcess(node, rows);
+    }
+
+}
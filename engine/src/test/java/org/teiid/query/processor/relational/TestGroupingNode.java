@@ -57,6 +57,8 @@ import org.teiid.query.util.CommandContext;
 @SuppressWarnings({"unchecked", "rawtypes", "nls"})
 public class TestGroupingNode {
 
+    private boolean unordered;
+
     public static FakeTupleSource createTupleSource1() {
         List<ElementSymbol> symbols = new ArrayList<ElementSymbol>();
         symbols.add(new ElementSymbol("col1")); //$NON-NLS-1$
@@ -108,11 +110,16 @@ public class TestGroupingNode {
         node.open();
 
         int currentRow = 1;
+        List<List<?>> actual = new ArrayList<List<?>>();
         while(true) {
             try {
                 TupleBatch batch = node.nextBatch();
                 for(int row = currentRow; row <= batch.getEndRow(); row++) {
                     List tuple = batch.getTuple(row);
+                    if (unordered) {
+                        actual.add(tuple);
+                        continue;
+                    }
                     assertEquals("Rows don't match at " + row, expected[row-1], tuple); //$NON-NLS-1$
                 }
                 currentRow += batch.getRowCount();
@@ -124,6 +131,9 @@ public class TestGroupingNode {
             }
         }
         assertEquals(expected.length, currentRow -1);
+        if (unordered) {
+            UnorderedAssert.assertRowsEqual(expected, actual);
+        }
     }
 
     // ################################## ACTUAL TESTS ################################
@@ -478,6 +488,51 @@ public class TestGroupingNode {
         helpProcess(mgr, node, context, expected, null);
     }
 
+    @Test public void testHashAggregation() throws Exception {
+        helpTestHashAggregation(BufferManagerFactory.getStandaloneBufferManager());
+    }
+
+    /**
+     * With no processing memory the hash table holds only a batch of groups and the remaining input is spilled
+     */
+    @Test public void testHashAggregationSpill() throws Exception {
+        helpTestHashAggregation(BufferManagerFactory.getTestBufferManager(1, 2));
+    }
+
+    private void helpTestHashAggregation(BufferManager mgr) throws Exception {
+        GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, null)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("MAX", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        node.setOrderBy(new OrderBy(Arrays.asList(col1)).getOrderByItems());
+        node.setHashAggregation(true);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] { null, new Integer(2), new Long(3), new Integer(3) }),
+            Arrays.asList(new Object[] { new Integer(0), new Integer(1), new Long(4), new Integer(4) }),
+            Arrays.asList(new Object[] { new Integer(1), new Integer(1), new Long(2), new Integer(2) }),
+            Arrays.asList(new Object[] { new Integer(2), new Integer(4), new Long(5), new Integer(2) }),
+            Arrays.asList(new Object[] { new Integer(3), new Integer(1), new Long(0), new Integer(0) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(3), new Long(5), new Integer(3) }),
+            Arrays.asList(new Object[] { new Integer(5), new Integer(1), new Long(3), new Integer(3) }),
+            Arrays.asList(new Object[] { new Integer(6), new Integer(2), new Long(7), new Integer(4) })
+        };
+
+        //the output is not ordered by the grouping column
+        unordered = true;
+        helpProcess(mgr, node, context, expected, null);
+        assertTrue(node.getDescriptionProperties().toString().contains("Hash Aggregation"));
+        node.close();
+    }
+
     private GroupingNode getExampleGroupingNode() {
         GroupingNode node = new GroupingNode(1);
         List outputElements = new ArrayList();
@@ -77,6 +77,7 @@ public class TestJoinNode {
     private BlockingFakeRelationalNode rightNode;
 
     private FakeDataManager dataMgr;
+    private boolean unordered;
 
     @Before public void setup() {
         leftTuples = createTuples1();
@@ -270,11 +271,16 @@ public class TestJoinNode {
         join.open();
 
         int currentRow = 1;
+        List<List<?>> actual = new ArrayList<List<?>>();
         while(true) {
             try {
                 TupleBatch batch = join.nextBatch();
                 for(;currentRow <= batch.getEndRow(); currentRow++) {
                     List tuple = batch.getTuple(currentRow);
+                    if (unordered) {
+                        actual.add(tuple);
+                        continue;
+                    }
                     assertEquals("Rows don't match at " + currentRow, expectedResults[currentRow-1], tuple); //$NON-NLS-1$
                 }
                 if(batch.getTerminationFlag()) {
@@ -285,6 +291,9 @@ public class TestJoinNode {
             }
         }
         assertEquals(expectedResults.length, currentRow - 1);
+        if (unordered) {
+            UnorderedAssert.assertRowsEqual(expectedResults, actual);
+        }
         join.close();
     }
 
@@ -783,6 +792,87 @@ public class TestJoinNode {
         helpTestJoinDirect(expected, 10, 1);
     }
 
+    @Test public void testHashJoinLeftOuter() throws Exception {
+        this.joinType = JoinType.JOIN_LEFT_OUTER;
+        int rows = 12;
+        List[] data = new List[rows];
+        for(int i=0; i<rows; i++) {
+            data[i] = new ArrayList();
+            Integer value = new Integer((i*17) % 45);
+            data[i].add(value);
+        }
+        this.leftTuples = data;
+        this.rightTuples = createTuples2();
+        //output is in the order of the probe (left) side
+        expected = new List[] {
+           Arrays.asList(new Object[] { 0, null }),
+           Arrays.asList(new Object[] {17, null }),
+           Arrays.asList(new Object[] {34, null }),
+           Arrays.asList(new Object[] { 6, 6 }),
+           Arrays.asList(new Object[] {23, null }),
+           Arrays.asList(new Object[] {40, null }),
+           Arrays.asList(new Object[] {12, null }),
+           Arrays.asList(new Object[] {29, null }),
+           Arrays.asList(new Object[] { 1, 1 }),
+           Arrays.asList(new Object[] {18, null }),
+           Arrays.asList(new Object[] {35, null }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+        };
+
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+        this.join.setJoinStrategy(joinStrategy);
+
+        helpTestJoinDirect(expected, 10, 100000);
+        assertEquals("HASH JOIN", this.join.getJoinStrategy().getName());
+    }
+
+    @Test public void testHashJoinPartitioned() throws Exception {
+        this.joinType = JoinType.JOIN_INNER;
+        this.leftTuples = createTuples1();
+        this.rightTuples = createTuples2();
+        expected = new List[] {
+            Arrays.asList(new Object[] { new Integer(1), new Integer(1) }),
+            Arrays.asList(new Object[] { new Integer(2), new Integer(2) }),
+            Arrays.asList(new Object[] { new Integer(2), new Integer(2) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(4) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(4) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(4) }),
+            Arrays.asList(new Object[] { new Integer(4), new Integer(4) })
+        };
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+        this.join.setJoinStrategy(joinStrategy);
+        //with no processing memory the sides are partitioned, so the output order is not defined
+        this.unordered = true;
+        helpTestJoinDirect(expected, 2, 1);
+        HashJoinStrategy strategy = (HashJoinStrategy)this.join.getJoinStrategy();
+        assertEquals("HASH JOIN", strategy.getName());
+        assertEquals(6, strategy.getPartitionCount());
+    }
+
+    @Test public void testHashJoinSkewedFallback() throws Exception {
+        this.joinType = JoinType.JOIN_INNER;
+        int rows = 6;
+        List[] data = new List[rows];
+        for(int i=0; i<rows; i++) {
+            data[i] = Arrays.asList(1);
+        }
+        this.leftTuples = data;
+        this.rightTuples = data;
+        expected = new List[rows * rows];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = Arrays.asList(1, 1);
+        }
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+        this.join.setJoinStrategy(joinStrategy);
+        //all rows share a partition that cannot fit in its reservation
+        helpTestJoinDirect(expected, 2, 1);
+        assertEquals("HASH JOIN RAN AS SORT MERGE", this.join.getJoinStrategy().getName());
+    }
+
     @Test public void testMergeJoinOptimizationLeftOuterEmpty() throws Exception {
         this.joinType = JoinType.JOIN_LEFT_OUTER;
         int rows = 12;
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.TreeSet;
 
 import org.junit.Test;
+import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
@@ -377,4 +378,63 @@ public class TestSortNode {
         assertNull(ts.nextTuple());
     }
 
+    @Test public void testParallelSort() throws Exception {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManager bm = BufferManagerFactory.getTestBufferManager(20000, 2);
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 2000; i++) {
+            tsid.addTuple(Arrays.asList((i*17)%101, i));
+        }
+        tsid.close();
+        for (Mode mode : new Mode[] {Mode.SORT, Mode.DUP_REMOVE}) {
+            List<List<?>> expected = helpSort(tsid, mode, bm, 1);
+            List<List<?>> actual = helpSort(tsid, mode, bm, 4);
+            assertEquals(mode == Mode.SORT?2000:101, expected.size());
+            assertEquals(expected, actual);
+            for (int i = 1; i < actual.size(); i++) {
+                assertTrue((Integer)actual.get(i - 1).get(0) <= (Integer)actual.get(i).get(0));
+            }
+        }
+    }
+
+    @Test public void testParallelSortSessionAccounting() throws Exception {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManager bm = BufferManagerFactory.getTestBufferManager(20000, 2);
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        for (int i = 0; i < 2000; i++) {
+            tsid.addTuple(Arrays.asList((i*17)%101));
+        }
+        tsid.close();
+        CommandContext cc = new CommandContext();
+        SessionMetadata session = new SessionMetadata();
+        cc.setSession(session);
+        CommandContext.pushThreadLocalContext(cc);
+        try {
+            assertEquals(2000, helpSort(tsid, Mode.SORT, bm, 4).size());
+        } finally {
+            CommandContext.popThreadLocalContext();
+        }
+        //the parallel runs must be accounted against the same session
+        assertEquals(0, session.getBytesUsed());
+    }
+
+    private List<List<?>> helpSort(TupleBuffer tsid, Mode mode, BufferManager bm, int parallelism) throws TeiidException {
+        SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList((ElementSymbol)tsid.getSchema().get(0)), Arrays.asList(Boolean.TRUE), mode, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+        su.setStableSort(true);
+        su.setParallelism(parallelism, 1);
+        TupleBuffer out = su.sort();
+        List<List<?>> result = new ArrayList<List<?>>();
+        TupleSource ts = out.createIndexedTupleSource();
+        List<?> tuple = null;
+        while ((tuple = ts.nextTuple()) != null) {
+            result.add(tuple);
+        }
+        out.remove();
+        return result;
+    }
+
 }
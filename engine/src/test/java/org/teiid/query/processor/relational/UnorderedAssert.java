@@ -0,0 +1,47 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares processing results when the row order is not deterministic, such as from hash based operations.
+ */
+public class UnorderedAssert {
+
+    @SuppressWarnings("rawtypes")
+    public static void assertRowsEqual(List[] expected, List<? extends List<?>> actual) {
+        List<String> expectedStrings = new ArrayList<String>();
+        for (List<?> tuple : expected) {
+            expectedStrings.add(tuple.toString());
+        }
+        List<String> actualStrings = new ArrayList<String>();
+        for (List<?> tuple : actual) {
+            actualStrings.add(tuple.toString());
+        }
+        Collections.sort(expectedStrings);
+        Collections.sort(actualStrings);
+        assertEquals(expectedStrings, actualStrings);
+    }
+
+}
@@ -18,6 +18,7 @@
 
 package org.teiid.deployers;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -45,9 +46,18 @@ import org.teiid.runtime.RuntimePlugin;
 public class CompositeGlobalTableStore implements GlobalTableStore {
 
     public static GlobalTableStore createInstance(CompositeVDB vdb, BufferManager bufferManager, ObjectReplicator replicator) {
+        return createInstance(vdb, bufferManager, replicator, null);
+    }
+
+    /**
+     * @param checkpointDirectory if not null, the directory in which loaded mat views are checkpointed
+     */
+    public static GlobalTableStore createInstance(CompositeVDB vdb, BufferManager bufferManager, ObjectReplicator replicator, File checkpointDirectory) {
         VDBMetaData vdbMetadata = vdb.getVDB();
         QueryMetadataInterface metadata = vdbMetadata.getAttachment(TransformationMetadata.class);
-        GlobalTableStore gts = new GlobalTableStoreImpl(bufferManager, vdbMetadata, metadata);
+        GlobalTableStoreImpl store = new GlobalTableStoreImpl(bufferManager, vdbMetadata, metadata);
+        store.setCheckpointDirectory(checkpointDirectory);
+        GlobalTableStore gts = store;
         if (replicator != null) {
             try {
                 gts = replicator.replicate(vdbMetadata.getFullName(), GlobalTableStore.class, gts, 300000);
@@ -45,6 +45,10 @@ public class EmbeddedAdminFactory {
         stats.setActivePlanCount(dqp.getActivePlanCount());
         stats.setWaitPlanCount(dqp.getWaitingPlanCount());
         stats.setMaxWaitPlanWaterMark(dqp.getMaxWaitingPlanWatermark());
+        stats.setAverageWaitPlanTimeMs(dqp.getAverageWaitingPlanTime());
+        stats.setMaxWaitPlanTimeMs(dqp.getMaxWaitingPlanTime());
+        stats.setShedPlanCount(dqp.getShedPlanCount());
+        stats.setActivePlanReservationEstimateKb(dqp.getActivePlanReservationEstimate()/1024);
         return stats;
     }
 
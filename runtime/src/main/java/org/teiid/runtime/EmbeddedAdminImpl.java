@@ -26,6 +26,7 @@ import org.teiid.adminapi.impl.PropertyDefinitionMetadata;
 import org.teiid.adminapi.impl.SourceMappingMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.adminapi.impl.VDBTranslatorMetaData;
+import org.teiid.adminapi.impl.WorkerPoolStatisticsMetadata;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.deployers.ExtendedPropertyMetadata;
@@ -307,7 +308,13 @@ public class EmbeddedAdminImpl implements Admin {
 
     @Override
     public Collection<? extends WorkerPoolStatistics> getWorkerPoolStats() throws AdminException {
-        return Arrays.asList(this.embeddedServer.dqp.getWorkerPoolStatistics());
+        List<WorkerPoolStatisticsMetadata> result = new ArrayList<WorkerPoolStatisticsMetadata>(2);
+        result.add(this.embeddedServer.dqp.getWorkerPoolStatistics());
+        WorkerPoolStatisticsMetadata sourceStats = this.embeddedServer.dqp.getSourceWorkerPoolStatistics();
+        if (sourceStats != null) {
+            result.add(sourceStats);
+        }
+        return result;
     }
 
     @Override
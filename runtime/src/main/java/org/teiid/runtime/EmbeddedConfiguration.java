@@ -40,6 +40,7 @@ public class EmbeddedConfiguration extends DQPConfiguration {
     private TransactionManager transactionManager;
     private ObjectReplicator objectReplicator;
     private boolean useDisk = true;
+    private boolean checkpointMatViews;
     private String bufferDirectory;
     private CacheFactory cacheFactory;
     private int maxResultSetCacheStaleness = DEFAULT_MAX_STALENESS_SECONDS;
@@ -115,6 +116,18 @@ public class EmbeddedConfiguration extends DQPConfiguration {
         this.useDisk = useDisk;
     }
 
+    public boolean isCheckpointMatViews() {
+        return checkpointMatViews;
+    }
+
+    /**
+     * Checkpoint loaded internal materialized views under the buffer directory
+     * so that they may be restored rather than reloaded after a restart
+     */
+    public void setCheckpointMatViews(boolean checkpointMatViews) {
+        this.checkpointMatViews = checkpointMatViews;
+    }
+
     public void setBufferDirectory(String dir) {
         this.bufferDirectory = dir;
     }
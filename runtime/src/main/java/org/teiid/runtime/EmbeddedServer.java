@@ -112,6 +112,7 @@ import org.teiid.query.metadata.VDBResources;
 import org.teiid.query.metadata.VirtualFile;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.tempdata.GlobalTableStore;
+import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.validator.ValidatorFailure;
 import org.teiid.query.validator.ValidatorReport;
 import org.teiid.runtime.jmx.JMXService;
@@ -510,6 +511,7 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
         if(config.getMaxFileSize() != -1)
             this.bufferService.setMaxFileSize(config.getMaxFileSize());
         this.bufferService.setEncryptFiles(config.isEncryptFiles());
+        this.bufferService.setCheckpointMatViews(config.isCheckpointMatViews());
         if(config.getMaxStorageObjectSize() != -1) {
             this.bufferService.setMaxStorageObjectSize(config.getMaxStorageObjectSize());
         }
@@ -561,6 +563,8 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
                 if (replicator != null) {
                     replicator.stop(vdb.getVDB().getAttachment(GlobalTableStore.class));
                 }
+                //the checkpoints are only kept across restarts, not redeployments
+                GlobalTableStoreImpl.removeCheckpoints(bufferService.getMatViewCheckpointDirectory(), vdb.getVDB());
                 rs.clearForVDB(vdb.getVDBKey());
                 ppc.clearForVDB(vdb.getVDBKey());
                 for (SessionMetadata session : sessionService.getSessionsLoggedInToVDB(vdb.getVDBKey())) {
@@ -576,7 +580,7 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
                 if (!vdb.getVDB().getStatus().equals(Status.ACTIVE)) {
                     return;
                 }
-                GlobalTableStore gts = CompositeGlobalTableStore.createInstance(vdb, dqp.getBufferManager(), replicator);
+                GlobalTableStore gts = CompositeGlobalTableStore.createInstance(vdb, dqp.getBufferManager(), replicator, bufferService.getMatViewCheckpointDirectory());
 
                 vdb.getVDB().addAttachment(GlobalTableStore.class, gts);
             }
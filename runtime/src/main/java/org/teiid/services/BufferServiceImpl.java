@@ -27,6 +27,7 @@ import org.teiid.common.buffer.StorageManager;
 import org.teiid.common.buffer.TupleBufferCache;
 import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.common.buffer.impl.ChannelFileStorageManager;
 import org.teiid.common.buffer.impl.EncryptedStorageManager;
 import org.teiid.common.buffer.impl.FileStorageManager;
 import org.teiid.common.buffer.impl.MemoryStorageManager;
@@ -74,6 +75,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
     //disk properties
     private File bufferDir;
     private boolean encryptFiles = false;
+    private boolean fileChannels = false;
+    private boolean memoryMappedFiles = false;
+    private boolean compressFiles = false;
+    private int writeBehindThreads;
+    private boolean scanResistantEviction = false;
+    private boolean checkpointMatViews = false;
+    private boolean deduplicateLobs = false;
     private int maxOpenFiles = FileStorageManager.DEFAULT_MAX_OPEN_FILES;
     private long maxFileSize = SplittableStorageManager.DEFAULT_MAX_FILESIZE; // 2GB
     private long maxDiskBufferSpace = FileStorageManager.DEFAULT_MAX_BUFFERSPACE>>20;
@@ -98,6 +106,9 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
             this.bufferMgr.setSessionService(sessionService);
+            this.bufferMgr.setWriteBehindThreads(writeBehindThreads);
+            this.bufferMgr.setScanResistantEviction(scanResistantEviction);
+            this.bufferMgr.setDeduplicateLobs(deduplicateLobs);
             this.bufferMgr.initialize();
 
             // If necessary, add disk storage manager
@@ -110,7 +121,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 // wise FileStorageManager is smart enough to clean up after itself
                 cleanDirectory(bufferDir);
                 // Get the properties for FileStorageManager and create.
-                fsm = new FileStorageManager();
+                if (fileChannels) {
+                    ChannelFileStorageManager cfsm = new ChannelFileStorageManager();
+                    cfsm.setMemoryMapped(memoryMappedFiles);
+                    fsm = cfsm;
+                } else {
+                    fsm = new FileStorageManager();
+                }
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
                 fsm.setMaxOpenFiles(maxOpenFiles);
                 fsm.setMaxBufferSpace(maxDiskBufferSpace*MB);
@@ -124,6 +141,10 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc.setBufferManager(this.bufferMgr);
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(fixedMemoryBufferOffHeap);
+                if (compressFiles) {
+                    fsc.setCompressBufferFiles(true);
+                }
+                fsc.setScanResistantEviction(scanResistantEviction);
                 if (fixedMemoryBufferSpaceMb < 0) {
                     //use approximately 40% of what's set aside for the reserved accounting for conversion from kb to bytes
                     long autoMaxBufferSpace = 4*(((long)this.bufferMgr.getMaxReserveKB())<<10)/10;
@@ -316,6 +337,27 @@ public class BufferServiceImpl implements BufferService, Serializable {
         return 0;
     }
 
+    public double getDiskCompressionRatio() {
+        if (fsc != null) {
+            return fsc.getCompressionRatio();
+        }
+        return 1;
+    }
+
+    public long getDiskCompressionTimeMs() {
+        if (fsc != null) {
+            return fsc.getCompressionTimeNanos()/1000000;
+        }
+        return 0;
+    }
+
+    public long getDiskCompressionSavedKb() {
+        if (fsc != null) {
+            return fsc.getCompressionBytesSaved() >> 10;
+        }
+        return 0;
+    }
+
     public long getMemoryBufferUsedKb() {
         if (fsc != null) {
             return fsc.getMemoryInUseBytes() >> 10;
@@ -355,6 +397,94 @@ public class BufferServiceImpl implements BufferService, Serializable {
         this.encryptFiles = encryptFiles;
     }
 
+    public boolean isFileChannels() {
+        return fileChannels;
+    }
+
+    /**
+     * Use positional file channel I/O for the buffer files
+     */
+    public void setFileChannels(boolean fileChannels) {
+        this.fileChannels = fileChannels;
+    }
+
+    public boolean isMemoryMappedFiles() {
+        return memoryMappedFiles;
+    }
+
+    /**
+     * Memory map the buffer files for reads.  Only used with file channels.
+     */
+    public void setMemoryMappedFiles(boolean memoryMappedFiles) {
+        this.memoryMappedFiles = memoryMappedFiles;
+    }
+
+    public int getWriteBehindThreads() {
+        return writeBehindThreads;
+    }
+
+    /**
+     * Set the number of threads used to write evicted batches, 0 to write on the processing thread
+     */
+    public void setWriteBehindThreads(int writeBehindThreads) {
+        this.writeBehindThreads = writeBehindThreads;
+    }
+
+    public boolean isCompressFiles() {
+        return compressFiles;
+    }
+
+    /**
+     * Compress objects written to the buffer files
+     */
+    public void setCompressFiles(boolean compressFiles) {
+        this.compressFiles = compressFiles;
+    }
+
+    public boolean isScanResistantEviction() {
+        return scanResistantEviction;
+    }
+
+    /**
+     * Use scan resistant eviction, so that batches read only once do not displace frequently used batches
+     */
+    public void setScanResistantEviction(boolean scanResistantEviction) {
+        this.scanResistantEviction = scanResistantEviction;
+    }
+
+    public boolean isDeduplicateLobs() {
+        return deduplicateLobs;
+    }
+
+    /**
+     * Persist lobs by content, so that identical values share a single copy on disk
+     */
+    public void setDeduplicateLobs(boolean deduplicateLobs) {
+        this.deduplicateLobs = deduplicateLobs;
+    }
+
+    public boolean isCheckpointMatViews() {
+        return checkpointMatViews;
+    }
+
+    /**
+     * Checkpoint loaded internal materialized views to disk so that they may be restored after a restart
+     */
+    public void setCheckpointMatViews(boolean checkpointMatViews) {
+        this.checkpointMatViews = checkpointMatViews;
+    }
+
+    /**
+     * @return the directory for materialized view checkpoints or null if not in use.
+     * It is a sibling of the buffer directory, which is cleaned on start and stop.
+     */
+    public File getMatViewCheckpointDirectory() {
+        if (!useDisk || !checkpointMatViews || bufferDir == null) {
+            return null;
+        }
+        return new File(bufferDir.getParentFile(), "matviews"); //$NON-NLS-1$
+    }
+
     public void setBufferManager(BufferManagerImpl bufferManager) {
         this.bufferMgr = bufferManager;
     }
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.ObjectListAttributeDefinition;
+import org.jboss.as.controller.PrimitiveListAttributeDefinition;
 import org.jboss.as.controller.ObjectTypeAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
@@ -1013,6 +1014,10 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
         private static final String ACTIVE_PLAN_COUNT = "active-plans-count"; //$NON-NLS-1$
         private static final String WAITING_PLAN_COUNT = "waiting-plans-count"; //$NON-NLS-1$
         private static final String MAX_WAIT_PLAN_COUNT = "max-waitplan-watermark"; //$NON-NLS-1$
+        private static final String AVG_WAIT_PLAN_TIME = "avg-waitplan-time-ms"; //$NON-NLS-1$
+        private static final String MAX_WAIT_PLAN_TIME = "max-waitplan-time-ms"; //$NON-NLS-1$
+        private static final String SHED_PLAN_COUNT = "shed-plans-count"; //$NON-NLS-1$
+        private static final String ACTIVE_PLAN_RESERVATION = "active-plans-reservation-estimate-kb"; //$NON-NLS-1$
 
         public static EngineStatisticsMetadataMapper INSTANCE = new EngineStatisticsMetadataMapper();
 
@@ -1031,6 +1036,10 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
             node.get(ACTIVE_PLAN_COUNT).set(object.getActivePlanCount());
             node.get(WAITING_PLAN_COUNT).set(object.getWaitPlanCount());
             node.get(MAX_WAIT_PLAN_COUNT).set(object.getMaxWaitPlanWaterMark());
+            node.get(AVG_WAIT_PLAN_TIME).set(object.getAverageWaitPlanTimeMs());
+            node.get(MAX_WAIT_PLAN_TIME).set(object.getMaxWaitPlanTimeMs());
+            node.get(SHED_PLAN_COUNT).set(object.getShedPlanCount());
+            node.get(ACTIVE_PLAN_RESERVATION).set(object.getActivePlanReservationEstimateKb());
 
             wrapDomain(object, node);
             return node;
@@ -1052,6 +1061,12 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
             stats.setActivePlanCount(node.get(ACTIVE_PLAN_COUNT).asInt());
             stats.setWaitPlanCount(node.get(WAITING_PLAN_COUNT).asInt());
             stats.setMaxWaitPlanWaterMark(node.get(MAX_WAIT_PLAN_COUNT).asInt());
+            if (node.has(AVG_WAIT_PLAN_TIME)) {
+                stats.setAverageWaitPlanTimeMs(node.get(AVG_WAIT_PLAN_TIME).asLong());
+                stats.setMaxWaitPlanTimeMs(node.get(MAX_WAIT_PLAN_TIME).asLong());
+                stats.setShedPlanCount(node.get(SHED_PLAN_COUNT).asLong());
+                stats.setActivePlanReservationEstimateKb(node.get(ACTIVE_PLAN_RESERVATION).asLong());
+            }
 
             unwrapDomain(stats, node);
             return stats;
@@ -1069,7 +1084,11 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
                     createAttribute(DISK_SPACE_USED, ModelType.LONG, false),
                     createAttribute(ACTIVE_PLAN_COUNT, ModelType.INT, false),
                     createAttribute(WAITING_PLAN_COUNT, ModelType.INT, false),
-                    createAttribute(MAX_WAIT_PLAN_COUNT, ModelType.INT, false)
+                    createAttribute(MAX_WAIT_PLAN_COUNT, ModelType.INT, false),
+                    createAttribute(AVG_WAIT_PLAN_TIME, ModelType.LONG, false),
+                    createAttribute(MAX_WAIT_PLAN_TIME, ModelType.LONG, false),
+                    createAttribute(SHED_PLAN_COUNT, ModelType.LONG, false),
+                    createAttribute(ACTIVE_PLAN_RESERVATION, ModelType.LONG, false)
             };
         }
     }
@@ -1338,6 +1357,8 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
         private static final String TOTAL_COMPLETED = "total-completed"; //$NON-NLS-1$
         private static final String HIGHEST_ACTIVE_THREADS = "highest-active-threads"; //$NON-NLS-1$
         private static final String ACTIVE_THREADS = "active-threads"; //$NON-NLS-1$
+        private static final String WAIT_TIME_HISTOGRAM = "wait-time-histogram"; //$NON-NLS-1$
+        private static final String QUEUE_DEPTH_HISTOGRAM = "queue-depth-histogram"; //$NON-NLS-1$
 
         public static WorkerPoolStatisticsMetadataMapper INSTANCE = new WorkerPoolStatisticsMetadataMapper();
 
@@ -1353,6 +1374,12 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
             node.get(QUEUED).set(stats.getQueued());
             node.get(HIGHEST_QUEUED).set(stats.getHighestQueued());
             node.get(MAX_THREADS).set(stats.getMaxThreads());
+            for (long count : stats.getWaitTimeHistogram()) {
+                node.get(WAIT_TIME_HISTOGRAM).add(count);
+            }
+            for (long count : stats.getQueueDepthHistogram()) {
+                node.get(QUEUE_DEPTH_HISTOGRAM).add(count);
+            }
             wrapDomain(stats, node);
             return node;
         }
@@ -1370,6 +1397,12 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
             stats.setQueued(node.get(QUEUED).asInt());
             stats.setHighestQueued(node.get(HIGHEST_QUEUED).asInt());
             stats.setMaxThreads(node.get(MAX_THREADS).asInt());
+            if (node.hasDefined(WAIT_TIME_HISTOGRAM)) {
+                stats.setWaitTimeHistogram(unwrapHistogram(node.get(WAIT_TIME_HISTOGRAM)));
+            }
+            if (node.hasDefined(QUEUE_DEPTH_HISTOGRAM)) {
+                stats.setQueueDepthHistogram(unwrapHistogram(node.get(QUEUE_DEPTH_HISTOGRAM)));
+            }
             unwrapDomain(stats, node);
             return stats;
         }
@@ -1383,9 +1416,20 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
                     createAttribute(QUEUE_NAME, ModelType.STRING, false),
                     createAttribute(QUEUED, ModelType.INT, false),
                     createAttribute(HIGHEST_QUEUED, ModelType.INT, false),
-                    createAttribute(MAX_THREADS, ModelType.INT, false)
+                    createAttribute(MAX_THREADS, ModelType.INT, false),
+                    new PrimitiveListAttributeDefinition.Builder(WAIT_TIME_HISTOGRAM, ModelType.LONG).build(),
+                    new PrimitiveListAttributeDefinition.Builder(QUEUE_DEPTH_HISTOGRAM, ModelType.LONG).build()
                 };
         }
+
+        private static long[] unwrapHistogram(ModelNode node) {
+            List<ModelNode> counts = node.asList();
+            long[] result = new long[counts.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = counts.get(i).asLong();
+            }
+            return result;
+        }
     }
 
     public static void wrapDomain(AdminObjectImpl anObj, ModelNode node) {